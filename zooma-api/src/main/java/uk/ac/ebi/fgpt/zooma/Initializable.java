@@ -8,6 +8,9 @@ import org.slf4j.LoggerFactory;
  * #doInitialization} with the work they wish to do.  All methods that require initialization to complete can check the
  * current state with a call to {@link #isReady()} which returns true or false, or a call to {@link #waitUntilReady()},
  * which blocks whilst initialization completes.
+ * <p/>
+ * Once initialization has completed, readiness checks via {@link #isReady()} and {@link #initOrWait()} read volatile
+ * state and take no lock, so services that check readiness on every request do not contend with each other.
  *
  * @author Tony Burdett
  * @date 25/01/12
@@ -16,8 +19,8 @@ public abstract class Initializable {
     private Thread initThread;
 
     private boolean initStarted;
-    private boolean ready;
-    private Throwable initializationFailureThrowable;
+    private volatile boolean ready;
+    private volatile Throwable initializationFailureThrowable;
 
     private Logger log = LoggerFactory.getLogger(getClass());
 
@@ -52,10 +55,11 @@ public abstract class Initializable {
         return initStarted;
     }
 
-    public synchronized boolean isReady() throws IllegalStateException {
-        if (initializationFailureThrowable != null) {
+    public boolean isReady() throws IllegalStateException {
+        Throwable t = initializationFailureThrowable;
+        if (t != null) {
             throw new IllegalStateException(
-                    "Initialization of " + getClass().getSimpleName() + " failed", initializationFailureThrowable);
+                    "Initialization of " + getClass().getSimpleName() + " failed", t);
         }
         else {
             return ready;
@@ -70,17 +74,24 @@ public abstract class Initializable {
         getLog().debug(getClass().getSimpleName() + " is now ready");
     }
 
-    protected synchronized void initOrWait() throws IllegalStateException, InterruptedException {
-        if (hasInitStarted()) {
-            // init already started, just wait
-            waitUntilReady();
+    protected void initOrWait() throws IllegalStateException, InterruptedException {
+        // fast path - once ready, no need to take the lock
+        if (ready && initializationFailureThrowable == null) {
+            return;
         }
-        else {
-            // start (or possibly restart) init
-            if (!isReady()) {
-                init();
+
+        synchronized (this) {
+            if (hasInitStarted()) {
+                // init already started, just wait
                 waitUntilReady();
             }
+            else {
+                // start (or possibly restart) init
+                if (!isReady()) {
+                    init();
+                    waitUntilReady();
+                }
+            }
         }
     }
 
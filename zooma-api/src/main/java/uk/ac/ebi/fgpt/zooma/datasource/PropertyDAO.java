@@ -37,6 +37,16 @@ public interface PropertyDAO extends ZoomaDAO<Property> {
      */
     String readType(URI uri);
 
+    /**
+     * Retrieves the properties with the given URIs from a zooma datasource.  Implementations should read them in as few
+     * queries as possible, so that resolving many properties does not require a round trip to the datasource for each.
+     * Properties are returned in the order of the supplied URIs; any URI that does not identify a property is omitted.
+     *
+     * @param uris the identifiers of the properties to read
+     * @return the properties with these URIs
+     */
+    List<Property> read(Collection<URI> uris);
+
     /**
      * Retrieves a property from a zooma datasource by exactly matching on type and value
      *
@@ -0,0 +1,15 @@
+package uk.ac.ebi.fgpt.zooma.exception;
+
+/**
+ * An exception thrown when a cursor supplied to page through results from ZOOMA could not be parsed, usually because it
+ * was not returned with a previous page.
+ */
+public class InvalidCursorException extends IllegalArgumentException {
+    public InvalidCursorException(String message) {
+        super(message);
+    }
+
+    public InvalidCursorException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
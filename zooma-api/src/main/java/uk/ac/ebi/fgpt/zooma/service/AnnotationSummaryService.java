@@ -1,6 +1,8 @@
 package uk.ac.ebi.fgpt.zooma.service;
 
+import uk.ac.ebi.fgpt.zooma.exception.InvalidCursorException;
 import uk.ac.ebi.fgpt.zooma.model.AnnotationSummary;
+import uk.ac.ebi.fgpt.zooma.util.CursorPage;
 
 import java.util.Collection;
 
@@ -33,6 +35,18 @@ public interface AnnotationSummaryService {
      */
     Collection<AnnotationSummary> getAnnotationSummaries(int limit, int start);
 
+    /**
+     * Returns a page of all annotation summaries in ZOOMA, starting after the given cursor.  Paging through summaries
+     * with cursors costs the same for every page, unlike paging with a start index, and the returned page carries the
+     * cursor to use for the next page.
+     *
+     * @param limit  the maximum number of annotation summaries on the page
+     * @param cursor the cursor returned with the previous page, or null to start from the first page
+     * @return a page of annotation summaries, with the cursor for the next page
+     * @throws InvalidCursorException if the cursor was not returned with a previous page
+     */
+    CursorPage<AnnotationSummary> getAnnotationSummaries(int limit, String cursor);
+
     /**
      * Retrieves a single annotation summary, using the ID assigned to this summary in the underlying index.
      *
@@ -1,6 +1,8 @@
 package uk.ac.ebi.fgpt.zooma.service;
 
+import uk.ac.ebi.fgpt.zooma.exception.InvalidCursorException;
 import uk.ac.ebi.fgpt.zooma.model.Property;
+import uk.ac.ebi.fgpt.zooma.util.CursorPage;
 
 import java.net.URI;
 import java.util.List;
@@ -76,4 +78,16 @@ public interface PropertySearchService {
      * @return a collection of matching properties
      */
     List<String> suggest(String propertyValuePrefix, URI... sources);
+
+    /**
+     * Returns a page of all properties known to ZOOMA, starting after the given cursor.  Paging through properties with
+     * cursors costs the same for every page, unlike paging with a start index, and the returned page carries the cursor
+     * to use for the next page.
+     *
+     * @param limit  the maximum number of properties on the page
+     * @param cursor the cursor returned with the previous page, or null to start from the first page
+     * @return a page of properties, with the cursor for the next page
+     * @throws InvalidCursorException if the cursor was not returned with a previous page
+     */
+    CursorPage<Property> getProperties(int limit, String cursor);
 }
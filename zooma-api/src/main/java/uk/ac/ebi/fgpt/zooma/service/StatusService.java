@@ -1,5 +1,7 @@
 package uk.ac.ebi.fgpt.zooma.service;
 
+import java.util.Map;
+
 /**
  * A ZOOMA service that indicates the status of backend services.  This is used to indicate whether ZOOMA is ready to
  * serve requests, or force a reinitialization of backend infrastructure to ZOOMA.
@@ -22,6 +24,14 @@ public interface StatusService {
      */
     boolean checkStatus();
 
+    /**
+     * Returns details of the status determined by the last call to {@link #checkStatus()}, such as when it was checked
+     * and the state of each backend resource, without checking the status again.
+     *
+     * @return a map of status details, keyed by name
+     */
+    Map<String, Object> getStatusDetails();
+
     /**
      * Forces any startup procedure to be rerun, and ZOOMA status to be reset.  If initialization requires the
      * acquisition of a database connection, or a cache or and index to be built, this should force any old reasources
@@ -34,4 +44,13 @@ public interface StatusService {
      * @return a string that can indicate
      */
     String reinitialize();
+
+    /**
+     * Reloads any resources that ZOOMA serves requests from, such as search indices, so that changes made to them since
+     * they were last loaded become visible.  Unlike {@link #reinitialize()}, this does not rebuild anything and should
+     * not interrupt requests that are in progress.
+     *
+     * @return a string that can indicate the outcome of the refresh
+     */
+    String refresh();
 }
@@ -0,0 +1,48 @@
+package uk.ac.ebi.fgpt.zooma.util;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * A single page of results from a listing that is paged through with cursors.  Each page carries an opaque cursor
+ * that is passed back to obtain the next page; the cursor is null once there are no more results.
+ * <p/>
+ * Unlike paging with a start index, fetching the page after a cursor does not require the results before it to be
+ * read again, so every page costs the same to retrieve however deep into the listing it is.
+ *
+ * @param <T> the type of result
+ */
+public class CursorPage<T> {
+    private final List<T> results;
+    private final String next;
+
+    public CursorPage(List<T> results, String next) {
+        this.results = Collections.unmodifiableList(results);
+        this.next = next;
+    }
+
+    /**
+     * Returns the results on this page
+     *
+     * @return the results on this page, in order
+     */
+    public List<T> getResults() {
+        return results;
+    }
+
+    /**
+     * Returns the cursor that can be used to retrieve the page following this one, or null if this is the last page
+     *
+     * @return the cursor for the next page, or null if there are no more results
+     */
+    public String getNext() {
+        return next;
+    }
+
+    @Override public String toString() {
+        return "CursorPage{" +
+                "results=" + results.size() +
+                ", next='" + next + '\'' +
+                '}';
+    }
+}
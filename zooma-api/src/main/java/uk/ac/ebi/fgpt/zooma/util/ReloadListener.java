@@ -0,0 +1,16 @@
+package uk.ac.ebi.fgpt.zooma.util;
+
+/**
+ * A listener that is notified whenever the data that ZOOMA serves requests from may have changed - for example, when a
+ * search index is reopened or a data loading task completes.  Implementations that hold derived state, such as caches
+ * of search results, should discard it when notified.
+ */
+public interface ReloadListener {
+    /**
+     * Called after the data served by ZOOMA has been reloaded.  This may be called from any thread, and should return
+     * quickly.
+     *
+     * @param source a short description of what was reloaded, for logging
+     */
+    void reloaded(String source);
+}
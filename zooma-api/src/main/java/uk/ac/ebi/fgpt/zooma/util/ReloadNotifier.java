@@ -0,0 +1,23 @@
+package uk.ac.ebi.fgpt.zooma.util;
+
+/**
+ * A service that notifies {@link ReloadListener}s whenever the data it serves may have changed.  Components that cache
+ * results derived from a service should register with it if it implements this interface, so that they are told when
+ * those results become stale.
+ */
+public interface ReloadNotifier {
+    /**
+     * Registers a listener to be notified whenever the data served by this service is reloaded.  Adding a listener that
+     * is already registered has no effect.
+     *
+     * @param listener the listener to notify
+     */
+    void addReloadListener(ReloadListener listener);
+
+    /**
+     * Stops notifying a previously registered listener.  Removing a listener that is not registered has no effect.
+     *
+     * @param listener the listener to stop notifying
+     */
+    void removeReloadListener(ReloadListener listener);
+}
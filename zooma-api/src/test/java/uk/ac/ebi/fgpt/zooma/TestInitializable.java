@@ -0,0 +1,141 @@
+package uk.ac.ebi.fgpt.zooma;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Stress tests {@link Initializable#initOrWait()} from many concurrent threads.
+ */
+public class TestInitializable {
+    private static final int THREADS = 64;
+    private static final int ITERATIONS = 10000;
+
+    private ExecutorService executor;
+
+    @Before
+    public void setUp() {
+        executor = Executors.newFixedThreadPool(THREADS);
+    }
+
+    @After
+    public void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void testConcurrentInitialization() throws Exception {
+        final CountingInitializable initializable = new CountingInitializable(false);
+        List<Future<Boolean>> results = hammer(initializable, 1);
+        for (Future<Boolean> result : results) {
+            assertTrue("initOrWait returned before initialization completed", result.get(30, TimeUnit.SECONDS));
+        }
+        assertEquals("Initialization should run exactly once", 1, initializable.initializations.get());
+        assertTrue(initializable.isReady());
+    }
+
+    @Test
+    public void testNoBlockingOnceReady() throws Exception {
+        final CountingInitializable initializable = new CountingInitializable(false);
+        initializable.init();
+        initializable.waitUntilReady();
+
+        // hold the monitor - if initOrWait still took the lock once ready, no thread could make progress
+        List<Future<Boolean>> results;
+        synchronized (initializable) {
+            results = hammer(initializable, ITERATIONS);
+            for (Future<Boolean> result : results) {
+                try {
+                    assertTrue(result.get(30, TimeUnit.SECONDS));
+                }
+                catch (TimeoutException e) {
+                    fail("initOrWait blocked on the monitor although initialization had completed");
+                }
+            }
+        }
+        assertEquals("Initialization should run exactly once", 1, initializable.initializations.get());
+    }
+
+    @Test
+    public void testConcurrentInitializationFailure() throws Exception {
+        final CountingInitializable initializable = new CountingInitializable(true);
+        List<Future<Boolean>> results = hammer(initializable, 1);
+        for (Future<Boolean> result : results) {
+            assertTrue("initOrWait should fail when initialization fails", !result.get(30, TimeUnit.SECONDS));
+        }
+        try {
+            initializable.isReady();
+            fail("isReady() should throw after failed initialization");
+        }
+        catch (IllegalStateException e) {
+            // expected
+        }
+    }
+
+    /**
+     * Calls initOrWait the given number of times from every thread, released together.  Each future returns true if all
+     * calls completed with the initializable ready, or false if initialization failure was reported.
+     */
+    private List<Future<Boolean>> hammer(final CountingInitializable initializable, final int iterations) {
+        final CountDownLatch startGate = new CountDownLatch(1);
+        List<Future<Boolean>> results = new ArrayList<>();
+        for (int i = 0; i < THREADS; i++) {
+            results.add(executor.submit(new Callable<Boolean>() {
+                @Override public Boolean call() throws Exception {
+                    startGate.await();
+                    try {
+                        for (int j = 0; j < iterations; j++) {
+                            initializable.initOrWait();
+                            if (!initializable.initialized) {
+                                return false;
+                            }
+                        }
+                        return true;
+                    }
+                    catch (IllegalStateException e) {
+                        return false;
+                    }
+                }
+            }));
+        }
+        startGate.countDown();
+        return results;
+    }
+
+    private static class CountingInitializable extends Initializable {
+        private final boolean fail;
+        private final AtomicInteger initializations = new AtomicInteger();
+        private volatile boolean initialized;
+
+        private CountingInitializable(boolean fail) {
+            this.fail = fail;
+        }
+
+        @Override protected void doInitialization() throws Exception {
+            initializations.incrementAndGet();
+            Thread.sleep(100);
+            if (fail) {
+                throw new Exception("Deliberate initialization failure");
+            }
+            initialized = true;
+        }
+
+        @Override protected void doTermination() throws Exception {
+        }
+    }
+}
@@ -0,0 +1,90 @@
+package uk.ac.ebi.fgpt.zooma.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import uk.ac.ebi.fgpt.zooma.model.AnnotationSummary;
+import uk.ac.ebi.fgpt.zooma.util.AnnotationSummaryNeedlemanWunschJaccardScorer;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks the Needleman-Wunsch/Jaccard scorer over a fixed set of candidate summaries, isolating string similarity
+ * from search.  Each invocation scores every candidate against a single query, which is the work done for one
+ * property value once the candidates for it have been found.
+ * <p/>
+ * Parameters: <ul> <li><code>candidates</code> - the number of annotation summaries scored per invocation</li> </ul>
+ * <p/>
+ * The scorer is shared, so sweep the number of benchmark threads with JMH's <code>-t</code> option to check it scales.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class AnnotationSummaryScorerBenchmark {
+    @Param({"1000"})
+    public int candidates;
+
+    private SyntheticAnnotationDataset dataset;
+    private AnnotationSummaryNeedlemanWunschJaccardScorer scorer;
+
+    private List<AnnotationSummary> summaries;
+    private List<String> queries;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        // generate enough annotations to yield the required number of distinct candidate summaries
+        int size = candidates * 2;
+        do {
+            if (dataset != null) {
+                dataset.close();
+            }
+            dataset = new SyntheticAnnotationDataset(size);
+            size *= 2;
+        }
+        while (dataset.getSummaries().size() < candidates);
+
+        summaries = new ArrayList<>(dataset.getSummaries().subList(0, candidates));
+        queries = dataset.createQueries(100, 1);
+        scorer = new AnnotationSummaryNeedlemanWunschJaccardScorer();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        dataset.close();
+    }
+
+    /**
+     * Per-thread position in the list of queries
+     */
+    @State(Scope.Thread)
+    public static class Cursor {
+        private int next;
+
+        int next(int size) {
+            next = (next + 1) % size;
+            return next;
+        }
+    }
+
+    @Benchmark
+    public Map<AnnotationSummary, Float> score(Cursor cursor) {
+        return scorer.score(summaries, queries.get(cursor.next(queries.size())));
+    }
+}
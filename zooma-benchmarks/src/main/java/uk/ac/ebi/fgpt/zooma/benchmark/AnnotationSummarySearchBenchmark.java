@@ -0,0 +1,144 @@
+package uk.ac.ebi.fgpt.zooma.benchmark;
+
+import org.apache.lucene.analysis.Analyzer;
+import org.apache.lucene.store.Directory;
+import org.apache.lucene.store.FSDirectory;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import uk.ac.ebi.fgpt.zooma.model.AnnotationSummary;
+import uk.ac.ebi.fgpt.zooma.model.TypedProperty;
+import uk.ac.ebi.fgpt.zooma.service.LuceneAnnotationSummarySearchService;
+import uk.ac.ebi.fgpt.zooma.util.AnnotationSummaryNeedlemanWunschJaccardScorer;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks lucene annotation summary search, the first stage of every ZOOMA annotate request, both on its own and
+ * followed by the Needleman-Wunsch/Jaccard rescoring that ZOOMA applies to search results.
+ * <p/>
+ * Parameters: <ul> <li><code>datasetSize</code> - the number of synthetic annotations indexed; the number of distinct
+ * summaries is somewhat lower, as repeated property/term pairs are summarized together</li>
+ * <li><code>maxSummaries</code> - the maximum number of summaries each search returns</li> </ul>
+ * <p/>
+ * All searches share one service, so to measure contention sweep the number of benchmark threads with JMH's
+ * <code>-t</code> option, for example <code>java -jar benchmarks.jar AnnotationSummarySearch -t 1 -t 4 -t 16 -p
+ * datasetSize=10000</code>.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class AnnotationSummarySearchBenchmark {
+    @Param({"1000", "10000", "100000"})
+    public int datasetSize;
+
+    @Param({"50"})
+    public int maxSummaries;
+
+    private SyntheticAnnotationDataset dataset;
+    private Analyzer analyzer;
+    private Directory summaryIndex;
+    private LuceneAnnotationSummarySearchService searchService;
+    private AnnotationSummaryNeedlemanWunschJaccardScorer scorer;
+
+    private List<String> queries;
+    private List<String> types;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException, InterruptedException {
+        dataset = new SyntheticAnnotationDataset(datasetSize);
+        Path indexDirectory = dataset.getDirectory().resolve("index");
+        dataset.buildIndices(indexDirectory);
+
+        analyzer = dataset.createAnalyzer();
+        summaryIndex = FSDirectory.open(indexDirectory.resolve("annotationSummary"));
+        searchService = new LuceneAnnotationSummarySearchService();
+        searchService.setIndex(summaryIndex);
+        searchService.setAnalyzer(analyzer);
+        searchService.setAnnotationDAO(dataset.createAnnotationDAO());
+        searchService.setMaxSummaries(maxSummaries);
+        searchService.init();
+        searchService.waitUntilReady();
+
+        scorer = new AnnotationSummaryNeedlemanWunschJaccardScorer();
+
+        // queries are paired with the type of a random property, so typed searches sometimes match and sometimes don't
+        queries = dataset.createQueries(1000, 1);
+        types = new ArrayList<>();
+        Random random = dataset.createRandom(2);
+        for (int i = 0; i < queries.size(); i++) {
+            TypedProperty property =
+                    (TypedProperty) dataset.getProperties().get(random.nextInt(dataset.getProperties().size()));
+            types.add(property.getPropertyType());
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        searchService.destroy();
+        summaryIndex.close();
+        analyzer.close();
+        dataset.close();
+    }
+
+    /**
+     * Per-thread position in the list of queries, so that concurrent threads don't all search for the same thing
+     */
+    @State(Scope.Thread)
+    public static class Cursor {
+        private int next;
+
+        @Setup(Level.Trial)
+        public void setUp() {
+            next = (int) (Thread.currentThread().getId() * 997);
+        }
+
+        int next(int size) {
+            next = (next + 1) % size;
+            return next;
+        }
+    }
+
+    @Benchmark
+    public Collection<AnnotationSummary> search(Cursor cursor) {
+        return searchService.search(queries.get(cursor.next(queries.size())));
+    }
+
+    @Benchmark
+    public Collection<AnnotationSummary> searchByType(Cursor cursor) {
+        int i = cursor.next(queries.size());
+        return searchService.search(types.get(i), queries.get(i));
+    }
+
+    /**
+     * Searches and then scores the results against the query, as ZOOMA does for each annotate request
+     *
+     * @param cursor the per-thread query cursor
+     * @return the scored summaries
+     */
+    @Benchmark
+    public Map<AnnotationSummary, Float> annotate(Cursor cursor) {
+        String query = queries.get(cursor.next(queries.size()));
+        return scorer.score(searchService.search(query), query);
+    }
+}
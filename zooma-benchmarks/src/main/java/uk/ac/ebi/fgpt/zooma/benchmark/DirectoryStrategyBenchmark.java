@@ -0,0 +1,164 @@
+package uk.ac.ebi.fgpt.zooma.benchmark;
+
+import org.apache.lucene.analysis.Analyzer;
+import org.apache.lucene.store.Directory;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import uk.ac.ebi.fgpt.zooma.model.AnnotationSummary;
+import uk.ac.ebi.fgpt.zooma.service.LuceneAnnotationSummarySearchService;
+import uk.ac.ebi.fgpt.zooma.service.LuceneDirectoryFactory;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares annotation summary search latency when the summary index is opened through each {@link
+ * LuceneDirectoryFactory} strategy, both for the first queries after the index is opened (cold) and once the service
+ * has been in use for a while (warm).
+ * <p/>
+ * Parameters: <ul> <li><code>datasetSize</code> - the number of synthetic annotations indexed</li>
+ * <li><code>strategy</code> - the directory strategy</li> <li><code>preload</code> - whether memory mapped files are
+ * preloaded; ignored by other strategies</li> </ul>
+ * <p/>
+ * The cold benchmark reopens the index before every iteration and times a single batch of queries, so it includes the
+ * cost of opening (and for RAM, copying) the index.  Index files will usually still be in the OS page cache from
+ * building the index, so to measure truly cold reads drop the page cache between iterations.
+ */
+@State(Scope.Benchmark)
+@Fork(1)
+public class DirectoryStrategyBenchmark {
+    private static final int COLD_QUERIES = 20;
+
+    @Param({"10000", "100000"})
+    public int datasetSize;
+
+    @Param({"MMAP", "NIOFS", "RAM"})
+    public LuceneDirectoryFactory.Strategy strategy;
+
+    @Param({"false", "true"})
+    public boolean preload;
+
+    private SyntheticAnnotationDataset dataset;
+    private Path summaryIndexPath;
+    private List<String> queries;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        dataset = new SyntheticAnnotationDataset(datasetSize);
+        Path indexDirectory = dataset.getDirectory().resolve("index");
+        dataset.buildIndices(indexDirectory);
+        summaryIndexPath = indexDirectory.resolve("annotationSummary");
+        queries = dataset.createQueries(1000, 1);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        dataset.close();
+    }
+
+    /**
+     * A search service over the summary index, opened through the benchmarked strategy
+     */
+    public abstract static class OpenIndex {
+        private Analyzer analyzer;
+        private Directory summaryIndex;
+        protected LuceneAnnotationSummarySearchService searchService;
+        protected int next;
+
+        protected void open(DirectoryStrategyBenchmark benchmark) throws IOException, InterruptedException {
+            LuceneDirectoryFactory factory = new LuceneDirectoryFactory();
+            factory.setStrategy(benchmark.strategy);
+            factory.setPreload(benchmark.preload);
+
+            analyzer = benchmark.dataset.createAnalyzer();
+            summaryIndex = factory.openDirectory(benchmark.summaryIndexPath);
+            searchService = new LuceneAnnotationSummarySearchService();
+            searchService.setIndex(summaryIndex);
+            searchService.setAnalyzer(analyzer);
+            searchService.setAnnotationDAO(benchmark.dataset.createAnnotationDAO());
+            searchService.init();
+            searchService.waitUntilReady();
+        }
+
+        protected void close() throws IOException {
+            searchService.destroy();
+            summaryIndex.close();
+            analyzer.close();
+        }
+    }
+
+    /**
+     * An index that is opened afresh before each iteration
+     */
+    @State(Scope.Thread)
+    public static class ColdIndex extends OpenIndex {
+        @Setup(Level.Iteration)
+        public void setUp(DirectoryStrategyBenchmark benchmark) throws IOException, InterruptedException {
+            open(benchmark);
+        }
+
+        @TearDown(Level.Iteration)
+        public void tearDown() throws IOException {
+            close();
+        }
+    }
+
+    /**
+     * An index that stays open for the whole trial
+     */
+    @State(Scope.Thread)
+    public static class WarmIndex extends OpenIndex {
+        @Setup(Level.Trial)
+        public void setUp(DirectoryStrategyBenchmark benchmark) throws IOException, InterruptedException {
+            open(benchmark);
+        }
+
+        @TearDown(Level.Trial)
+        public void tearDown() throws IOException {
+            close();
+        }
+    }
+
+    /**
+     * Runs the first few queries against a newly opened index
+     *
+     * @param index the newly opened index
+     * @return the number of summaries found
+     */
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    @Warmup(iterations = 2)
+    @Measurement(iterations = 10)
+    public int coldSearch(ColdIndex index) {
+        int found = 0;
+        for (int i = 0; i < COLD_QUERIES; i++) {
+            found += index.searchService.search(queries.get(i)).size();
+        }
+        return found;
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    @Warmup(iterations = 5, time = 1)
+    @Measurement(iterations = 5, time = 1)
+    public Collection<AnnotationSummary> warmSearch(WarmIndex index) {
+        index.next = (index.next + 1) % queries.size();
+        return index.searchService.search(queries.get(index.next));
+    }
+}
@@ -0,0 +1,136 @@
+package uk.ac.ebi.fgpt.zooma.benchmark;
+
+import org.apache.lucene.analysis.Analyzer;
+import org.apache.lucene.store.Directory;
+import org.apache.lucene.store.FSDirectory;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import uk.ac.ebi.fgpt.zooma.model.TypedProperty;
+import uk.ac.ebi.fgpt.zooma.service.LucenePropertySearchService;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks property value suggestion, as used to autocomplete property values, both by a prefix query over the
+ * property index and from the property suggester index.
+ * <p/>
+ * Parameters: <ul> <li><code>datasetSize</code> - the number of synthetic annotations indexed</li>
+ * <li><code>maxSuggestions</code> - the maximum number of suggestions each request returns</li> </ul>
+ * <p/>
+ * Prefixes are the first two to six characters of a word from an indexed property value; half are taken from the
+ * first word of the value, and half from any word.  Note that the two paths order suggestions differently: the prefix
+ * query by relevance, and the suggester by the number of annotations that use each value.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PropertySuggestBenchmark {
+    @Param({"1000", "10000", "100000"})
+    public int datasetSize;
+
+    @Param({"20"})
+    public int maxSuggestions;
+
+    private SyntheticAnnotationDataset dataset;
+    private Analyzer analyzer;
+    private Directory propertyIndex;
+    private Directory propertySuggestIndex;
+    private LucenePropertySearchService queryingService;
+    private LucenePropertySearchService suggestingService;
+
+    private List<String> prefixes;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException, InterruptedException {
+        dataset = new SyntheticAnnotationDataset(datasetSize);
+        Path indexDirectory = dataset.getDirectory().resolve("index");
+        dataset.buildIndices(indexDirectory);
+        propertySuggestIndex = FSDirectory.open(indexDirectory.resolve("propertySuggest"));
+        dataset.buildPropertySuggestIndex(propertySuggestIndex);
+
+        analyzer = dataset.createAnalyzer();
+        propertyIndex = FSDirectory.open(indexDirectory.resolve("property"));
+
+        queryingService = new LucenePropertySearchService();
+        queryingService.setIndex(propertyIndex);
+        queryingService.setAnalyzer(analyzer);
+        queryingService.setMaxSuggestions(maxSuggestions);
+        queryingService.init();
+        queryingService.waitUntilReady();
+
+        suggestingService = new LucenePropertySearchService();
+        suggestingService.setIndex(propertyIndex);
+        suggestingService.setAnalyzer(analyzer);
+        suggestingService.setSuggestIndex(propertySuggestIndex);
+        suggestingService.setMaxSuggestions(maxSuggestions);
+        suggestingService.init();
+        suggestingService.waitUntilReady();
+
+        prefixes = new ArrayList<>();
+        Random random = dataset.createRandom(3);
+        for (int i = 0; i < 1000; i++) {
+            TypedProperty property =
+                    (TypedProperty) dataset.getProperties().get(random.nextInt(dataset.getProperties().size()));
+            String[] words = property.getPropertyValue().split(" ");
+            String word = i % 2 == 0 ? words[0] : words[random.nextInt(words.length)];
+            prefixes.add(word.substring(0, Math.min(word.length(), 2 + random.nextInt(5))));
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        queryingService.destroy();
+        suggestingService.destroy();
+        propertyIndex.close();
+        propertySuggestIndex.close();
+        analyzer.close();
+        dataset.close();
+    }
+
+    /**
+     * Per-thread position in the list of prefixes, so that concurrent threads don't all suggest the same thing
+     */
+    @State(Scope.Thread)
+    public static class Cursor {
+        private int next;
+
+        @Setup(Level.Trial)
+        public void setUp() {
+            next = (int) (Thread.currentThread().getId() * 997);
+        }
+
+        int next(int size) {
+            next = (next + 1) % size;
+            return next;
+        }
+    }
+
+    @Benchmark
+    public List<String> prefixQuery(Cursor cursor) {
+        return queryingService.suggest(prefixes.get(cursor.next(prefixes.size())));
+    }
+
+    @Benchmark
+    public List<String> suggester(Cursor cursor) {
+        return suggestingService.suggest(prefixes.get(cursor.next(prefixes.size())));
+    }
+}
@@ -0,0 +1,166 @@
+package uk.ac.ebi.fgpt.zooma.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.simmetrics.StringMetric;
+import org.simmetrics.StringMetricBuilder;
+import org.simmetrics.metrics.JaccardSimilarity;
+import org.simmetrics.metrics.NeedlemanWunch;
+import org.simmetrics.tokenizers.Whitespace;
+import uk.ac.ebi.fgpt.zooma.util.PropertyValueCandidateIndex;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks finding the property values similar to a query, as the Needleman-Wunsch/Jaccard expansion does, by scoring
+ * every value in a dictionary against scoring only the candidates shortlisted by a {@link
+ * PropertyValueCandidateIndex}.  Each invocation finds the similar values for a single query, which is a near (but
+ * usually not exact) match to a dictionary value.
+ * <p/>
+ * Parameters: <ul> <li><code>dictionarySize</code> - the number of distinct property values in the dictionary</li>
+ * </ul>
+ * <p/>
+ * The index and metrics are shared, so sweep the number of benchmark threads with JMH's <code>-t</code> option to check
+ * they scale.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PropertyValueCandidateIndexBenchmark {
+    // the thresholds used by NeedlemanJaccardAnnotationSummarySearchService
+    private static final float NEEDLEMAN_WUNSCH_MIN_SCORE = 0.90f;
+    private static final float JACCARD_MIN_SCORE = 0.525f;
+
+    @Param({"200000"})
+    public int dictionarySize;
+
+    private List<String> dictionary;
+    private PropertyValueCandidateIndex index;
+    private List<String> queries;
+
+    private StringMetric needlemanWunsch;
+    private StringMetric jaccard;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        Random random = new Random(42);
+        List<String> vocabulary = new ArrayList<>();
+        for (int i = 0; i < 3000; i++) {
+            StringBuilder word = new StringBuilder();
+            int letters = 3 + random.nextInt(8);
+            for (int j = 0; j < letters; j++) {
+                word.append((char) ('a' + random.nextInt(26)));
+            }
+            vocabulary.add(word.toString());
+        }
+
+        Set<String> values = new LinkedHashSet<>();
+        while (values.size() < dictionarySize) {
+            StringBuilder value = new StringBuilder();
+            int words = 1 + random.nextInt(4);
+            for (int j = 0; j < words; j++) {
+                if (j > 0) {
+                    value.append(" ");
+                }
+                value.append(vocabulary.get(random.nextInt(vocabulary.size())));
+            }
+            values.add(value.toString());
+        }
+        dictionary = new ArrayList<>(values);
+        index = new PropertyValueCandidateIndex(dictionary);
+
+        // near matches: dictionary values with a substituted, inserted or deleted character, or an extra word
+        queries = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            StringBuilder query = new StringBuilder(dictionary.get(random.nextInt(dictionary.size())));
+            switch (i % 4) {
+                case 0:
+                    query.setCharAt(random.nextInt(query.length()), 'y');
+                    break;
+                case 1:
+                    query.insert(random.nextInt(query.length() + 1), 'y');
+                    break;
+                case 2:
+                    query.deleteCharAt(random.nextInt(query.length()));
+                    break;
+                default:
+                    query.append(" ").append(dictionary.get(random.nextInt(dictionary.size())).split(" ")[0]);
+                    break;
+            }
+            queries.add(query.toString());
+        }
+
+        needlemanWunsch = new NeedlemanWunch();
+        jaccard = StringMetricBuilder.with(new JaccardSimilarity<String>()).tokenize(new Whitespace()).build();
+    }
+
+    /**
+     * Per-thread position in the list of queries
+     */
+    @State(Scope.Thread)
+    public static class Cursor {
+        private int next;
+
+        int next(int size) {
+            next = (next + 1) % size;
+            return next;
+        }
+    }
+
+    private Map<String, Float> score(StringMetric metric, String query, Collection<String> values, float minScore) {
+        Map<String, Float> results = new HashMap<>();
+        for (String value : values) {
+            float score = metric.compare(query, value);
+            if (score >= minScore) {
+                results.put(value, score);
+            }
+        }
+        return results;
+    }
+
+    @Benchmark
+    public Map<String, Float> needlemanWunschBruteForce(Cursor cursor) {
+        return score(needlemanWunsch, queries.get(cursor.next(queries.size())), dictionary, NEEDLEMAN_WUNSCH_MIN_SCORE);
+    }
+
+    @Benchmark
+    public Map<String, Float> needlemanWunschIndexed(Cursor cursor) {
+        String query = queries.get(cursor.next(queries.size()));
+        return score(needlemanWunsch,
+                     query,
+                     index.getNeedlemanWunschCandidates(query, NEEDLEMAN_WUNSCH_MIN_SCORE),
+                     NEEDLEMAN_WUNSCH_MIN_SCORE);
+    }
+
+    @Benchmark
+    public Map<String, Float> jaccardBruteForce(Cursor cursor) {
+        return score(jaccard, queries.get(cursor.next(queries.size())), dictionary, JACCARD_MIN_SCORE);
+    }
+
+    @Benchmark
+    public Map<String, Float> jaccardIndexed(Cursor cursor) {
+        String query = queries.get(cursor.next(queries.size()));
+        return score(jaccard, query, index.getJaccardCandidates(query, JACCARD_MIN_SCORE), JACCARD_MIN_SCORE);
+    }
+}
@@ -0,0 +1,121 @@
+package uk.ac.ebi.fgpt.zooma.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import uk.ac.ebi.fgpt.zooma.model.Property;
+import uk.ac.ebi.fgpt.zooma.util.AnatomyProcessor;
+import uk.ac.ebi.fgpt.zooma.util.ChemicalCompoundProcessor;
+import uk.ac.ebi.fgpt.zooma.util.ParenthesesProcessor;
+import uk.ac.ebi.fgpt.zooma.util.SearchStringProcessor;
+import uk.ac.ebi.fgpt.zooma.util.SplittingProcessor;
+import uk.ac.ebi.fgpt.zooma.util.StopwordProcessor;
+import uk.ac.ebi.fgpt.zooma.util.TimeProcessor;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks each {@link SearchStringProcessor} over the property values of a synthetic dataset.  Each invocation
+ * processes a single value, checking whether the processor applies first, exactly as ZOOMA does when normalizing a
+ * search string or building its property value dictionary.
+ * <p/>
+ * Parameters: <ul> <li><code>processor</code> - the processor to benchmark; dictionary loading processors read small
+ * synthetic dictionaries from the dataset's working directory</li> </ul>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SearchStringProcessorBenchmark {
+    @Param({"anatomy", "compound", "parentheses", "splitting", "stopword", "time"})
+    public String processor;
+
+    private SyntheticAnnotationDataset dataset;
+    private SearchStringProcessor searchStringProcessor;
+    private List<String> values;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        dataset = new SyntheticAnnotationDataset(10000);
+        switch (processor) {
+            case "anatomy":
+                AnatomyProcessor anatomyProcessor = new AnatomyProcessor(dataset.writeDictionary("qualifiers"));
+                anatomyProcessor.init();
+                searchStringProcessor = anatomyProcessor;
+                break;
+            case "compound":
+                ChemicalCompoundProcessor compoundProcessor =
+                        new ChemicalCompoundProcessor(dataset.writeDictionary("units"));
+                compoundProcessor.init();
+                searchStringProcessor = compoundProcessor;
+                break;
+            case "parentheses":
+                searchStringProcessor = new ParenthesesProcessor();
+                break;
+            case "splitting":
+                searchStringProcessor = new SplittingProcessor();
+                break;
+            case "stopword":
+                StopwordProcessor stopwordProcessor = new StopwordProcessor(dataset.writeDictionary("stopwords"));
+                stopwordProcessor.init();
+                searchStringProcessor = stopwordProcessor;
+                break;
+            case "time":
+                searchStringProcessor = new TimeProcessor();
+                break;
+            default:
+                throw new IllegalArgumentException("Unknown processor '" + processor + "'");
+        }
+
+        values = new ArrayList<>();
+        for (Property property : dataset.getProperties()) {
+            values.add(property.getPropertyValue());
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        dataset.close();
+    }
+
+    /**
+     * Per-thread position in the list of property values
+     */
+    @State(Scope.Thread)
+    public static class Cursor {
+        private int next;
+
+        int next(int size) {
+            next = (next + 1) % size;
+            return next;
+        }
+    }
+
+    @Benchmark
+    public Collection<String> process(Cursor cursor) {
+        String value = values.get(cursor.next(values.size()));
+        if (searchStringProcessor.canProcess(value)) {
+            return searchStringProcessor.processSearchString(value);
+        }
+        else {
+            return Collections.singleton(value);
+        }
+    }
+}
@@ -0,0 +1,702 @@
+package uk.ac.ebi.fgpt.zooma.benchmark;
+
+import org.apache.lucene.analysis.Analyzer;
+import org.apache.lucene.analysis.en.EnglishAnalyzer;
+import org.apache.lucene.analysis.util.CharArraySet;
+import org.apache.lucene.store.Directory;
+import org.apache.lucene.store.FSDirectory;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.Resource;
+import uk.ac.ebi.fgpt.zooma.datasource.AnnotationDAO;
+import uk.ac.ebi.fgpt.zooma.datasource.AnnotationSummaryDAO;
+import uk.ac.ebi.fgpt.zooma.datasource.PropertyDAO;
+import uk.ac.ebi.fgpt.zooma.model.Annotation;
+import uk.ac.ebi.fgpt.zooma.model.AnnotationProvenance;
+import uk.ac.ebi.fgpt.zooma.model.AnnotationSource;
+import uk.ac.ebi.fgpt.zooma.model.AnnotationSummary;
+import uk.ac.ebi.fgpt.zooma.model.BiologicalEntity;
+import uk.ac.ebi.fgpt.zooma.model.Property;
+import uk.ac.ebi.fgpt.zooma.model.SimpleAnnotation;
+import uk.ac.ebi.fgpt.zooma.model.SimpleAnnotationProvenance;
+import uk.ac.ebi.fgpt.zooma.model.SimpleAnnotationSummary;
+import uk.ac.ebi.fgpt.zooma.model.SimpleDatabaseAnnotationSource;
+import uk.ac.ebi.fgpt.zooma.model.SimpleTypedProperty;
+import uk.ac.ebi.fgpt.zooma.model.Study;
+import uk.ac.ebi.fgpt.zooma.model.TypedProperty;
+import uk.ac.ebi.fgpt.zooma.service.ZoomaLuceneIndexer;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+/**
+ * A synthetic, deterministically generated set of annotations, along with the properties and annotation summaries
+ * derived from them, for use in benchmarks.  Two datasets created with the same size and seed are identical.
+ * <p/>
+ * Property values are built from a random vocabulary, and a proportion of them contain the numbers, units, anatomical
+ * qualifiers, parentheses and conjunctions that ZOOMA's search string processors strip out.  Property usage is skewed
+ * so that a few properties are annotated many times, as in real curated datasets.  Each dataset owns a temporary
+ * working directory, for lucene indices and processor dictionaries, which is deleted when the dataset is closed.
+ */
+public class SyntheticAnnotationDataset implements Closeable {
+    public static final long DEFAULT_SEED = 42;
+
+    private static final String RESOURCE_BASE = "http://rdf.ebi.ac.uk/resource/zooma/benchmark/";
+    private static final String[] PROPERTY_TYPES = {
+            "organism part", "cell type", "disease", "compound", "time", "developmental stage", "phenotype",
+            "strain", "genotype", "cell line", "organism", "sex", "age", "dose", "growth condition"
+    };
+    private static final String[] UNITS = {
+            "milligram per kilogram", "micromolar", "millimolar", "nanomolar", "microgram per milliliter", "percent",
+            "mg/kg", "uM", "mM", "nM"
+    };
+    private static final String[] TIME_UNITS = {"hour", "hours", "day", "days", "week", "weeks", "minutes"};
+    private static final String[] QUALIFIERS = {
+            "left", "right", "upper", "lower", "anterior", "posterior", "dorsal", "ventral", "proximal", "distal",
+            "inner", "outer", "medial", "lateral"
+    };
+    private static final String[] STOPWORDS = {"a", "an", "and", "the", "of", "in", "on", "with", "for", "to", "by"};
+
+    private final int size;
+    private final Random random;
+    private final Path directory;
+
+    private final List<String> vocabulary;
+    private final List<AnnotationSource> sources;
+    private final List<Property> properties;
+    private final List<Annotation> annotations;
+    private final List<AnnotationSummary> summaries;
+
+    /**
+     * Creates a new dataset of the given number of annotations using the default seed
+     *
+     * @param size the number of annotations to generate
+     * @throws IOException if the working directory could not be created
+     */
+    public SyntheticAnnotationDataset(int size) throws IOException {
+        this(size, DEFAULT_SEED);
+    }
+
+    /**
+     * Creates a new dataset of the given number of annotations
+     *
+     * @param size the number of annotations to generate
+     * @param seed the seed used to generate the dataset
+     * @throws IOException if the working directory could not be created
+     */
+    public SyntheticAnnotationDataset(int size, long seed) throws IOException {
+        this.size = size;
+        this.random = new Random(seed);
+        this.directory = Files.createTempDirectory("zooma-benchmark-");
+
+        this.vocabulary = createVocabulary(Math.max(500, size / 20));
+        this.sources = createSources(8);
+        this.properties = createProperties(Math.max(10, size / 4));
+        this.annotations = createAnnotations();
+        this.summaries = createSummaries();
+    }
+
+    public int getSize() {
+        return size;
+    }
+
+    public Path getDirectory() {
+        return directory;
+    }
+
+    public List<String> getVocabulary() {
+        return vocabulary;
+    }
+
+    public List<Property> getProperties() {
+        return properties;
+    }
+
+    public List<Annotation> getAnnotations() {
+        return annotations;
+    }
+
+    public List<AnnotationSummary> getSummaries() {
+        return summaries;
+    }
+
+    /**
+     * Returns a new random number generator, seeded from this dataset, for benchmarks that need to make further random
+     * choices (for example, when generating queries) without disturbing the dataset itself.
+     *
+     * @param seed a seed that identifies the use this generator will be put to
+     * @return a deterministically seeded random number generator
+     */
+    public Random createRandom(long seed) {
+        return new Random(31 * seed + size);
+    }
+
+    /**
+     * Creates the analyzer ZOOMA uses to build and search lucene indices
+     *
+     * @return a new analyzer
+     */
+    public Analyzer createAnalyzer() {
+        return new EnglishAnalyzer(CharArraySet.EMPTY_SET);
+    }
+
+    /**
+     * Creates property value queries of the sort ZOOMA receives in annotate requests.  Roughly a third of queries are
+     * exact copies of indexed property values, a third are indexed values with a typo, and a third are new combinations
+     * of vocabulary words that are unlikely to match well.
+     *
+     * @param count the number of queries to create
+     * @param seed  the seed for query generation
+     * @return a list of property value queries
+     */
+    public List<String> createQueries(int count, long seed) {
+        Random queryRandom = createRandom(seed);
+        List<String> queries = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            String value = ((TypedProperty) properties.get(queryRandom.nextInt(properties.size()))).getPropertyValue();
+            switch (i % 3) {
+                case 0:
+                    queries.add(value);
+                    break;
+                case 1:
+                    StringBuilder typo = new StringBuilder(value);
+                    typo.setCharAt(queryRandom.nextInt(typo.length()), (char) ('a' + queryRandom.nextInt(26)));
+                    queries.add(typo.toString());
+                    break;
+                default:
+                    queries.add(createWords(queryRandom, 1 + queryRandom.nextInt(3)));
+                    break;
+            }
+        }
+        return queries;
+    }
+
+    /**
+     * Builds all ZOOMA lucene indices for this dataset under the given directory, in the same way as {@link
+     * ZoomaLuceneIndexer#init()} but without needing the indexer to be initialized.
+     *
+     * @param indexDirectory the directory to create indices in
+     * @throws IOException if the indices could not be written
+     */
+    public void buildIndices(Path indexDirectory) throws IOException {
+        Directory annotationIndex = FSDirectory.open(indexDirectory.resolve("annotation"));
+        Directory annotationCountIndex = FSDirectory.open(indexDirectory.resolve("annotationCount"));
+        Directory annotationSummaryIndex = FSDirectory.open(indexDirectory.resolve("annotationSummary"));
+        Directory propertyIndex = FSDirectory.open(indexDirectory.resolve("property"));
+        Directory propertyTypeIndex = FSDirectory.open(indexDirectory.resolve("propertyType"));
+        try {
+            buildIndices(annotationIndex,
+                         annotationCountIndex,
+                         annotationSummaryIndex,
+                         propertyIndex,
+                         propertyTypeIndex);
+        }
+        finally {
+            annotationIndex.close();
+            annotationCountIndex.close();
+            annotationSummaryIndex.close();
+            propertyIndex.close();
+            propertyTypeIndex.close();
+        }
+    }
+
+    /**
+     * Builds all ZOOMA lucene indices for this dataset into the supplied directories, using the indexer's default
+     * number of threads.
+     *
+     * @throws IOException if the indices could not be written
+     */
+    public void buildIndices(Directory annotationIndex,
+                             Directory annotationCountIndex,
+                             Directory annotationSummaryIndex,
+                             Directory propertyIndex,
+                             Directory propertyTypeIndex) throws IOException {
+        buildIndices(annotationIndex,
+                     annotationCountIndex,
+                     annotationSummaryIndex,
+                     propertyIndex,
+                     propertyTypeIndex,
+                     Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Builds all ZOOMA lucene indices for this dataset into the supplied directories, using the given number of
+     * indexing threads.
+     *
+     * @throws IOException if the indices could not be written
+     */
+    public void buildIndices(Directory annotationIndex,
+                             Directory annotationCountIndex,
+                             Directory annotationSummaryIndex,
+                             Directory propertyIndex,
+                             Directory propertyTypeIndex,
+                             int indexingThreads) throws IOException {
+        Analyzer analyzer = createAnalyzer();
+        try {
+            ZoomaLuceneIndexer indexer = new ZoomaLuceneIndexer();
+            indexer.setAnalyzer(analyzer);
+            indexer.setIndexingThreads(indexingThreads);
+            indexer.setAnnotationDAO(createAnnotationDAO());
+            indexer.setAnnotationSummaryDAO(createAnnotationSummaryDAO());
+            indexer.setPropertyDAO(createPropertyDAO());
+            indexer.setAnnotationIndex(annotationIndex);
+            indexer.setAnnotationCountIndex(annotationCountIndex);
+            indexer.setAnnotationSummaryIndex(annotationSummaryIndex);
+            indexer.setPropertyIndex(propertyIndex);
+            indexer.setPropertyTypeIndex(propertyTypeIndex);
+
+            indexer.createIndices(annotations, annotations.size(), properties);
+        }
+        finally {
+            analyzer.close();
+        }
+    }
+
+    /**
+     * Builds the property value suggester index for this dataset into the supplied directory
+     *
+     * @param propertySuggestIndex the directory to build the suggester index in
+     * @throws IOException if the index could not be written
+     */
+    public void buildPropertySuggestIndex(Directory propertySuggestIndex) throws IOException {
+        ZoomaLuceneIndexer indexer = new ZoomaLuceneIndexer();
+        indexer.setPropertySuggestIndex(propertySuggestIndex);
+        indexer.createPropertySuggestIndex(annotations);
+    }
+
+    /**
+     * Writes a dictionary file, one entry per line, for the dictionary loading search string processors
+     *
+     * @param type the type of dictionary: "units", "qualifiers" or "stopwords"
+     * @return a resource for the dictionary file
+     * @throws IOException if the dictionary could not be written
+     */
+    public Resource writeDictionary(String type) throws IOException {
+        String[] entries;
+        switch (type) {
+            case "units":
+                entries = UNITS;
+                break;
+            case "qualifiers":
+                entries = QUALIFIERS;
+                break;
+            case "stopwords":
+                entries = STOPWORDS;
+                break;
+            default:
+                throw new IllegalArgumentException("Unknown dictionary type '" + type + "'");
+        }
+        Path dictionary = directory.resolve(type + ".txt");
+        Files.write(dictionary, Arrays.asList(entries), StandardCharsets.UTF_8);
+        return new FileSystemResource(dictionary.toFile());
+    }
+
+    public AnnotationDAO createAnnotationDAO() {
+        return new SyntheticAnnotationDAO();
+    }
+
+    public AnnotationSummaryDAO createAnnotationSummaryDAO() {
+        return new SyntheticAnnotationSummaryDAO();
+    }
+
+    public PropertyDAO createPropertyDAO() {
+        return new SyntheticPropertyDAO();
+    }
+
+    /**
+     * Deletes the working directory of this dataset, and everything in it
+     *
+     * @throws IOException if the directory could not be deleted
+     */
+    @Override public void close() throws IOException {
+        if (Files.exists(directory)) {
+            Files.walkFileTree(directory, new SimpleFileVisitor<Path>() {
+                @Override public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException {
+                    Files.delete(file);
+                    return FileVisitResult.CONTINUE;
+                }
+
+                @Override public FileVisitResult postVisitDirectory(Path dir, IOException exc) throws IOException {
+                    Files.delete(dir);
+                    return FileVisitResult.CONTINUE;
+                }
+            });
+        }
+    }
+
+    private List<String> createVocabulary(int count) {
+        Set<String> words = new HashSet<>();
+        List<String> vocabulary = new ArrayList<>();
+        while (vocabulary.size() < count) {
+            StringBuilder word = new StringBuilder();
+            int letters = 3 + random.nextInt(9);
+            for (int i = 0; i < letters; i++) {
+                word.append((char) ('a' + random.nextInt(26)));
+            }
+            if (words.add(word.toString())) {
+                vocabulary.add(word.toString());
+            }
+        }
+        return vocabulary;
+    }
+
+    private String createWords(Random random, int count) {
+        StringBuilder words = new StringBuilder();
+        for (int i = 0; i < count; i++) {
+            if (i > 0) {
+                words.append(" ");
+            }
+            words.append(vocabulary.get(random.nextInt(vocabulary.size())));
+        }
+        return words.toString();
+    }
+
+    private List<AnnotationSource> createSources(int count) {
+        List<AnnotationSource> sources = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            sources.add(new SimpleDatabaseAnnotationSource(URI.create(RESOURCE_BASE + "source" + i), "source" + i));
+        }
+        return sources;
+    }
+
+    private List<Property> createProperties(int count) {
+        Set<String> values = new HashSet<>();
+        List<Property> properties = new ArrayList<>();
+        while (properties.size() < count) {
+            String value = createWords(random, 1 + random.nextInt(4));
+            // decorate some values with the sorts of things search string processors remove
+            switch (random.nextInt(10)) {
+                case 0:
+                    value = random.nextInt(100) + " " + UNITS[random.nextInt(UNITS.length)] + " " + value;
+                    break;
+                case 1:
+                    value = value + " " + (1 + random.nextInt(72)) + " " + TIME_UNITS[random.nextInt(TIME_UNITS.length)];
+                    break;
+                case 2:
+                    value = QUALIFIERS[random.nextInt(QUALIFIERS.length)] + " " + value;
+                    break;
+                case 3:
+                    value = value + " (" + createWords(random, 1) + ")";
+                    break;
+                case 4:
+                    value = value + " and " + createWords(random, 1 + random.nextInt(2));
+                    break;
+                default:
+                    break;
+            }
+            if (values.add(value)) {
+                int n = properties.size();
+                properties.add(new SimpleTypedProperty(URI.create(RESOURCE_BASE + "property" + n),
+                                                       PROPERTY_TYPES[random.nextInt(PROPERTY_TYPES.length)],
+                                                       value));
+            }
+        }
+        return properties;
+    }
+
+    private List<Annotation> createAnnotations() {
+        long now = new Date().getTime();
+        long baseTime = now - (now % (24L * 60 * 60 * 1000)) - 10L * 365 * 24 * 60 * 60 * 1000;
+        AnnotationProvenance.Evidence[] evidence = AnnotationProvenance.Evidence.values();
+
+        List<Annotation> annotations = new ArrayList<>();
+        for (int i = 0; i < size; i++) {
+            // skew property usage, so a few properties are annotated very often
+            double r = random.nextDouble();
+            int propertyIndex = (int) (r * r * r * properties.size());
+            Property property = properties.get(propertyIndex);
+
+            // most properties always map to the same term, a few have an alternative mapping
+            int term = propertyIndex;
+            if (propertyIndex % 7 == 0 && random.nextBoolean()) {
+                term = propertyIndex + properties.size();
+            }
+            URI semanticTag = URI.create("http://www.ebi.ac.uk/efo/EFO_" + String.format("%07d", term));
+
+            AnnotationProvenance provenance = new SimpleAnnotationProvenance(
+                    sources.get(random.nextInt(sources.size())),
+                    evidence[random.nextInt(evidence.length)],
+                    AnnotationProvenance.Accuracy.NOT_SPECIFIED,
+                    "ZOOMA benchmark",
+                    new Date(baseTime + (long) random.nextInt(3650) * 24 * 60 * 60 * 1000),
+                    "curator" + random.nextInt(10),
+                    null);
+            annotations.add(new SimpleAnnotation(URI.create(RESOURCE_BASE + "annotation" + i),
+                                                 Collections.<BiologicalEntity>emptySet(),
+                                                 property,
+                                                 provenance,
+                                                 semanticTag));
+        }
+        return annotations;
+    }
+
+    private List<AnnotationSummary> createSummaries() {
+        // group annotations by property and semantic tag
+        Map<List<Object>, List<Annotation>> groups = new LinkedHashMap<>();
+        for (Annotation annotation : annotations) {
+            List<Object> key = Arrays.<Object>asList(annotation.getAnnotatedProperty(),
+                                                     new HashSet<>(annotation.getSemanticTags()));
+            if (!groups.containsKey(key)) {
+                groups.put(key, new ArrayList<Annotation>());
+            }
+            groups.get(key).add(annotation);
+        }
+
+        int evidenceCount = AnnotationProvenance.Evidence.values().length;
+        List<AnnotationSummary> summaries = new ArrayList<>();
+        for (List<Annotation> group : groups.values()) {
+            Annotation first = group.get(0);
+            TypedProperty property = (TypedProperty) first.getAnnotatedProperty();
+            List<URI> annotationURIs = new ArrayList<>();
+            Set<URI> sourceURIs = new HashSet<>();
+            float quality = 0;
+            for (Annotation annotation : group) {
+                annotationURIs.add(annotation.getURI());
+                AnnotationProvenance provenance = annotation.getProvenance();
+                sourceURIs.add(provenance.getSource().getURI());
+                // the same quality measure as ZoomaLuceneIndexer
+                float annotationQuality = (float) (evidenceCount - provenance.getEvidence().ordinal() +
+                        Math.log10(provenance.getGeneratedDate().getTime()));
+                quality = Math.max(quality, annotationQuality);
+            }
+            summaries.add(new SimpleAnnotationSummary("summary" + summaries.size(),
+                                                      property.getURI(),
+                                                      property.getPropertyType(),
+                                                      property.getPropertyValue(),
+                                                      new ArrayList<>(first.getSemanticTags()),
+                                                      annotationURIs,
+                                                      quality,
+                                                      sourceURIs));
+        }
+        return summaries;
+    }
+
+    private static <T> List<T> page(List<T> list, int size, int start) {
+        int from = Math.min(Math.max(start, 0), list.size());
+        int to = size < 0 ? list.size() : Math.min(from + size, list.size());
+        return new ArrayList<>(list.subList(from, to));
+    }
+
+    /**
+     * Read-only DAO over the generated annotations
+     */
+    private class SyntheticAnnotationDAO implements AnnotationDAO {
+        @Override public String getDatasourceName() {
+            return "benchmark";
+        }
+
+        @Override public int count() {
+            return annotations.size();
+        }
+
+        @Override public Collection<Annotation> read() {
+            return annotations;
+        }
+
+        @Override public List<Annotation> read(int size, int start) {
+            return page(annotations, size, start);
+        }
+
+        @Override public Annotation read(URI uri) {
+            for (Annotation annotation : annotations) {
+                if (annotation.getURI().equals(uri)) {
+                    return annotation;
+                }
+            }
+            return null;
+        }
+
+        @Override public Collection<Annotation> readByStudy(Study study) {
+            return Collections.emptySet();
+        }
+
+        @Override public Collection<Annotation> readByBiologicalEntity(BiologicalEntity biologicalEntity) {
+            return Collections.emptySet();
+        }
+
+        @Override public Collection<Annotation> readByProperty(Property property) {
+            List<Annotation> results = new ArrayList<>();
+            for (Annotation annotation : annotations) {
+                if (annotation.getAnnotatedProperty().equals(property)) {
+                    results.add(annotation);
+                }
+            }
+            return results;
+        }
+
+        @Override public Collection<Annotation> readBySemanticTag(URI semanticTagURI) {
+            List<Annotation> results = new ArrayList<>();
+            for (Annotation annotation : annotations) {
+                if (annotation.getSemanticTags().contains(semanticTagURI)) {
+                    results.add(annotation);
+                }
+            }
+            return results;
+        }
+
+        @Override public void create(Annotation identifiable) {
+            throw new UnsupportedOperationException("Synthetic datasets are read-only");
+        }
+
+        @Override public void create(Collection<Annotation> annotations) {
+            throw new UnsupportedOperationException("Synthetic datasets are read-only");
+        }
+
+        @Override public void update(Annotation object) {
+            throw new UnsupportedOperationException("Synthetic datasets are read-only");
+        }
+
+        @Override public void update(Collection<Annotation> annotations) {
+            throw new UnsupportedOperationException("Synthetic datasets are read-only");
+        }
+
+        @Override public void delete(Annotation object) {
+            throw new UnsupportedOperationException("Synthetic datasets are read-only");
+        }
+    }
+
+    /**
+     * Read-only DAO over the generated annotation summaries
+     */
+    private class SyntheticAnnotationSummaryDAO implements AnnotationSummaryDAO {
+        @Override public String getDatasourceName() {
+            return "benchmark";
+        }
+
+        @Override public int count() {
+            return summaries.size();
+        }
+
+        @Override public Collection<AnnotationSummary> read() {
+            return summaries;
+        }
+
+        @Override public List<AnnotationSummary> read(int size, int start) {
+            return page(summaries, size, start);
+        }
+
+        @Override public AnnotationSummary read(URI uri) {
+            for (AnnotationSummary summary : summaries) {
+                if (uri.equals(summary.getURI())) {
+                    return summary;
+                }
+            }
+            return null;
+        }
+
+        @Override public void create(AnnotationSummary identifiable) {
+            throw new UnsupportedOperationException("Synthetic datasets are read-only");
+        }
+
+        @Override public void update(AnnotationSummary object) {
+            throw new UnsupportedOperationException("Synthetic datasets are read-only");
+        }
+
+        @Override public void delete(AnnotationSummary object) {
+            throw new UnsupportedOperationException("Synthetic datasets are read-only");
+        }
+    }
+
+    /**
+     * Read-only DAO over the generated properties
+     */
+    private class SyntheticPropertyDAO implements PropertyDAO {
+        @Override public String getDatasourceName() {
+            return "benchmark";
+        }
+
+        @Override public int count() {
+            return properties.size();
+        }
+
+        @Override public Collection<Property> read() {
+            return properties;
+        }
+
+        @Override public List<Property> read(int size, int start) {
+            return page(properties, size, start);
+        }
+
+        @Override public Property read(URI uri) {
+            for (Property property : properties) {
+                if (property.getURI().equals(uri)) {
+                    return property;
+                }
+            }
+            return null;
+        }
+
+        @Override public List<Property> read(Collection<URI> uris) {
+            List<Property> results = new ArrayList<>();
+            for (URI uri : uris) {
+                Property property = read(uri);
+                if (property != null) {
+                    results.add(property);
+                }
+            }
+            return results;
+        }
+
+        @Override public Collection<String> readTypes() {
+            return Arrays.asList(PROPERTY_TYPES);
+        }
+
+        @Override public List<String> readTypes(int size, int start) {
+            return page(Arrays.asList(PROPERTY_TYPES), size, start);
+        }
+
+        @Override public String readType(URI uri) {
+            Property property = read(uri);
+            return property != null ? ((TypedProperty) property).getPropertyType() : null;
+        }
+
+        @Override public Collection<Property> readByTypeAndValue(String type, String value) {
+            List<Property> results = new ArrayList<>();
+            for (Property property : properties) {
+                if ((type == null || ((TypedProperty) property).getPropertyType().equals(type)) &&
+                        (value == null || property.getPropertyValue().equals(value))) {
+                    results.add(property);
+                }
+            }
+            return results;
+        }
+
+        @Override public Property readByValue(String value) {
+            Collection<Property> results = readByTypeAndValue(null, value);
+            return results.isEmpty() ? null : results.iterator().next();
+        }
+
+        @Override public Collection<Property> readByType(String type) {
+            return readByTypeAndValue(type, null);
+        }
+
+        @Override public void create(Property identifiable) {
+            throw new UnsupportedOperationException("Synthetic datasets are read-only");
+        }
+
+        @Override public void update(Property object) {
+            throw new UnsupportedOperationException("Synthetic datasets are read-only");
+        }
+
+        @Override public void delete(Property object) {
+            throw new UnsupportedOperationException("Synthetic datasets are read-only");
+        }
+    }
+}
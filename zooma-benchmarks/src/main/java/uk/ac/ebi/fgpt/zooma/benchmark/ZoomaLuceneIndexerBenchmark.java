@@ -0,0 +1,110 @@
+package uk.ac.ebi.fgpt.zooma.benchmark;
+
+import org.apache.lucene.store.Directory;
+import org.apache.lucene.store.FSDirectory;
+import org.apache.lucene.store.RAMDirectory;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks building every ZOOMA lucene index from a synthetic dataset, from in-memory annotations through to
+ * committed indices.  Each invocation indexes into fresh, empty directories.
+ * <p/>
+ * Parameters: <ul> <li><code>datasetSize</code> - the number of synthetic annotations indexed</li>
+ * <li><code>directory</code> - <code>ram</code> to index into memory, or <code>fs</code> to index into the dataset's
+ * temporary working directory, which includes the cost of writing and syncing files</li>
+ * <li><code>indexingThreads</code> - the number of threads the indexer produces documents with</li> </ul>
+ * <p/>
+ * Index builds are expensive, so this benchmark runs in single shot mode: use JMH's <code>-i</code> and
+ * <code>-wi</code> options to change the number of builds measured.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(1)
+public class ZoomaLuceneIndexerBenchmark {
+    @Param({"1000", "10000", "100000"})
+    public int datasetSize;
+
+    @Param({"ram", "fs"})
+    public String directory;
+
+    @Param({"1", "4"})
+    public int indexingThreads;
+
+    private SyntheticAnnotationDataset dataset;
+    private int build = 0;
+
+    private Directory annotationIndex;
+    private Directory annotationCountIndex;
+    private Directory annotationSummaryIndex;
+    private Directory propertyIndex;
+    private Directory propertyTypeIndex;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        dataset = new SyntheticAnnotationDataset(datasetSize);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        dataset.close();
+    }
+
+    @Setup(Level.Invocation)
+    public void createDirectories() throws IOException {
+        Path buildDirectory = dataset.getDirectory().resolve("build" + build++);
+        annotationIndex = createDirectory(buildDirectory.resolve("annotation"));
+        annotationCountIndex = createDirectory(buildDirectory.resolve("annotationCount"));
+        annotationSummaryIndex = createDirectory(buildDirectory.resolve("annotationSummary"));
+        propertyIndex = createDirectory(buildDirectory.resolve("property"));
+        propertyTypeIndex = createDirectory(buildDirectory.resolve("propertyType"));
+    }
+
+    @TearDown(Level.Invocation)
+    public void closeDirectories() throws IOException {
+        annotationIndex.close();
+        annotationCountIndex.close();
+        annotationSummaryIndex.close();
+        propertyIndex.close();
+        propertyTypeIndex.close();
+    }
+
+    private Directory createDirectory(Path path) throws IOException {
+        switch (directory) {
+            case "ram":
+                return new RAMDirectory();
+            case "fs":
+                return FSDirectory.open(path);
+            default:
+                throw new IllegalArgumentException("Unknown directory type '" + directory + "'");
+        }
+    }
+
+    @Benchmark
+    public void buildIndices() throws IOException {
+        dataset.buildIndices(annotationIndex,
+                             annotationCountIndex,
+                             annotationSummaryIndex,
+                             propertyIndex,
+                             propertyTypeIndex,
+                             indexingThreads);
+    }
+}
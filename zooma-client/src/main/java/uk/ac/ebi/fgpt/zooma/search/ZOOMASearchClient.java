@@ -3,7 +3,9 @@ package uk.ac.ebi.fgpt.zooma.search;
 import static java.util.Collections.sort;
 import static org.apache.commons.lang3.StringUtils.abbreviate;
 
+import java.io.Closeable;
 import java.io.IOException;
+import java.io.InputStream;
 import java.net.URI;
 import java.net.URL;
 import java.net.URLEncoder;
@@ -19,6 +21,14 @@ import java.util.Map;
 import java.util.Set;
 
 import org.apache.commons.lang3.StringUtils;
+import org.apache.http.HttpEntity;
+import org.apache.http.client.config.RequestConfig;
+import org.apache.http.client.methods.CloseableHttpResponse;
+import org.apache.http.client.methods.HttpGet;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.HttpClients;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.apache.http.util.EntityUtils;
 
 import uk.ac.ebi.fgpt.zooma.exception.SearchException;
 import uk.ac.ebi.fgpt.zooma.model.Annotation;
@@ -42,19 +52,44 @@ import uk.ac.ebi.utils.io.IOUtils;
 import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
 import com.google.common.base.Function;
 import com.google.common.collect.FluentIterable;
 
 /**
  * A simple search client stub that takes a list of properties and uses them to search a ZOOMA service.
  * @see AbstractZOOMASearch.
+ * 
+ * <p>All requests go through a pool of persistent HTTP connections, which is shared by every thread using this client, 
+ * and all JSON is parsed with the same, thread-safe, Jackson readers. The pool size and the timeouts can be tuned with
+ * {@link #setMaxConnectionsPerRoute(int)}, {@link #setConnectTimeout(int)} and {@link #setSocketTimeout(int)}. Call
+ * {@link #close()} to release pooled connections when the client is no longer needed.</p>
  *
  * @author Tony Burdett
  * @author Adam Faulconbridge
  * @date 03/09/12
  */
-public class ZOOMASearchClient extends AbstractZOOMASearch
+public class ZOOMASearchClient extends AbstractZOOMASearch implements Closeable
 {
+	public static final int DEFAULT_MAX_CONNECTIONS_PER_ROUTE = 20;
+	public static final int DEFAULT_CONNECT_TIMEOUT = 10 * 1000;
+	public static final int DEFAULT_SOCKET_TIMEOUT = 60 * 1000;
+
+	private static final ObjectMapper MAPPER = new ObjectMapper ();
+	private static final ObjectReader JSON_READER = MAPPER.reader ( JsonNode.class );
+	private static final ObjectReader PREFIX_MAPPINGS_READER = MAPPER.reader ( 
+		new TypeReference<Map<String, String>> () {} 
+	);
+	private static final ObjectReader LABELS_READER = MAPPER.reader ( 
+		new TypeReference<Map<String, Set<String>>> () {} 
+	);
+
+	private final PoolingHttpClientConnectionManager connectionManager;
+	private final CloseableHttpClient httpClient;
+	private volatile RequestConfig requestConfig;
+	private int connectTimeout = DEFAULT_CONNECT_TIMEOUT;
+	private int socketTimeout = DEFAULT_SOCKET_TIMEOUT;
+
 	private final String zoomaBase;
 
 	private final String zoomaAnnotationsBase;
@@ -112,16 +147,76 @@ public class ZOOMASearchClient extends AbstractZOOMASearch
 		this.zoomaFilterParamEnd = "]";
 		this.zoomaFilterParamSeparator = ",";
 
+		// All the calls go to the same host, so the per-route limit is effectively the pool size
+		this.connectionManager = new PoolingHttpClientConnectionManager ();
+		this.connectionManager.setDefaultMaxPerRoute ( DEFAULT_MAX_CONNECTIONS_PER_ROUTE );
+		this.connectionManager.setMaxTotal ( DEFAULT_MAX_CONNECTIONS_PER_ROUTE );
+		this.requestConfig = buildRequestConfig ();
+		this.httpClient = HttpClients.custom ()
+			.setConnectionManager ( connectionManager )
+			.setDefaultRequestConfig ( requestConfig )
+			.build ();
+
 		loadPrefixMappings ();
 	}
 
+	/**
+	 * The maximum number of connections kept open to the ZOOMA server, i.e., the maximum number of concurrent requests
+	 * this client makes. Defaults to {@link #DEFAULT_MAX_CONNECTIONS_PER_ROUTE}.
+	 */
+	public int getMaxConnectionsPerRoute ()
+	{
+		return connectionManager.getDefaultMaxPerRoute ();
+	}
+
+	public void setMaxConnectionsPerRoute ( int maxConnectionsPerRoute )
+	{
+		connectionManager.setMaxTotal ( maxConnectionsPerRoute );
+		connectionManager.setDefaultMaxPerRoute ( maxConnectionsPerRoute );
+	}
+
+	/**
+	 * The timeout in ms for establishing a connection to the ZOOMA server, 0 means no timeout. Defaults to 
+	 * {@link #DEFAULT_CONNECT_TIMEOUT}.
+	 */
+	public int getConnectTimeout ()
+	{
+		return connectTimeout;
+	}
+
+	public synchronized void setConnectTimeout ( int connectTimeout )
+	{
+		this.connectTimeout = connectTimeout;
+		this.requestConfig = buildRequestConfig ();
+	}
+
+	/**
+	 * The timeout in ms while waiting for data from the ZOOMA server, 0 means no timeout. Defaults to 
+	 * {@link #DEFAULT_SOCKET_TIMEOUT}.
+	 */
+	public int getSocketTimeout ()
+	{
+		return socketTimeout;
+	}
+
+	public synchronized void setSocketTimeout ( int socketTimeout )
+	{
+		this.socketTimeout = socketTimeout;
+		this.requestConfig = buildRequestConfig ();
+	}
+
+	/**
+	 * Closes all the pooled connections. The client cannot be used after this.
+	 */
+	@Override
+	public void close () throws IOException
+	{
+		httpClient.close ();
+	}
+
 	public Map<String, String> getPrefixMappings () throws IOException
 	{
-		URL prefixMappingsURL = new URL ( zoomaServicesBase + "prefixMappings" );
-		ObjectMapper mapper = new ObjectMapper ();
-		Map<String, String> results = mapper.readValue ( prefixMappingsURL,
-				new TypeReference<Map<String, String>> () {
-				} );
+		Map<String, String> results = fetch ( zoomaServicesBase + "prefixMappings", PREFIX_MAPPINGS_READER );
 		log.trace ( results.toString () );
 		return results;
 	}
@@ -232,7 +327,7 @@ public class ZOOMASearchClient extends AbstractZOOMASearch
 		try
 		{
 			String shortname = lookupShortname ( annotationURI );
-			URL fetchURL = new URL ( zoomaAnnotationsBase + shortname );
+			String fetchURL = zoomaAnnotationsBase + shortname;
 
 			// populate required fields from result of query
 			Collection<BiologicalEntity> biologicalEntities = new ArrayList<> ();
@@ -240,7 +335,6 @@ public class ZOOMASearchClient extends AbstractZOOMASearch
 			AnnotationProvenance annotationProvenance = null;
 			List<URI> semanticTags = new ArrayList<> ();
 
-			ObjectMapper mapper = new ObjectMapper ();
 			JsonNode annotationNode = null;
 			int tries = 0;
 			boolean success = false;
@@ -249,7 +343,7 @@ public class ZOOMASearchClient extends AbstractZOOMASearch
 			{
 				try
 				{
-					annotationNode = mapper.readValue ( fetchURL, JsonNode.class );
+					annotationNode = fetch ( fetchURL, JSON_READER );
 					success = true;
 				}
 				catch ( IOException e )
@@ -362,11 +456,7 @@ public class ZOOMASearchClient extends AbstractZOOMASearch
 		{
 			log.trace ( "Formulating search for label of '" + shortform
 					+ "' (derived from <" + uri + ">)" );
-			URL labelsURL = new URL ( zoomaServicesBase + "labels/" + shortform );
-			ObjectMapper mapper = new ObjectMapper ();
-			Map<String, Set<String>> labelMap = mapper.readValue ( labelsURL,
-					new TypeReference<Map<String, Set<String>>> () {
-					} );
+			Map<String, Set<String>> labelMap = fetch ( zoomaServicesBase + "labels/" + shortform, LABELS_READER );
 			return labelMap.get ( "label" ).iterator ().next ();
 		} else
 		{
@@ -381,11 +471,7 @@ public class ZOOMASearchClient extends AbstractZOOMASearch
 		String shortform = URIUtils.getShortform ( prefixMappings, uri );
 		log.trace ( "Formulating search for synonyms of '" + shortform
 				+ "' (derived from <" + uri + ">)" );
-		URL labelsURL = new URL ( zoomaServicesBase + "labels/" + shortform );
-		ObjectMapper mapper = new ObjectMapper ();
-		Map<String, Set<String>> labelMap = mapper.readValue ( labelsURL,
-				new TypeReference<Map<String, Set<String>>> () {
-				} );
+		Map<String, Set<String>> labelMap = fetch ( zoomaServicesBase + "labels/" + shortform, LABELS_READER );
 		return labelMap.get ( "synonyms" );
 	}
 
@@ -437,8 +523,7 @@ public class ZOOMASearchClient extends AbstractZOOMASearch
 
 			log.trace ( "Sending query [" + queryURL + "]..." );
 
-			ObjectMapper mapper = new ObjectMapper ();
-			JsonNode js = mapper.readValue ( new URL ( queryURL ), JsonNode.class );
+			JsonNode js = fetch ( queryURL, JSON_READER );
 			if ( js == null ) return result;
 			
 			
@@ -477,4 +562,48 @@ public class ZOOMASearchClient extends AbstractZOOMASearch
 			);
 		}
 	} // annotate()
+	
+	
+	/**
+	 * GETs a URL through the connection pool and maps the JSON it returns using the given reader. The response is 
+	 * always consumed completely, so that the connection can go back to the pool and be reused.
+	 * 
+	 * @throws IOException for any communication problem, or if the server doesn't return a successful response, 
+	 * as it happens with {@link URL#openStream()}.
+	 */
+	private <T> T fetch ( String url, ObjectReader reader ) throws IOException
+	{
+		HttpGet request = new HttpGet ( url );
+		request.setConfig ( requestConfig );
+		request.setHeader ( "Accept", "application/json" );
+		
+		try ( CloseableHttpResponse response = httpClient.execute ( request ) )
+		{
+			HttpEntity entity = response.getEntity ();
+			try
+			{
+				int status = response.getStatusLine ().getStatusCode ();
+				if ( status >= 300 ) throw new IOException ( 
+					"Server returned HTTP response code: " + status + " for URL: " + url 
+				);
+				if ( entity == null ) throw new IOException ( "No content returned for URL: " + url );
+				
+				try ( InputStream in = entity.getContent () ) {
+					return reader.readValue ( in );
+				}
+			}
+			finally {
+				EntityUtils.consumeQuietly ( entity );
+			}
+		}
+	}
+	
+	private RequestConfig buildRequestConfig ()
+	{
+		return RequestConfig.custom ()
+			.setConnectTimeout ( connectTimeout )
+			.setConnectionRequestTimeout ( connectTimeout )
+			.setSocketTimeout ( socketTimeout )
+			.build ();
+	}
 }
@@ -0,0 +1,308 @@
+package uk.ac.ebi.fgpt.zooma.search;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import uk.ac.ebi.fgpt.zooma.model.Annotation;
+import uk.ac.ebi.fgpt.zooma.model.AnnotationPrediction;
+import uk.ac.ebi.fgpt.zooma.model.AnnotationProvenance;
+import uk.ac.ebi.fgpt.zooma.model.BiologicalEntity;
+import uk.ac.ebi.fgpt.zooma.model.SimpleTypedProperty;
+import uk.ac.ebi.fgpt.zooma.model.TypedProperty;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * Tests {@link ZOOMASearchClient} against a local stub of the ZOOMA REST API, checking that HTTP connections are pooled
+ * and reused and that responses are mapped as they were when every call opened its own connection.
+ */
+public class ZOOMASearchClientPoolingTest
+{
+	private static final String PREFIX_MAPPINGS_JSON =
+		"{\"efo\":\"http://www.ebi.ac.uk/efo/\",\"anno\":\"http://www.test.com/annotation/\"}";
+
+	private static final String ANNOTATE_JSON = "["
+		+ "{\"confidence\":\"HIGH\",\"semanticTags\":[\"http://www.ebi.ac.uk/efo/EFO_0000887\"]},"
+		+ "{\"confidence\":\"GOOD\",\"semanticTags\":"
+		+ "[\"http://www.ebi.ac.uk/efo/EFO_0000001\",\"http://www.ebi.ac.uk/efo/EFO_0000002\"]},"
+		+ "{\"confidence\":\"\",\"semanticTags\":[\"http://www.ebi.ac.uk/efo/EFO_0000003\"]},"
+		+ "{\"confidence\":\"LOW\",\"semanticTags\":[]}"
+		+ "]";
+
+	private static final String LABELS_JSON = "{\"label\":[\"liver\"],\"synonyms\":[\"hepar\",\"jecur\"]}";
+
+	private static final String ANNOTATION_JSON = "{"
+		+ "\"annotatedProperty\":{\"propertyType\":\"organism part\",\"propertyValue\":\"liver\"},"
+		+ "\"annotatedBiologicalEntities\":[{\"uri\":\"http://www.test.com/sample/s1\",\"name\":\"s1\","
+		+ "\"studies\":[{\"uri\":\"http://www.test.com/study/E-TEST-1\",\"accession\":\"E-TEST-1\"}]}],"
+		+ "\"provenance\":{\"source\":{\"type\":\"DATABASE\",\"uri\":\"http://www.test.com/source\",\"name\":\"test\"},"
+		+ "\"evidence\":\"MANUAL_CURATED\",\"generator\":\"TEST\",\"generatedDate\":1388534400000},"
+		+ "\"semanticTags\":[\"http://www.ebi.ac.uk/efo/EFO_0000887\"]"
+		+ "}";
+
+	private HttpServer server;
+	private String zoomaLocation;
+
+	// every distinct client address:port seen by the server is a distinct TCP connection
+	private Set<InetSocketAddress> connections;
+	private AtomicInteger requests;
+
+	private ZOOMASearchClient client;
+
+	@Before
+	public void setUp () throws IOException
+	{
+		connections = Collections.newSetFromMap ( new ConcurrentHashMap<InetSocketAddress, Boolean> () );
+		requests = new AtomicInteger ();
+
+		server = HttpServer.create ( new InetSocketAddress ( InetAddress.getLoopbackAddress (), 0 ), 0 );
+		server.createContext ( "/v2/api/services/prefixMappings", new StubHandler ( PREFIX_MAPPINGS_JSON ) );
+		server.createContext ( "/v2/api/services/annotate", new StubHandler ( ANNOTATE_JSON ) );
+		server.createContext ( "/v2/api/services/labels/", new StubHandler ( LABELS_JSON ) );
+		server.createContext ( "/v2/api/annotations/", new StubHandler ( ANNOTATION_JSON ) );
+		server.setExecutor ( Executors.newFixedThreadPool ( 16 ) );
+		server.start ();
+
+		zoomaLocation = "http://localhost:" + server.getAddress ().getPort ();
+		client = new ZOOMASearchClient ( zoomaLocation );
+	}
+
+	@After
+	public void tearDown () throws IOException
+	{
+		client.close ();
+		server.stop ( 0 );
+		( (ExecutorService) server.getExecutor () ).shutdownNow ();
+	}
+
+	@Test
+	public void testConnectionsAreReused () throws Exception
+	{
+		URI efoLiver = URI.create ( "http://www.ebi.ac.uk/efo/EFO_0000887" );
+		for ( int i = 0; i < 50; i++ )
+		{
+			client.annotate ( new SimpleTypedProperty ( "organism part", "liver " + i ) );
+			client.getLabel ( efoLiver );
+			client.getSynonyms ( efoLiver );
+			client.getAnnotation ( URI.create ( "http://www.test.com/annotation/a" + i ) );
+		}
+
+		// prefix mappings are loaded at construction time too
+		assertEquals ( "Wrong number of requests!", 201, requests.get () );
+		assertEquals ( "Sequential calls should share one connection!", 1, connections.size () );
+	}
+
+	@Test
+	public void testConcurrentCallsRespectPoolSize () throws Exception
+	{
+		client.setMaxConnectionsPerRoute ( 3 );
+
+		ExecutorService executor = Executors.newFixedThreadPool ( 8 );
+		try
+		{
+			List<Future<List<AnnotationPrediction>>> futures = new ArrayList<> ();
+			for ( int i = 0; i < 200; i++ )
+			{
+				final String value = "liver " + i;
+				futures.add ( executor.submit ( new Callable<List<AnnotationPrediction>> () {
+					@Override
+					public List<AnnotationPrediction> call ()
+					{
+						return client.annotate ( new SimpleTypedProperty ( "organism part", value ) );
+					}
+				}));
+			}
+			for ( Future<List<AnnotationPrediction>> future : futures )
+				assertEquals ( "Wrong number of predictions!", 2, future.get ().size () );
+		}
+		finally {
+			executor.shutdown ();
+		}
+
+		assertEquals ( "Wrong number of requests!", 201, requests.get () );
+		assertTrue (
+			"Connection pool limit not respected (" + connections.size () + " connections)!",
+			connections.size () <= 3
+		);
+	}
+
+	@Test
+	public void testAnnotateMapping ()
+	{
+		List<AnnotationPrediction> anns = client.annotate ( new SimpleTypedProperty ( "organism part", "liver" ) );
+
+		// the prediction without a confidence and the one without tags are skipped
+		assertEquals ( "Wrong number of predictions!", 2, anns.size () );
+		assertEquals ( AnnotationPrediction.Confidence.HIGH, anns.get ( 0 ).getConfidence () );
+		assertEquals (
+			Collections.singleton ( URI.create ( "http://www.ebi.ac.uk/efo/EFO_0000887" ) ),
+			new HashSet<> ( anns.get ( 0 ).getSemanticTags () )
+		);
+		assertEquals ( AnnotationPrediction.Confidence.GOOD, anns.get ( 1 ).getConfidence () );
+		assertEquals (
+			new HashSet<> ( Arrays.asList (
+				URI.create ( "http://www.ebi.ac.uk/efo/EFO_0000001" ), URI.create ( "http://www.ebi.ac.uk/efo/EFO_0000002" )
+			)),
+			new HashSet<> ( anns.get ( 1 ).getSemanticTags () )
+		);
+
+		client.setMinConfidence ( AnnotationPrediction.Confidence.HIGH );
+		anns = client.annotate ( new SimpleTypedProperty ( "organism part", "liver" ) );
+		assertEquals ( "Min confidence not applied!", 1, anns.size () );
+	}
+
+	@Test
+	public void testLookupMappingMatchesDirectReads () throws IOException
+	{
+		ObjectMapper mapper = new ObjectMapper ();
+		Map<String, String> expectedMappings = mapper.readValue (
+			new URL ( zoomaLocation + "/v2/api/services/prefixMappings" ), new TypeReference<Map<String, String>> () {}
+		);
+		Map<String, Set<String>> expectedLabels = mapper.readValue (
+			new URL ( zoomaLocation + "/v2/api/services/labels/efo:EFO_0000887" ),
+			new TypeReference<Map<String, Set<String>>> () {}
+		);
+
+		assertEquals ( expectedMappings, client.getPrefixMappings () );
+
+		try
+		{
+			URI efoLiver = URI.create ( "http://www.ebi.ac.uk/efo/EFO_0000887" );
+			assertEquals ( expectedLabels.get ( "label" ).iterator ().next (), client.getLabel ( efoLiver ) );
+			Collection<String> synonyms = client.getSynonyms ( efoLiver );
+			assertEquals ( expectedLabels.get ( "synonyms" ), synonyms );
+			assertEquals ( new HashSet<> ( Arrays.asList ( "hepar", "jecur" ) ), new HashSet<> ( synonyms ) );
+		}
+		catch ( Exception e )
+		{
+			e.printStackTrace ();
+			fail ();
+		}
+	}
+
+	@Test
+	public void testAnnotationMapping ()
+	{
+		try
+		{
+			URI annotationURI = URI.create ( "http://www.test.com/annotation/a1" );
+			Annotation annotation = client.getAnnotation ( annotationURI );
+
+			assertEquals ( annotationURI, annotation.getURI () );
+			TypedProperty property = (TypedProperty) annotation.getAnnotatedProperty ();
+			assertEquals ( "organism part", property.getPropertyType () );
+			assertEquals ( "liver", property.getPropertyValue () );
+
+			assertEquals ( 1, annotation.getAnnotatedBiologicalEntities ().size () );
+			BiologicalEntity be = annotation.getAnnotatedBiologicalEntities ().iterator ().next ();
+			assertEquals ( URI.create ( "http://www.test.com/sample/s1" ), be.getURI () );
+			assertEquals ( "s1", be.getName () );
+			assertEquals ( "E-TEST-1", be.getStudies ().iterator ().next ().getAccession () );
+
+			AnnotationProvenance provenance = annotation.getProvenance ();
+			assertEquals ( URI.create ( "http://www.test.com/source" ), provenance.getSource ().getURI () );
+			assertEquals ( AnnotationProvenance.Evidence.MANUAL_CURATED, provenance.getEvidence () );
+			assertEquals ( "TEST", provenance.getGenerator () );
+			assertEquals ( 1388534400000L, provenance.getGeneratedDate ().getTime () );
+
+			assertEquals (
+				Collections.singleton ( URI.create ( "http://www.ebi.ac.uk/efo/EFO_0000887" ) ),
+				new HashSet<> ( annotation.getSemanticTags () )
+			);
+		}
+		catch ( Exception e )
+		{
+			e.printStackTrace ();
+			fail ();
+		}
+	}
+
+	@Test
+	public void testErrorResponsesDoNotLeakConnections ()
+	{
+		server.createContext ( "/v2/api/services/labels/efo:EFO_9999999", new HttpHandler () {
+			@Override
+			public void handle ( HttpExchange exchange ) throws IOException
+			{
+				connections.add ( exchange.getRemoteAddress () );
+				requests.incrementAndGet ();
+				byte[] body = "Not found".getBytes ( "UTF-8" );
+				exchange.sendResponseHeaders ( 404, body.length );
+				try ( OutputStream out = exchange.getResponseBody () ) {
+					out.write ( body );
+				}
+			}
+		});
+
+		client.setMaxConnectionsPerRoute ( 1 );
+		for ( int i = 0; i < 10; i++ )
+		{
+			try
+			{
+				client.getSynonyms ( URI.create ( "http://www.ebi.ac.uk/efo/EFO_9999999" ) );
+				fail ( "Missing labels should raise an exception" );
+			}
+			catch ( IOException e )
+			{
+				assertTrue ( e.getMessage ().contains ( "404" ) );
+			}
+		}
+		// with a single pooled connection, this would block if failed responses weren't released
+		assertEquals ( 2, client.annotate ( new SimpleTypedProperty ( "organism part", "liver" ) ).size () );
+	}
+
+	/**
+	 * Serves a fixed JSON document, recording the connection each request arrives on.
+	 */
+	private class StubHandler implements HttpHandler
+	{
+		private final byte[] body;
+
+		private StubHandler ( String json ) throws IOException
+		{
+			this.body = json.getBytes ( "UTF-8" );
+		}
+
+		@Override
+		public void handle ( HttpExchange exchange ) throws IOException
+		{
+			connections.add ( exchange.getRemoteAddress () );
+			requests.incrementAndGet ();
+			exchange.getResponseHeaders ().set ( "Content-Type", "application/json" );
+			exchange.sendResponseHeaders ( 200, body.length );
+			try ( OutputStream out = exchange.getResponseBody () ) {
+				out.write ( body );
+			}
+		}
+	}
+}
@@ -1,11 +1,13 @@
 package uk.ac.ebi.fgpt.zooma.access;
 
 import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.InitializingBean;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Controller;
 import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestMethod;
 import org.springframework.web.bind.annotation.RequestParam;
@@ -14,10 +16,15 @@ import org.springframework.web.bind.annotation.ResponseStatus;
 import uk.ac.ebi.fgpt.zooma.exception.SearchException;
 import uk.ac.ebi.fgpt.zooma.model.Annotation;
 import uk.ac.ebi.fgpt.zooma.model.AnnotationPrediction;
+import uk.ac.ebi.fgpt.zooma.model.AnnotationPredictionRequest;
+import uk.ac.ebi.fgpt.zooma.model.AnnotationPredictionResult;
 import uk.ac.ebi.fgpt.zooma.model.AnnotationPredictionTemplate;
 import uk.ac.ebi.fgpt.zooma.model.AnnotationSummary;
 import uk.ac.ebi.fgpt.zooma.model.Property;
 import uk.ac.ebi.fgpt.zooma.util.AnnotationPredictionBuilder;
+import uk.ac.ebi.fgpt.zooma.util.ReloadListener;
+import uk.ac.ebi.fgpt.zooma.util.ReloadNotifier;
+import uk.ac.ebi.fgpt.zooma.util.ResultCache;
 import uk.ac.ebi.fgpt.zooma.util.ScoreBasedSorter;
 import uk.ac.ebi.fgpt.zooma.util.Sorter;
 import uk.ac.ebi.fgpt.zooma.util.ZoomaUtils;
@@ -30,6 +37,7 @@ import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Future;
 import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
 import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
 
@@ -43,7 +51,7 @@ import java.util.concurrent.TimeUnit;
  */
 @Controller
 @RequestMapping("/services")
-public class Zooma extends SourceFilteredEndpoint implements DisposableBean {
+public class Zooma extends SourceFilteredEndpoint implements ReloadListener, InitializingBean, DisposableBean {
     private ZoomaProperties zoomaProperties;
     private ZoomaAnnotations zoomaAnnotations;
     private ZoomaAnnotationSummaries zoomaAnnotationSummaries;
@@ -52,6 +60,10 @@ public class Zooma extends SourceFilteredEndpoint implements DisposableBean {
     private final float cutoffPercentage;
 
     private final ExecutorService executorService;
+    private final int batchConcurrency;
+
+    private final ResultCache<List<String>, List<AnnotationPrediction>> annotationCache;
+    private final ResultCache<List<String>, List<AnnotationSummary>> selectionCache;
 
     @Autowired
     public Zooma(ZoomaProperties zoomaProperties,
@@ -71,6 +83,17 @@ public class Zooma extends SourceFilteredEndpoint implements DisposableBean {
                                                       0L,
                                                       TimeUnit.MILLISECONDS,
                                                       new ArrayBlockingQueue<Runnable>(queueSize));
+
+        // a single batch may not occupy more than this many search threads at once
+        int batchThreads = Integer.parseInt(configuration.getProperty("zooma.search.batch.concurrent.threads",
+                                                                      Integer.toString(concurrency)));
+        this.batchConcurrency = Math.max(1, Math.min(batchThreads, concurrency));
+
+        // repeated annotate and select requests are served from a cache until the underlying data is reloaded
+        int cacheSize = Integer.parseInt(configuration.getProperty("zooma.search.cache.size", "10000"));
+        long cacheTimeToLive = Long.parseLong(configuration.getProperty("zooma.search.cache.ttl", "0")) * 1000;
+        this.annotationCache = new ResultCache<>("annotate", cacheSize, cacheTimeToLive);
+        this.selectionCache = new ResultCache<>("select", cacheSize, cacheTimeToLive);
     }
 
     @RequestMapping(value = "/suggest", method = RequestMethod.GET)
@@ -128,6 +151,17 @@ public class Zooma extends SourceFilteredEndpoint implements DisposableBean {
                                                          @RequestParam(required = false) String propertyType,
                                                          @RequestParam(required = false,
                                                                        defaultValue = "") String filter) {
+        List<String> key = createCacheKey(propertyValue, propertyType, filter);
+        List<AnnotationSummary> summaries = selectionCache.get(key);
+        if (summaries == null) {
+            long generation = selectionCache.getGeneration();
+            summaries = Collections.unmodifiableList(doSelect(propertyValue, propertyType, filter));
+            selectionCache.put(key, summaries, generation);
+        }
+        return summaries;
+    }
+
+    private List<AnnotationSummary> doSelect(String propertyValue, String propertyType, String filter) {
         if (propertyType == null) {
             SearchType searchType = validateFilterArguments(filter);
             URI[] requiredSources;
@@ -195,6 +229,17 @@ public class Zooma extends SourceFilteredEndpoint implements DisposableBean {
                                                                 @RequestParam(required = false) String propertyType,
                                                                 @RequestParam(required = false,
                                                                               defaultValue = "") String filter) {
+        List<String> key = createCacheKey(propertyValue, propertyType, filter);
+        List<AnnotationPrediction> predictions = annotationCache.get(key);
+        if (predictions == null) {
+            long generation = annotationCache.getGeneration();
+            predictions = Collections.unmodifiableList(doAnnotation(propertyValue, propertyType, filter));
+            annotationCache.put(key, predictions, generation);
+        }
+        return predictions;
+    }
+
+    private List<AnnotationPrediction> doAnnotation(String propertyValue, String propertyType, String filter) {
         if (propertyType == null) {
             SearchType searchType = validateFilterArguments(filter);
             URI[] requiredSources = new URI[0];
@@ -328,6 +373,197 @@ public class Zooma extends SourceFilteredEndpoint implements DisposableBean {
         }
     }
 
+    @RequestMapping(value = "/annotate/batch", method = RequestMethod.POST)
+    @ResponseBody List<AnnotationPredictionResult> batchAnnotationEndpoint(
+            @RequestBody List<AnnotationPredictionRequest> requests) {
+        return annotate(requests);
+    }
+
+    /**
+     * Predicts annotations for each of the supplied requests.  Requests are searched concurrently, but no more than the
+     * configured number of batch threads are occupied by a single batch at once, so large batches do not starve other
+     * users of ZOOMA.  Results are returned in the same order as the requests.  A request that fails (for example,
+     * because it references an out of date index) results in a failed result carrying the reason, and does not prevent
+     * results being returned for the rest of the batch.
+     *
+     * @param requests the annotation requests to make predictions for
+     * @return the results of each request, in request order
+     */
+    public List<AnnotationPredictionResult> annotate(List<AnnotationPredictionRequest> requests) {
+        List<AnnotationPredictionResult> results = new ArrayList<>();
+        List<Future<List<AnnotationPrediction>>> futures = new ArrayList<>();
+        final Semaphore permits = new Semaphore(batchConcurrency);
+        long generation = annotationCache.getGeneration();
+        try {
+            for (AnnotationPredictionRequest request : requests) {
+                results.add(null);
+                if (request == null || request.getPropertyValue() == null) {
+                    results.set(results.size() - 1,
+                                AnnotationPredictionResult.failure(request, "No property value supplied"));
+                    futures.add(null);
+                    continue;
+                }
+
+                List<AnnotationPrediction> cached = annotationCache.get(createCacheKey(request.getPropertyValue(),
+                                                                                       request.getPropertyType(),
+                                                                                       request.getFilter()));
+                if (cached != null) {
+                    results.set(results.size() - 1, AnnotationPredictionResult.success(request, cached));
+                    futures.add(null);
+                    continue;
+                }
+
+                final Callable<List<AnnotationPrediction>> task;
+                try {
+                    task = createAnnotationTask(request.getPropertyValue(),
+                                                request.getPropertyType(),
+                                                request.getFilter());
+                }
+                catch (RuntimeException e) {
+                    results.set(results.size() - 1,
+                                AnnotationPredictionResult.failure(request, "Invalid request (" + e.getMessage() + ")"));
+                    futures.add(null);
+                    continue;
+                }
+
+                permits.acquire();
+                try {
+                    futures.add(executorService.submit(new Callable<List<AnnotationPrediction>>() {
+                        @Override public List<AnnotationPrediction> call() throws Exception {
+                            try {
+                                return task.call();
+                            }
+                            finally {
+                                permits.release();
+                            }
+                        }
+                    }));
+                }
+                catch (RejectedExecutionException e) {
+                    permits.release();
+                    results.set(results.size() - 1,
+                                AnnotationPredictionResult.failure(request, "Too many requests - please try again later"));
+                    futures.add(null);
+                }
+            }
+
+            for (int i = 0; i < futures.size(); i++) {
+                Future<List<AnnotationPrediction>> f = futures.get(i);
+                if (f != null) {
+                    try {
+                        AnnotationPredictionRequest request = requests.get(i);
+                        List<AnnotationPrediction> predictions = Collections.unmodifiableList(f.get());
+                        annotationCache.put(createCacheKey(request.getPropertyValue(),
+                                                           request.getPropertyType(),
+                                                           request.getFilter()),
+                                            predictions,
+                                            generation);
+                        results.set(i, AnnotationPredictionResult.success(request, predictions));
+                    }
+                    catch (ExecutionException e) {
+                        Throwable cause = e.getCause() != null ? e.getCause() : e;
+                        getLog().error("Failed to annotate " + requests.get(i) + " (" + cause.getMessage() + ")",
+                                       cause);
+                        results.set(i, AnnotationPredictionResult.failure(requests.get(i),
+                                                                          "Failed to complete a search (" +
+                                                                                  cause.getMessage() + ")"));
+                    }
+                }
+            }
+        }
+        catch (InterruptedException e) {
+            for (Future<List<AnnotationPrediction>> f : futures) {
+                if (f != null) {
+                    f.cancel(true);
+                }
+            }
+            throw new SearchException("Failed to complete a batch search (" + e.getMessage() + ")", e);
+        }
+        return results;
+    }
+
+    @RequestMapping(value = "/cache", method = RequestMethod.GET)
+    @ResponseBody Map<String, Map<String, Object>> cacheStatisticsEndpoint() {
+        Map<String, Map<String, Object>> statistics = new LinkedHashMap<>();
+        statistics.put(annotationCache.getName(), annotationCache.getStatistics());
+        statistics.put(selectionCache.getName(), selectionCache.getStatistics());
+        return statistics;
+    }
+
+    /**
+     * Discards all cached annotate and select results.  This is invoked whenever the data ZOOMA searches over is
+     * reloaded, by any of the search and data loading services this endpoint is wired with that are {@link
+     * ReloadNotifier}s.
+     *
+     * @param source a description of what was reloaded
+     */
+    @Override public void reloaded(String source) {
+        getLog().debug(source + " was reloaded, invalidating cached results");
+        annotationCache.invalidate();
+        selectionCache.invalidate();
+    }
+
+    /**
+     * Creates the key that annotate and select results are cached against.  Property values are used as supplied, as
+     * predictions echo the searched value, but an absent source filter is equivalent to an empty one.
+     */
+    private List<String> createCacheKey(String propertyValue, String propertyType, String filter) {
+        String normalizedFilter = filter == null ? "" : filter.trim();
+        return Arrays.asList(propertyValue, propertyType, normalizedFilter);
+    }
+
+    /**
+     * Creates a task that searches for and predicts annotations for a single property value, interpreting the optional
+     * property type and source filter in the same way as {@link #annotationEndpoint(String, String, String)}.  The task
+     * runs synchronously in the calling thread, so it can be submitted to the search executor without nesting.
+     */
+    private Callable<List<AnnotationPrediction>> createAnnotationTask(final String propertyValue,
+                                                                      final String propertyType,
+                                                                      String filter) {
+        SearchType searchType = validateFilterArguments(filter);
+        URI[] parsedRequiredSources = new URI[0];
+        List<URI> parsedPreferredSources = Collections.emptyList();
+        switch (searchType) {
+            case REQUIRED_ONLY:
+                parsedRequiredSources = parseRequiredSourcesFromFilter(filter);
+                break;
+            case REQUIRED_AND_PREFERRED:
+                parsedRequiredSources = parseRequiredSourcesFromFilter(filter);
+            case PREFERRED_ONLY:
+                parsedPreferredSources = parsePreferredSourcesFromFilter(filter);
+                break;
+            case UNRESTRICTED:
+            default:
+                break;
+        }
+
+        final boolean unrestricted = searchType == SearchType.UNRESTRICTED;
+        final URI[] requiredSources = parsedRequiredSources;
+        final List<URI> preferredSources = parsedPreferredSources;
+        return new Callable<List<AnnotationPrediction>>() {
+            @Override public List<AnnotationPrediction> call() throws Exception {
+                Map<AnnotationSummary, Float> summaries;
+                if (propertyType == null) {
+                    summaries = unrestricted
+                            ? zoomaAnnotationSummaries.queryAndScore(propertyValue)
+                            : zoomaAnnotationSummaries.queryAndScore(propertyValue,
+                                                                     "",
+                                                                     preferredSources,
+                                                                     requiredSources);
+                }
+                else {
+                    summaries = unrestricted
+                            ? zoomaAnnotationSummaries.queryAndScore(propertyValue, propertyType)
+                            : zoomaAnnotationSummaries.queryAndScore(propertyValue,
+                                                                     propertyType,
+                                                                     preferredSources,
+                                                                     requiredSources);
+                }
+                return createPredictions(propertyValue, propertyType, summaries);
+            }
+        };
+    }
+
     private List<String> extractPropertyValueStrings(Collection<Property> properties) {
         List<String> result = new ArrayList<>();
         for (Property p : properties) {
@@ -447,7 +683,35 @@ public class Zooma extends SourceFilteredEndpoint implements DisposableBean {
         return "Too many requests - ZOOMA is experiencing abnormally high traffic, please try again later";
     }
 
+    /**
+     * Registers this endpoint as a {@link ReloadListener} with the search and data loading services it is wired with,
+     * so that cached results are discarded whenever any of them reloads the data they serve.
+     */
+    @Override public void afterPropertiesSet() {
+        for (ReloadNotifier notifier : getReloadNotifiers()) {
+            notifier.addReloadListener(this);
+        }
+    }
+
     @Override public void destroy() throws Exception {
+        for (ReloadNotifier notifier : getReloadNotifiers()) {
+            notifier.removeReloadListener(this);
+        }
         executorService.shutdown();
     }
+
+    private Collection<ReloadNotifier> getReloadNotifiers() {
+        List<Object> services = Arrays.<Object>asList(zoomaProperties.getPropertySearchService(),
+                                                      zoomaAnnotations.getAnnotationSearchService(),
+                                                      zoomaAnnotations.getDataLoadingService(),
+                                                      zoomaAnnotationSummaries.getAnnotationSummaryService(),
+                                                      zoomaAnnotationSummaries.getAnnotationSummarySearchService());
+        Set<ReloadNotifier> notifiers = new LinkedHashSet<>();
+        for (Object service : services) {
+            if (service instanceof ReloadNotifier) {
+                notifiers.add((ReloadNotifier) service);
+            }
+        }
+        return notifiers;
+    }
 }
\ No newline at end of file
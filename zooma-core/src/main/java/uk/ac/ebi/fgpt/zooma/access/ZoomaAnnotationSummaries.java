@@ -1,17 +1,24 @@
 package uk.ac.ebi.fgpt.zooma.access;
 
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Controller;
 import org.springframework.util.Assert;
+import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestMethod;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.ResponseBody;
+import org.springframework.web.bind.annotation.ResponseStatus;
+import uk.ac.ebi.fgpt.zooma.exception.InvalidCursorException;
 import uk.ac.ebi.fgpt.zooma.model.AnnotationSummary;
 import uk.ac.ebi.fgpt.zooma.service.AnnotationSummarySearchService;
 import uk.ac.ebi.fgpt.zooma.service.AnnotationSummaryService;
+import uk.ac.ebi.fgpt.zooma.util.CursorPage;
 import uk.ac.ebi.fgpt.zooma.util.InferredAnnotationSummaryCache;
 import uk.ac.ebi.fgpt.zooma.util.Limiter;
 import uk.ac.ebi.fgpt.zooma.util.Scorer;
@@ -52,6 +59,12 @@ public class ZoomaAnnotationSummaries {
 
     private InferredAnnotationSummaryCache inferredAnnotationSummaryCache = new InferredAnnotationSummaryCache();
 
+    private final Logger log = LoggerFactory.getLogger(getClass());
+
+    protected Logger getLog() {
+        return log;
+    }
+
     @Autowired
     public ZoomaAnnotationSummaries(
             AnnotationSummaryService annotationSummaryService,
@@ -140,6 +153,28 @@ public class ZoomaAnnotationSummaries {
     }
 
 
+    /**
+     * Retrieves a page of annotation summaries following the given cursor.  Pass an empty cursor to retrieve the first
+     * page, and then the cursor returned with each page to retrieve the page after it.
+     *
+     * @param limit  the maximum number of summaries on the page, defaults to 100
+     * @param cursor the cursor returned with the previous page, or empty for the first page
+     * @return a page of annotation summaries, with the cursor for the next page
+     */
+    @RequestMapping(method = RequestMethod.GET, params = "cursor")
+    public @ResponseBody CursorPage<AnnotationSummary> fetchPage(
+            @RequestParam(value = "limit", required = false) Integer limit,
+            @RequestParam(value = "cursor") String cursor) {
+        return getAnnotationSummaryService().getAnnotationSummaries(limit == null ? 100 : limit, cursor);
+    }
+
+    @ExceptionHandler(InvalidCursorException.class)
+    @ResponseStatus(HttpStatus.BAD_REQUEST)
+    @ResponseBody String handleInvalidCursorException(InvalidCursorException exception) {
+        getLog().warn("Rejected request for a page of annotation summaries - " + exception.getMessage());
+        return exception.getMessage();
+    }
+
 
     public Collection<AnnotationSummary> queryBySemanticTags(String... semanticTagShortnames) {
         return getAnnotationSummarySearchService().searchBySemanticTags(semanticTagShortnames);
@@ -3,15 +3,20 @@ package uk.ac.ebi.fgpt.zooma.access;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Controller;
+import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestMethod;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.ResponseBody;
+import org.springframework.web.bind.annotation.ResponseStatus;
+import uk.ac.ebi.fgpt.zooma.exception.InvalidCursorException;
 import uk.ac.ebi.fgpt.zooma.model.Property;
 import uk.ac.ebi.fgpt.zooma.service.PropertySearchService;
 import uk.ac.ebi.fgpt.zooma.service.PropertyService;
+import uk.ac.ebi.fgpt.zooma.util.CursorPage;
 import uk.ac.ebi.fgpt.zooma.util.Limiter;
 import uk.ac.ebi.fgpt.zooma.util.PropertiesMapAdapter;
 import uk.ac.ebi.fgpt.zooma.util.Sorter;
@@ -113,6 +118,20 @@ public class ZoomaProperties {
         }
     }
 
+    /**
+     * Retrieves a page of properties following the given cursor.  Pass an empty cursor to retrieve the first page, and
+     * then the cursor returned with each page to retrieve the page after it.
+     *
+     * @param limit  the maximum number of properties on the page, defaults to 100
+     * @param cursor the cursor returned with the previous page, or empty for the first page
+     * @return a page of properties, with the cursor for the next page
+     */
+    @RequestMapping(method = RequestMethod.GET, params = "cursor")
+    public @ResponseBody CursorPage<Property> fetchPage(@RequestParam(value = "limit", required = false) Integer limit,
+                                                        @RequestParam(value = "cursor") String cursor) {
+        return getPropertySearchService().getProperties(limit == null ? 100 : limit, cursor);
+    }
+
     /**
      * Retrieves a property with the given URI.
      *
@@ -126,6 +145,13 @@ public class ZoomaProperties {
         return getPropertyService().getProperty(propertyURI);
     }
 
+    @ExceptionHandler(InvalidCursorException.class)
+    @ResponseStatus(HttpStatus.BAD_REQUEST)
+    @ResponseBody String handleInvalidCursorException(InvalidCursorException exception) {
+        getLog().warn("Rejected request for a page of properties - " + exception.getMessage());
+        return exception.getMessage();
+    }
+
     public List<Property> query(String prefix) {
         getLog().trace("Querying for '" + prefix + "'");
         return getPropertySearchService().searchByPrefix(prefix);
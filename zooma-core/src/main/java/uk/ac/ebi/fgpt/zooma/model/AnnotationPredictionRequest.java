@@ -0,0 +1,54 @@
+package uk.ac.ebi.fgpt.zooma.model;
+
+/**
+ * A single request for annotation predictions, designed to be used by jackson to deserialize the items of a batch
+ * annotation request.  Each request carries the same parameters as a single call to the annotate endpoint: a property
+ * value, an optional property type and an optional source filter.
+ * <p/>
+ * Objects are transient and mutable in order to handle serialization demands.
+ */
+public class AnnotationPredictionRequest {
+    private String propertyType;
+    private String propertyValue;
+    private String filter = "";
+
+    public AnnotationPredictionRequest() {
+    }
+
+    public AnnotationPredictionRequest(String propertyType, String propertyValue, String filter) {
+        this.propertyType = propertyType;
+        this.propertyValue = propertyValue;
+        setFilter(filter);
+    }
+
+    public String getPropertyType() {
+        return propertyType;
+    }
+
+    public void setPropertyType(String propertyType) {
+        this.propertyType = propertyType;
+    }
+
+    public String getPropertyValue() {
+        return propertyValue;
+    }
+
+    public void setPropertyValue(String propertyValue) {
+        this.propertyValue = propertyValue;
+    }
+
+    public String getFilter() {
+        return filter;
+    }
+
+    public void setFilter(String filter) {
+        this.filter = filter == null ? "" : filter;
+    }
+
+    @Override public String toString() {
+        return "AnnotationPredictionRequest {" +
+                "propertyType='" + propertyType + "', " +
+                "propertyValue='" + propertyValue + "', " +
+                "filter='" + filter + "'}";
+    }
+}
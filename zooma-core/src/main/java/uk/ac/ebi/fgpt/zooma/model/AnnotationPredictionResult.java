@@ -0,0 +1,54 @@
+package uk.ac.ebi.fgpt.zooma.model;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The outcome of a single {@link AnnotationPredictionRequest} within a batch annotation request.  A result carries
+ * either the predictions made for the request, or the reason that no predictions could be made, so that a failure for
+ * one item in a batch does not prevent the results for other items from being returned.
+ */
+public class AnnotationPredictionResult {
+    private final String propertyType;
+    private final String propertyValue;
+    private final List<AnnotationPrediction> predictions;
+    private final String error;
+
+    public static AnnotationPredictionResult success(AnnotationPredictionRequest request,
+                                                     List<AnnotationPrediction> predictions) {
+        return new AnnotationPredictionResult(request, predictions, null);
+    }
+
+    public static AnnotationPredictionResult failure(AnnotationPredictionRequest request, String error) {
+        return new AnnotationPredictionResult(request, Collections.<AnnotationPrediction>emptyList(), error);
+    }
+
+    private AnnotationPredictionResult(AnnotationPredictionRequest request,
+                                       List<AnnotationPrediction> predictions,
+                                       String error) {
+        this.propertyType = request == null ? null : request.getPropertyType();
+        this.propertyValue = request == null ? null : request.getPropertyValue();
+        this.predictions = predictions;
+        this.error = error;
+    }
+
+    public String getPropertyType() {
+        return propertyType;
+    }
+
+    public String getPropertyValue() {
+        return propertyValue;
+    }
+
+    public List<AnnotationPrediction> getPredictions() {
+        return predictions;
+    }
+
+    public String getError() {
+        return error;
+    }
+
+    public boolean isFailed() {
+        return error != null;
+    }
+}
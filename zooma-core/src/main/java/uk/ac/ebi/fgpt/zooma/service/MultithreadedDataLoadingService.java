@@ -12,6 +12,8 @@ import uk.ac.ebi.fgpt.zooma.datasource.ZoomaDAO;
 import uk.ac.ebi.fgpt.zooma.io.ZoomaLoader;
 import uk.ac.ebi.fgpt.zooma.model.Identifiable;
 import uk.ac.ebi.fgpt.zooma.model.Update;
+import uk.ac.ebi.fgpt.zooma.util.ReloadListener;
+import uk.ac.ebi.fgpt.zooma.util.ReloadNotifier;
 
 import java.io.InputStream;
 import java.util.ArrayList;
@@ -21,6 +23,7 @@ import java.util.Date;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CopyOnWriteArraySet;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.atomic.AtomicInteger;
@@ -54,7 +57,7 @@ import java.util.concurrent.atomic.AtomicInteger;
  * @author Tony Burdett
  * @date 11/06/13
  */
-public class MultithreadedDataLoadingService<T extends Identifiable> implements DataLoadingService<T> {
+public class MultithreadedDataLoadingService<T extends Identifiable> implements DataLoadingService<T>, ReloadNotifier {
     private final ExecutorService daoExecutor;
     private final ExecutorService loadExecutor;
 
@@ -62,6 +65,7 @@ public class MultithreadedDataLoadingService<T extends Identifiable> implements
 
     private ZoomaLoader<T> zoomaLoader;
     private Collection<ZoomaDAO<T>> zoomaDAOs = Collections.emptySet();
+    private final Collection<ReloadListener> reloadListeners = new CopyOnWriteArraySet<>();
 
     private int maxCount;
     private int blockSize = 100_000;
@@ -99,6 +103,29 @@ public class MultithreadedDataLoadingService<T extends Identifiable> implements
         this.zoomaDAOs = zoomaDAOs;
     }
 
+    public Collection<ReloadListener> getReloadListeners() {
+        return reloadListeners;
+    }
+
+    /**
+     * Sets the listeners to notify whenever a load or update task completes, so that any results derived from the
+     * previously loaded data can be discarded.
+     *
+     * @param reloadListeners the listeners to notify on completion of each loading task
+     */
+    public void setReloadListeners(Collection<ReloadListener> reloadListeners) {
+        this.reloadListeners.clear();
+        this.reloadListeners.addAll(reloadListeners);
+    }
+
+    @Override public void addReloadListener(ReloadListener listener) {
+        reloadListeners.add(listener);
+    }
+
+    @Override public void removeReloadListener(ReloadListener listener) {
+        reloadListeners.remove(listener);
+    }
+
     public int getMaxCount() {
         return maxCount;
     }
@@ -324,6 +351,7 @@ public class MultithreadedDataLoadingService<T extends Identifiable> implements
             receiptService.registerReceipt(receipt);
 
             // start up the scheduler
+            notifyReloadListenersOnCompletion(scheduler, datasource.getDatasourceName());
             scheduler.start();
         }
         catch (Exception e) {
@@ -390,6 +418,7 @@ public class MultithreadedDataLoadingService<T extends Identifiable> implements
             receiptService.registerReceipt(receipt);
 
             // start up the scheduler
+            notifyReloadListenersOnCompletion(scheduler, "zooma-update");
             scheduler.start();
         }
         catch (Exception e) {
@@ -450,6 +479,7 @@ public class MultithreadedDataLoadingService<T extends Identifiable> implements
             receiptService.registerReceipt(receipt);
 
             // start up the scheduler
+            notifyReloadListenersOnCompletion(scheduler, datasetName);
             scheduler.start();
         }
         catch (Exception e) {
@@ -482,6 +512,16 @@ public class MultithreadedDataLoadingService<T extends Identifiable> implements
 
     private final AtomicInteger receiptNumber = new AtomicInteger(1);
 
+    private void notifyReloadListenersOnCompletion(WorkloadScheduler scheduler, final String datasetName) {
+        scheduler.addCompletionCallback(new Runnable() {
+            @Override public void run() {
+                for (ReloadListener listener : getReloadListeners()) {
+                    listener.reloaded(datasetName);
+                }
+            }
+        });
+    }
+
     private abstract class AbstractReceipt implements Receipt {
         private final String id;
         private final String datasourceName;
@@ -61,11 +61,21 @@ public class ZoomaAdministrationService {
         return getStatusService().checkStatus();
     }
 
+    @RequestMapping(value = "/check-status/details", method = RequestMethod.GET)
+    public @ResponseBody Map<String, Object> getStatusDetails() {
+        return getStatusService().getStatusDetails();
+    }
+
     @RequestMapping(value = "/reinitialize", method = RequestMethod.GET)
     public @ResponseBody String reinitialize() {
         return getStatusService().reinitialize();
     }
 
+    @RequestMapping(value = "/refresh", method = RequestMethod.POST)
+    public @ResponseBody String refresh() {
+        return getStatusService().refresh();
+    }
+
     @RequestMapping(value = "/labels/{shortURI}", method = RequestMethod.GET)
     public @ResponseBody Map<String, Set<String>> getLabels(@PathVariable String shortURI) {
         URI uri = URIUtils.getURI(shortURI);
@@ -0,0 +1,190 @@
+package uk.ac.ebi.fgpt.zooma.util;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * A bounded, least-recently-used cache of search results with an optional time to live.  Results are discarded in their
+ * entirety whenever the cache is notified that the underlying data has been reloaded, so this cache can safely be
+ * registered as a {@link ReloadListener} with any service that ZOOMA results are derived from.
+ * <p/>
+ * To avoid caching a result computed from data that was reloaded whilst the computation was in progress, callers
+ * should obtain the current generation with {@link #getGeneration()} before computing a result, and supply it when
+ * calling {@link #put(Object, Object, long)}.  Results computed against an older generation are not cached.
+ * <p/>
+ * A cache with a maximum size of zero or less is disabled: it never stores results, and every lookup is a miss.
+ *
+ * @param <K> the type of key used to look up results
+ * @param <V> the type of result cached
+ */
+public class ResultCache<K, V> implements ReloadListener {
+    private final String name;
+    private final int maxSize;
+    private final long timeToLive;
+
+    private final LinkedHashMap<K, CachedResult<V>> results;
+
+    private long generation = 0;
+    private long hits = 0;
+    private long misses = 0;
+    private long evictions = 0;
+    private long expirations = 0;
+    private long invalidations = 0;
+
+    private final Logger log = LoggerFactory.getLogger(getClass());
+
+    protected Logger getLog() {
+        return log;
+    }
+
+    /**
+     * Creates a new result cache.
+     *
+     * @param name       the name of this cache, for logging and statistics
+     * @param maxSize    the maximum number of results to retain, or 0 to disable caching
+     * @param timeToLive the time, in milliseconds, a result remains valid after it is cached, or 0 or less to retain
+     *                   results until they are evicted or invalidated
+     */
+    public ResultCache(String name, final int maxSize, long timeToLive) {
+        this.name = name;
+        this.maxSize = maxSize;
+        this.timeToLive = timeToLive;
+        this.results = new LinkedHashMap<K, CachedResult<V>>(16, 0.75f, true) {
+            @Override protected boolean removeEldestEntry(Map.Entry<K, CachedResult<V>> eldest) {
+                if (size() > maxSize) {
+                    evictions++;
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public int getMaxSize() {
+        return maxSize;
+    }
+
+    public long getTimeToLive() {
+        return timeToLive;
+    }
+
+    public boolean isEnabled() {
+        return maxSize > 0;
+    }
+
+    public synchronized int size() {
+        return results.size();
+    }
+
+    /**
+     * Returns the current generation of this cache.  The generation is incremented every time the cache is invalidated.
+     *
+     * @return the current cache generation
+     */
+    public synchronized long getGeneration() {
+        return generation;
+    }
+
+    /**
+     * Returns the cached result for the given key, or null if there is no valid cached result.
+     *
+     * @param key the key to look up
+     * @return the cached result, or null
+     */
+    public synchronized V get(K key) {
+        CachedResult<V> cached = results.get(key);
+        if (cached != null && timeToLive > 0 && System.currentTimeMillis() - cached.time > timeToLive) {
+            results.remove(key);
+            expirations++;
+            cached = null;
+        }
+        if (cached == null) {
+            misses++;
+            return null;
+        }
+        hits++;
+        return cached.result;
+    }
+
+    /**
+     * Caches a result for the given key, as long as the cache has not been invalidated since the given generation.
+     *
+     * @param key        the key to cache the result against
+     * @param result     the result to cache
+     * @param generation the generation of the cache, obtained before the result was computed
+     * @return true if the result was cached, false if it was discarded
+     */
+    public synchronized boolean put(K key, V result, long generation) {
+        if (!isEnabled() || result == null || generation != this.generation) {
+            return false;
+        }
+        results.put(key, new CachedResult<>(result, System.currentTimeMillis()));
+        return true;
+    }
+
+    /**
+     * Discards every cached result.
+     */
+    public synchronized void invalidate() {
+        if (!results.isEmpty()) {
+            getLog().debug("Invalidating " + results.size() + " cached results from " + name + " cache");
+        }
+        results.clear();
+        generation++;
+        invalidations++;
+    }
+
+    @Override public void reloaded(String source) {
+        getLog().debug(source + " was reloaded, invalidating " + name + " cache");
+        invalidate();
+    }
+
+    /**
+     * Returns a snapshot of the statistics collected by this cache.
+     *
+     * @return a map of statistic names to their values
+     */
+    public synchronized Map<String, Object> getStatistics() {
+        // drop anything that has expired so the size reflects usable results
+        if (timeToLive > 0) {
+            long now = System.currentTimeMillis();
+            Iterator<CachedResult<V>> it = results.values().iterator();
+            while (it.hasNext()) {
+                if (now - it.next().time > timeToLive) {
+                    it.remove();
+                    expirations++;
+                }
+            }
+        }
+
+        Map<String, Object> statistics = new LinkedHashMap<>();
+        statistics.put("enabled", isEnabled());
+        statistics.put("size", results.size());
+        statistics.put("maxSize", maxSize);
+        statistics.put("timeToLive", timeToLive);
+        statistics.put("hits", hits);
+        statistics.put("misses", misses);
+        statistics.put("evictions", evictions);
+        statistics.put("expirations", expirations);
+        statistics.put("invalidations", invalidations);
+        return statistics;
+    }
+
+    private static class CachedResult<V> {
+        private final V result;
+        private final long time;
+
+        private CachedResult(V result, long time) {
+            this.result = result;
+            this.time = time;
+        }
+    }
+}
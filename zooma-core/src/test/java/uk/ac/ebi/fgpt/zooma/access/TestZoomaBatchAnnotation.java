@@ -0,0 +1,274 @@
+package uk.ac.ebi.fgpt.zooma.access;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import uk.ac.ebi.fgpt.zooma.model.Annotation;
+import uk.ac.ebi.fgpt.zooma.model.AnnotationPredictionRequest;
+import uk.ac.ebi.fgpt.zooma.model.AnnotationProvenance;
+import uk.ac.ebi.fgpt.zooma.model.AnnotationSummary;
+import uk.ac.ebi.fgpt.zooma.model.BiologicalEntity;
+import uk.ac.ebi.fgpt.zooma.model.Property;
+import uk.ac.ebi.fgpt.zooma.model.SimpleAnnotation;
+import uk.ac.ebi.fgpt.zooma.model.SimpleAnnotationProvenance;
+import uk.ac.ebi.fgpt.zooma.model.SimpleAnnotationSummary;
+import uk.ac.ebi.fgpt.zooma.model.SimpleDatabaseAnnotationSource;
+import uk.ac.ebi.fgpt.zooma.model.SimpleTypedProperty;
+import uk.ac.ebi.fgpt.zooma.service.AnnotationSearchService;
+import uk.ac.ebi.fgpt.zooma.service.AnnotationService;
+import uk.ac.ebi.fgpt.zooma.service.AnnotationSummarySearchService;
+import uk.ac.ebi.fgpt.zooma.service.AnnotationSummaryService;
+import uk.ac.ebi.fgpt.zooma.service.DataLoadingService;
+import uk.ac.ebi.fgpt.zooma.service.PropertySearchService;
+import uk.ac.ebi.fgpt.zooma.service.PropertyService;
+import uk.ac.ebi.fgpt.zooma.util.Limiter;
+import uk.ac.ebi.fgpt.zooma.util.Scorer;
+import uk.ac.ebi.fgpt.zooma.util.Sorter;
+
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+import static org.springframework.test.web.servlet.setup.MockMvcBuilders.standaloneSetup;
+
+/**
+ * Tests the batch annotation endpoint of {@link Zooma} over stubbed search and annotation services.
+ */
+public class TestZoomaBatchAnnotation {
+    private static final int BATCH_THREADS = 2;
+    private static final String BROKEN_VALUE = "broken";
+
+    private Zooma zooma;
+    private MockMvc mockMvc;
+    private ObjectMapper objectMapper;
+
+    private AtomicInteger runningSearches;
+    private AtomicInteger maxRunningSearches;
+
+    @SuppressWarnings("unchecked") @Before
+    public void setUp() {
+        runningSearches = new AtomicInteger();
+        maxRunningSearches = new AtomicInteger();
+
+        // each property value maps to one summary, derived from one annotation, except "broken" which references an
+        // annotation that can't be found
+        // the first searches wait until as many searches as there are batch threads are running, so they must overlap
+        final CountDownLatch overlap = new CountDownLatch(BATCH_THREADS);
+        Answer<Collection<AnnotationSummary>> searchAnswer = new Answer<Collection<AnnotationSummary>>() {
+            @Override public Collection<AnnotationSummary> answer(InvocationOnMock invocation) throws Throwable {
+                Object[] args = invocation.getArguments();
+                String propertyValue = (String) args[args.length - 1];
+                int running = runningSearches.incrementAndGet();
+                synchronized (maxRunningSearches) {
+                    maxRunningSearches.set(Math.max(maxRunningSearches.get(), running));
+                }
+                try {
+                    overlap.countDown();
+                    overlap.await(10, TimeUnit.SECONDS);
+                }
+                finally {
+                    runningSearches.decrementAndGet();
+                }
+                URI annotationURI = URI.create("http://www.test.com/annotation/" + propertyValue.replace(" ", "_"));
+                URI tag = URI.create("http://www.test.com/tag/" + propertyValue.replace(" ", "_"));
+                AnnotationSummary summary = new SimpleAnnotationSummary(propertyValue,
+                                                                        null,
+                                                                        null,
+                                                                        propertyValue,
+                                                                        Collections.singleton(tag),
+                                                                        Collections.singleton(annotationURI),
+                                                                        90f,
+                                                                        Collections.<URI>emptySet());
+                return Collections.singleton(summary);
+            }
+        };
+        AnnotationSummarySearchService summarySearchService = mock(AnnotationSummarySearchService.class);
+        when(summarySearchService.search(anyString())).thenAnswer(searchAnswer);
+        when(summarySearchService.search(anyString(), anyString())).thenAnswer(searchAnswer);
+
+        AnnotationService annotationService = mock(AnnotationService.class);
+        when(annotationService.getAnnotation(any(URI.class))).thenAnswer(new Answer<Annotation>() {
+            @Override public Annotation answer(InvocationOnMock invocation) throws Throwable {
+                URI annotationURI = (URI) invocation.getArguments()[0];
+                String propertyValue = annotationURI.toString().substring(annotationURI.toString().lastIndexOf('/') + 1)
+                        .replace("_", " ");
+                if (propertyValue.equals(BROKEN_VALUE)) {
+                    return null;
+                }
+                Property property = new SimpleTypedProperty(null, "type", propertyValue);
+                AnnotationProvenance provenance = new SimpleAnnotationProvenance(
+                        new SimpleDatabaseAnnotationSource(URI.create("http://www.test.com/source"), "test"),
+                        AnnotationProvenance.Evidence.MANUAL_CURATED,
+                        "TEST",
+                        new Date());
+                return new SimpleAnnotation(annotationURI,
+                                            Collections.<BiologicalEntity>emptySet(),
+                                            property,
+                                            provenance,
+                                            URI.create("http://www.test.com/tag/" + propertyValue.replace(" ", "_")));
+            }
+        });
+
+        Scorer<AnnotationSummary> scorer = new Scorer<AnnotationSummary>() {
+            @Override public Map<AnnotationSummary, Float> score(Collection<AnnotationSummary> collection) {
+                Map<AnnotationSummary, Float> scores = new HashMap<>();
+                for (AnnotationSummary summary : collection) {
+                    scores.put(summary, summary.getQuality());
+                }
+                return scores;
+            }
+
+            @Override public Map<AnnotationSummary, Float> score(Collection<AnnotationSummary> collection,
+                                                                 String searchString) {
+                return score(collection);
+            }
+
+            @Override public Map<AnnotationSummary, Float> score(Collection<AnnotationSummary> collection,
+                                                                 String searchString,
+                                                                 String searchType) {
+                return score(collection);
+            }
+        };
+
+        ZoomaAnnotationSummaries zoomaAnnotationSummaries =
+                new ZoomaAnnotationSummaries(mock(AnnotationSummaryService.class),
+                                             summarySearchService,
+                                             mock(Sorter.class),
+                                             mock(Limiter.class),
+                                             scorer);
+        ZoomaAnnotations zoomaAnnotations = new ZoomaAnnotations(annotationService,
+                                                                 mock(AnnotationSearchService.class),
+                                                                 mock(DataLoadingService.class),
+                                                                 mock(PropertyService.class),
+                                                                 mock(Sorter.class),
+                                                                 mock(Limiter.class));
+        ZoomaProperties zoomaProperties = new ZoomaProperties(mock(PropertyService.class),
+                                                              mock(PropertySearchService.class),
+                                                              mock(Sorter.class),
+                                                              mock(Limiter.class));
+
+        Properties configuration = new Properties();
+        configuration.setProperty("zooma.search.significance.score", "80");
+        configuration.setProperty("zooma.search.cutoff.score", "0.9");
+        configuration.setProperty("zooma.search.concurrent.threads", "8");
+        configuration.setProperty("zooma.search.max.queue", "1000");
+        configuration.setProperty("zooma.search.batch.concurrent.threads", Integer.toString(BATCH_THREADS));
+
+        zooma = new Zooma(zoomaProperties, zoomaAnnotations, zoomaAnnotationSummaries, configuration);
+        mockMvc = standaloneSetup(zooma).build();
+        objectMapper = new ObjectMapper();
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        zooma.destroy();
+    }
+
+    @Test
+    public void testBatchAnnotation() {
+        try {
+            List<AnnotationPredictionRequest> requests = new ArrayList<>();
+            for (int i = 0; i < 20; i++) {
+                if (i == 7) {
+                    requests.add(new AnnotationPredictionRequest(null, BROKEN_VALUE, null));
+                }
+                else if (i % 3 == 0) {
+                    requests.add(new AnnotationPredictionRequest("type", "value " + i, null));
+                }
+                else {
+                    requests.add(new AnnotationPredictionRequest(null, "value " + i, ""));
+                }
+            }
+            requests.add(new AnnotationPredictionRequest(null, null, null));
+
+            MvcResult result = mockMvc.perform(post("/services/annotate/batch")
+                                                       .contentType(MediaType.APPLICATION_JSON)
+                                                       .content(objectMapper.writeValueAsString(requests)))
+                    .andExpect(status().isOk())
+                    .andReturn();
+            List<Map<String, Object>> results = objectMapper.readValue(
+                    result.getResponse().getContentAsString(),
+                    new TypeReference<List<Map<String, Object>>>() {});
+
+            // results come back in request order
+            assertEquals("Wrong number of results", requests.size(), results.size());
+            for (int i = 0; i < requests.size(); i++) {
+                assertEquals("Results out of order",
+                             requests.get(i).getPropertyValue(),
+                             results.get(i).get("propertyValue"));
+                assertEquals("Results out of order",
+                             requests.get(i).getPropertyType(),
+                             results.get(i).get("propertyType"));
+            }
+
+            // failures are isolated to the failing items
+            for (int i = 0; i < requests.size(); i++) {
+                Map<String, Object> itemResult = results.get(i);
+                List<?> predictions = (List<?>) itemResult.get("predictions");
+                if (i == 7 || requests.get(i).getPropertyValue() == null) {
+                    assertNotNull("Failing item should report an error", itemResult.get("error"));
+                    assertTrue("Failing item should have no predictions", predictions.isEmpty());
+                }
+                else {
+                    assertNull("Unexpected error: " + itemResult.get("error"), itemResult.get("error"));
+                    assertEquals("Expected one prediction", 1, predictions.size());
+                }
+            }
+
+            // the batch never occupied more than its share of search threads
+            assertTrue("No searches ran concurrently", maxRunningSearches.get() >= 2);
+            assertTrue("Batch exceeded its concurrency limit (" + maxRunningSearches.get() + " concurrent searches)",
+                       maxRunningSearches.get() <= BATCH_THREADS);
+        }
+        catch (Exception e) {
+            e.printStackTrace();
+            fail();
+        }
+    }
+
+    @Test
+    public void testEmptyBatch() {
+        try {
+            MvcResult result = mockMvc.perform(post("/services/annotate/batch")
+                                                       .contentType(MediaType.APPLICATION_JSON)
+                                                       .content("[]"))
+                    .andExpect(status().isOk())
+                    .andReturn();
+            List<?> results = objectMapper.readValue(result.getResponse().getContentAsString(), List.class);
+            assertTrue(results.isEmpty());
+            assertFalse(maxRunningSearches.get() > 0);
+        }
+        catch (Exception e) {
+            e.printStackTrace();
+            fail();
+        }
+    }
+}
@@ -0,0 +1,284 @@
+package uk.ac.ebi.fgpt.zooma.access;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import uk.ac.ebi.fgpt.zooma.model.Annotation;
+import uk.ac.ebi.fgpt.zooma.model.AnnotationPrediction;
+import uk.ac.ebi.fgpt.zooma.model.AnnotationProvenance;
+import uk.ac.ebi.fgpt.zooma.model.AnnotationSource;
+import uk.ac.ebi.fgpt.zooma.model.AnnotationSummary;
+import uk.ac.ebi.fgpt.zooma.model.BiologicalEntity;
+import uk.ac.ebi.fgpt.zooma.model.SimpleAnnotation;
+import uk.ac.ebi.fgpt.zooma.model.SimpleAnnotationProvenance;
+import uk.ac.ebi.fgpt.zooma.model.SimpleAnnotationSummary;
+import uk.ac.ebi.fgpt.zooma.model.SimpleDatabaseAnnotationSource;
+import uk.ac.ebi.fgpt.zooma.model.SimpleTypedProperty;
+import uk.ac.ebi.fgpt.zooma.service.AnnotationService;
+import uk.ac.ebi.fgpt.zooma.service.AnnotationSourceService;
+import uk.ac.ebi.fgpt.zooma.service.AnnotationSummarySearchService;
+import uk.ac.ebi.fgpt.zooma.util.ReloadListener;
+import uk.ac.ebi.fgpt.zooma.util.ReloadNotifier;
+
+import java.net.URI;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.fail;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyListOf;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.mockito.Mockito.withSettings;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+import static org.springframework.test.web.servlet.setup.MockMvcBuilders.standaloneSetup;
+
+/**
+ * Tests that {@link Zooma} serves repeated annotate and select requests from its result cache, keeps results for
+ * different source filters apart, and discards cached results when the underlying data is reloaded.
+ */
+public class TestZoomaResultCache {
+    private static final URI SOURCE_A = URI.create("http://www.test.com/sourceA");
+    private static final URI SOURCE_B = URI.create("http://www.test.com/sourceB");
+
+    private Zooma zooma;
+    private MockMvc mockMvc;
+
+    private ZoomaAnnotationSummaries zoomaAnnotationSummaries;
+    private AnnotationSummarySearchService annotationSummarySearchService;
+    private AtomicInteger searches;
+
+    /**
+     * Creates an answer for summary searches that maps each value to a tag named after the value, the (first) required
+     * source, if any, and the given suffix
+     */
+    private Answer<Map<AnnotationSummary, Float>> createSearchAnswer(final String suffix) {
+        return new Answer<Map<AnnotationSummary, Float>>() {
+            @Override public Map<AnnotationSummary, Float> answer(InvocationOnMock invocation) throws Throwable {
+                searches.incrementAndGet();
+                Object[] args = invocation.getArguments();
+                String propertyValue = (String) args[0];
+                String source = "any";
+                if (args.length == 4 && ((URI[]) args[3]).length > 0) {
+                    URI requiredSource = ((URI[]) args[3])[0];
+                    source = requiredSource.toString().substring(requiredSource.toString().lastIndexOf('/') + 1);
+                }
+                String name = propertyValue + "_" + source + suffix;
+                AnnotationSummary summary = new SimpleAnnotationSummary(name,
+                                                                        null,
+                                                                        null,
+                                                                        propertyValue,
+                                                                        Collections.singleton(tagFor(name)),
+                                                                        Collections.singleton(annotationFor(name)),
+                                                                        90f,
+                                                                        Collections.<URI>emptySet());
+                Map<AnnotationSummary, Float> results = new HashMap<>();
+                results.put(summary, 90f);
+                return results;
+            }
+        };
+    }
+
+    @SuppressWarnings("unchecked") @Before
+    public void setUp() {
+        searches = new AtomicInteger();
+
+        Answer<Map<AnnotationSummary, Float>> searchAnswer = createSearchAnswer("");
+        annotationSummarySearchService = mock(AnnotationSummarySearchService.class,
+                                              withSettings().extraInterfaces(ReloadNotifier.class));
+        zoomaAnnotationSummaries = mock(ZoomaAnnotationSummaries.class);
+        when(zoomaAnnotationSummaries.getAnnotationSummarySearchService()).thenReturn(annotationSummarySearchService);
+        when(zoomaAnnotationSummaries.queryAndScore(anyString())).thenAnswer(searchAnswer);
+        when(zoomaAnnotationSummaries.queryAndScore(anyString(), anyString())).thenAnswer(searchAnswer);
+        when(zoomaAnnotationSummaries.queryAndScore(anyString(),
+                                                    anyString(),
+                                                    anyListOf(URI.class),
+                                                    any(URI[].class))).thenAnswer(searchAnswer);
+
+        AnnotationService annotationService = mock(AnnotationService.class);
+        when(annotationService.getAnnotation(any(URI.class))).thenAnswer(new Answer<Annotation>() {
+            @Override public Annotation answer(InvocationOnMock invocation) throws Throwable {
+                URI annotationURI = (URI) invocation.getArguments()[0];
+                String name = annotationURI.toString().substring(annotationURI.toString().lastIndexOf('/') + 1);
+                AnnotationProvenance provenance = new SimpleAnnotationProvenance(
+                        new SimpleDatabaseAnnotationSource(SOURCE_A, "sourceA"),
+                        AnnotationProvenance.Evidence.MANUAL_CURATED,
+                        "TEST",
+                        new Date());
+                return new SimpleAnnotation(annotationURI,
+                                            Collections.<BiologicalEntity>emptySet(),
+                                            new SimpleTypedProperty(null, "type", name),
+                                            provenance,
+                                            tagFor(name));
+            }
+        });
+        ZoomaAnnotations zoomaAnnotations = mock(ZoomaAnnotations.class);
+        when(zoomaAnnotations.getAnnotationService()).thenReturn(annotationService);
+
+        AnnotationSource sourceA = mock(AnnotationSource.class);
+        when(sourceA.getURI()).thenReturn(SOURCE_A);
+        AnnotationSource sourceB = mock(AnnotationSource.class);
+        when(sourceB.getURI()).thenReturn(SOURCE_B);
+        AnnotationSourceService annotationSourceService = mock(AnnotationSourceService.class);
+        when(annotationSourceService.getAnnotationSource("sourceA")).thenReturn(sourceA);
+        when(annotationSourceService.getAnnotationSource("sourceB")).thenReturn(sourceB);
+
+        Properties configuration = new Properties();
+        configuration.setProperty("zooma.search.significance.score", "80");
+        configuration.setProperty("zooma.search.cutoff.score", "0.9");
+        configuration.setProperty("zooma.search.concurrent.threads", "4");
+        configuration.setProperty("zooma.search.max.queue", "100");
+        configuration.setProperty("zooma.search.cache.size", "100");
+
+        zooma = new Zooma(mock(ZoomaProperties.class), zoomaAnnotations, zoomaAnnotationSummaries, configuration);
+        zooma.setAnnotationSourceService(annotationSourceService);
+        zooma.afterPropertiesSet();
+        mockMvc = standaloneSetup(zooma).build();
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        zooma.destroy();
+    }
+
+    private URI tagFor(String name) {
+        return URI.create("http://www.test.com/tag/" + name);
+    }
+
+    private URI annotationFor(String name) {
+        return URI.create("http://www.test.com/annotation/" + name);
+    }
+
+    @Test
+    public void testRepeatedAnnotationIsCached() {
+        List<AnnotationPrediction> first = zooma.annotationEndpoint("liver", null, "");
+        List<AnnotationPrediction> second = zooma.annotationEndpoint("liver", null, "");
+        assertEquals("Repeated request should not search again", 1, searches.get());
+        assertSame(first, second);
+
+        // a typed request is a different request
+        zooma.annotationEndpoint("liver", "organism part", "");
+        assertEquals(2, searches.get());
+        zooma.annotationEndpoint("liver", "organism part", "");
+        assertEquals(2, searches.get());
+
+        // select results are cached separately
+        List<AnnotationSummary> summaries = zooma.selectEndpoint("liver", null, "");
+        zooma.selectEndpoint("liver", null, "");
+        assertEquals(3, searches.get());
+        assertEquals(1, summaries.size());
+    }
+
+    @Test
+    public void testSourceFiltersAreIsolated() {
+        List<AnnotationPrediction> fromA = zooma.annotationEndpoint("liver", null, "required:[sourceA]");
+        List<AnnotationPrediction> fromB = zooma.annotationEndpoint("liver", null, "required:[sourceB]");
+        List<AnnotationPrediction> unfiltered = zooma.annotationEndpoint("liver", null, "");
+        assertEquals("Each filter should search once", 3, searches.get());
+
+        assertEquals(tagFor("liver_sourceA"), fromA.get(0).getSemanticTags().iterator().next());
+        assertEquals(tagFor("liver_sourceB"), fromB.get(0).getSemanticTags().iterator().next());
+        assertEquals(tagFor("liver_any"), unfiltered.get(0).getSemanticTags().iterator().next());
+
+        // cached results are returned for the right filter
+        assertSame(fromA, zooma.annotationEndpoint("liver", null, "required:[sourceA]"));
+        assertSame(fromB, zooma.annotationEndpoint("liver", null, "required:[sourceB]"));
+        assertSame(unfiltered, zooma.annotationEndpoint("liver", null, null));
+        assertEquals(3, searches.get());
+    }
+
+    @Test
+    public void testInvalidationOnReload() {
+        zooma.annotationEndpoint("liver", null, "");
+        zooma.selectEndpoint("liver", null, "");
+        assertEquals(2, searches.get());
+
+        zooma.reloaded("test index");
+
+        zooma.annotationEndpoint("liver", null, "");
+        zooma.selectEndpoint("liver", null, "");
+        assertEquals("Reload should invalidate cached results", 4, searches.get());
+        zooma.annotationEndpoint("liver", null, "");
+        assertEquals(4, searches.get());
+    }
+
+    @SuppressWarnings("unchecked") @Test
+    public void testReloadOfWiredServiceInvalidatesCache() {
+        ArgumentCaptor<ReloadListener> listener = ArgumentCaptor.forClass(ReloadListener.class);
+        verify((ReloadNotifier) annotationSummarySearchService).addReloadListener(listener.capture());
+
+        List<AnnotationPrediction> before = zooma.annotationEndpoint("liver", null, "");
+        assertEquals(tagFor("liver_any"), before.get(0).getSemanticTags().iterator().next());
+
+        // the index is rebuilt, and now maps liver to a different tag
+        Answer<Map<AnnotationSummary, Float>> reloadedAnswer = createSearchAnswer("_reloaded");
+        doAnswer(reloadedAnswer).when(zoomaAnnotationSummaries).queryAndScore(anyString());
+        doAnswer(reloadedAnswer).when(zoomaAnnotationSummaries).queryAndScore(anyString(), anyString());
+        doAnswer(reloadedAnswer).when(zoomaAnnotationSummaries).queryAndScore(anyString(),
+                                                                              anyString(),
+                                                                              anyListOf(URI.class),
+                                                                              any(URI[].class));
+        assertSame("Results should be cached until the data is reloaded",
+                   before,
+                   zooma.annotationEndpoint("liver", null, ""));
+
+        listener.getValue().reloaded("test index");
+        List<AnnotationPrediction> after = zooma.annotationEndpoint("liver", null, "");
+        assertEquals("Results should be searched again once the data is reloaded",
+                     tagFor("liver_any_reloaded"),
+                     after.get(0).getSemanticTags().iterator().next());
+        assertEquals(2, searches.get());
+    }
+
+    @Test
+    public void testListenerIsRemovedOnDestroy() {
+        try {
+            zooma.destroy();
+            verify((ReloadNotifier) annotationSummarySearchService).removeReloadListener(zooma);
+        }
+        catch (Exception e) {
+            e.printStackTrace();
+            fail();
+        }
+    }
+
+    @SuppressWarnings("unchecked") @Test
+    public void testStatisticsEndpoint() {
+        try {
+            mockMvc.perform(get("/services/annotate").param("propertyValue", "liver")).andExpect(status().isOk());
+            mockMvc.perform(get("/services/annotate").param("propertyValue", "liver")).andExpect(status().isOk());
+            mockMvc.perform(get("/services/annotate").param("propertyValue", "kidney")).andExpect(status().isOk());
+            assertEquals(2, searches.get());
+
+            MvcResult result = mockMvc.perform(get("/services/cache")).andExpect(status().isOk()).andReturn();
+            Map<String, Map<String, Object>> statistics =
+                    new ObjectMapper().readValue(result.getResponse().getContentAsString(), Map.class);
+            Map<String, Object> annotateStatistics = statistics.get("annotate");
+            assertEquals(1, ((Number) annotateStatistics.get("hits")).intValue());
+            assertEquals(2, ((Number) annotateStatistics.get("misses")).intValue());
+            assertEquals(2, ((Number) annotateStatistics.get("size")).intValue());
+            assertEquals(0, ((Number) statistics.get("select").get("hits")).intValue());
+        }
+        catch (Exception e) {
+            e.printStackTrace();
+            fail();
+        }
+    }
+}
@@ -0,0 +1,95 @@
+package uk.ac.ebi.fgpt.zooma.util;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Tests eviction, expiry and invalidation of a {@link ResultCache}.
+ */
+public class TestResultCache {
+    private ResultCache<String, String> cache;
+
+    @Before
+    public void setUp() {
+        cache = new ResultCache<>("test", 3, 0);
+    }
+
+    @Test
+    public void testHitsAndMisses() {
+        assertNull(cache.get("a"));
+        assertTrue(cache.put("a", "A", cache.getGeneration()));
+        assertEquals("A", cache.get("a"));
+        assertEquals("A", cache.get("a"));
+
+        Map<String, Object> statistics = cache.getStatistics();
+        assertEquals(2L, statistics.get("hits"));
+        assertEquals(1L, statistics.get("misses"));
+        assertEquals(1, statistics.get("size"));
+    }
+
+    @Test
+    public void testLeastRecentlyUsedEviction() {
+        long generation = cache.getGeneration();
+        cache.put("a", "A", generation);
+        cache.put("b", "B", generation);
+        cache.put("c", "C", generation);
+
+        // touch "a", so "b" is now least recently used
+        assertEquals("A", cache.get("a"));
+        cache.put("d", "D", generation);
+
+        assertEquals(3, cache.size());
+        assertNull("Least recently used result should have been evicted", cache.get("b"));
+        assertEquals("A", cache.get("a"));
+        assertEquals("C", cache.get("c"));
+        assertEquals("D", cache.get("d"));
+        assertEquals(1L, cache.getStatistics().get("evictions"));
+    }
+
+    @Test
+    public void testTimeToLive() {
+        ResultCache<String, String> expiringCache = new ResultCache<>("expiring", 10, 50);
+        expiringCache.put("a", "A", expiringCache.getGeneration());
+        assertEquals("A", expiringCache.get("a"));
+        try {
+            Thread.sleep(100);
+        }
+        catch (InterruptedException e) {
+            fail("Interrupted");
+        }
+        assertNull("Result should have expired", expiringCache.get("a"));
+        assertEquals(1L, expiringCache.getStatistics().get("expirations"));
+    }
+
+    @Test
+    public void testInvalidation() {
+        long generation = cache.getGeneration();
+        cache.put("a", "A", generation);
+        cache.reloaded("test");
+        assertNull("Result should have been invalidated", cache.get("a"));
+        assertEquals(0, cache.size());
+
+        // results computed before the reload must not be cached afterwards
+        assertFalse("Stale result was cached", cache.put("a", "stale", generation));
+        assertNull(cache.get("a"));
+        assertTrue(cache.put("a", "fresh", cache.getGeneration()));
+        assertEquals("fresh", cache.get("a"));
+        assertEquals(1L, cache.getStatistics().get("invalidations"));
+    }
+
+    @Test
+    public void testDisabled() {
+        ResultCache<String, String> disabledCache = new ResultCache<>("disabled", 0, 0);
+        assertFalse(disabledCache.isEnabled());
+        assertFalse(disabledCache.put("a", "A", disabledCache.getGeneration()));
+        assertNull(disabledCache.get("a"));
+    }
+}
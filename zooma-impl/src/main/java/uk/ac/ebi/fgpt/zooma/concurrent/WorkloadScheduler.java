@@ -35,6 +35,8 @@ public abstract class WorkloadScheduler {
     private Boolean isAborted = false;
     private RuntimeException abortiveException = null;
 
+    private final List<Runnable> completionCallbacks = Collections.synchronizedList(new ArrayList<Runnable>());
+
     private Logger log = LoggerFactory.getLogger(WorkloadScheduler.class);
 
     public WorkloadScheduler(ExecutorService executorService, int iterations, String workloadName) {
@@ -57,6 +59,17 @@ public abstract class WorkloadScheduler {
         return log;
     }
 
+    /**
+     * Registers a callback to run once every task in this workload has finished, whether or not all tasks succeeded.
+     * Callbacks run on the workload monitoring thread, after any threads blocked in {@link #waitUntilComplete()} have
+     * been released.
+     *
+     * @param callback the callback to run on completion
+     */
+    public void addCompletionCallback(Runnable callback) {
+        completionCallbacks.add(callback);
+    }
+
     public void start() {
         scheduleTasks();
         monitorTasks();
@@ -175,6 +188,16 @@ public abstract class WorkloadScheduler {
                         WorkloadScheduler.this.notifyAll();
                     }
                     getLog().debug("Monitoring of tasks for " + workloadName + " is complete");
+                    synchronized (completionCallbacks) {
+                        for (Runnable callback : completionCallbacks) {
+                            try {
+                                callback.run();
+                            }
+                            catch (RuntimeException e) {
+                                getLog().error("Completion callback for " + workloadName + " failed", e);
+                            }
+                        }
+                    }
                     if (counter.getFailedTaskCount() > 0) {
                         StringBuilder errorMessage = new StringBuilder();
                         errorMessage.append("Loading data failed for ")
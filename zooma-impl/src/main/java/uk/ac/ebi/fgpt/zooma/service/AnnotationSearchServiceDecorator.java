@@ -1,6 +1,8 @@
 package uk.ac.ebi.fgpt.zooma.service;
 
 import uk.ac.ebi.fgpt.zooma.model.Annotation;
+import uk.ac.ebi.fgpt.zooma.util.ReloadListener;
+import uk.ac.ebi.fgpt.zooma.util.ReloadNotifier;
 
 import java.util.Collection;
 
@@ -12,7 +14,7 @@ import java.util.Collection;
  * @date 02/08/13
  * @see AnnotationSearchService
  */
-public abstract class AnnotationSearchServiceDecorator implements AnnotationSearchService {
+public abstract class AnnotationSearchServiceDecorator implements AnnotationSearchService, ReloadNotifier {
     private final AnnotationSearchService _annotationSearchService;
 
     protected AnnotationSearchServiceDecorator(AnnotationSearchService annotationSearchService) {
@@ -34,4 +36,21 @@ public abstract class AnnotationSearchServiceDecorator implements AnnotationSear
     @Override public Collection<Annotation> searchByPrefix(String propertyType, String propertyValuePrefix) {
         return _annotationSearchService.searchByPrefix(propertyType, propertyValuePrefix);
     }
+
+    /**
+     * Registers the listener with the decorated service, if it notifies listeners of reloads.
+     *
+     * @param listener the listener to notify
+     */
+    @Override public void addReloadListener(ReloadListener listener) {
+        if (_annotationSearchService instanceof ReloadNotifier) {
+            ((ReloadNotifier) _annotationSearchService).addReloadListener(listener);
+        }
+    }
+
+    @Override public void removeReloadListener(ReloadListener listener) {
+        if (_annotationSearchService instanceof ReloadNotifier) {
+            ((ReloadNotifier) _annotationSearchService).removeReloadListener(listener);
+        }
+    }
 }
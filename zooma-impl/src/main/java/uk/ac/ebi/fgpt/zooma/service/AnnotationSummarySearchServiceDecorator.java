@@ -2,6 +2,8 @@ package uk.ac.ebi.fgpt.zooma.service;
 
 import uk.ac.ebi.fgpt.zooma.Initializable;
 import uk.ac.ebi.fgpt.zooma.model.AnnotationSummary;
+import uk.ac.ebi.fgpt.zooma.util.ReloadListener;
+import uk.ac.ebi.fgpt.zooma.util.ReloadNotifier;
 
 import java.net.URI;
 import java.util.Collection;
@@ -16,7 +18,7 @@ import java.util.List;
  * @see AnnotationSummarySearchService
  */
 public abstract class AnnotationSummarySearchServiceDecorator extends Initializable
-        implements AnnotationSummarySearchService {
+        implements AnnotationSummarySearchService, ReloadNotifier {
     private final AnnotationSummarySearchService _annotatationSummarySearchService;
 
     public AnnotationSummarySearchServiceDecorator(AnnotationSummarySearchService annotationSummarySearchService) {
@@ -76,4 +78,21 @@ public abstract class AnnotationSummarySearchServiceDecorator extends Initializa
     @Override protected void doTermination() throws Exception {
         // do nothing by default
     }
+
+    /**
+     * Registers the listener with the decorated service, if it notifies listeners of reloads.
+     *
+     * @param listener the listener to notify
+     */
+    @Override public void addReloadListener(ReloadListener listener) {
+        if (_annotatationSummarySearchService instanceof ReloadNotifier) {
+            ((ReloadNotifier) _annotatationSummarySearchService).addReloadListener(listener);
+        }
+    }
+
+    @Override public void removeReloadListener(ReloadListener listener) {
+        if (_annotatationSummarySearchService instanceof ReloadNotifier) {
+            ((ReloadNotifier) _annotatationSummarySearchService).removeReloadListener(listener);
+        }
+    }
 }
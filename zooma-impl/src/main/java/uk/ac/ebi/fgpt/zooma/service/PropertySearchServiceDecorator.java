@@ -1,6 +1,9 @@
 package uk.ac.ebi.fgpt.zooma.service;
 
 import uk.ac.ebi.fgpt.zooma.model.Property;
+import uk.ac.ebi.fgpt.zooma.util.CursorPage;
+import uk.ac.ebi.fgpt.zooma.util.ReloadListener;
+import uk.ac.ebi.fgpt.zooma.util.ReloadNotifier;
 
 import java.net.URI;
 import java.util.List;
@@ -12,7 +15,7 @@ import java.util.List;
  * @author Tony Burdett
  * @date 02/08/13
  */
-public abstract class PropertySearchServiceDecorator implements PropertySearchService {
+public abstract class PropertySearchServiceDecorator implements PropertySearchService, ReloadNotifier {
     private final PropertySearchService _propertySearchService;
 
     protected PropertySearchServiceDecorator(PropertySearchService propertySearchService) {
@@ -38,4 +41,25 @@ public abstract class PropertySearchServiceDecorator implements PropertySearchSe
     @Override public List<String> suggest(String propertyValuePrefix, URI... sources) {
         return _propertySearchService.suggest(propertyValuePrefix, sources);
     }
+
+    @Override public CursorPage<Property> getProperties(int limit, String cursor) {
+        return _propertySearchService.getProperties(limit, cursor);
+    }
+
+    /**
+     * Registers the listener with the decorated service, if it notifies listeners of reloads.
+     *
+     * @param listener the listener to notify
+     */
+    @Override public void addReloadListener(ReloadListener listener) {
+        if (_propertySearchService instanceof ReloadNotifier) {
+            ((ReloadNotifier) _propertySearchService).addReloadListener(listener);
+        }
+    }
+
+    @Override public void removeReloadListener(ReloadListener listener) {
+        if (_propertySearchService instanceof ReloadNotifier) {
+            ((ReloadNotifier) _propertySearchService).removeReloadListener(listener);
+        }
+    }
 }
@@ -8,8 +8,12 @@ import org.springframework.core.io.Resource;
 import java.io.BufferedReader;
 import java.io.IOException;
 import java.io.InputStreamReader;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.Map;
 import java.util.Set;
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
 
 /**
  * An abstract implementation of a {@link SearchStringProcessor} that loads a dictionary of required terms at startup.
@@ -27,6 +31,7 @@ import java.util.Set;
 public abstract class AbstractDictionaryLoadingProcessor implements SearchStringProcessor {
     private final Resource dictionaryResource;
     private Set<String> dictionary;
+    private Map<String, Pattern> dictionaryPatterns;
 
     private final Logger log = LoggerFactory.getLogger(getClass());
 
@@ -50,6 +55,20 @@ public abstract class AbstractDictionaryLoadingProcessor implements SearchString
         return dictionary;
     }
 
+    /**
+     * Returns the compiled regular expression for a term in the dictionary, so that subclasses can replace dictionary
+     * terms without compiling a pattern for every search string.  Terms are compiled once, when the dictionary is
+     * loaded; a term that is not a valid regular expression is compiled (and fails) on demand.
+     *
+     * @param term the dictionary term
+     * @return the term, compiled as a regular expression
+     * @throws PatternSyntaxException if the term is not a valid regular expression
+     */
+    protected Pattern getDictionaryPattern(String term) throws PatternSyntaxException {
+        Pattern pattern = dictionaryPatterns.get(term);
+        return pattern != null ? pattern : Pattern.compile(term);
+    }
+
     /**
      * Returns true if the search string contains any terms loaded from the dictionary.  This is a very basic
      * implementation of this method based on the loaded dictionary, and you may wish to override this to be smarter.
@@ -72,6 +91,7 @@ public abstract class AbstractDictionaryLoadingProcessor implements SearchString
      */
     public void init() throws IOException {
         this.dictionary = new HashSet<>();
+        this.dictionaryPatterns = new HashMap<>();
         BufferedReader reader = new BufferedReader(new InputStreamReader(getDictionaryResource().getInputStream()));
         String line;
         while ((line = reader.readLine()) != null) {
@@ -80,6 +100,12 @@ public abstract class AbstractDictionaryLoadingProcessor implements SearchString
                 String[] fields = entry.split("\t+");
                 if (fields.length > 0) {
                     dictionary.add(fields[0]);
+                    try {
+                        dictionaryPatterns.put(fields[0], Pattern.compile(fields[0]));
+                    }
+                    catch (PatternSyntaxException e) {
+                        getLog().warn("Dictionary term '" + fields[0] + "' is not a valid regular expression");
+                    }
                 }
             }
         }
@@ -67,6 +67,8 @@ public class SparqlAnnotationDAO implements AnnotationDAO {
 
     private int queryCounter = 1;
 
+    private int readBatchSize = 100;
+
     private QueryManager queryManager;
 
     private static DateTimeFormatter fmt = DateTimeFormat.forPattern("yyyy-MM-dd'T'HH:mm:ss'Z'");
@@ -103,6 +105,20 @@ public class SparqlAnnotationDAO implements AnnotationDAO {
         return queryManager;
     }
 
+    public int getReadBatchSize() {
+        return readBatchSize;
+    }
+
+    /**
+     * Sets the maximum number of annotations that are hydrated by a single SPARQL query when reading a page of
+     * annotations with {@link #read(int, int)}.  A batch size of 0 or less reads each annotation individually.
+     *
+     * @param readBatchSize the number of annotations to read per query
+     */
+    public void setReadBatchSize(int readBatchSize) {
+        this.readBatchSize = readBatchSize;
+    }
+
     public void setQueryManager(QueryManager queryManager) {
         this.queryManager = queryManager;
     }
@@ -251,12 +267,17 @@ public class SparqlAnnotationDAO implements AnnotationDAO {
             q1.setLimit(size);
         }
         if (start > -1) {
-
-            List<Annotation> annos = new ArrayList<Annotation>();
-            for (URI uri : getAllAnnotationURIs(size, start)) {
-                annos.add(read(uri));
+            List<URI> uris = getAllAnnotationURIs(size, start);
+            if (getReadBatchSize() < 1) {
+                List<Annotation> annos = new ArrayList<Annotation>();
+                for (URI uri : uris) {
+                    annos.add(read(uri));
+                }
+                return annos;
+            }
+            else {
+                return read(uris);
             }
-            return annos;
 //            q1.setOffset(start);
 //            q1.addOrderBy(underscore + QueryVariables.ANNOTATION_ID.toString(), Query.ORDER_DEFAULT);
         }
@@ -279,6 +300,81 @@ public class SparqlAnnotationDAO implements AnnotationDAO {
         }
     }
 
+    /**
+     * Reads the annotations with the given URIs, hydrating up to {@link #getReadBatchSize()} annotations with each
+     * query by binding their URIs in a VALUES block.  Annotations are returned in the same order as the supplied URIs;
+     * any URI that does not identify a readable annotation is omitted.
+     *
+     * @param uris the URIs of the annotations to read
+     * @return the annotations read
+     */
+    protected List<Annotation> read(List<URI> uris) {
+        String query = getQueryManager().getSparqlQuery("ANNOTATIONS.read");
+        int batchSize = Math.max(1, getReadBatchSize());
+
+        Map<URI, Annotation> annotationMap = new HashMap<>();
+        for (int from = 0; from < uris.size(); from += batchSize) {
+            List<URI> batch = uris.subList(from, Math.min(from + batchSize, uris.size()));
+            Graph g = getQueryService().getDefaultGraph();
+            Query q1 = QueryFactory.create(createBatchQuery(query, batch), Syntax.syntaxARQ);
+
+            QueryExecution execute = null;
+            try {
+                execute = getQueryService().getQueryExecution(g, q1, false);
+                ResultSet results = execute.execSelect();
+                for (Annotation a : evaluateQueryResults(results)) {
+                    annotationMap.put(a.getURI(), a);
+                }
+                getLog().trace("SPARQL query " + queryCounter++ + " complete (" + batch.size() + " annotations)");
+            }
+            catch (LodeException e) {
+                throw new SPARQLQueryException("Failed to retrieve annotations", e);
+            }
+            finally {
+                if (execute != null) {
+                    execute.close();
+                    if (g != null) {
+                        g.close();
+                    }
+                }
+            }
+        }
+
+        List<Annotation> annos = new ArrayList<>();
+        for (URI uri : uris) {
+            Annotation anno = annotationMap.get(uri);
+            if (anno != null) {
+                annos.add(anno);
+            }
+            else {
+                getLog().warn("Annotation <" + uri + "> could not be read and will be omitted");
+            }
+        }
+        return annos;
+    }
+
+    /**
+     * Restricts the given annotation query to the supplied annotation URIs by inserting a VALUES block at the start of
+     * its WHERE clause, so that the annotation variable is bound before the rest of the pattern is evaluated.
+     */
+    private String createBatchQuery(String query, Collection<URI> uris) {
+        String where = "WHERE {";
+        int loc = query.indexOf(where);
+        if (loc == -1) {
+            throw new SPARQLQueryException("Can't create batch query, no WHERE clause in query:\n" + query);
+        }
+        loc += where.length();
+
+        StringBuilder sb = new StringBuilder(query.substring(0, loc));
+        sb.append("\n    VALUES ?").append(QueryVariables.ANNOTATION_ID.toString()).append(" {");
+        for (URI uri : uris) {
+            sb.append(" <").append(uri.toString()).append(">");
+        }
+        sb.append(" }\n");
+        sb.append(query.substring(loc));
+        return sb.toString();
+    }
+
     private List<URI> getAllAnnotationURIs(int size, int start) {
 
         String query = getQueryManager().getSparqlQuery("Instance");
@@ -41,7 +41,9 @@ import java.net.URI;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 /**
  * @author Simon Jupp
@@ -53,6 +55,8 @@ public class SparqlPropertyDAO implements PropertyDAO {
     private QueryManager queryManager;
     private JenaQueryExecutionService queryService;
 
+    private int readBatchSize = 100;
+
     private ZoomaSerializer<Property, OWLOntology, OWLNamedIndividual> propertyZoomaSerializer;
 
     protected Logger getLog() {
@@ -79,6 +83,20 @@ public class SparqlPropertyDAO implements PropertyDAO {
         return queryManager;
     }
 
+    public int getReadBatchSize() {
+        return readBatchSize;
+    }
+
+    /**
+     * Sets the maximum number of properties that are read by a single SPARQL query when reading properties by URI with
+     * {@link #read(Collection)}.
+     *
+     * @param readBatchSize the number of properties to read per query
+     */
+    public void setReadBatchSize(int readBatchSize) {
+        this.readBatchSize = readBatchSize;
+    }
+
     public void setQueryManager(QueryManager queryManager) {
         this.queryManager = queryManager;
     }
@@ -311,6 +329,81 @@ public class SparqlPropertyDAO implements PropertyDAO {
 
     }
 
+    /**
+     * Reads the properties with the given URIs, reading up to {@link #getReadBatchSize()} properties with each query by
+     * binding their URIs in a VALUES block.  Properties are returned in the same order as the supplied URIs; any URI
+     * that does not identify a readable property is omitted.
+     *
+     * @param uris the URIs of the properties to read
+     * @return the properties read
+     */
+    @Override public List<Property> read(Collection<URI> uris) {
+        String query = getQueryManager().getSparqlQuery("Property.read");
+        List<URI> uriList = new ArrayList<>(uris);
+        int batchSize = Math.max(1, getReadBatchSize());
+
+        Map<URI, Property> propertyMap = new HashMap<>();
+        for (int from = 0; from < uriList.size(); from += batchSize) {
+            List<URI> batch = uriList.subList(from, Math.min(from + batchSize, uriList.size()));
+            Graph g = getQueryService().getDefaultGraph();
+            Query q1 = QueryFactory.create(createBatchQuery(query, batch), Syntax.syntaxARQ);
+
+            QueryExecution execute = null;
+            try {
+                execute = getQueryService().getQueryExecution(g, q1, false);
+                ResultSet results = execute.execSelect();
+                for (Property p : evaluateQueryResults(results)) {
+                    if (propertyMap.put(p.getURI(), p) != null) {
+                        getLog().error("Too many results looking for property <" + p.getURI() + ">");
+                        throw new TooManyResultsException("Expected one result for <" + p.getURI() + ">");
+                    }
+                }
+            }
+            catch (LodeException e) {
+                throw new SPARQLQueryException("Failed to retrieve properties", e);
+            }
+            finally {
+                if (execute != null) {
+                    execute.close();
+                    if (g != null) {
+                        g.close();
+                    }
+                }
+            }
+        }
+
+        List<Property> properties = new ArrayList<>();
+        for (URI uri : uriList) {
+            Property property = propertyMap.get(uri);
+            if (property != null) {
+                properties.add(property);
+            }
+        }
+        return properties;
+    }
+
+    /**
+     * Restricts the given property query to the supplied property URIs by inserting a VALUES block at the start of its
+     * WHERE clause, so that the property variable is bound before the rest of the pattern is evaluated.
+     */
+    private String createBatchQuery(String query, Collection<URI> uris) {
+        String where = "WHERE {";
+        int loc = query.indexOf(where);
+        if (loc == -1) {
+            throw new SPARQLQueryException("Can't create batch query, no WHERE clause in query:\n" + query);
+        }
+        loc += where.length();
+
+        StringBuilder sb = new StringBuilder(query.substring(0, loc));
+        sb.append("\n    VALUES ?").append(QueryVariables.PROPERTY_VALUE_ID.toString()).append(" {");
+        for (URI uri : uris) {
+            sb.append(" <").append(uri.toString()).append(">");
+        }
+        sb.append(" }\n");
+        sb.append(query.substring(loc));
+        return sb.toString();
+    }
+
     @Override public String readType(URI uri) {
         Property p = read(uri);
         if (p instanceof TypedProperty) {
@@ -0,0 +1,276 @@
+package uk.ac.ebi.fgpt.zooma.datasource;
+
+import com.hp.hpl.jena.graph.Graph;
+import com.hp.hpl.jena.graph.impl.WrappedGraph;
+import com.hp.hpl.jena.query.Query;
+import com.hp.hpl.jena.query.QueryExecution;
+import com.hp.hpl.jena.query.QueryExecutionFactory;
+import com.hp.hpl.jena.query.QueryFactory;
+import com.hp.hpl.jena.query.QuerySolutionMap;
+import com.hp.hpl.jena.query.Syntax;
+import com.hp.hpl.jena.rdf.model.Model;
+import com.hp.hpl.jena.rdf.model.ModelFactory;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.core.io.ClassPathResource;
+import uk.ac.ebi.fgpt.lode.service.JenaQueryExecutionService;
+import uk.ac.ebi.fgpt.zooma.model.Annotation;
+import uk.ac.ebi.fgpt.zooma.model.AnnotationProvenance;
+import uk.ac.ebi.fgpt.zooma.model.BiologicalEntity;
+import uk.ac.ebi.fgpt.zooma.model.Study;
+import uk.ac.ebi.fgpt.zooma.model.TypedProperty;
+import uk.ac.ebi.fgpt.zooma.service.QueryManager;
+import uk.ac.ebi.fgpt.zooma.util.PropertiesMapAdapter;
+
+import java.io.File;
+import java.io.StringReader;
+import java.net.URI;
+import java.net.URL;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Properties;
+import java.util.Set;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.fail;
+
+/**
+ * Tests that reading pages of annotations in batches from an in-memory triple store produces the same annotations as
+ * reading each annotation individually.
+ */
+public class TestSparqlAnnotationDAO {
+    private static final int ANNOTATION_COUNT = 25;
+    private static final int BATCH_SIZE = 7;
+
+    private static final String RESOURCE = "http://rdf.ebi.ac.uk/resource/zooma/test/";
+
+    private InMemoryQueryExecutionService queryService;
+    private SparqlAnnotationDAO batchDAO;
+    private SparqlAnnotationDAO singleDAO;
+
+    @Before
+    public void setUp() {
+        URL url = getClass().getClassLoader().getResource("config/naming/types.properties");
+        String path = url != null ? url.toString().replace("file:", "").replace("config/naming/types.properties", "") : "";
+        System.setProperty("zooma.home", new File(path).getAbsolutePath());
+
+        try {
+            Properties prefixProperties = new Properties();
+            prefixProperties.load(new ClassPathResource("zooma/prefix.properties").getInputStream());
+            PropertiesMapAdapter propertiesMapAdapter = new PropertiesMapAdapter();
+            propertiesMapAdapter.setProperties(prefixProperties);
+            propertiesMapAdapter.init();
+
+            QueryManager queryManager = new QueryManager();
+            queryManager.setSparqlQueryResource(new ClassPathResource("queries.sparql"));
+            queryManager.setPropertiesMapAdapter(propertiesMapAdapter);
+            queryManager.init();
+
+            Model model = ModelFactory.createDefaultModel();
+            model.read(new StringReader(createAnnotationData()), null, "TURTLE");
+            queryService = new InMemoryQueryExecutionService(model.getGraph());
+
+            batchDAO = createAnnotationDAO(queryManager, BATCH_SIZE);
+            singleDAO = createAnnotationDAO(queryManager, 0);
+        }
+        catch (Exception e) {
+            e.printStackTrace();
+            fail();
+        }
+    }
+
+    private SparqlAnnotationDAO createAnnotationDAO(QueryManager queryManager, int readBatchSize) {
+        SparqlBiologicalEntityDAO biologicalEntityDAO = new SparqlBiologicalEntityDAO();
+        biologicalEntityDAO.setQueryManager(queryManager);
+        biologicalEntityDAO.setQueryService(queryService);
+
+        SparqlAnnotationDAO annotationDAO = new SparqlAnnotationDAO();
+        annotationDAO.setQueryManager(queryManager);
+        annotationDAO.setQueryService(queryService);
+        annotationDAO.setBiologicalEntityDAO(biologicalEntityDAO);
+        annotationDAO.setReadBatchSize(readBatchSize);
+        return annotationDAO;
+    }
+
+    /**
+     * Creates annotations with a mixture of one or two semantic tags, one or two biological entities (in a study) and
+     * optional replacement links, so that hydration has to merge several result rows into each annotation
+     */
+    private String createAnnotationData() {
+        StringBuilder ttl = new StringBuilder();
+        ttl.append("@prefix rdf: <http://www.w3.org/1999/02/22-rdf-syntax-ns#> .\n");
+        ttl.append("@prefix rdfs: <http://www.w3.org/2000/01/rdf-schema#> .\n");
+        ttl.append("@prefix dc: <http://purl.org/dc/elements/1.1/> .\n");
+        ttl.append("@prefix oac: <http://www.openannotation.org/ns/> .\n");
+        ttl.append("@prefix zoomaterms: <http://rdf.ebi.ac.uk/terms/zooma/> .\n");
+        ttl.append("@prefix test: <").append(RESOURCE).append("> .\n\n");
+
+        ttl.append("test:database a zoomaterms:DatabaseSource ; zoomaterms:shortName \"test\" .\n");
+        ttl.append("test:study a test:Study ; rdfs:label \"test study\" .\n");
+        for (int i = 0; i < ANNOTATION_COUNT; i++) {
+            String n = String.format("%02d", i);
+            ttl.append("test:annotation").append(n).append(" a oac:DataAnnotation ;\n")
+                    .append("    oac:hasBody test:property").append(n).append(" ;\n")
+                    .append("    oac:hasBody test:tag").append(n).append(" ;\n")
+                    .append("    oac:hasTarget test:sample").append(n).append(" ;\n")
+                    .append("    dc:source test:database ;\n")
+                    .append("    zoomaterms:hasEvidence <http://purl.obolibrary.org/obo/ECO_0000306> ;\n")
+                    .append("    oac:generator \"generator\" ;\n")
+                    .append("    oac:generated \"2015-01-0").append(1 + i % 9).append("T12:00:00Z\" ;\n")
+                    .append("    oac:annotator \"annotator").append(i % 3).append("\"");
+            if (i % 2 == 0) {
+                ttl.append(" ;\n    oac:hasBody test:tag").append(n).append("b");
+            }
+            if (i % 4 == 0) {
+                ttl.append(" ;\n    oac:hasTarget test:sample").append(n).append("b");
+            }
+            if (i % 5 == 1) {
+                ttl.append(" ;\n    zoomaterms:replaces test:annotation").append(n).append("old");
+            }
+            ttl.append(" .\n");
+
+            ttl.append("test:property").append(n).append(" a zoomaterms:Property ;\n")
+                    .append("    zoomaterms:propertyName \"type ").append(i % 4).append("\" ;\n")
+                    .append("    zoomaterms:propertyValue \"value ").append(i).append("\" .\n");
+            ttl.append("test:tag").append(n).append(" a oac:SemanticTag .\n");
+            ttl.append("test:tag").append(n).append("b a oac:SemanticTag .\n");
+            ttl.append("test:sample").append(n).append(" a test:Sample ; rdfs:label \"sample ").append(i)
+                    .append("\" ; dc:isPartOf test:study .\n");
+            ttl.append("test:sample").append(n).append("b a test:Sample ; rdfs:label \"sample ").append(i)
+                    .append("b\" ; dc:isPartOf test:study .\n");
+        }
+        return ttl.toString();
+    }
+
+    @Test
+    public void testBatchedReadMatchesSingleReads() {
+        queryService.resetQueryCount();
+        List<Annotation> expected = singleDAO.read(ANNOTATION_COUNT, 0);
+        int singleQueries = queryService.getQueryCount();
+
+        queryService.resetQueryCount();
+        List<Annotation> actual = batchDAO.read(ANNOTATION_COUNT, 0);
+        int batchQueries = queryService.getQueryCount();
+
+        assertEquals(ANNOTATION_COUNT, expected.size());
+        assertEquals(expected.size(), actual.size());
+        for (int i = 0; i < expected.size(); i++) {
+            assertSameAnnotation(expected.get(i), actual.get(i));
+        }
+
+        // one query for the page of URIs, plus one per annotation or one per batch
+        assertEquals(1 + ANNOTATION_COUNT, singleQueries);
+        assertEquals(1 + (ANNOTATION_COUNT + BATCH_SIZE - 1) / BATCH_SIZE, batchQueries);
+    }
+
+    @Test
+    public void testBatchedPagesMatchSingleReads() {
+        for (int start = 0; start < ANNOTATION_COUNT; start += 10) {
+            List<Annotation> expected = singleDAO.read(10, start);
+            List<Annotation> actual = batchDAO.read(10, start);
+            assertEquals(expected.size(), actual.size());
+            for (int i = 0; i < expected.size(); i++) {
+                assertSameAnnotation(expected.get(i), actual.get(i));
+            }
+        }
+    }
+
+    @Test
+    public void testBatchedReadMatchesReadByURI() {
+        for (Annotation annotation : batchDAO.read(ANNOTATION_COUNT, 0)) {
+            Annotation single = batchDAO.read(annotation.getURI());
+            assertNotNull(single);
+            assertSameAnnotation(single, annotation);
+        }
+    }
+
+    private void assertSameAnnotation(Annotation expected, Annotation actual) {
+        assertEquals(expected.getURI(), actual.getURI());
+
+        TypedProperty expectedProperty = (TypedProperty) expected.getAnnotatedProperty();
+        TypedProperty actualProperty = (TypedProperty) actual.getAnnotatedProperty();
+        assertEquals(expectedProperty.getURI(), actualProperty.getURI());
+        assertEquals(expectedProperty.getPropertyType(), actualProperty.getPropertyType());
+        assertEquals(expectedProperty.getPropertyValue(), actualProperty.getPropertyValue());
+
+        assertEquals(new HashSet<>(expected.getSemanticTags()), new HashSet<>(actual.getSemanticTags()));
+        assertEquals(new HashSet<>(expected.getReplaces()), new HashSet<>(actual.getReplaces()));
+        assertEquals(new HashSet<>(expected.getReplacedBy()), new HashSet<>(actual.getReplacedBy()));
+
+        assertEquals(describe(expected.getAnnotatedBiologicalEntities()),
+                     describe(actual.getAnnotatedBiologicalEntities()));
+
+        AnnotationProvenance expectedProvenance = expected.getProvenance();
+        AnnotationProvenance actualProvenance = actual.getProvenance();
+        assertEquals(expectedProvenance.getSource().getURI(), actualProvenance.getSource().getURI());
+        assertEquals(expectedProvenance.getSource().getName(), actualProvenance.getSource().getName());
+        assertEquals(expectedProvenance.getSource().getType(), actualProvenance.getSource().getType());
+        assertEquals(expectedProvenance.getEvidence(), actualProvenance.getEvidence());
+        assertEquals(expectedProvenance.getGenerator(), actualProvenance.getGenerator());
+        assertEquals(expectedProvenance.getGeneratedDate(), actualProvenance.getGeneratedDate());
+        assertEquals(expectedProvenance.getAnnotator(), actualProvenance.getAnnotator());
+        assertEquals(expectedProvenance.getAnnotationDate(), actualProvenance.getAnnotationDate());
+    }
+
+    private Set<String> describe(Iterable<BiologicalEntity> biologicalEntities) {
+        Set<String> descriptions = new HashSet<>();
+        for (BiologicalEntity be : biologicalEntities) {
+            StringBuilder sb = new StringBuilder(be.getURI().toString());
+            sb.append(" '").append(be.getName()).append("' ").append(new HashSet<>(be.getTypes()));
+            for (Study study : be.getStudies()) {
+                sb.append(" ").append(study.getURI()).append(" ").append(new HashSet<>(study.getTypes()));
+            }
+            descriptions.add(sb.toString());
+        }
+        return descriptions;
+    }
+
+    /**
+     * Executes queries against an in-memory graph, counting the queries that are executed.  Graphs handed out by this
+     * service wrap the same data, and closing them (as the DAOs do after each query) leaves the data intact.
+     */
+    private static class InMemoryQueryExecutionService implements JenaQueryExecutionService {
+        private final Graph data;
+        private int queryCount = 0;
+
+        private InMemoryQueryExecutionService(Graph data) {
+            this.data = data;
+        }
+
+        public int getQueryCount() {
+            return queryCount;
+        }
+
+        public void resetQueryCount() {
+            queryCount = 0;
+        }
+
+        @Override public Graph getDefaultGraph() {
+            return new WrappedGraph(data) {
+                @Override public void close() {
+                    // leave the shared data open
+                }
+            };
+        }
+
+        @Override public Graph getNamedGraph(String graphName) {
+            return getDefaultGraph();
+        }
+
+        @Override public QueryExecution getQueryExecution(Graph g,
+                                                          String query,
+                                                          QuerySolutionMap initialBinding,
+                                                          boolean withInference) {
+            queryCount++;
+            return QueryExecutionFactory.create(QueryFactory.create(query, Syntax.syntaxARQ),
+                                                ModelFactory.createModelForGraph(g),
+                                                initialBinding);
+        }
+
+        @Override public QueryExecution getQueryExecution(Graph g, Query query, boolean withInference) {
+            queryCount++;
+            return QueryExecutionFactory.create(query, ModelFactory.createModelForGraph(g));
+        }
+    }
+}
@@ -0,0 +1,124 @@
+package uk.ac.ebi.fgpt.zooma.service;
+
+import org.apache.lucene.index.LeafReader;
+
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * A bounded cache of the annotation summaries mapped from documents in an annotation summary index, so that popular
+ * summaries do not have to be loaded from stored fields and rebuilt every time they are hit.  Summaries are keyed by
+ * the core of the index segment that contains them and their document ID within that segment, which together identify
+ * a document that never changes.  Once the cache is full, the least recently used summaries are evicted, and all the
+ * summaries from a segment are dropped as soon as that segment is closed.
+ * <p/>
+ * Only the parts of a summary that are fixed by the index are cached.  Quality depends on the rank of each hit and the
+ * mapper used, so {@link AnnotationSummaryMapper} still evaluates it for every hit.  A single cache can therefore be
+ * shared by every mapper over the same index.  This class is thread-safe.
+ */
+public class AnnotationSummaryCache {
+    private final int maxSize;
+
+    private final Map<Key, AnnotationSummaryMapper.CachedSummary> summaries;
+    private final Set<Object> segments;
+
+    /**
+     * Creates a new cache that retains up to the given number of summaries
+     *
+     * @param maxSize the maximum number of summaries to retain
+     */
+    public AnnotationSummaryCache(final int maxSize) {
+        if (maxSize < 1) {
+            throw new IllegalArgumentException("Cache size must be at least 1");
+        }
+        this.maxSize = maxSize;
+        this.summaries = new LinkedHashMap<Key, AnnotationSummaryMapper.CachedSummary>(16, 0.75f, true) {
+            @Override protected boolean removeEldestEntry(Map.Entry<Key, AnnotationSummaryMapper.CachedSummary> e) {
+                return size() > maxSize;
+            }
+        };
+        this.segments = new HashSet<>();
+    }
+
+    public int getMaxSize() {
+        return maxSize;
+    }
+
+    /**
+     * Returns the number of summaries currently cached
+     *
+     * @return the number of cached summaries
+     */
+    public synchronized int size() {
+        return summaries.size();
+    }
+
+    /**
+     * Discards every cached summary
+     */
+    public synchronized void clear() {
+        summaries.clear();
+    }
+
+    synchronized AnnotationSummaryMapper.CachedSummary get(LeafReader reader, int docID) {
+        return summaries.get(new Key(reader.getCoreCacheKey(), docID));
+    }
+
+    void put(LeafReader reader, int docID, AnnotationSummaryMapper.CachedSummary summary) {
+        Object core = reader.getCoreCacheKey();
+        boolean newSegment;
+        synchronized (this) {
+            newSegment = segments.add(core);
+        }
+        if (newSegment) {
+            // first summary from this segment, so make sure they are all dropped when it closes.  Lucene notifies
+            // listeners while holding its own lock, so this must not be registered while holding ours
+            reader.addCoreClosedListener(new LeafReader.CoreClosedListener() {
+                @Override public void onClose(Object ownerCoreCacheKey) {
+                    evictSegment(ownerCoreCacheKey);
+                }
+            });
+        }
+        synchronized (this) {
+            summaries.put(new Key(core, docID), summary);
+        }
+    }
+
+    private synchronized void evictSegment(Object core) {
+        segments.remove(core);
+        Iterator<Key> keyIterator = summaries.keySet().iterator();
+        while (keyIterator.hasNext()) {
+            if (keyIterator.next().core == core) {
+                keyIterator.remove();
+            }
+        }
+    }
+
+    private static final class Key {
+        private final Object core;
+        private final int docID;
+
+        private Key(Object core, int docID) {
+            this.core = core;
+            this.docID = docID;
+        }
+
+        @Override public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (o == null || getClass() != o.getClass()) {
+                return false;
+            }
+            Key key = (Key) o;
+            return docID == key.docID && core == key.core;
+        }
+
+        @Override public int hashCode() {
+            return 31 * System.identityHashCode(core) + docID;
+        }
+    }
+}
@@ -1,26 +1,49 @@
 package uk.ac.ebi.fgpt.zooma.service;
 
 import org.apache.lucene.document.Document;
+import org.apache.lucene.document.DocumentStoredFieldVisitor;
+import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.index.LeafReader;
+import org.apache.lucene.index.LeafReaderContext;
+import org.apache.lucene.index.NumericDocValues;
+import org.apache.lucene.index.SortedDocValues;
+import org.apache.lucene.index.SortedSetDocValues;
+import org.apache.lucene.util.Bits;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import uk.ac.ebi.fgpt.zooma.model.AnnotationSummary;
 import uk.ac.ebi.fgpt.zooma.model.SimpleAnnotationSummary;
 
+import java.io.IOException;
 import java.net.URI;
 import java.text.ParseException;
 import java.text.SimpleDateFormat;
+import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.Date;
 import java.util.HashSet;
 import java.util.Set;
 
 /**
  * Maps lucene documents into {@link AnnotationSummary} objects.
+ * <p/>
+ * Quality scores are calculated from the "topScore", "timesVerified", "frequency" and "source" fields.  Where the index
+ * contains DocValues for these fields and the summary ID, they are read from there without parsing stored strings, and
+ * only the remaining fields are loaded from stored documents; indices built before DocValues were written fall back to
+ * the stored fields.
+ * <p/>
+ * A mapper can be given an {@link AnnotationSummaryCache}, in which case summaries mapped by segment and document ID
+ * are built once and reused for later hits on the same document, with only their quality evaluated for each hit.
  *
  * @author Tony Burdett
  * @date 10/07/13
  */
-public class AnnotationSummaryMapper implements LuceneDocumentMapper<AnnotationSummary> {
+public class AnnotationSummaryMapper implements LuceneDocValuesMapper<AnnotationSummary> {
+    // stored fields with no DocValues, which must still be loaded from the stored document
+    private static final Set<String> STORED_ONLY_FIELDS = Collections.unmodifiableSet(new HashSet<>(Arrays.asList(
+            "propertyuri", "propertytype", "property", "semanticTag", "annotation")));
+
     private final int totalAnnotationCount;
     private final int totalAnnotationSummaryCount;
 
@@ -31,6 +54,8 @@ public class AnnotationSummaryMapper implements LuceneDocumentMapper<AnnotationS
 
     private final URI[] sourceRanking;
 
+    private final AnnotationSummaryCache cache;
+
     private Logger log = LoggerFactory.getLogger(getClass());
 
     protected Logger getLog() {
@@ -68,10 +93,19 @@ public class AnnotationSummaryMapper implements LuceneDocumentMapper<AnnotationS
                                    int totalAnnotationSummaryCount,
                                    float maxQualityScore,
                                    URI... sourceRanking) {
+        this(totalAnnotationCount, totalAnnotationSummaryCount, maxQualityScore, null, sourceRanking);
+    }
+
+    private AnnotationSummaryMapper(int totalAnnotationCount,
+                                    int totalAnnotationSummaryCount,
+                                    float maxQualityScore,
+                                    AnnotationSummaryCache cache,
+                                    URI... sourceRanking) {
         this.totalAnnotationCount = totalAnnotationCount;
         this.totalAnnotationSummaryCount = totalAnnotationSummaryCount;
         this.doNormalization = !(maxQualityScore == -1);
         this.sourceRanking = sourceRanking;
+        this.cache = cache;
 
         if (doNormalization) {
             // calculate theoretical minimum quality score
@@ -113,9 +147,29 @@ public class AnnotationSummaryMapper implements LuceneDocumentMapper<AnnotationS
         return new AnnotationSummaryMapper(this.totalAnnotationCount,
                                            this.totalAnnotationSummaryCount,
                                            this.maximumQualityScore,
+                                           this.cache,
                                            sourceRanking);
     }
 
+    /**
+     * Returns a clone of this mapper that reuses summaries from the given cache when mapping documents by segment and
+     * document ID.  Source rankings and normalization are unchanged, and are still applied to every hit.
+     *
+     * @param cache the cache to use, or null to map every document afresh
+     * @return an annotation summary mapper identical to this one, but using the given cache
+     */
+    public AnnotationSummaryMapper withCache(AnnotationSummaryCache cache) {
+        return new AnnotationSummaryMapper(this.totalAnnotationCount,
+                                           this.totalAnnotationSummaryCount,
+                                           this.maximumQualityScore,
+                                           cache,
+                                           this.sourceRanking);
+    }
+
+    public AnnotationSummaryCache getCache() {
+        return cache;
+    }
+
     @Override
     public AnnotationSummary mapDocument(Document d) {
         return mapDocument(d, 1);
@@ -123,6 +177,108 @@ public class AnnotationSummaryMapper implements LuceneDocumentMapper<AnnotationS
 
     @Override
     public AnnotationSummary mapDocument(Document d, int rank) {
+        return mapDocument(d, getDocumentQuality(d, rank));
+    }
+
+    @Override
+    public AnnotationSummary mapDocument(Document d, LeafReader reader, int docID, int rank) throws IOException {
+        return mapDocument(d, getDocumentQuality(reader, docID, rank));
+    }
+
+    @Override
+    public AnnotationSummary mapDocument(LeafReader reader, int docID, int rank) throws IOException {
+        CachedSummary summary = cache != null ? cache.get(reader, docID) : null;
+        if (summary == null) {
+            summary = readSummary(reader, docID);
+            if (cache != null) {
+                cache.put(reader, docID, summary);
+            }
+        }
+        AnnotationSummary as = summary.getSummary();
+        return new SimpleAnnotationSummary(as.getID(),
+                                           as.getAnnotatedPropertyUri(),
+                                           as.getAnnotatedPropertyType(),
+                                           as.getAnnotatedPropertyValue(),
+                                           as.getSemanticTags(),
+                                           as.getAnnotationURIs(),
+                                           getDocumentQuality(summary.topScore,
+                                                              summary.timesVerified,
+                                                              summary.frequency,
+                                                              summary.sources,
+                                                              rank),
+                                           as.getAnnotationSourceURIs());
+    }
+
+    /**
+     * Reads the parts of the summary with the given segment-relative ID that do not depend on the rank of a hit.  The
+     * ID, scores and sources are read from DocValues, and only the remaining fields are loaded from the stored
+     * document; indices built before DocValues were written fall back to reading every stored field.  The collections
+     * of the returned summary are unmodifiable, so it can safely be shared between searches.
+     *
+     * @param reader the reader for the segment containing this document
+     * @param docID  the ID of the document within the segment
+     * @return the summary, with a quality of zero, and the values needed to evaluate its quality
+     * @throws IOException if the document could not be read
+     */
+    private CachedSummary readSummary(LeafReader reader, int docID) throws IOException {
+        SortedDocValues ids = reader.getSortedDocValues("id");
+        NumericDocValues topScores = reader.getNumericDocValues("topScore");
+        NumericDocValues verifications = reader.getNumericDocValues("timesVerified");
+        NumericDocValues frequencies = reader.getNumericDocValues("frequency");
+        SortedSetDocValues sourceValues = reader.getSortedSetDocValues("source");
+        if (ids == null || topScores == null || verifications == null || frequencies == null || sourceValues == null) {
+            // legacy index without DocValues, read stored fields instead
+            Document d = reader.document(docID);
+            AnnotationSummary as = mapDocument(d, 0f);
+            return createCachedSummary(as.getID(),
+                                       as,
+                                       new HashSet<>(as.getAnnotationSourceURIs()),
+                                       Float.parseFloat(d.get("topScore")),
+                                       Integer.parseInt(d.get("timesVerified")),
+                                       (float) Integer.parseInt(d.get("frequency")));
+        }
+        else {
+            DocumentStoredFieldVisitor visitor = new DocumentStoredFieldVisitor(STORED_ONLY_FIELDS);
+            reader.document(docID, visitor);
+            return createCachedSummary(ids.get(docID).utf8ToString(),
+                                       mapDocument(visitor.getDocument(), 0f),
+                                       readSources(sourceValues, docID),
+                                       Float.intBitsToFloat((int) topScores.get(docID)),
+                                       (int) verifications.get(docID),
+                                       (float) frequencies.get(docID));
+        }
+    }
+
+    private CachedSummary createCachedSummary(String id,
+                                              AnnotationSummary as,
+                                              Set<URI> sources,
+                                              float topScore,
+                                              int timesVerified,
+                                              float frequency) {
+        Set<URI> summarySources = Collections.unmodifiableSet(sources);
+        AnnotationSummary summary = new SimpleAnnotationSummary(id,
+                                                                as.getAnnotatedPropertyUri(),
+                                                                as.getAnnotatedPropertyType(),
+                                                                as.getAnnotatedPropertyValue(),
+                                                                Collections.unmodifiableSet(
+                                                                        new HashSet<>(as.getSemanticTags())),
+                                                                Collections.unmodifiableSet(
+                                                                        new HashSet<>(as.getAnnotationURIs())),
+                                                                0f,
+                                                                summarySources);
+        return new CachedSummary(summary, topScore, timesVerified, frequency, summarySources);
+    }
+
+    private Set<URI> readSources(SortedSetDocValues sourceValues, int docID) {
+        Set<URI> sources = new HashSet<>();
+        sourceValues.setDocument(docID);
+        for (long ord = sourceValues.nextOrd(); ord != SortedSetDocValues.NO_MORE_ORDS; ord = sourceValues.nextOrd()) {
+            sources.add(URI.create(sourceValues.lookupOrd(ord).utf8ToString()));
+        }
+        return sources;
+    }
+
+    protected AnnotationSummary mapDocument(Document d, float score) {
         getLog().trace("Mapping document '" + d.toString() + "'...");
 
         // grab single cardinality fields
@@ -150,7 +306,6 @@ public class AnnotationSummaryMapper implements LuceneDocumentMapper<AnnotationS
         for (String s : sourceStrs) {
             annotationSourceURIs.add(URI.create(s));
         }
-        float score = getDocumentQuality(d, rank);
 
         getLog().trace("\nNext Annotation summary:\n\t" +
                                "property uri '" + propertyUri + "',\n\t" +
@@ -184,7 +339,50 @@ public class AnnotationSummaryMapper implements LuceneDocumentMapper<AnnotationS
         for (String sourceString : d.getValues("source")) {
             sources.add(URI.create(sourceString));
         }
+        return getDocumentQuality(topScore, veris, freq, sources, rank);
+    }
+
+    @Override
+    public float getDocumentQuality(LeafReader reader, int docID, int rank) throws IOException {
+        NumericDocValues topScores = reader.getNumericDocValues("topScore");
+        NumericDocValues verifications = reader.getNumericDocValues("timesVerified");
+        NumericDocValues frequencies = reader.getNumericDocValues("frequency");
+        SortedSetDocValues sourceValues = reader.getSortedSetDocValues("source");
+        if (topScores == null || verifications == null || frequencies == null || sourceValues == null) {
+            // legacy index without DocValues, read stored fields instead
+            return getDocumentQuality(reader.document(docID), rank);
+        }
+
+        float topScore = Float.intBitsToFloat((int) topScores.get(docID));
+        int veris = (int) verifications.get(docID);
+        float freq = (float) frequencies.get(docID);
+        return getDocumentQuality(topScore, veris, freq, readSources(sourceValues, docID), rank);
+    }
+
+    /**
+     * Evaluates the quality of every live summary in the given index, as the best ranked hit of a search, and returns
+     * the highest.  Quality is read from DocValues where present, so this does not normally load stored documents, but
+     * it does visit every summary in the index.
+     *
+     * @param reader the reader over an annotation summary index
+     * @return the highest document quality, or -1 if the index contains no summaries
+     * @throws IOException if the index could not be read
+     */
+    public float getMaximumDocumentQuality(IndexReader reader) throws IOException {
+        float maxScore = -1;
+        for (LeafReaderContext leaf : reader.leaves()) {
+            LeafReader leafReader = leaf.reader();
+            Bits liveDocs = leafReader.getLiveDocs();
+            for (int i = 0; i < leafReader.maxDoc(); i++) {
+                if (liveDocs == null || liveDocs.get(i)) {
+                    maxScore = Math.max(maxScore, getDocumentQuality(leafReader, i, 1));
+                }
+            }
+        }
+        return maxScore;
+    }
 
+    protected float getDocumentQuality(float topScore, int veris, float freq, Set<URI> sources, int rank) {
         float annotationCount = (float) totalAnnotationCount;
         float annotationSummaryCount = (float) totalAnnotationSummaryCount;
         float sourceRank = 0.05f * getSourceRanking(sources);
@@ -248,4 +446,27 @@ public class AnnotationSummaryMapper implements LuceneDocumentMapper<AnnotationS
             return 0;
         }
     }
+
+    /**
+     * The rank-independent parts of a mapped annotation summary, as held by an {@link AnnotationSummaryCache}
+     */
+    static final class CachedSummary {
+        private final AnnotationSummary summary;
+        private final float topScore;
+        private final int timesVerified;
+        private final float frequency;
+        private final Set<URI> sources;
+
+        CachedSummary(AnnotationSummary summary, float topScore, int timesVerified, float frequency, Set<URI> sources) {
+            this.summary = summary;
+            this.topScore = topScore;
+            this.timesVerified = timesVerified;
+            this.frequency = frequency;
+            this.sources = sources;
+        }
+
+        AnnotationSummary getSummary() {
+            return summary;
+        }
+    }
 }
@@ -1,5 +1,8 @@
 package uk.ac.ebi.fgpt.zooma.service;
 
+import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.search.IndexSearcher;
 import org.apache.lucene.search.Query;
 import uk.ac.ebi.fgpt.zooma.datasource.AnnotationDAO;
 import uk.ac.ebi.fgpt.zooma.exception.QueryCreationException;
@@ -11,10 +14,8 @@ import java.io.IOException;
 import java.net.URI;
 import java.util.ArrayList;
 import java.util.Collection;
-import java.util.Collections;
-import java.util.HashSet;
 import java.util.List;
-import java.util.Set;
+import java.util.Map;
 
 /**
  * A service that allows searching over the set of {@link AnnotationSummary} objects known to ZOOMA.  Prefix-based and
@@ -26,10 +27,18 @@ import java.util.Set;
 public class LuceneAnnotationSummarySearchService extends ZoomaLuceneSearchService
         implements AnnotationSummarySearchService {
     private AnnotationDAO annotationDAO;
-    private AnnotationSummaryMapper mapper;
+    private volatile AnnotationSummaryMapper mapper;
 
     private SearchStringProcessorProvider searchStringProcessorProvider;
 
+    // maximum number of summaries mapped per search, -1 for no limit
+    private int maxSummaries = 50;
+    // fraction of the top hit score below which summaries are not mapped, 0 to map all hits
+    private float minimumRelativeScore = 0.1f;
+    // maximum number of mapped summaries cached between searches, 0 to disable caching
+    private int summaryCacheSize = 10000;
+    private AnnotationSummaryCache summaryCache;
+
     public AnnotationDAO getAnnotationDAO() {
         return annotationDAO;
     }
@@ -46,27 +55,129 @@ public class LuceneAnnotationSummarySearchService extends ZoomaLuceneSearchServi
         this.searchStringProcessorProvider = searchStringProcessorProvider;
     }
 
+    public int getMaxSummaries() {
+        return maxSummaries;
+    }
+
+    /**
+     * Sets the maximum number of annotation summaries that will be mapped for each search.  Only the best scoring
+     * summaries are collected from the index, so low-ranked hits are never loaded from stored documents.  The default
+     * is 50; -1 returns every matching summary.
+     *
+     * @param maxSummaries the maximum number of summaries to return from a search, or -1 for no limit
+     */
+    public void setMaxSummaries(int maxSummaries) {
+        this.maxSummaries = maxSummaries;
+    }
+
+    public float getMinimumRelativeScore() {
+        return minimumRelativeScore;
+    }
+
+    /**
+     * Sets the fraction of the top hit's lucene score that other hits must achieve to be mapped into annotation
+     * summaries.  The default is 0.1; 0 maps every hit.
+     *
+     * @param minimumRelativeScore a value between 0 and 1
+     */
+    public void setMinimumRelativeScore(float minimumRelativeScore) {
+        this.minimumRelativeScore = minimumRelativeScore;
+    }
+
+    public int getSummaryCacheSize() {
+        return summaryCacheSize;
+    }
+
+    /**
+     * Sets the maximum number of mapped annotation summaries that are cached between searches.  Summaries that are hit
+     * repeatedly are then mapped from the cache instead of being reloaded from the index; only their quality is
+     * evaluated for each search.  The default is 10000, and 0 disables the cache.
+     *
+     * @param summaryCacheSize the maximum number of summaries to cache, or 0 to map every hit from the index
+     */
+    public void setSummaryCacheSize(int summaryCacheSize) {
+        this.summaryCacheSize = summaryCacheSize;
+    }
+
     public AnnotationSummaryMapper getMapper() {
         return mapper;
     }
 
     @Override protected void doInitialization() throws IOException {
         super.doInitialization();
-        int numAnnotations = getAnnotationDAO().count();
-        int numSummaries = getReader().numDocs();
-        getLog().debug("Total number of annotations in zooma: " + numAnnotations);
-        getLog().debug("Total number of summaries in zooma: " + numSummaries);
-        AnnotationSummaryMapper preMapper = new AnnotationSummaryMapper(numAnnotations, numSummaries);
-        Set<Float> allScores = new HashSet<>();
-        for (int i = 0; i < numSummaries; i++) {
-            allScores.add(preMapper.mapDocument(getReader().document(i)).getQuality());
+        if (summaryCacheSize > 0) {
+            summaryCache = new AnnotationSummaryCache(summaryCacheSize);
+        }
+        calibrateMapper();
+    }
+
+    @Override protected void doTermination() throws Exception {
+        super.doTermination();
+        if (summaryCache != null) {
+            summaryCache.clear();
         }
-        float maxScore = Collections.max(allScores);
-        getLog().debug("Maximum summary quality score = " + maxScore);
-        this.mapper = new AnnotationSummaryMapper(numAnnotations,
-                                                  numSummaries,
-                                                  maxScore);
-        getLog().debug("Annotation Summary mapper calibration complete");
+    }
+
+    @Override protected void doRefresh() throws IOException {
+        // summary counts and scores may have changed, so recalibrate
+        calibrateMapper();
+    }
+
+    protected void calibrateMapper() throws IOException {
+        IndexSearcher searcher = acquireSearcher();
+        try {
+            IndexReader reader = searcher.getIndexReader();
+            int numAnnotations = getAnnotationDAO().count();
+            int numSummaries = reader.numDocs();
+            getLog().debug("Total number of annotations in zooma: " + numAnnotations);
+            getLog().debug("Total number of summaries in zooma: " + numSummaries);
+            Float maxScore = readMaximumQualityScore(reader, numAnnotations, numSummaries);
+            if (maxScore == null) {
+                getLog().debug("No maximum summary quality score recorded for this index, evaluating from summaries");
+                AnnotationSummaryMapper preMapper = new AnnotationSummaryMapper(numAnnotations, numSummaries);
+                maxScore = preMapper.getMaximumDocumentQuality(reader);
+            }
+            getLog().debug("Maximum summary quality score = " + maxScore);
+            this.mapper = new AnnotationSummaryMapper(numAnnotations,
+                                                      numSummaries,
+                                                      maxScore).withCache(summaryCache);
+            getLog().debug("Annotation Summary mapper calibration complete");
+        }
+        finally {
+            releaseSearcher(searcher);
+        }
+    }
+
+    /**
+     * Reads the maximum summary quality score recorded by {@link ZoomaLuceneIndexer} when the summary index was last
+     * committed.  The recorded score is only used if it was evaluated over the same number of annotations and summaries
+     * as this service now sees.
+     *
+     * @param reader         the reader over the summary index
+     * @param numAnnotations the number of annotations in zooma
+     * @param numSummaries   the number of summaries in the index
+     * @return the recorded maximum score, or null if there is no usable score recorded, for example in indices built by
+     * earlier versions of ZOOMA
+     * @throws IOException if the index commit could not be read
+     */
+    protected Float readMaximumQualityScore(IndexReader reader, int numAnnotations, int numSummaries)
+            throws IOException {
+        if (!(reader instanceof DirectoryReader)) {
+            return null;
+        }
+        Map<String, String> userData = ((DirectoryReader) reader).getIndexCommit().getUserData();
+        String maxScore = userData.get(ZoomaLuceneIndexer.MAX_SUMMARY_SCORE_KEY);
+        if (maxScore == null) {
+            return null;
+        }
+        if (!Integer.toString(numAnnotations).equals(userData.get(ZoomaLuceneIndexer.ANNOTATION_COUNT_KEY)) ||
+                !Integer.toString(numSummaries).equals(userData.get(ZoomaLuceneIndexer.SUMMARY_COUNT_KEY))) {
+            getLog().debug("Maximum summary quality score was recorded for " +
+                                   userData.get(ZoomaLuceneIndexer.ANNOTATION_COUNT_KEY) + " annotations and " +
+                                   userData.get(ZoomaLuceneIndexer.SUMMARY_COUNT_KEY) + " summaries, ignoring");
+            return null;
+        }
+        return Float.parseFloat(maxScore);
     }
 
     @Override public Collection<AnnotationSummary> search(String propertyValuePattern, URI... sources) {
@@ -101,15 +212,8 @@ public class LuceneAnnotationSummarySearchService extends ZoomaLuceneSearchServi
 
             Query q;
             if (sources.length > 0) {
-                // next generate a series of source queries
-                List<Query> qs = new ArrayList<>();
-                qs.add(pq);
-                for (URI source : sources) {
-                    qs.add(formulateExactQuery("source", source.toString()));
-                }
-
-                // unify queries into a single query
-                q = formulateCombinedQuery(true, true, qs.toArray(new Query[qs.size()]));
+                // restrict to the requested sources, using a cached filter that does not affect scores
+                q = formulateFilteredQuery(pq, formulateSourceFilter("source", sources));
             }
             else {
                 q = pq;
@@ -148,15 +252,8 @@ public class LuceneAnnotationSummarySearchService extends ZoomaLuceneSearchServi
 
             Query q;
             if (sources.length > 0) {
-                // next generate a series of source queries
-                List<Query> qs = new ArrayList<>();
-                qs.add(tq);
-                for (URI source : sources) {
-                    qs.add(formulateExactQuery("source", source.toString()));
-                }
-
-                // unify queries into a single query
-                q = formulateCombinedQuery(true, true, qs.toArray(new Query[qs.size()]));
+                // restrict to the requested sources, using a cached filter that does not affect scores
+                q = formulateFilteredQuery(tq, formulateSourceFilter("source", sources));
             }
             else {
                 q = tq;
@@ -180,7 +277,7 @@ public class LuceneAnnotationSummarySearchService extends ZoomaLuceneSearchServi
             // build a query
             Query[] queries = new Query[semanticTagShortnames.length];
             for (int i = 0; i < semanticTagShortnames.length; i++) {
-                queries[i] = formulateSuffixQuery("semanticTag", semanticTagShortnames[i]);
+                queries[i] = formulateReversedSuffixQuery("semanticTagReversed", semanticTagShortnames[i]);
             }
             Query q = formulateCombinedQuery(true, true, queries);
 
@@ -202,7 +299,7 @@ public class LuceneAnnotationSummarySearchService extends ZoomaLuceneSearchServi
             // build a query
             Query[] queries = new Query[semanticTags.length];
             for (int i = 0; i < semanticTags.length; i++) {
-                queries[i] = formulateSuffixQuery("semanticTag", semanticTags[i].toString());
+                queries[i] = formulateReversedSuffixQuery("semanticTagReversed", semanticTags[i].toString());
             }
             Query q = formulateCombinedQuery(true, true, queries);
 
@@ -280,16 +377,8 @@ public class LuceneAnnotationSummarySearchService extends ZoomaLuceneSearchServi
                 // unify processed queries into a single query
                 Query uq = formulateCombinedQuery(true, false, pqs.toArray(new Query[pqs.size()]));
 
-                // next generate a series of source queries
-                List<Query> sqs = new ArrayList<>();
-                for (URI source : sources) {
-                    sqs.add(formulateExactQuery("source", source.toString()));
-                }
-                // unify source queries into a single query
-                Query sq = formulateCombinedQuery(false, false, sqs.toArray(new Query[sqs.size()]));
-
-                // unify property and source queries into a single query
-                q = formulateCombinedQuery(true, true, uq, sq);
+                // restrict to the requested sources, using a cached filter that does not affect scores
+                q = formulateFilteredQuery(uq, formulateSourceFilter("source", sources));
             }
             else {
                 // unify processed queries into a single query
@@ -297,7 +386,7 @@ public class LuceneAnnotationSummarySearchService extends ZoomaLuceneSearchServi
             }
 
             // do the query
-            return doQuery(q, mapper);
+            return doQuery(q, mapper, getMaxSummaries(), getMinimumRelativeScore());
         }
         catch (IOException e) {
             throw new SearchException("Problems creating query for '" + propertyValuePattern + "'", e);
@@ -334,23 +423,15 @@ public class LuceneAnnotationSummarySearchService extends ZoomaLuceneSearchServi
                 // unify the type query with each value query
                 Query tq = formulateTypedQuery(ptq, pqs);
 
-                // next generate a series of source queries
-                List<Query> sqs = new ArrayList<>();
-                for (URI source : sources) {
-                    sqs.add(formulateExactQuery("source", source.toString()));
-                }
-                // unify source queries into a single query
-                Query sq = formulateCombinedQuery(false, false, sqs.toArray(new Query[sqs.size()]));
-
-                // unify types property and source queries into a single query
-                q = formulateCombinedQuery(true, true, tq, sq);
+                // restrict to the requested sources, using a cached filter that does not affect scores
+                q = formulateFilteredQuery(tq, formulateSourceFilter("source", sources));
             }
             else {
                 q = formulateTypedQuery(ptq, pqs);
             }
 
             // do the query
-            return doQuery(q, mapper);
+            return doQuery(q, mapper, getMaxSummaries(), getMinimumRelativeScore());
         }
         catch (IOException e) {
             throw new SearchException("Problems creating query for '" + propertyValuePattern + "'", e);
@@ -1,14 +1,20 @@
 package uk.ac.ebi.fgpt.zooma.service;
 
 import org.apache.lucene.document.Document;
-import org.apache.lucene.index.DirectoryReader;
 import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.index.LeafReader;
+import org.apache.lucene.index.LeafReaderContext;
+import org.apache.lucene.index.MultiFields;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.MatchAllDocsQuery;
 import org.apache.lucene.search.Query;
+import org.apache.lucene.util.Bits;
 import org.apache.lucene.store.Directory;
 import uk.ac.ebi.fgpt.zooma.datasource.AnnotationDAO;
 import uk.ac.ebi.fgpt.zooma.exception.QueryCreationException;
 import uk.ac.ebi.fgpt.zooma.exception.SearchException;
 import uk.ac.ebi.fgpt.zooma.model.AnnotationSummary;
+import uk.ac.ebi.fgpt.zooma.util.CursorPage;
 
 import java.io.IOException;
 import java.util.ArrayList;
@@ -27,7 +33,7 @@ import java.util.Set;
 public class LuceneAnnotationSummaryService extends ZoomaLuceneSearchService
         implements AnnotationSummaryService {
     private AnnotationDAO annotationDAO;
-    private AnnotationSummaryMapper mapper;
+    private volatile AnnotationSummaryMapper mapper;
 
     public AnnotationDAO getAnnotationDAO() {
         return annotationDAO;
@@ -43,37 +49,76 @@ public class LuceneAnnotationSummaryService extends ZoomaLuceneSearchService
 
     @Override protected void doInitialization() throws IOException {
         super.doInitialization();
-        int numAnnotations = getAnnotationDAO().count();
-        int numSummaries = getReader().numDocs();
-        getLog().debug("Total number of annotations in zooma: " + numAnnotations);
-        getLog().debug("Total number of summaries in zooma: " + numSummaries);
-        AnnotationSummaryMapper preMapper = new AnnotationSummaryMapper(numAnnotations, numSummaries);
-        Set<Float> allScores = new HashSet<>();
-        for (int i = 0; i < numSummaries; i++) {
-            allScores.add(preMapper.mapDocument(getReader().document(i)).getQuality());
+        calibrateMapper();
+    }
+
+    @Override protected void doRefresh() throws IOException {
+        // summary counts and scores may have changed, so recalibrate
+        calibrateMapper();
+    }
+
+    protected void calibrateMapper() throws IOException {
+        IndexSearcher searcher = acquireSearcher();
+        try {
+            IndexReader reader = searcher.getIndexReader();
+            int numAnnotations = getAnnotationDAO().count();
+            int numSummaries = reader.numDocs();
+            getLog().debug("Total number of annotations in zooma: " + numAnnotations);
+            getLog().debug("Total number of summaries in zooma: " + numSummaries);
+            AnnotationSummaryMapper preMapper = new AnnotationSummaryMapper(numAnnotations, numSummaries);
+            Set<Float> allScores = new HashSet<>();
+            for (LeafReaderContext leaf : reader.leaves()) {
+                // read quality from DocValues, so no stored documents need to be loaded
+                LeafReader leafReader = leaf.reader();
+                Bits liveDocs = leafReader.getLiveDocs();
+                for (int i = 0; i < leafReader.maxDoc(); i++) {
+                    if (liveDocs == null || liveDocs.get(i)) {
+                        allScores.add(preMapper.getDocumentQuality(leafReader, i, 1));
+                    }
+                }
+            }
+            float maxScore = Collections.max(allScores);
+            getLog().debug("Maximum summary quality score = " + maxScore);
+            this.mapper = new AnnotationSummaryMapper(numAnnotations,
+                                                      numSummaries,
+                                                      maxScore);
+            getLog().debug("Annotation Summary mapper calibration complete");
+        }
+        finally {
+            releaseSearcher(searcher);
         }
-        float maxScore = Collections.max(allScores);
-        getLog().debug("Maximum summary quality score = " + maxScore);
-        this.mapper = new AnnotationSummaryMapper(numAnnotations,
-                                                  numSummaries,
-                                                  maxScore);
-        getLog().debug("Annotation Summary mapper calibration complete");
     }
 
     @Override public Collection<AnnotationSummary> getAnnotationSummaries() {
         return getAnnotationSummaries(Integer.MAX_VALUE, 0);
     }
 
+    /**
+     * Returns annotation summaries in index order.  Every summary before <code>start</code> is passed over to find the
+     * page, so to page deep into the index use {@link #getAnnotationSummaries(int, String)} instead.
+     */
     @Override public Collection<AnnotationSummary> getAnnotationSummaries(int limit, int start) {
         try {
             initOrWait();
 
             Collection<AnnotationSummary> results = new ArrayList<>();
-            IndexReader reader = DirectoryReader.open(getIndex());
-            for (int i = start; i < limit && i < reader.maxDoc(); i++) {
-                Document doc = reader.document(i);
-                AnnotationSummary as = getMapper().mapDocument(doc);
-                results.add(as);
+            IndexSearcher searcher = acquireSearcher();
+            try {
+                IndexReader reader = searcher.getIndexReader();
+                Bits liveDocs = MultiFields.getLiveDocs(reader);
+                int position = 0;
+                for (int i = 0; i < reader.maxDoc() && results.size() < limit; i++) {
+                    if (liveDocs == null || liveDocs.get(i)) {
+                        if (position++ >= start) {
+                            Document doc = reader.document(i);
+                            AnnotationSummary as = getMapper().mapDocument(doc);
+                            results.add(as);
+                        }
+                    }
+                }
+            }
+            finally {
+                releaseSearcher(searcher);
             }
             return results;
         }
@@ -85,6 +130,15 @@ public class LuceneAnnotationSummaryService extends ZoomaLuceneSearchService
         }
     }
 
+    @Override public CursorPage<AnnotationSummary> getAnnotationSummaries(int limit, String cursor) {
+        try {
+            return doCursorQuery(new MatchAllDocsQuery(), getMapper(), "id", limit, cursor);
+        }
+        catch (IOException e) {
+            throw new SearchException("Problems retrieving annotation summaries from lucene index", e);
+        }
+    }
+
     @Override public AnnotationSummary getAnnotationSummary(String annotationSummaryID) {
         try {
             initOrWait();
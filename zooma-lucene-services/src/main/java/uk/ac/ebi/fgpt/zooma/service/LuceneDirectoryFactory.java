@@ -0,0 +1,111 @@
+package uk.ac.ebi.fgpt.zooma.service;
+
+import org.apache.lucene.store.Directory;
+import org.apache.lucene.store.FSDirectory;
+import org.apache.lucene.store.IOContext;
+import org.apache.lucene.store.MMapDirectory;
+import org.apache.lucene.store.NIOFSDirectory;
+import org.apache.lucene.store.RAMDirectory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+/**
+ * Opens the lucene {@link Directory} that ZOOMA indices are served from, using a configurable strategy so that each
+ * deployment can choose how indices are read according to the host's page cache and heap budget.  This is intended to
+ * be used as a factory bean for the directories handed to {@link ZoomaLuceneIndexer}s and {@link
+ * ZoomaLuceneSearchService}s, for example
+ * <pre>
+ * &lt;bean id="annotationIndex" factory-bean="directoryFactory" factory-method="openDirectory"&gt;
+ *     &lt;constructor-arg value="${zooma.data.dir}/index/annotation" /&gt;
+ * &lt;/bean&gt;
+ * </pre>
+ * Three strategies are supported: <ul> <li>{@link Strategy#MMAP} - memory maps index files, so reads are served from
+ * the page cache without using the heap.  This is the default.  If <code>preload</code> is set, mapped files are
+ * loaded into memory when opened, so that the first queries don't have to wait for the disk</li> <li>{@link
+ * Strategy#NIOFS} - reads index files with positional reads, for hosts where virtual address space is limited or
+ * mapping files is undesirable</li> <li>{@link Strategy#RAM} - copies the whole index onto the heap when opened.  This
+ * is only suitable for small indices, and as the copy is a snapshot it will not see later changes to the index, so
+ * indices must already be built when it is opened</li> </ul>
+ */
+public class LuceneDirectoryFactory {
+    /**
+     * The ways in which an index directory can be opened
+     */
+    public enum Strategy {
+        MMAP,
+        NIOFS,
+        RAM
+    }
+
+    private Strategy strategy = Strategy.MMAP;
+    private boolean preload = false;
+
+    private Logger log = LoggerFactory.getLogger(getClass());
+
+    protected Logger getLog() {
+        return log;
+    }
+
+    public Strategy getStrategy() {
+        return strategy;
+    }
+
+    public void setStrategy(Strategy strategy) {
+        this.strategy = strategy;
+    }
+
+    public boolean isPreload() {
+        return preload;
+    }
+
+    /**
+     * Sets whether memory mapped index files should be loaded into memory as soon as they are opened.  This only
+     * applies to the {@link Strategy#MMAP} strategy.  Defaults to false.
+     *
+     * @param preload true if mapped files should be preloaded
+     */
+    public void setPreload(boolean preload) {
+        this.preload = preload;
+    }
+
+    /**
+     * Opens the index directory at the given path using the configured strategy
+     *
+     * @param path the path of the index directory
+     * @return the opened directory
+     * @throws IOException if the directory could not be opened, or (for {@link Strategy#RAM}) copied
+     */
+    public Directory openDirectory(String path) throws IOException {
+        return openDirectory(Paths.get(path));
+    }
+
+    /**
+     * Opens the index directory at the given path using the configured strategy
+     *
+     * @param path the path of the index directory
+     * @return the opened directory
+     * @throws IOException if the directory could not be opened, or (for {@link Strategy#RAM}) copied
+     */
+    public Directory openDirectory(Path path) throws IOException {
+        getLog().debug("Opening lucene index directory " + path + " (" + getStrategy() +
+                               (getStrategy() == Strategy.MMAP && isPreload() ? ", preloaded" : "") + ")");
+        switch (getStrategy()) {
+            case MMAP:
+                MMapDirectory mmapDirectory = new MMapDirectory(path);
+                mmapDirectory.setPreload(isPreload());
+                return mmapDirectory;
+            case NIOFS:
+                return new NIOFSDirectory(path);
+            case RAM:
+                try (FSDirectory source = FSDirectory.open(path)) {
+                    return new RAMDirectory(source, IOContext.READONCE);
+                }
+            default:
+                throw new IllegalStateException("Unknown directory strategy '" + getStrategy() + "'");
+        }
+    }
+}
@@ -0,0 +1,52 @@
+package uk.ac.ebi.fgpt.zooma.service;
+
+import org.apache.lucene.document.Document;
+import org.apache.lucene.index.LeafReader;
+
+import java.io.IOException;
+
+/**
+ * A {@link LuceneDocumentMapper} that can read some of the values it needs from per-segment DocValues rather than from
+ * stored fields.  When a mapper implements this interface, {@link ZoomaLuceneSearchService} supplies the segment reader
+ * and segment-relative document ID of each hit, and leaves it to the mapper to load stored fields if it needs them.
+ */
+public interface LuceneDocValuesMapper<T> extends LuceneDocumentMapper<T> {
+    /**
+     * Maps the supplied document into an object of the appropriate type, T, reading numeric values from the DocValues
+     * of the given segment.
+     *
+     * @param d      the stored fields of the document to map
+     * @param reader the reader for the segment containing this document
+     * @param docID  the ID of the document within the segment
+     * @param rank   the rank (i.e. position) in a lucene search in which this document was returned
+     * @return the mapped object
+     * @throws IOException if the DocValues could not be read
+     */
+    T mapDocument(Document d, LeafReader reader, int docID, int rank) throws IOException;
+
+    /**
+     * Maps the document with the given segment-relative ID into an object of the appropriate type, T.  Implementations
+     * load the stored fields of the document only if they need them, so mappers that cache their results can avoid
+     * reading the document at all.
+     *
+     * @param reader the reader for the segment containing this document
+     * @param docID  the ID of the document within the segment
+     * @param rank   the rank (i.e. position) in a lucene search in which this document was returned
+     * @return the mapped object
+     * @throws IOException if the document could not be read
+     */
+    T mapDocument(LeafReader reader, int docID, int rank) throws IOException;
+
+    /**
+     * Returns a measure of the 'quality' of the document with the given segment-relative ID, reading only from the
+     * DocValues of the segment.  This is an intrinsic measure of the quality of the stored document, not a measure of
+     * the fitness against a query.
+     *
+     * @param reader the reader for the segment containing this document
+     * @param docID  the ID of the document within the segment
+     * @param rank   the rank (i.e. position) in a lucene search in which this document was returned
+     * @return a float indicating a quality score for this document
+     * @throws IOException if the DocValues could not be read
+     */
+    float getDocumentQuality(LeafReader reader, int docID, int rank) throws IOException;
+}
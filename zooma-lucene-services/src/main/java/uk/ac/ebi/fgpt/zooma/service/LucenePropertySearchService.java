@@ -1,30 +1,57 @@
 package uk.ac.ebi.fgpt.zooma.service;
 
+import org.apache.lucene.analysis.Analyzer;
+import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.search.MatchAllDocsQuery;
 import org.apache.lucene.search.Query;
+import org.apache.lucene.search.suggest.Lookup;
+import org.apache.lucene.search.suggest.analyzing.AnalyzingInfixSuggester;
+import org.apache.lucene.store.Directory;
+import org.apache.lucene.util.BytesRef;
 import uk.ac.ebi.fgpt.zooma.datasource.PropertyDAO;
+import uk.ac.ebi.fgpt.zooma.datasource.ZoomaDAO;
 import uk.ac.ebi.fgpt.zooma.exception.SearchException;
+import uk.ac.ebi.fgpt.zooma.model.Identifiable;
 import uk.ac.ebi.fgpt.zooma.model.Property;
+import uk.ac.ebi.fgpt.zooma.util.CursorPage;
 import uk.ac.ebi.fgpt.zooma.util.SearchStringProcessorProvider;
 
 import java.io.IOException;
 import java.net.URI;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 
 /**
  * A service that allows searching over the set of {@link Property}s known to ZOOMA.  Prefix-based and pattern-based
  * matches are supported using a Lucene index to rapidly identify matching properties.
+ * <p/>
+ * If a property suggester index built by the {@link ZoomaLuceneIndexer} is supplied, property value suggestions are
+ * served from it, most frequently annotated values first.  Otherwise, suggestions are obtained by a prefix query over
+ * the property index.
+ * <p/>
+ * Properties found in the index are normally built from the URI, type and value stored in the index.  If this service
+ * is configured to read properties from its {@link PropertyDAO} instead, the properties matching each block of hits
+ * are read with a single call to {@link PropertyDAO#read(Collection)}.
  *
  * @author Tony Burdett
  * @date 02/04/12
  */
 public class LucenePropertySearchService extends ZoomaLuceneSearchService implements PropertySearchService {
     private PropertyDAO propertyDAO;
+    private boolean readFromDAO = false;
 
     private SearchStringProcessorProvider searchStringProcessorProvider;
 
+    private Directory suggestIndex;
+    private int maxSuggestions = 20;
+
+    private Analyzer suggestAnalyzer;
+    private volatile AnalyzingInfixSuggester suggester;
+
     public PropertyDAO getPropertyDAO() {
         return propertyDAO;
     }
@@ -33,6 +60,21 @@ public class LucenePropertySearchService extends ZoomaLuceneSearchService implem
         this.propertyDAO = propertyDAO;
     }
 
+    public boolean isReadFromDAO() {
+        return readFromDAO;
+    }
+
+    /**
+     * Sets whether properties found in the index are read from the {@link PropertyDAO}, rather than built from the
+     * values stored in the index.  This is only required if the DAO holds details of properties that the index does
+     * not; defaults to false.
+     *
+     * @param readFromDAO true to read properties from the DAO, false to build them from the index
+     */
+    public void setReadFromDAO(boolean readFromDAO) {
+        this.readFromDAO = readFromDAO;
+    }
+
     public SearchStringProcessorProvider getSearchStringProcessorProvider() {
         return searchStringProcessorProvider;
     }
@@ -41,6 +83,82 @@ public class LucenePropertySearchService extends ZoomaLuceneSearchService implem
         this.searchStringProcessorProvider = searchStringProcessorProvider;
     }
 
+    public Directory getSuggestIndex() {
+        return suggestIndex;
+    }
+
+    /**
+     * Sets the property suggester index to serve suggestions from.  This is optional; if it is not set, or the index
+     * does not exist when this service is initialized, suggestions are obtained by querying the property index.
+     *
+     * @param suggestIndex the property suggester index built by the {@link ZoomaLuceneIndexer}
+     */
+    public void setSuggestIndex(Directory suggestIndex) {
+        this.suggestIndex = suggestIndex;
+    }
+
+    public int getMaxSuggestions() {
+        return maxSuggestions;
+    }
+
+    /**
+     * Sets the maximum number of property values returned by {@link #suggest(String, URI...)}.  Defaults to 20.
+     *
+     * @param maxSuggestions the maximum number of suggestions
+     */
+    public void setMaxSuggestions(int maxSuggestions) {
+        if (maxSuggestions < 1) {
+            throw new IllegalArgumentException("Maximum number of suggestions must be at least 1");
+        }
+        this.maxSuggestions = maxSuggestions;
+    }
+
+    @Override protected void doInitialization() throws IOException {
+        super.doInitialization();
+        openSuggester();
+    }
+
+    @Override protected void doRefresh() throws IOException {
+        // the property suggester is rebuilt along with the property index
+        AnalyzingInfixSuggester propertySuggester = suggester;
+        if (propertySuggester != null) {
+            propertySuggester.refresh();
+        }
+        else {
+            openSuggester();
+        }
+    }
+
+    @Override protected void doTermination() throws Exception {
+        super.doTermination();
+        synchronized (this) {
+            if (suggester != null) {
+                suggester.close();
+                suggester = null;
+            }
+            if (suggestAnalyzer != null) {
+                suggestAnalyzer.close();
+                suggestAnalyzer = null;
+            }
+        }
+    }
+
+    private synchronized void openSuggester() throws IOException {
+        if (suggester == null && getSuggestIndex() != null) {
+            if (DirectoryReader.indexExists(getSuggestIndex())) {
+                suggestAnalyzer = ZoomaLuceneIndexer.createSuggestAnalyzer();
+                suggester = new AnalyzingInfixSuggester(getSuggestIndex(),
+                                                        suggestAnalyzer,
+                                                        suggestAnalyzer,
+                                                        ZoomaLuceneIndexer.SUGGEST_MIN_PREFIX_CHARS,
+                                                        false);
+            }
+            else {
+                getLog().warn("No property suggester index found, property suggestions will use the property index");
+            }
+        }
+    }
+
     @Override public List<Property> search(String propertyValuePattern, URI... sources) {
         try {
             initOrWait();
@@ -67,7 +185,7 @@ public class LucenePropertySearchService extends ZoomaLuceneSearchService implem
             }
 
             // do the query
-            return doQuery(q, new SingleFieldURIMapper("uri"), getPropertyDAO());
+            return doPropertyQuery(q);
         }
         catch (IOException e) {
             throw new SearchException("Problems creating query for '" + propertyValuePattern + "'", e);
@@ -113,7 +231,7 @@ public class LucenePropertySearchService extends ZoomaLuceneSearchService implem
 
 
             // do the query
-            return doQuery(q, new SingleFieldURIMapper("uri"), getPropertyDAO());
+            return doPropertyQuery(q);
         }
         catch (IOException e) {
             throw new SearchException(
@@ -150,7 +268,7 @@ public class LucenePropertySearchService extends ZoomaLuceneSearchService implem
             }
 
             // do the query
-            return doQuery(q, new SingleFieldURIMapper("uri"), getPropertyDAO());
+            return doPropertyQuery(q);
         }
         catch (IOException e) {
             throw new SearchException("Problems creating query for '" + propertyValuePrefix + "'", e);
@@ -204,7 +322,7 @@ public class LucenePropertySearchService extends ZoomaLuceneSearchService implem
 
 
                 // do the query
-                return doQuery(q, new SingleFieldURIMapper("uri"), getPropertyDAO());
+                return doPropertyQuery(q);
             }
             catch (IOException e) {
                 throw new SearchException(
@@ -216,10 +334,46 @@ public class LucenePropertySearchService extends ZoomaLuceneSearchService implem
         }
     }
 
+    /**
+     * Performs a query over the property index, building properties from the index or reading them from the {@link
+     * PropertyDAO} as configured.
+     *
+     * @param q the lucene query to perform
+     * @return the matching properties
+     * @throws IOException if reading from the index failed
+     */
+    protected List<Property> doPropertyQuery(Query q) throws IOException {
+        if (isReadFromDAO()) {
+            return doQuery(q, new SingleFieldURIMapper("uri"), getPropertyDAO());
+        }
+        else {
+            return doQuery(q, new PropertyMapper());
+        }
+    }
+
+    /**
+     * Reads properties from a {@link PropertyDAO} in bulk.  Objects from any other DAO are read individually.
+     */
+    @Override
+    @SuppressWarnings("unchecked")
+    protected <T extends Identifiable> Collection<T> readAll(ZoomaDAO<T> dao, List<URI> uris) {
+        if (dao instanceof PropertyDAO) {
+            return (Collection<T>) ((PropertyDAO) dao).read(uris);
+        }
+        else {
+            return super.readAll(dao, uris);
+        }
+    }
+
     @Override public List<String> suggest(String propertyValuePrefix, URI... sources) {
         try {
             initOrWait();
 
+            AnalyzingInfixSuggester propertySuggester = suggester;
+            if (propertySuggester != null) {
+                return doSuggest(propertySuggester, propertyValuePrefix, sources);
+            }
+
             // first, formulate query for original propertyValuePattern
             Query pq = formulatePrefixQuery("name", propertyValuePrefix);
 
@@ -242,7 +396,7 @@ public class LucenePropertySearchService extends ZoomaLuceneSearchService implem
             }
 
             // do the query
-            List<String> nonUnique = doQuery(q, new SingleFieldStringMapper("name"), 20);
+            List<String> nonUnique = doQuery(q, new SingleFieldStringMapper("name"), getMaxSuggestions());
             List<String> results = new ArrayList<>();
             for (String next : nonUnique) {
                 if (!results.contains(next)) {
@@ -258,4 +412,46 @@ public class LucenePropertySearchService extends ZoomaLuceneSearchService implem
             throw new SearchException("Failed to perform query - indexing process was interrupted", e);
         }
     }
+
+    @Override public CursorPage<Property> getProperties(int limit, String cursor) {
+        try {
+            return doCursorQuery(new MatchAllDocsQuery(), new PropertyMapper(), "uri", limit, cursor);
+        }
+        catch (IOException e) {
+            throw new SearchException("Problems retrieving properties from lucene index", e);
+        }
+    }
+
+    /**
+     * Suggests property values from the property suggester.  Each word of the supplied prefix must match the start of a
+     * word in the property value, case insensitively, and the most frequently annotated values are returned first.
+     *
+     * @param propertySuggester   the suggester to look up suggestions in
+     * @param propertyValuePrefix the prefix to suggest property values for
+     * @param sources             the sources suggested values must be used by, or none for any source
+     * @return the suggested property values
+     * @throws IOException if the suggester index could not be read
+     */
+    protected List<String> doSuggest(AnalyzingInfixSuggester propertySuggester,
+                                     String propertyValuePrefix,
+                                     URI... sources) throws IOException {
+        if (propertySuggester.getCount() == 0) {
+            return Collections.emptyList();
+        }
+
+        Set<BytesRef> contexts = null;
+        if (sources.length > 0) {
+            contexts = new HashSet<>();
+            for (URI source : sources) {
+                contexts.add(new BytesRef(source.toString()));
+            }
+        }
+
+        List<String> results = new ArrayList<>();
+        for (Lookup.LookupResult result :
+                propertySuggester.lookup(propertyValuePrefix, contexts, getMaxSuggestions(), true, false)) {
+            results.add(result.key.toString());
+        }
+        return results;
+    }
 }
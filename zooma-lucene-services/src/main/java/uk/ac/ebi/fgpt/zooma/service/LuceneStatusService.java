@@ -3,10 +3,18 @@ package uk.ac.ebi.fgpt.zooma.service;
 import org.apache.lucene.index.CorruptIndexException;
 import org.apache.lucene.index.DirectoryReader;
 import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.index.SegmentInfos;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.store.Directory;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.Map;
 
 /**
  * An implementation of {@link StatusService} that reports on the status of a Lucene index and can rebuild indices if
@@ -17,6 +25,12 @@ import java.io.IOException;
  */
 public class LuceneStatusService implements StatusService {
     private ZoomaLuceneIndexer zoomaLuceneIndexer;
+    private Collection<ZoomaLuceneSearchService> searchServices = Collections.emptySet();
+
+    // index status as of the last check, reused until an index generation changes
+    private final Map<String, IndexStatus> indexStatuses = new LinkedHashMap<>();
+    private boolean lastStatus = false;
+    private Date lastChecked;
 
     private Logger log = LoggerFactory.getLogger(getClass());
 
@@ -32,72 +46,133 @@ public class LuceneStatusService implements StatusService {
         this.zoomaLuceneIndexer = zoomaLuceneIndexer;
     }
 
-    @Override public boolean checkStatus() {
+    public Collection<ZoomaLuceneSearchService> getSearchServices() {
+        return searchServices;
+    }
+
+    /**
+     * Sets the search services that read from the indices built by the {@link ZoomaLuceneIndexer}.  These will be
+     * refreshed whenever {@link #refresh()} is called.
+     *
+     * @param searchServices the search services serving requests from the zooma indices
+     */
+    public void setSearchServices(Collection<ZoomaLuceneSearchService> searchServices) {
+        this.searchServices = searchServices;
+    }
+
+    /**
+     * Checks that every index built by the {@link ZoomaLuceneIndexer} exists and can be read.  The generation of each
+     * index is checked on every call, which only lists the index directory; an index is only read again if its
+     * generation has changed since the last check.  Where a search service already holds an up to date reader over an
+     * index, that reader is used instead of opening a new one.
+     *
+     * @return true if all indices are present and readable, false otherwise
+     */
+    @Override public synchronized boolean checkStatus() {
         getLog().trace("Status check - initialization status is " + getZoomaLuceneIndexer().isInitialized());
-        try {
-            IndexReader reader;
-            if (DirectoryReader.indexExists(getZoomaLuceneIndexer().getAnnotationCountIndex())) {
-                reader = DirectoryReader.open(getZoomaLuceneIndexer().getAnnotationCountIndex());
-                reader.close();
-                getLog().trace("Status check - annotation count index present at " +
-                                       getZoomaLuceneIndexer().getAnnotationCountIndex().toString());
-            }
-            else {
-                getLog().trace("Status check - no annotation count index");
-                return false;
-            }
-            if (DirectoryReader.indexExists(getZoomaLuceneIndexer().getAnnotationIndex())) {
-                reader = DirectoryReader.open(getZoomaLuceneIndexer().getAnnotationIndex());
-                reader.close();
-                getLog().trace("Status check - annotation index present at " +
-                                       getZoomaLuceneIndexer().getAnnotationIndex().toString());
-            }
-            else {
-                getLog().trace("Status check - no annotation index");
-                return false;
+        boolean ready = true;
+        for (Map.Entry<String, Directory> index : getIndices().entrySet()) {
+            // check every index, even once one is missing, so status details are complete
+            if (!checkIndex(index.getKey(), index.getValue())) {
+                ready = false;
             }
-            if (DirectoryReader.indexExists(getZoomaLuceneIndexer().getAnnotationSummaryIndex())) {
-                reader = DirectoryReader.open(getZoomaLuceneIndexer().getAnnotationSummaryIndex());
-                reader.close();
-                getLog().trace("Status check - annotation summary index present at " +
-                                       getZoomaLuceneIndexer().getAnnotationSummaryIndex().toString());
-            }
-            else {
-                getLog().trace("Status check - no annotation summary index");
-                return false;
-            }
-            if (DirectoryReader.indexExists(getZoomaLuceneIndexer().getPropertyIndex())) {
-                reader = DirectoryReader.open(getZoomaLuceneIndexer().getPropertyIndex());
-                reader.close();
-                getLog().trace("Status check - property index present at " +
-                                       getZoomaLuceneIndexer().getPropertyIndex().toString());
-            }
-            else {
-                getLog().trace("Status check - no property index");
+        }
+        lastChecked = new Date();
+        lastStatus = ready;
+        return ready;
+    }
+
+    /**
+     * Returns the status last determined by {@link #checkStatus()}: whether ZOOMA was ready, when the status was
+     * checked, and the generation and number of documents of each index that was present.  Indices are not checked
+     * again.
+     *
+     * @return the last status checked
+     */
+    @Override public synchronized Map<String, Object> getStatusDetails() {
+        Map<String, Object> details = new LinkedHashMap<>();
+        details.put("ready", lastStatus);
+        details.put("lastChecked", lastChecked);
+        Map<String, Object> indices = new LinkedHashMap<>();
+        for (Map.Entry<String, IndexStatus> index : indexStatuses.entrySet()) {
+            Map<String, Object> indexDetails = new LinkedHashMap<>();
+            indexDetails.put("generation", index.getValue().generation);
+            indexDetails.put("documents", index.getValue().documents);
+            indices.put(index.getKey(), indexDetails);
+        }
+        details.put("indices", indices);
+        return details;
+    }
+
+    private Map<String, Directory> getIndices() {
+        Map<String, Directory> indices = new LinkedHashMap<>();
+        indices.put("annotationCount", getZoomaLuceneIndexer().getAnnotationCountIndex());
+        indices.put("annotation", getZoomaLuceneIndexer().getAnnotationIndex());
+        indices.put("annotationSummary", getZoomaLuceneIndexer().getAnnotationSummaryIndex());
+        indices.put("property", getZoomaLuceneIndexer().getPropertyIndex());
+        indices.put("propertyType", getZoomaLuceneIndexer().getPropertyTypeIndex());
+        return indices;
+    }
+
+    private boolean checkIndex(String name, Directory directory) {
+        try {
+            long generation = SegmentInfos.getLastCommitGeneration(directory);
+            if (generation == -1) {
+                getLog().trace("Status check - no " + name + " index");
+                indexStatuses.remove(name);
                 return false;
             }
-            if (DirectoryReader.indexExists(getZoomaLuceneIndexer().getPropertyTypeIndex())) {
-                reader = DirectoryReader.open(getZoomaLuceneIndexer().getPropertyTypeIndex());
-                reader.close();
-                getLog().trace("Status check - property type index present at " +
-                                       getZoomaLuceneIndexer().getPropertyTypeIndex().toString());
-            }
-            else {
-                getLog().trace("Status check - no property type index");
-                return false;
+
+            IndexStatus status = indexStatuses.get(name);
+            if (status == null || status.generation != generation) {
+                indexStatuses.put(name, new IndexStatus(generation, countDocuments(directory, generation)));
+                getLog().trace("Status check - " + name + " index present at " + directory.toString() +
+                                       " (generation " + generation + ")");
             }
-            // opening all indices was successful, so status is good
             return true;
         }
         catch (CorruptIndexException e) {
-            getLog().debug("Status check - corrupt index", e);
+            getLog().debug("Status check - corrupt " + name + " index", e);
+            indexStatuses.remove(name);
             return false;
         }
         catch (IOException e) {
-            getLog().debug("Status check - i/o troubles", e);
+            getLog().debug("Status check - i/o troubles reading " + name + " index", e);
+            indexStatuses.remove(name);
             return false;
         }
+    }
 
+    private int countDocuments(Directory directory, long generation) throws IOException {
+        // use a reader a search service already holds, if it has the current generation
+        for (ZoomaLuceneSearchService searchService : getSearchServices()) {
+            if (searchService.getIndex() == directory) {
+                try {
+                    if (searchService.isReady()) {
+                        IndexSearcher searcher = searchService.acquireSearcher();
+                        try {
+                            IndexReader reader = searcher.getIndexReader();
+                            if (reader instanceof DirectoryReader &&
+                                    ((DirectoryReader) reader).getIndexCommit().getGeneration() == generation) {
+                                return reader.numDocs();
+                            }
+                        }
+                        finally {
+                            searchService.releaseSearcher(searcher);
+                        }
+                    }
+                }
+                catch (IllegalStateException e) {
+                    // search service failed to initialize, or is shutting down
+                    getLog().trace("Status check - " + searchService.getClass().getSimpleName() + " unavailable", e);
+                }
+            }
+        }
+
+        // otherwise, read the index
+        try (IndexReader reader = DirectoryReader.open(directory)) {
+            return reader.numDocs();
+        }
     }
 
     @Override public String reinitialize() {
@@ -111,4 +186,52 @@ public class LuceneStatusService implements StatusService {
             return "ZOOMA re-indexing failed: " + e.getMessage();
         }
     }
+
+    /**
+     * Refreshes every search service, so that each picks up any changes to its index.  A service that fails to refresh
+     * does not stop the others from being refreshed; all failures are reported together once every service has been
+     * tried.
+     *
+     * @return a message giving the number of services whose index changed, or describing every failure
+     */
+    @Override public String refresh() {
+        int refreshed = 0;
+        IOException failure = null;
+        StringBuilder failures = new StringBuilder();
+        for (ZoomaLuceneSearchService searchService : getSearchServices()) {
+            try {
+                if (searchService.maybeRefresh()) {
+                    refreshed++;
+                }
+            }
+            catch (IOException e) {
+                if (failure == null) {
+                    failure = e;
+                }
+                else {
+                    failure.addSuppressed(e);
+                    failures.append("; ");
+                }
+                failures.append(searchService.getClass().getSimpleName()).append(": ").append(e.getMessage());
+            }
+        }
+
+        if (failure != null) {
+            getLog().error("Refreshing " + (failure.getSuppressed().length + 1) + " of " +
+                                   getSearchServices().size() + " search services failed", failure);
+            return "ZOOMA index refresh failed (" + refreshed + " of " + getSearchServices().size() + " changed, " +
+                    (failure.getSuppressed().length + 1) + " failed): " + failures;
+        }
+        return "ZOOMA indices refreshed (" + refreshed + " of " + getSearchServices().size() + " changed).";
+    }
+
+    private static class IndexStatus {
+        private final long generation;
+        private final int documents;
+
+        private IndexStatus(long generation, int documents) {
+            this.generation = generation;
+            this.documents = documents;
+        }
+    }
 }
@@ -9,6 +9,7 @@ import uk.ac.ebi.fgpt.zooma.datasource.PropertyDAO;
 import uk.ac.ebi.fgpt.zooma.model.AnnotationSummary;
 import uk.ac.ebi.fgpt.zooma.model.Property;
 import uk.ac.ebi.fgpt.zooma.util.AnnotationSummarySearchCommand;
+import uk.ac.ebi.fgpt.zooma.util.PropertyValueCandidateIndex;
 import uk.ac.ebi.fgpt.zooma.util.ScoreBasedSorter;
 import uk.ac.ebi.fgpt.zooma.util.SearchStringProcessor;
 
@@ -34,6 +35,7 @@ public class NeedlemanJaccardAnnotationSummarySearchService extends AnnotationSu
     private PropertyDAO propertyDAO;
 
     private Collection<String> propertyValueDictionary;
+    private PropertyValueCandidateIndex propertyValueCandidateIndex;
 
     private SearchStringProcessor searchStringProcessor;
 
@@ -61,6 +63,10 @@ public class NeedlemanJaccardAnnotationSummarySearchService extends AnnotationSu
         return propertyValueDictionary;
     }
 
+    public PropertyValueCandidateIndex getPropertyValueCandidateIndex() {
+        return propertyValueCandidateIndex;
+    }
+
     @Override
     public Collection<AnnotationSummary> search(String propertyValuePattern, final URI... sources) {
         return doExpandedSearch(propertyValuePattern, new AnnotationSummarySearchCommand() {
@@ -171,7 +177,9 @@ public class NeedlemanJaccardAnnotationSummarySearchService extends AnnotationSu
     }
 
     /**
-     * This methods finds matching properties using "Needleman-Wunsch" distance. Here, simmetrics library is used
+     * This methods finds matching properties using "Needleman-Wunsch" distance. Here, simmetrics library is used.  Only
+     * the dictionary entries shortlisted by the {@link PropertyValueCandidateIndex} are scored; all other entries cannot
+     * reach the minimum score.
      *
      * @param propertyValue       the property value to search for
      * @param min_score           the ZOOMA minimum score parameter
@@ -194,7 +202,8 @@ public class NeedlemanJaccardAnnotationSummarySearchService extends AnnotationSu
         Map<String, Float> expandedPropertyMap = new HashMap<>();
         NeedlemanWunch nwSimilarity = new NeedlemanWunch();
         if (!getPropertyValueDictionary().isEmpty()) {
-            for (String comparedPropertyValue : getPropertyValueDictionary()) {
+            for (String comparedPropertyValue :
+                    getPropertyValueCandidateIndex().getNeedlemanWunschCandidates(propertyValue, min_score)) {
                 float result = nwSimilarity.compare(propertyValue, comparedPropertyValue);
                 if (getLog().isTraceEnabled()) {
                     if (result > 0) {
@@ -218,7 +227,9 @@ public class NeedlemanJaccardAnnotationSummarySearchService extends AnnotationSu
     }
 
     /**
-     * This methods finds matching properties using "Jaccard" similarity.  Here, simmetrics library is used
+     * This methods finds matching properties using "Jaccard" similarity.  Here, simmetrics library is used.  Only the
+     * dictionary entries shortlisted by the {@link PropertyValueCandidateIndex} are scored; all other entries cannot
+     * reach the minimum score.
      *
      * @param propertyValue       the property value to search for
      * @param min_score           the ZOOMA minimum score parameter
@@ -241,7 +252,8 @@ public class NeedlemanJaccardAnnotationSummarySearchService extends AnnotationSu
         Map<String, Float> expandedPropertyMap = new HashMap<>();
         StringMetric jaccardSimilarity = StringMetricBuilder.with(new JaccardSimilarity<String>()).tokenize(new Whitespace()).build();
         if (!getPropertyValueDictionary().isEmpty()) {
-            for (String comparedPropertyValue : getPropertyValueDictionary()) {
+            for (String comparedPropertyValue :
+                    getPropertyValueCandidateIndex().getJaccardCandidates(propertyValue, min_score)) {
                 float result = jaccardSimilarity.compare(propertyValue, comparedPropertyValue);
                 if (getLog().isTraceEnabled()) {
                     if (result > 0) {
@@ -341,7 +353,8 @@ public class NeedlemanJaccardAnnotationSummarySearchService extends AnnotationSu
 
     /**
      * Initializes this service.  At startup, a {@link PropertyDAO} is used to extract all properties known to ZOOMA.
-     * Returned properties are normalized and cached in a dictionary for future use.
+     * Returned properties are normalized and cached in a dictionary for future use, along with a {@link
+     * PropertyValueCandidateIndex} over the dictionary that is used to shortlist similar strings.
      *
      * @throws IOException
      */
@@ -362,8 +375,9 @@ public class NeedlemanJaccardAnnotationSummarySearchService extends AnnotationSu
                 propertyValueDictionary.add(propertyValue);
             }
         }
+        propertyValueCandidateIndex = new PropertyValueCandidateIndex(propertyValueDictionary);
         time_end = System.currentTimeMillis();
-        getLog().debug("Loaded property value dictionary of " + propertyValueDictionary.size() + " entries in " +
-                               (time_end - time_start) + " milliseconds");
+        getLog().debug("Loaded and indexed property value dictionary of " + propertyValueDictionary.size() +
+                               " entries in " + (time_end - time_start) + " milliseconds");
     }
 }
\ No newline at end of file
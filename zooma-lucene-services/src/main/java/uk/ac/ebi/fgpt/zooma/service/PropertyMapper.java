@@ -0,0 +1,50 @@
+package uk.ac.ebi.fgpt.zooma.service;
+
+import org.apache.lucene.document.Document;
+import uk.ac.ebi.fgpt.zooma.model.Property;
+import uk.ac.ebi.fgpt.zooma.model.SimpleTypedProperty;
+import uk.ac.ebi.fgpt.zooma.model.SimpleUntypedProperty;
+
+import java.net.URI;
+
+/**
+ * Maps documents from the property index built by {@link ZoomaLuceneIndexer} into {@link Property} objects, using the
+ * URI, value and type stored with each document.  Documents without a stored type are mapped into untyped properties.
+ */
+public class PropertyMapper implements LuceneDocumentMapper<Property> {
+    @Override public Property mapDocument(Document d) {
+        return mapDocument(d, 1);
+    }
+
+    @Override public Property mapDocument(Document d, int rank) {
+        URI uri = URI.create(d.get("uri"));
+        String propertyValue = d.get("name");
+        String propertyType = d.get("type");
+        if (propertyType == null) {
+            return new SimpleUntypedProperty(uri, propertyValue);
+        }
+        else {
+            return new SimpleTypedProperty(uri, propertyType, propertyValue);
+        }
+    }
+
+    /**
+     * This implementation returns 1 for all documents; properties are not quality scored.
+     *
+     * @param d the document to score
+     * @return 1 for all documents
+     */
+    @Override public float getDocumentQuality(Document d) {
+        return 1;
+    }
+
+    /**
+     * This implementation returns 1 for all documents; properties are not quality scored.
+     *
+     * @param d the document to score
+     * @return 1 for all documents
+     */
+    @Override public float getDocumentQuality(Document d, int rank) {
+        return 1;
+    }
+}
@@ -1,13 +1,34 @@
 package uk.ac.ebi.fgpt.zooma.service;
 
 import org.apache.lucene.analysis.Analyzer;
+import org.apache.lucene.analysis.standard.StandardAnalyzer;
+import org.apache.lucene.analysis.util.CharArraySet;
 import org.apache.lucene.document.Document;
 import org.apache.lucene.document.Field;
+import org.apache.lucene.document.FloatDocValuesField;
+import org.apache.lucene.document.NumericDocValuesField;
+import org.apache.lucene.document.SortedDocValuesField;
+import org.apache.lucene.document.SortedSetDocValuesField;
+import org.apache.lucene.index.DirectoryReader;
 import org.apache.lucene.index.IndexDeletionPolicy;
+import org.apache.lucene.index.IndexReader;
 import org.apache.lucene.index.IndexWriter;
 import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.index.LogByteSizeMergePolicy;
 import org.apache.lucene.index.MergePolicy;
+import org.apache.lucene.index.MultiFields;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.index.Terms;
+import org.apache.lucene.index.TermsEnum;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.ScoreDoc;
+import org.apache.lucene.search.TermQuery;
+import org.apache.lucene.search.suggest.InputIterator;
+import org.apache.lucene.search.suggest.analyzing.AnalyzingInfixSuggester;
 import org.apache.lucene.store.Directory;
+import org.apache.lucene.store.FilterDirectory;
+import org.apache.lucene.util.Bits;
+import org.apache.lucene.util.BytesRef;
 import org.apache.lucene.util.Version;
 import uk.ac.ebi.fgpt.zooma.Initializable;
 import uk.ac.ebi.fgpt.zooma.datasource.AnnotationDAO;
@@ -17,22 +38,44 @@ import uk.ac.ebi.fgpt.zooma.model.Annotation;
 import uk.ac.ebi.fgpt.zooma.model.AnnotationProvenance;
 import uk.ac.ebi.fgpt.zooma.model.AnnotationSummary;
 import uk.ac.ebi.fgpt.zooma.model.Property;
+import uk.ac.ebi.fgpt.zooma.model.SimpleAnnotationSummary;
+import uk.ac.ebi.fgpt.zooma.model.SimpleTypedProperty;
+import uk.ac.ebi.fgpt.zooma.model.SimpleUntypedProperty;
 import uk.ac.ebi.fgpt.zooma.model.TypedProperty;
 
 import java.io.IOException;
-import java.io.UnsupportedEncodingException;
+import java.io.InterruptedIOException;
 import java.net.URI;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
 import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Collection;
-import java.util.Collections;
+import java.util.Deque;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Locale;
 import java.util.Map;
 import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.Callable;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * Constructs a search index of annotations and properties using a Lucene implementation.  This enables fast text-based
@@ -44,15 +87,35 @@ import java.util.concurrent.ConcurrentHashMap;
 public class ZoomaLuceneIndexer extends Initializable {
     public static final Version VERSION = Version.LUCENE_5_3_0;
 
+    // keys of the corpus statistics recorded in the annotation summary index commit
+    public static final String ANNOTATION_COUNT_KEY = "zooma.annotation.count";
+    public static final String SUMMARY_COUNT_KEY = "zooma.summary.count";
+    public static final String MAX_SUMMARY_SCORE_KEY = "zooma.summary.maxScore";
+
+    // property suggester indices must be queried with the same minimum prefix length they were built with
+    public static final int SUGGEST_MIN_PREFIX_CHARS = AnalyzingInfixSuggester.DEFAULT_MIN_PREFIX_CHARS;
+
     private static final String ENCODING = "SHA-1";
     private static final String HEX_CHARACTERS = "0123456789ABCDEF";
 
+    private static final String UNTYPED = "##zooma.untyped.property.key##";
+
+    // smallest number of items worth handing to a worker thread
+    private static final int MIN_PARTITION_SIZE = 256;
+
     // lucene analyzer for producing indexed strings
     private Analyzer analyzer;
 
     // maximum number of entities that will be fetched from DAO, usually only used in testing
     private int maxEntityCount = -1;
 
+    // number of annotations read from the DAO at a time on initialization; 0 or less reads them all at once
+    private int annotationPageSize = 10000;
+
+    // number of threads used to produce documents; 1 indexes everything on the calling thread
+    private volatile int indexingThreads = Runtime.getRuntime().availableProcessors();
+    private ExecutorService workerExecutor;
+
     // DAOs to fetch entities which will be used to build indices
     private AnnotationDAO annotationDAO;
     private AnnotationSummaryDAO annotationSummaryDAO;
@@ -65,9 +128,26 @@ public class ZoomaLuceneIndexer extends Initializable {
     private Directory annotationCountIndex;
     private Directory annotationIndex;
     private Directory annotationSummaryIndex;
+    private Directory propertySuggestIndex;
     private Map<URI, Collection<URI>> propertyUriToSourcesMap = new HashMap<>();
     private Map<String, Collection<URI>> propertyTypeToSourcesMap = new HashMap<>();
 
+    // each thread digests the content of the IDs it generates with its own instance
+    private final ThreadLocal<MessageDigest> messageDigest = new ThreadLocal<MessageDigest>() {
+        @Override protected MessageDigest initialValue() {
+            try {
+                return MessageDigest.getInstance(ENCODING);
+            }
+            catch (NoSuchAlgorithmException e) {
+                throw new RuntimeException(ENCODING + " algorithm not available, this is required to generate ID");
+            }
+        }
+    };
+
+    // the content, or the fingerprint of the content, of every generated ID, keyed by the raw ID digest
+    private volatile IDCollisionCheck idCollisionCheck = IDCollisionCheck.CONTENT;
+    private final ConcurrentMap<ByteBuffer, Object> idKeyContentMap = new ConcurrentHashMap<>();
+
 
     public Analyzer getAnalyzer() {
         return analyzer;
@@ -85,6 +165,43 @@ public class ZoomaLuceneIndexer extends Initializable {
         this.maxEntityCount = maxEntityCount;
     }
 
+    public int getAnnotationPageSize() {
+        return annotationPageSize;
+    }
+
+    /**
+     * Sets the number of annotations read from the {@link AnnotationDAO} at a time when this indexer is initialized.
+     * If this is greater than 0, indices are built by {@link #createIndices(AnnotationDAO, Collection)}, so memory use
+     * does not grow with the number of annotations; the default is 10000.  Otherwise, every annotation is read at once,
+     * and summaries are read from the {@link AnnotationSummaryDAO}.
+     *
+     * @param annotationPageSize the number of annotations to read at a time, or 0 to read all annotations at once
+     */
+    public void setAnnotationPageSize(int annotationPageSize) {
+        this.annotationPageSize = annotationPageSize;
+    }
+
+    public int getIndexingThreads() {
+        return indexingThreads;
+    }
+
+    /**
+     * Sets the number of threads used to produce and add documents to the indices.  If this is 1, all indices are built
+     * sequentially on the thread that requests them.
+     *
+     * @param indexingThreads the number of threads to index with
+     */
+    public synchronized void setIndexingThreads(int indexingThreads) {
+        if (indexingThreads < 1) {
+            throw new IllegalArgumentException("At least one indexing thread is required");
+        }
+        if (indexingThreads != this.indexingThreads) {
+            this.indexingThreads = indexingThreads;
+            // workers are sized on creation, so create a new pool next time
+            shutdownWorkerExecutor();
+        }
+    }
+
     public AnnotationDAO getAnnotationDAO() {
         return annotationDAO;
     }
@@ -141,6 +258,20 @@ public class ZoomaLuceneIndexer extends Initializable {
         this.annotationSummaryIndex = annotationSummaryIndex;
     }
 
+    public Directory getPropertySuggestIndex() {
+        return propertySuggestIndex;
+    }
+
+    /**
+     * Sets the directory to build the property value suggester in.  This is optional: if no directory is set, no
+     * suggester is built and property suggestions fall back to prefix queries over the property index.
+     *
+     * @param propertySuggestIndex the directory for the property suggester index
+     */
+    public void setPropertySuggestIndex(Directory propertySuggestIndex) {
+        this.propertySuggestIndex = propertySuggestIndex;
+    }
+
     public AnnotationSummaryDAO getAnnotationSummaryDAO() {
         return annotationSummaryDAO;
     }
@@ -149,6 +280,21 @@ public class ZoomaLuceneIndexer extends Initializable {
         this.annotationSummaryDAO = annotationSummaryDAO;
     }
 
+    public IDCollisionCheck getIDCollisionCheck() {
+        return idCollisionCheck;
+    }
+
+    /**
+     * Sets how generated summary IDs are checked for collisions.  Changing this discards everything recorded about the
+     * IDs generated so far, so it should not be changed while indices are being built.
+     *
+     * @param idCollisionCheck the collision check to use when generating IDs
+     */
+    public void setIDCollisionCheck(IDCollisionCheck idCollisionCheck) {
+        this.idCollisionCheck = idCollisionCheck;
+        idKeyContentMap.clear();
+    }
+
     /**
      * Returns a flag to indicate whether initialization of this indexer has already been successful or not
      *
@@ -162,79 +308,211 @@ public class ZoomaLuceneIndexer extends Initializable {
     public void createPropertyIndices(Collection<Property> properties) throws IOException {
         getLog().debug("Creating lucene indices from " + properties.size() + " properties...");
 
-        // collect unique property types
-        Set<String> uniquePropertyTypes = new HashSet<>();
+        // collect unique property types, in the order they are first used
+        List<String> uniquePropertyTypes = new ArrayList<>();
+        Set<String> seenPropertyTypes = new HashSet<>();
+        for (Property property : properties) {
+            if (property instanceof TypedProperty) {
+                String propertyType = ((TypedProperty) property).getPropertyType();
+                if (seenPropertyTypes.add(propertyType)) {
+                    uniquePropertyTypes.add(propertyType);
+                }
+            }
+        }
 
         // set up index
-        IndexWriterConfig propertyConfig = new IndexWriterConfig(getAnalyzer());
+        IndexWriterConfig propertyConfig = createIndexWriterConfig();
         IndexWriter propertyIndexWriter = new IndexWriter(getPropertyIndex(), propertyConfig);
-        IndexWriterConfig propertyTypeConfig = new IndexWriterConfig(getAnalyzer());
+        IndexWriterConfig propertyTypeConfig = createIndexWriterConfig();
         IndexWriter propertyTypeIndexWriter = new IndexWriter(getPropertyTypeIndex(), propertyTypeConfig);
 
-        // iterate over all properties
-        for (Property property : properties) {
-            // build the document to index text data and store URIs
-            Document doc = new Document();
+        try {
+            addDocuments(new ArrayList<>(properties), propertyIndexWriter, new DocumentFactory<Property>() {
+                @Override public Document createDocument(Property property) {
+                    return createPropertyDocument(property);
+                }
+            });
+            addDocuments(uniquePropertyTypes, propertyTypeIndexWriter, new DocumentFactory<String>() {
+                @Override public Document createDocument(String propertyType) {
+                    return createPropertyTypeDocument(propertyType);
+                }
+            });
+        }
+        finally {
+            // now we have indexed all properties, close the index writer
+            propertyIndexWriter.close();
+            propertyTypeIndexWriter.close();
+        }
+        getLog().debug("Property lucene indexing complete!");
+    }
 
-            doc.add(new Field("uri",
-                    property.getURI().toString(),
-                    Field.Store.YES,
-                    Field.Index.NOT_ANALYZED));
-            doc.add(new Field("name",
-                    property.getPropertyValue(),
+    protected Document createPropertyDocument(Property property) {
+        // build the document to index text data and store URIs
+        Document doc = new Document();
+
+        doc.add(new Field("uri",
+                property.getURI().toString(),
+                Field.Store.YES,
+                Field.Index.NOT_ANALYZED));
+        // sortable, so that properties can be listed in a stable order
+        doc.add(new SortedDocValuesField("uri", new BytesRef(property.getURI().toString())));
+        doc.add(new Field("name",
+                property.getPropertyValue(),
+                Field.Store.YES,
+                Field.Index.ANALYZED));
+        if (property instanceof TypedProperty) {
+            String propertyType = ((TypedProperty) property).getPropertyType();
+
+            // add type field to property index
+            doc.add(new Field("type",
+                    propertyType,
                     Field.Store.YES,
                     Field.Index.ANALYZED));
-            if (property instanceof TypedProperty) {
-                String propertyType = ((TypedProperty) property).getPropertyType();
+        }
 
-                // add type field to property index
-                doc.add(new Field("type",
-                        propertyType,
+        // add any sources where this property is used, if it is used by any of the annotations indexed
+        Collection<URI> sources = propertyUriToSourcesMap.get(property.getURI());
+        if (sources != null) {
+            for (URI sourceUri : sources) {
+                doc.add(new Field("source",
+                        sourceUri.toString(),
                         Field.Store.YES,
-                        Field.Index.ANALYZED));
+                        Field.Index.NOT_ANALYZED));
+            }
+        }
+        return doc;
+    }
 
+    protected Document createPropertyTypeDocument(String propertyType) {
+        Document typeDoc = new Document();
+        typeDoc.add(new Field("id",
+                propertyType,
+                Field.Store.NO,
+                Field.Index.NOT_ANALYZED));
+        typeDoc.add(new Field("name",
+                propertyType,
+                Field.Store.YES,
+                Field.Index.ANALYZED));
+        // add any sources where this property type is used
+        for (URI sourceUri : propertyTypeToSourcesMap.get(propertyType)) {
+            typeDoc.add(new Field("source",
+                    sourceUri.toString(),
+                    Field.Store.YES,
+                    Field.Index.NOT_ANALYZED));
+        }
+        return typeDoc;
+    }
 
-                // add type document to property type index if not a duplicate
-                if (!uniquePropertyTypes.contains(propertyType)) {
-                    // this is a new property type, add to unique set
-                    uniquePropertyTypes.add(propertyType);
+    /**
+     * Removes every document from the property and property type indices.
+     *
+     * @throws IOException if either index could not be cleared
+     */
+    public void clearPropertyIndices() throws IOException {
+        clearIndex(getPropertyIndex());
+        clearIndex(getPropertyTypeIndex());
+    }
 
-                    // and index
-                    Document typeDoc = new Document();
-                    typeDoc.add(new Field("name",
-                            propertyType,
-                            Field.Store.YES,
-                            Field.Index.ANALYZED));
-                    // add any sources where this property type is used
-                    for (URI sourceUri : propertyTypeToSourcesMap.get(propertyType)) {
-                        typeDoc.add(new Field("source",
-                                sourceUri.toString(),
-                                Field.Store.YES,
-                                Field.Index.NOT_ANALYZED));
-                    }
-                    propertyTypeIndexWriter.addDocument(typeDoc);
-                }
+    /**
+     * Builds a suggester over the values of all annotated properties, so that property values can be suggested as a
+     * user types.  Each distinct property value is weighted by the number of annotations that use it, so the most
+     * frequently used values are suggested first, and records the sources of those annotations so that suggestions can
+     * be restricted to a set of sources.
+     *
+     * @param annotations the annotations to suggest property values from
+     * @throws IOException if the suggester index could not be built
+     */
+    public void createPropertySuggestIndex(Collection<Annotation> annotations) throws IOException {
+        getLog().debug("Creating property suggester lucene index from " + annotations.size() + " annotations...");
+        Map<String, PropertySuggestion> suggestions = new TreeMap<>();
+        for (Annotation annotation : annotations) {
+            String source = null;
+            if (annotation.getProvenance() != null && annotation.getProvenance().getSource() != null) {
+                source = annotation.getProvenance().getSource().getURI().toString();
             }
+            addPropertySuggestion(suggestions, annotation.getAnnotatedProperty().getPropertyValue(), source);
+        }
+        buildPropertySuggester(suggestions);
+        getLog().debug("Property suggester lucene indexing complete!");
+    }
 
-            // add any sources where this property is used
-            for (URI sourceUri : propertyUriToSourcesMap.get(property.getURI())) {
-                doc.add(new Field("source",
-                        sourceUri.toString(),
-                        Field.Store.YES,
-                        Field.Index.NOT_ANALYZED));
+    /**
+     * Builds a suggester over the values of all annotated properties in an annotation index, weighted and with sources
+     * exactly as {@link #createPropertySuggestIndex(Collection)} would from the annotations themselves.
+     *
+     * @param annotationReader the reader over the annotation index to suggest property values from
+     * @throws IOException if the annotation index could not be read or the suggester index could not be built
+     */
+    public void createPropertySuggestIndex(IndexReader annotationReader) throws IOException {
+        getLog().debug("Creating property suggester lucene index from " + annotationReader.numDocs() +
+                               " indexed annotations...");
+        Set<String> fields = new HashSet<>();
+        fields.add("property");
+        fields.add("source");
+
+        Map<String, PropertySuggestion> suggestions = new TreeMap<>();
+        Bits liveDocs = MultiFields.getLiveDocs(annotationReader);
+        for (int i = 0; i < annotationReader.maxDoc(); i++) {
+            if (liveDocs == null || liveDocs.get(i)) {
+                Document doc = annotationReader.document(i, fields);
+                addPropertySuggestion(suggestions, doc.get("property"), doc.get("source"));
             }
+        }
+        buildPropertySuggester(suggestions);
+        getLog().debug("Property suggester lucene indexing complete!");
+    }
+
+    private void addPropertySuggestion(Map<String, PropertySuggestion> suggestions,
+                                       String propertyValue,
+                                       String source) {
+        if (!suggestions.containsKey(propertyValue)) {
+            suggestions.put(propertyValue, new PropertySuggestion());
+        }
+        PropertySuggestion suggestion = suggestions.get(propertyValue);
+        suggestion.annotationCount++;
+        if (source != null) {
+            suggestion.sources.add(new BytesRef(source));
+        }
+    }
 
-            // add this document to the index
-            propertyIndexWriter.addDocument(doc);
+    private void buildPropertySuggester(Map<String, PropertySuggestion> suggestions) throws IOException {
+        Analyzer suggestAnalyzer = createSuggestAnalyzer();
+        // the suggester closes its directory along with its index writer, but the directory belongs to this indexer
+        AnalyzingInfixSuggester suggester =
+                new AnalyzingInfixSuggester(new FilterDirectory(getPropertySuggestIndex()) {
+                    @Override public void close() {
+                    }
+                }, suggestAnalyzer, suggestAnalyzer, SUGGEST_MIN_PREFIX_CHARS, true);
+        try {
+            suggester.build(new PropertySuggestionIterator(suggestions));
+        }
+        finally {
+            suggester.close();
+            suggestAnalyzer.close();
         }
+    }
 
-        // now we have indexed all properties, close the index writer
-        propertyIndexWriter.close();
-        propertyTypeIndexWriter.close();
-        getLog().debug("Property lucene indexing complete!");
+    /**
+     * Lower cases and reverses a term, so that suffixes of the original term can be searched for as prefixes of the
+     * reversed term.  This is used to index the reversed semantic tags of annotation summaries, and must also be used
+     * to create the prefix to search for.
+     *
+     * @param term the term to reverse
+     * @return the lower cased, reversed term
+     */
+    public static String reverseTerm(String term) {
+        return new StringBuilder(term.toLowerCase(Locale.ROOT)).reverse().toString();
     }
 
-    public void clearPropertyIndices() {
+    /**
+     * Creates the analyzer used to build and query property suggester indices.  Unlike the analyzer used for other
+     * indices this does no stemming, so that partially typed words still match the start of the indexed word, but it
+     * does lower case everything so suggestions are case insensitive.
+     *
+     * @return a new property suggester analyzer
+     */
+    public static Analyzer createSuggestAnalyzer() {
+        return new StandardAnalyzer(CharArraySet.EMPTY_SET);
     }
 
     public void createAnnotationCountIndex(int size) throws IOException {
@@ -253,8 +531,13 @@ public class ZoomaLuceneIndexer extends Initializable {
         getLog().debug("Annotation count lucene indexing complete!");
     }
 
-    public void clearAnnotationCountIndex() {
-
+    /**
+     * Removes every document from the annotation count index.
+     *
+     * @throws IOException if the index could not be cleared
+     */
+    public void clearAnnotationCountIndex() throws IOException {
+        clearIndex(getAnnotationCountIndex());
     }
 
     public Map<URI, AnnotationProvenance> createAnnotationIndex(List<Annotation> annotations) throws IOException {
@@ -263,10 +546,13 @@ public class ZoomaLuceneIndexer extends Initializable {
 
         IndexWriter annotationIndexWriter = obtainIndexWriter(getAnnotationIndex());
 
-        createAnnotationIndex(annotations, provenanceMap, annotationIndexWriter);
-
-        // now we have indexed all annotations, close the index writer
-        annotationIndexWriter.close();
+        try {
+            createAnnotationIndex(annotations, provenanceMap, annotationIndexWriter);
+        }
+        finally {
+            // now we have indexed all annotations, close the index writer
+            annotationIndexWriter.close();
+        }
 
         getLog().debug("Annotation lucene indexing complete!");
         return provenanceMap;
@@ -276,125 +562,298 @@ public class ZoomaLuceneIndexer extends Initializable {
                                       Map<URI, AnnotationProvenance> provenanceMap,
                                       IndexWriter indexWriter) throws IOException {
         getLog().debug("Creating lucene index from " + annotations.size() + " annotations...");
+        collectAnnotationProvenance(annotations, provenanceMap);
+        indexAnnotations(new ArrayList<>(annotations), indexWriter);
+    }
+
+    /**
+     * Records the provenance of each annotation, and the sources each property and property type is used by, for use
+     * when building the annotation summary and property indices.  This must be done before any of these indices are
+     * built.
+     *
+     * @param annotations   the annotations that will be indexed
+     * @param provenanceMap the map to record each annotation's provenance in
+     */
+    protected void collectAnnotationProvenance(Collection<Annotation> annotations,
+                                               Map<URI, AnnotationProvenance> provenanceMap) {
+        for (Annotation annotation : annotations) {
+            provenanceMap.put(annotation.getURI(), annotation.getProvenance());
+        }
+        collectAnnotationSources(annotations);
+    }
 
-        // iterate over all annotations
+    /**
+     * Records the sources each property and property type is used by, for use when building the property indices.
+     *
+     * @param annotations the annotations that will be indexed
+     */
+    protected void collectAnnotationSources(Collection<Annotation> annotations) {
         for (Annotation annotation : annotations) {
             Property property = annotation.getAnnotatedProperty();
-
-            // build the document to index text data and store URIs
-            Document doc = new Document();
-            doc.add(new Field("uri",
-                    annotation.getURI().toString(),
-                    Field.Store.YES,
-                    Field.Index.NOT_ANALYZED));
-            doc.add(new Field("property",
-                    property.getPropertyValue(),
-                    Field.Store.YES,
-                    Field.Index.ANALYZED));
             if (property instanceof TypedProperty) {
                 String propertyType = ((TypedProperty) property).getPropertyType();
-                doc.add(new Field("propertytype",
-                        propertyType,
-                        Field.Store.YES,
-                        Field.Index.ANALYZED));
 
                 // keep a map of types to sources
                 if (!propertyTypeToSourcesMap.containsKey(propertyType)) {
                     propertyTypeToSourcesMap.put(propertyType, new HashSet<URI>());
                 }
                 propertyTypeToSourcesMap.get(propertyType).add(annotation.getProvenance().getSource().getURI());
-
-            }
-            if (annotation.getProvenance() != null && annotation.getProvenance().getSource() != null) {
-                doc.add(new Field("source",
-                        annotation.getProvenance().getSource().getURI().toString(),
-                        Field.Store.YES,
-                        Field.Index.NOT_ANALYZED));
-            }
-            for (URI target : annotation.getSemanticTags()) {
-                // allow for null semantic tags -
-                // "null" is a positive assertion of NO mapping, but shouldn't be indexed (not searchable)
-                if (target != null) {
-                    doc.add(new Field("target",
-                            target.toString(),
-                            Field.Store.YES,
-                            Field.Index.NOT_ANALYZED));
-                }
             }
 
-            provenanceMap.put(annotation.getURI(), annotation.getProvenance());
-            doc.add(new Field("quality",
-                    Float.toString(scoreAnnotationQuality(annotation.getProvenance())),
-                    Field.Store.YES,
-                    Field.Index.ANALYZED));
-
-
-
-
             // we want to keep a map of property uris to sources for the property index
             if (!propertyUriToSourcesMap.containsKey(property.getURI())) {
                 propertyUriToSourcesMap.put(property.getURI(), new HashSet<URI>());
             }
             propertyUriToSourcesMap.get(property.getURI()).add(annotation.getProvenance().getSource().getURI());
-            // add this document to the index
-            indexWriter.addDocument(doc);
         }
     }
 
-    public void clearAnnotationIndex() {
+    private void indexAnnotations(List<Annotation> annotations, IndexWriter indexWriter) throws IOException {
+        addDocuments(annotations, indexWriter, new DocumentFactory<Annotation>() {
+            @Override public Document createDocument(Annotation annotation) {
+                return createAnnotationDocument(annotation);
+            }
+        });
+    }
+
+    protected Document createAnnotationDocument(Annotation annotation) {
+        Property property = annotation.getAnnotatedProperty();
+
+        // build the document to index text data and store URIs
+        Document doc = new Document();
+        doc.add(new Field("uri",
+                annotation.getURI().toString(),
+                Field.Store.YES,
+                Field.Index.NOT_ANALYZED));
+        doc.add(new Field("propertyuri",
+                property.getURI().toString(),
+                Field.Store.YES,
+                Field.Index.NOT_ANALYZED));
+        doc.add(new Field("property",
+                property.getPropertyValue(),
+                Field.Store.YES,
+                Field.Index.ANALYZED));
+        if (property instanceof TypedProperty) {
+            String propertyType = ((TypedProperty) property).getPropertyType();
+            doc.add(new Field("propertytype",
+                    propertyType,
+                    Field.Store.YES,
+                    Field.Index.ANALYZED));
+            // untokenized, so annotations of a property type can be found when updating the property type index
+            doc.add(new Field("propertytypeid",
+                    propertyType,
+                    Field.Store.NO,
+                    Field.Index.NOT_ANALYZED));
+        }
+        if (annotation.getProvenance() != null && annotation.getProvenance().getSource() != null) {
+            doc.add(new Field("source",
+                    annotation.getProvenance().getSource().getURI().toString(),
+                    Field.Store.YES,
+                    Field.Index.NOT_ANALYZED));
+        }
+        // record annotation history, so replaced annotations can be summarized with the tags of their replacements
+        if (annotation.getReplaces() != null) {
+            for (URI replaces : annotation.getReplaces()) {
+                doc.add(new Field("replaces",
+                        replaces.toString(),
+                        Field.Store.YES,
+                        Field.Index.NOT_ANALYZED));
+            }
+        }
+        if (annotation.getReplacedBy() != null) {
+            for (URI replacedBy : annotation.getReplacedBy()) {
+                doc.add(new Field("replacedby",
+                        replacedBy.toString(),
+                        Field.Store.YES,
+                        Field.Index.NOT_ANALYZED));
+            }
+        }
+        for (URI target : annotation.getSemanticTags()) {
+            // allow for null semantic tags -
+            // "null" is a positive assertion of NO mapping, but shouldn't be indexed (not searchable)
+            if (target != null) {
+                doc.add(new Field("target",
+                        target.toString(),
+                        Field.Store.YES,
+                        Field.Index.NOT_ANALYZED));
+            }
+        }
+
+        float quality = scoreAnnotationQuality(annotation.getProvenance());
+        doc.add(new Field("quality",
+                Float.toString(quality),
+                Field.Store.YES,
+                Field.Index.ANALYZED));
+        // numeric values as DocValues, for sorting and filtering without loading stored fields
+        doc.add(new FloatDocValuesField("quality", quality));
+        if (annotation.getProvenance().getGeneratedDate() != null) {
+            doc.add(new NumericDocValuesField("generated",
+                    annotation.getProvenance().getGeneratedDate().getTime()));
+        }
+        if (annotation.getProvenance().getAnnotationDate() != null) {
+            doc.add(new NumericDocValuesField("annotated",
+                    annotation.getProvenance().getAnnotationDate().getTime()));
+        }
+        return doc;
+    }
 
+    /**
+     * Removes every document from the annotation index.
+     *
+     * @throws IOException if the index could not be cleared
+     */
+    public void clearAnnotationIndex() throws IOException {
+        clearIndex(getAnnotationIndex());
     }
 
     public void createAnnotationSummaryIndex(AnnotationSummaryDAO summaryDao,
                                              Map<URI, AnnotationProvenance> provenanceMap) throws IOException {
+        createAnnotationSummaryIndex(summaryDao, provenanceMap, provenanceMap.size());
+    }
+
+    /**
+     * Creates the annotation summary index from the summaries supplied by the given DAO.  Along with the summaries, the
+     * highest summary quality score is recorded in the index commit, so search services need not evaluate every summary
+     * when they open the index.
+     *
+     * @param summaryDao      the DAO to read summaries from
+     * @param provenanceMap   the provenance of each annotation
+     * @param annotationCount the total number of annotations known to zooma, used to evaluate summary quality
+     * @throws IOException if the index could not be created
+     */
+    public void createAnnotationSummaryIndex(AnnotationSummaryDAO summaryDao,
+                                             Map<URI, AnnotationProvenance> provenanceMap,
+                                             int annotationCount) throws IOException {
 
         getLog().info("Creating annotation summary lucene index...");
 
         IndexWriter summaryIndexWriter = obtainIndexWriter(getAnnotationSummaryIndex());
 
-        final String UNTYPED = "##zooma.untyped.property.key##";
-
         Collection<AnnotationSummary> summaries = summaryDao.read();
         getLog().debug("Number of summaries to index: " + summaries.size());
 
+        try {
+            // identify and score summaries in order, then build documents concurrently
+            List<SummaryEntry> entries = createSummaryEntries(summaries, provenanceMap);
+            indexSummaries(entries, summaryIndexWriter);
+
+            // evaluate quality exactly as a search service would from the index
+            AnnotationSummaryMapper mapper = new AnnotationSummaryMapper(annotationCount, entries.size());
+            float maxScore = -1;
+            for (SummaryEntry entry : entries) {
+                maxScore = Math.max(maxScore, mapper.getDocumentQuality(entry.topScore,
+                                                                        entry.sources.size(),
+                                                                        entry.summary.getAnnotationURIs().size(),
+                                                                        entry.sources,
+                                                                        1));
+            }
+            summaryIndexWriter.setCommitData(createSummaryStatistics(annotationCount, entries.size(), maxScore));
+        }
+        finally {
+            summaryIndexWriter.close();
+        }
+        getLog().info("Annotation summary lucene indexing complete!");
+    }
+
+    /**
+     * Creates the annotation summary index by aggregating the annotations in an annotation index.  Annotations are
+     * summarized by property, and then by the set of semantic tags they map that property to, one property at a time,
+     * so only the annotations of a single property are held in memory however many annotations are indexed.  Replaced
+     * annotations are summarized with the semantic tags of their replacements, as described in {@link
+     * #createSummaryEntries(IndexSearcher, URI, List)}.  The statistics recorded in the index commit are evaluated from
+     * the summary index once every summary has been added.
+     *
+     * @param annotationReader the reader over the annotation index to summarize
+     * @throws IOException if the annotation index could not be read or the summary index could not be created
+     */
+    public void createAnnotationSummaryIndex(IndexReader annotationReader) throws IOException {
+        getLog().info("Creating annotation summary lucene index from " + annotationReader.numDocs() +
+                              " indexed annotations...");
+
+        IndexWriter summaryIndexWriter = obtainIndexWriter(getAnnotationSummaryIndex());
+        try {
+            Terms propertyURIs = MultiFields.getTerms(annotationReader, "propertyuri");
+            if (propertyURIs != null) {
+                IndexSearcher annotationSearcher = new IndexSearcher(annotationReader);
+                // enough summaries to give every worker a partition
+                int batchSize = MIN_PARTITION_SIZE * getIndexingThreads();
+                List<SummaryEntry> entries = new ArrayList<>();
+                TermsEnum propertyURIsEnum = propertyURIs.iterator();
+                for (BytesRef term = propertyURIsEnum.next(); term != null; term = propertyURIsEnum.next()) {
+                    URI propertyURI = URI.create(term.utf8ToString());
+                    List<Document> annotationDocs =
+                            findDocuments(annotationSearcher, new Term("propertyuri", propertyURI.toString()));
+                    entries.addAll(createSummaryEntries(annotationSearcher, propertyURI, annotationDocs));
+                    if (entries.size() >= batchSize) {
+                        indexSummaries(entries, summaryIndexWriter);
+                        entries.clear();
+                    }
+                }
+                indexSummaries(entries, summaryIndexWriter);
+            }
+
+            int annotationCount = annotationReader.numDocs();
+            try (DirectoryReader summaryReader = DirectoryReader.open(summaryIndexWriter, true)) {
+                getLog().debug("Number of summaries indexed: " + summaryReader.numDocs());
+                AnnotationSummaryMapper mapper = new AnnotationSummaryMapper(annotationCount, summaryReader.numDocs());
+                summaryIndexWriter.setCommitData(createSummaryStatistics(annotationCount,
+                                                                         summaryReader.numDocs(),
+                                                                         mapper.getMaximumDocumentQuality(
+                                                                                 summaryReader)));
+            }
+        }
+        finally {
+            summaryIndexWriter.close();
+        }
+        getLog().info("Annotation summary lucene indexing complete!");
+    }
+
+    private void indexSummaries(List<SummaryEntry> entries, IndexWriter summaryIndexWriter) throws IOException {
+        addDocuments(entries, summaryIndexWriter, new DocumentFactory<SummaryEntry>() {
+            @Override public Document createDocument(SummaryEntry entry) {
+                return createAnnotationSummaryDocument(entry);
+            }
+        });
+    }
+
+    private Map<String, String> createSummaryStatistics(int annotationCount, int summaryCount, float maxScore) {
+        Map<String, String> statistics = new HashMap<>();
+        statistics.put(ANNOTATION_COUNT_KEY, Integer.toString(annotationCount));
+        statistics.put(SUMMARY_COUNT_KEY, Integer.toString(summaryCount));
+        if (summaryCount > 0) {
+            statistics.put(MAX_SUMMARY_SCORE_KEY, Float.toString(maxScore));
+        }
+        return statistics;
+    }
+
+    /**
+     * Generates an ID for each summary, and evaluates its best score and the sources that verify it.  Summaries without
+     * semantic tags are skipped.  Summaries are processed in order, as summaries that share an ID also share a best
+     * score.
+     *
+     * @param summaries     the summaries to index
+     * @param provenanceMap the provenance of each annotation
+     * @return an entry for each summary that should be indexed
+     */
+    private List<SummaryEntry> createSummaryEntries(Collection<AnnotationSummary> summaries,
+                                                    Map<URI, AnnotationProvenance> provenanceMap) {
+        List<SummaryEntry> entries = new ArrayList<>();
         Map<String, Float> summaryIdToMaxScore = new HashMap<>();
-        Map<String, Set<URI>> summaryIdToSourcesMap = new HashMap<>();
 
         for (AnnotationSummary summary : summaries) {
 
-            String summaryId = null;
             // get property
             String propertyType =
                     summary.getAnnotatedPropertyType() != null ? summary.getAnnotatedPropertyType() : UNTYPED;
-            String propertyValue = summary.getAnnotatedPropertyValue();
-            // get semantic tags
-            URI propertyUri = summary.getAnnotatedPropertyUri();
-            Collection<URI> semanticTags = summary.getSemanticTags();
             Collection<URI> annotations = summary.getAnnotationURIs();
 
             // generate summary id
-            List<String> idContent = new ArrayList<>();
-            for (URI uri : semanticTags) {
-                if (uri != null) {
-                    // append URI to ID
-                    idContent.add(uri.toString());
-                }
-            }
-
-            if (idContent.size() > 0) {
-                // add property type and value to id content
-                idContent.add(0, propertyValue);
-                idContent.add(0, propertyType);
-
-                summaryId = generateEncodedID(idContent.toArray(new String[idContent.size()]));
-                getLog().trace("Found new unique combination - " +
-                        "property value '" + propertyValue + "', type '" + propertyType + "' " +
-                        "maps to " + semanticTags + " (" + summaryId + ")");
-
-            }
+            String summaryId = generateSummaryID(propertyType,
+                                                 summary.getAnnotatedPropertyValue(),
+                                                 summary.getSemanticTags());
 
             if (summaryId != null) {
-                summaryIdToSourcesMap.put(summaryId, new HashSet<URI>());
+                Set<URI> sources = new HashSet<>();
 
                 // check annotation score against current max - if no current max, or if greater, replace
                 for (URI annoUri : annotations) {
@@ -406,98 +865,802 @@ public class ZoomaLuceneIndexer extends Initializable {
                         float annotationScore = scoreAnnotationQuality(prov);
                         if (!summaryIdToMaxScore.containsKey(summaryId) ||
                                 (annotationScore > summaryIdToMaxScore.get(summaryId))) {
-                            summaryIdToMaxScore.put(summaryId, scoreAnnotationQuality(prov));
+                            summaryIdToMaxScore.put(summaryId, annotationScore);
                         }
-                        summaryIdToSourcesMap.get(summaryId).add(prov.getSource().getURI());
-                    }
-                }
-
-                // build one document to index each summary combination
-                Document doc = new Document();
-                doc.add(new Field("id",
-                        summaryId,
-                        Field.Store.YES,
-                        Field.Index.NOT_ANALYZED));
-                doc.add(new Field("propertyuri",
-                        propertyUri.toString(),
-                        Field.Store.YES,
-                        Field.Index.NOT_ANALYZED));
-                doc.add(new Field("property",
-                        propertyValue,
-                        Field.Store.YES,
-                        Field.Index.ANALYZED));
-                if (!propertyType.equals(UNTYPED)) {
-                    doc.add(new Field("propertytype",
-                            propertyType,
-                            Field.Store.YES,
-                            Field.Index.ANALYZED));
-                }
-                // add field for each semantic tag
-                for (URI uri : semanticTags) {
-                    if (uri != null) {
-                        // add a field for this URI
-                        getLog().trace("Next summary semantic tag: " + uri);
-                        doc.add(new Field("semanticTag",
-                                uri.toString(),
-                                Field.Store.YES,
-                                Field.Index.ANALYZED));
+                        sources.add(prov.getSource().getURI());
                     }
                 }
-                // add field for each annotation
-                for (URI annotationUri : annotations) {
-                    // add a field for this URI
-                    getLog().trace("Next summary annotation: " + annotationUri.toString());
-                    doc.add(new Field("annotation",
-                            annotationUri.toString(),
-                            Field.Store.YES,
-                            Field.Index.ANALYZED));
-                }
-                // add a field for the frequency of use of this pattern
-                getLog().trace("Summary frequency: " + annotations.size());
-                doc.add(new Field("frequency",
-                        Integer.toString(annotations.size()),
-                        Field.Store.YES,
-                        Field.Index.ANALYZED));
-                getLog().trace("Best score: " + summaryIdToMaxScore.get(summaryId));
-                doc.add(new Field("topScore",
-                        Float.toString(summaryIdToMaxScore.get(summaryId)),
-                        Field.Store.YES,
-                        Field.Index.ANALYZED));
-                for (URI source : summaryIdToSourcesMap.get(summaryId)) {
-                    getLog().trace("Next source: " + source.toString());
-                    doc.add(new Field("source",
-                            source.toString(),
-                            Field.Store.YES,
-                            Field.Index.NOT_ANALYZED));
 
-                }
+                entries.add(new SummaryEntry(summary,
+                                             summaryId,
+                                             propertyType,
+                                             summaryIdToMaxScore.get(summaryId),
+                                             sources));
+            }
+        }
+        return entries;
+    }
 
-                getLog().trace("Number of times verified: " + summaryIdToSourcesMap.get(summaryId).size());
-                doc.add(new Field("timesVerified",
-                        Integer.toString(summaryIdToSourcesMap.get(summaryId).size()),
+    /**
+     * Generates the ID of the summary of a property and the semantic tags it is mapped to.
+     *
+     * @param propertyType  the property type, or {@link #UNTYPED}
+     * @param propertyValue the property value
+     * @param semanticTags  the semantic tags of the summary
+     * @return the summary ID, or null if the summary has no (non-null) semantic tags and should not be indexed
+     */
+    private String generateSummaryID(String propertyType, String propertyValue, Collection<URI> semanticTags) {
+        List<String> idContent = new ArrayList<>();
+        for (URI uri : semanticTags) {
+            if (uri != null) {
+                // append URI to ID
+                idContent.add(uri.toString());
+            }
+        }
+
+        if (idContent.size() > 0) {
+            // add property type and value to id content
+            idContent.add(0, propertyValue);
+            idContent.add(0, propertyType);
+
+            String summaryId = generateEncodedID(idContent.toArray(new String[idContent.size()]));
+            getLog().trace("Found new unique combination - " +
+                    "property value '" + propertyValue + "', type '" + propertyType + "' " +
+                    "maps to " + semanticTags + " (" + summaryId + ")");
+            return summaryId;
+        }
+        else {
+            return null;
+        }
+    }
+
+    protected Document createAnnotationSummaryDocument(SummaryEntry entry) {
+        AnnotationSummary summary = entry.summary;
+        String summaryId = entry.id;
+        String propertyType = entry.propertyType;
+        String propertyValue = summary.getAnnotatedPropertyValue();
+        URI propertyUri = summary.getAnnotatedPropertyUri();
+        Collection<URI> semanticTags = summary.getSemanticTags();
+        Collection<URI> annotations = summary.getAnnotationURIs();
+        float topScore = entry.topScore;
+
+        // build one document to index each summary combination
+        Document doc = new Document();
+        doc.add(new Field("id",
+                summaryId,
+                Field.Store.YES,
+                Field.Index.NOT_ANALYZED));
+        // sortable, so that summaries can be listed in a stable order
+        doc.add(new SortedDocValuesField("id", new BytesRef(summaryId)));
+        doc.add(new Field("propertyuri",
+                propertyUri.toString(),
+                Field.Store.YES,
+                Field.Index.NOT_ANALYZED));
+        doc.add(new Field("property",
+                propertyValue,
+                Field.Store.YES,
+                Field.Index.ANALYZED));
+        if (!propertyType.equals(UNTYPED)) {
+            doc.add(new Field("propertytype",
+                    propertyType,
+                    Field.Store.YES,
+                    Field.Index.ANALYZED));
+        }
+        // add field for each semantic tag
+        for (URI uri : semanticTags) {
+            if (uri != null) {
+                // add a field for this URI
+                getLog().trace("Next summary semantic tag: " + uri);
+                doc.add(new Field("semanticTag",
+                        uri.toString(),
                         Field.Store.YES,
                         Field.Index.ANALYZED));
+                // and the reversed URI, so semantic tags can be found by suffix with a prefix query
+                doc.add(new Field("semanticTagReversed",
+                        reverseTerm(uri.toString()),
+                        Field.Store.NO,
+                        Field.Index.NOT_ANALYZED));
+            }
+        }
+        // add field for each annotation
+        for (URI annotationUri : annotations) {
+            // add a field for this URI
+            getLog().trace("Next summary annotation: " + annotationUri.toString());
+            doc.add(new Field("annotation",
+                    annotationUri.toString(),
+                    Field.Store.YES,
+                    Field.Index.ANALYZED));
+        }
+        // add a field for the frequency of use of this pattern
+        getLog().trace("Summary frequency: " + annotations.size());
+        doc.add(new Field("frequency",
+                Integer.toString(annotations.size()),
+                Field.Store.YES,
+                Field.Index.ANALYZED));
+        doc.add(new NumericDocValuesField("frequency", annotations.size()));
+        getLog().trace("Best score: " + topScore);
+        doc.add(new Field("topScore",
+                Float.toString(topScore),
+                Field.Store.YES,
+                Field.Index.ANALYZED));
+        doc.add(new FloatDocValuesField("topScore", topScore));
+        for (URI source : entry.sources) {
+            getLog().trace("Next source: " + source.toString());
+            doc.add(new Field("source",
+                    source.toString(),
+                    Field.Store.YES,
+                    Field.Index.NOT_ANALYZED));
+            doc.add(new SortedSetDocValuesField("source", new BytesRef(source.toString())));
+        }
 
-                getLog().trace("Annotation Summary index entry:\n\t" +
-                        "ID: " + summaryId + ",\n\t" +
-                        "Property: " + propertyValue + ",\n\t" +
-                        "Property Type: " + propertyType + ",\n\t" +
-                        "Semantic Tags: " + semanticTags.toString() + ",\n\t" +
-                        "Summary Frequency: " + annotations.size() + ",\n\t" +
-                        "Best score: " + summaryIdToMaxScore.get(summaryId) + ",\n\t" +
-                        "Times verified: " + summaryIdToSourcesMap.get(summaryId).size());
+        getLog().trace("Number of times verified: " + entry.sources.size());
+        doc.add(new Field("timesVerified",
+                Integer.toString(entry.sources.size()),
+                Field.Store.YES,
+                Field.Index.ANALYZED));
+        doc.add(new NumericDocValuesField("timesVerified", entry.sources.size()));
+
+        getLog().trace("Annotation Summary index entry:\n\t" +
+                "ID: " + summaryId + ",\n\t" +
+                "Property: " + propertyValue + ",\n\t" +
+                "Property Type: " + propertyType + ",\n\t" +
+                "Semantic Tags: " + semanticTags.toString() + ",\n\t" +
+                "Summary Frequency: " + annotations.size() + ",\n\t" +
+                "Best score: " + topScore + ",\n\t" +
+                "Times verified: " + entry.sources.size());
+        return doc;
+    }
 
-                // add this document to the index
-                summaryIndexWriter.addDocument(doc);
+    /**
+     * Removes every document from the annotation summary index.
+     *
+     * @throws IOException if the index could not be cleared
+     */
+    public void clearAnnotationSummaryIndex() throws IOException {
+        clearIndex(getAnnotationSummaryIndex());
+    }
+
+    /**
+     * Builds every index from the supplied annotations and properties, and the annotation summaries obtained from the
+     * {@link AnnotationSummaryDAO}.  Provenance of all annotations is collected first, after which the five indices,
+     * and the property suggester if a directory for it is set, are built concurrently, each using the shared worker
+     * pool to produce documents.  If {@link #getIndexingThreads()} is 1, indices are built one after another on the
+     * calling thread.
+     *
+     * @param annotations     the annotations to index
+     * @param annotationCount the number of annotations to record in the annotation count index
+     * @param properties      the properties to index
+     * @throws IOException if any index could not be built
+     */
+    public void createIndices(final List<Annotation> annotations,
+                              final int annotationCount,
+                              final Collection<Property> properties) throws IOException {
+        final Map<URI, AnnotationProvenance> provenanceMap = new ConcurrentHashMap<>();
+        collectAnnotationProvenance(annotations, provenanceMap);
+
+        List<Callable<Void>> builds = new ArrayList<>();
+        builds.add(new Callable<Void>() {
+            @Override public Void call() throws IOException {
+                createAnnotationCountIndex(annotationCount);
+                return null;
+            }
+        });
+        builds.add(new Callable<Void>() {
+            @Override public Void call() throws IOException {
+                getLog().info("Creating lucene index for " + annotations.size() + " annotations");
+                IndexWriter annotationIndexWriter = obtainIndexWriter(getAnnotationIndex());
+                try {
+                    indexAnnotations(annotations, annotationIndexWriter);
+                }
+                finally {
+                    annotationIndexWriter.close();
+                }
+                getLog().debug("Annotation lucene indexing complete!");
+                return null;
+            }
+        });
+        builds.add(new Callable<Void>() {
+            @Override public Void call() throws IOException {
+                createAnnotationSummaryIndex(getAnnotationSummaryDAO(), provenanceMap, annotationCount);
+                return null;
+            }
+        });
+        builds.add(new Callable<Void>() {
+            @Override public Void call() throws IOException {
+                createPropertyIndices(properties);
+                return null;
+            }
+        });
+        if (getPropertySuggestIndex() != null) {
+            builds.add(new Callable<Void>() {
+                @Override public Void call() throws IOException {
+                    createPropertySuggestIndex(annotations);
+                    return null;
+                }
+            });
+        }
+
+        runBuilds(builds);
+    }
+
+    /**
+     * Builds every index by reading annotations from the given DAO a page at a time, so that memory use does not grow
+     * with the number of annotations.  Each page is added to the annotation index, which is rebuilt from scratch, and
+     * then discarded.  Once every annotation is indexed, the annotation summary index and the property suggester are
+     * aggregated from the annotation index on disk, rather than read from the {@link AnnotationSummaryDAO}, and are
+     * built concurrently with the annotation count and property indices as in {@link #createIndices(List, int,
+     * Collection)}.
+     * <p/>
+     * Annotations are read in pages of {@link #getAnnotationPageSize()}, or all at once if that is not set, and at most
+     * {@link #getMaxEntityCount()} annotations are read if that is set.
+     *
+     * @param annotationDAO the DAO to read the annotations to index from
+     * @param properties    the properties to index
+     * @return the number of annotations indexed
+     * @throws IOException if any index could not be built
+     */
+    public int createIndices(AnnotationDAO annotationDAO, final Collection<Property> properties) throws IOException {
+        final int annotationCount = streamAnnotationIndex(annotationDAO);
+
+        try (final IndexReader annotationReader = DirectoryReader.open(getAnnotationIndex())) {
+            List<Callable<Void>> builds = new ArrayList<>();
+            builds.add(new Callable<Void>() {
+                @Override public Void call() throws IOException {
+                    createAnnotationCountIndex(annotationCount);
+                    return null;
+                }
+            });
+            builds.add(new Callable<Void>() {
+                @Override public Void call() throws IOException {
+                    createAnnotationSummaryIndex(annotationReader);
+                    return null;
+                }
+            });
+            builds.add(new Callable<Void>() {
+                @Override public Void call() throws IOException {
+                    createPropertyIndices(properties);
+                    return null;
+                }
+            });
+            if (getPropertySuggestIndex() != null) {
+                builds.add(new Callable<Void>() {
+                    @Override public Void call() throws IOException {
+                        createPropertySuggestIndex(annotationReader);
+                        return null;
+                    }
+                });
             }
+            runBuilds(builds);
+        }
+        return annotationCount;
+    }
+
+    private int streamAnnotationIndex(AnnotationDAO annotationDAO) throws IOException {
+        int pageSize = getAnnotationPageSize() > 0 ? getAnnotationPageSize() : Integer.MAX_VALUE;
+        int maxCount = getMaxEntityCount() == -1 ? Integer.MAX_VALUE : getMaxEntityCount();
+        getLog().info("Creating lucene index for annotations read in pages of " + pageSize);
 
+        // summaries are aggregated from this index, so it must not keep annotations from any previous build
+        IndexWriterConfig config = createIndexWriterConfig();
+        config.setOpenMode(IndexWriterConfig.OpenMode.CREATE);
+        IndexWriter annotationIndexWriter = new IndexWriter(getAnnotationIndex(), config);
+        int count = 0;
+        try {
+            while (count < maxCount) {
+                int size = Math.min(pageSize, maxCount - count);
+                List<Annotation> page = annotationDAO.read(size, count);
+                collectAnnotationSources(page);
+                indexAnnotations(page, annotationIndexWriter);
+                count += page.size();
+                getLog().debug("Indexed " + count + " annotations");
+                if (page.size() < size) {
+                    // no more annotations
+                    break;
+                }
+            }
         }
-        getLog().info("Annotation summary lucene indexing complete!");
-        summaryIndexWriter.close();
+        finally {
+            annotationIndexWriter.close();
+        }
+        getLog().info("Annotation lucene indexing complete, " + count + " annotations indexed");
+        return count;
+    }
+
+    private void runBuilds(List<Callable<Void>> builds) throws IOException {
+        if (getIndexingThreads() <= 1) {
+            for (Callable<Void> build : builds) {
+                try {
+                    build.call();
+                }
+                catch (IOException | RuntimeException e) {
+                    throw e;
+                }
+                catch (Exception e) {
+                    throw new IOException("Failed to build index", e);
+                }
+            }
+        }
+        else {
+            // index builds wait on document production, so they need their own threads to avoid starving the pool
+            ExecutorService buildExecutor =
+                    Executors.newFixedThreadPool(builds.size(), new IndexerThreadFactory("build"));
+            try {
+                List<Future<Void>> futures = new ArrayList<>();
+                for (Callable<Void> build : builds) {
+                    futures.add(buildExecutor.submit(build));
+                }
+                awaitAll(futures);
+            }
+            finally {
+                buildExecutor.shutdownNow();
+            }
+        }
+    }
+
+    /**
+     * Applies a batch of annotation changes to indices previously built by this indexer, without rebuilding them.
+     * Supplied annotations are added, or replace the indexed annotation with the same URI.  Annotations with the
+     * deleted URIs are then removed.  Only the annotation summaries, properties and property types that refer to
+     * changed annotations, before or after the change, are recomputed, along with the annotation count and the
+     * summaries of any annotations the changed annotations replace.
+     * <p/>
+     * Summaries, properties and property types are recomputed from the annotation index, so indices must have been
+     * built by a version of this indexer that records property URIs and annotation history against annotations.
+     * Search scores can differ slightly from those of a full rebuild until deleted documents are merged away, but the
+     * same documents match.
+     *
+     * @param annotations           the annotations that are new, or that have changed
+     * @param deletedAnnotationURIs the URIs of annotations that have been deleted
+     * @throws IOException if any index could not be updated
+     */
+    public synchronized void updateIndices(Collection<Annotation> annotations, Collection<URI> deletedAnnotationURIs)
+            throws IOException {
+        getLog().info("Updating lucene indices with " + annotations.size() + " changed and " +
+                              deletedAnnotationURIs.size() + " deleted annotations");
+
+        // properties and property types used by changed annotations, both before and after the change
+        Set<URI> touchedPropertyURIs = new LinkedHashSet<>();
+        Set<String> touchedPropertyTypes = new LinkedHashSet<>();
+
+        // annotations replaced by changed annotations, before and after the change, whose summaries may also change
+        Set<URI> replacedAnnotationURIs = new LinkedHashSet<>();
+
+        Set<URI> changedAnnotationURIs = new LinkedHashSet<>(deletedAnnotationURIs);
+        for (Annotation annotation : annotations) {
+            changedAnnotationURIs.add(annotation.getURI());
+            if (annotation.getReplaces() != null) {
+                replacedAnnotationURIs.addAll(annotation.getReplaces());
+            }
+            Property property = annotation.getAnnotatedProperty();
+            touchedPropertyURIs.add(property.getURI());
+            if (property instanceof TypedProperty) {
+                touchedPropertyTypes.add(((TypedProperty) property).getPropertyType());
+            }
+        }
+        if (DirectoryReader.indexExists(getAnnotationIndex())) {
+            try (IndexReader reader = DirectoryReader.open(getAnnotationIndex())) {
+                IndexSearcher searcher = new IndexSearcher(reader);
+                for (URI annotationURI : changedAnnotationURIs) {
+                    for (Document doc : findDocuments(searcher, new Term("uri", annotationURI.toString()))) {
+                        touchedPropertyURIs.add(URI.create(doc.get("propertyuri")));
+                        if (doc.get("propertytype") != null) {
+                            touchedPropertyTypes.add(doc.get("propertytype"));
+                        }
+                        for (String replaces : doc.getValues("replaces")) {
+                            replacedAnnotationURIs.add(URI.create(replaces));
+                        }
+                    }
+                }
+            }
+        }
+
+        // apply changes to the annotation index
+        IndexWriter annotationIndexWriter = obtainUpdatingIndexWriter(getAnnotationIndex());
+        try {
+            for (Annotation annotation : annotations) {
+                annotationIndexWriter.updateDocument(new Term("uri", annotation.getURI().toString()),
+                                                     createAnnotationDocument(annotation));
+            }
+            for (URI annotationURI : deletedAnnotationURIs) {
+                annotationIndexWriter.deleteDocuments(new Term("uri", annotationURI.toString()));
+            }
+        }
+        finally {
+            annotationIndexWriter.close();
+        }
+
+        // now recompute everything derived from the touched annotations
+        try (IndexReader reader = DirectoryReader.open(getAnnotationIndex())) {
+            IndexSearcher searcher = new IndexSearcher(reader);
+            createAnnotationCountIndex(reader.numDocs());
+            Set<URI> summarizedPropertyURIs = new LinkedHashSet<>(touchedPropertyURIs);
+            summarizedPropertyURIs.addAll(findReplacedPropertyURIs(searcher, changedAnnotationURIs));
+            summarizedPropertyURIs.addAll(findReplacedPropertyURIs(searcher, replacedAnnotationURIs));
+            for (URI replacedAnnotationURI : replacedAnnotationURIs) {
+                for (Document doc : findDocuments(searcher, new Term("uri", replacedAnnotationURI.toString()))) {
+                    summarizedPropertyURIs.add(URI.create(doc.get("propertyuri")));
+                }
+            }
+            updateAnnotationSummaryIndex(searcher, summarizedPropertyURIs);
+            updatePropertyIndices(searcher, touchedPropertyURIs, touchedPropertyTypes);
+            if (getPropertySuggestIndex() != null) {
+                // suggestion weights are relative to one another, so the suggester is rebuilt rather than updated
+                createPropertySuggestIndex(reader);
+            }
+        }
+        getLog().info("Lucene index update complete!");
+    }
+
+    private void updateAnnotationSummaryIndex(IndexSearcher annotationSearcher, Collection<URI> propertyURIs)
+            throws IOException {
+        // find the summaries currently indexed for each property
+        Map<URI, Set<String>> propertyToSummaryIds = new HashMap<>();
+        for (URI propertyURI : propertyURIs) {
+            propertyToSummaryIds.put(propertyURI, new HashSet<String>());
+        }
+        if (DirectoryReader.indexExists(getAnnotationSummaryIndex())) {
+            try (IndexReader reader = DirectoryReader.open(getAnnotationSummaryIndex())) {
+                IndexSearcher searcher = new IndexSearcher(reader);
+                for (URI propertyURI : propertyURIs) {
+                    for (Document doc : findDocuments(searcher, new Term("propertyuri", propertyURI.toString()))) {
+                        propertyToSummaryIds.get(propertyURI).add(doc.get("id"));
+                    }
+                }
+            }
+        }
+
+        IndexWriter summaryIndexWriter = obtainUpdatingIndexWriter(getAnnotationSummaryIndex());
+        try {
+            for (URI propertyURI : propertyURIs) {
+                Set<String> staleSummaryIds = propertyToSummaryIds.get(propertyURI);
+                List<Document> annotationDocs =
+                        findDocuments(annotationSearcher, new Term("propertyuri", propertyURI.toString()));
+                for (SummaryEntry entry : createSummaryEntries(annotationSearcher, propertyURI, annotationDocs)) {
+                    summaryIndexWriter.updateDocument(new Term("id", entry.id),
+                                                      createAnnotationSummaryDocument(entry));
+                    staleSummaryIds.remove(entry.id);
+                }
+                for (String summaryId : staleSummaryIds) {
+                    summaryIndexWriter.deleteDocuments(new Term("id", summaryId));
+                }
+            }
+
+            // summary counts and scores have changed, so re-evaluate the statistics recorded with the index
+            int annotationCount = annotationSearcher.getIndexReader().numDocs();
+            try (DirectoryReader summaryReader = DirectoryReader.open(summaryIndexWriter, true)) {
+                AnnotationSummaryMapper mapper = new AnnotationSummaryMapper(annotationCount, summaryReader.numDocs());
+                summaryIndexWriter.setCommitData(createSummaryStatistics(annotationCount,
+                                                                         summaryReader.numDocs(),
+                                                                         mapper.getMaximumDocumentQuality(
+                                                                                 summaryReader)));
+            }
+        }
+        finally {
+            summaryIndexWriter.close();
+        }
+    }
+
+    /**
+     * Recreates the summaries of a property from the indexed annotations of that property.  Annotations are summarized
+     * by the set of semantic tags they map the property to, and annotations without semantic tags are not summarized.
+     * <p/>
+     * As in {@link uk.ac.ebi.fgpt.zooma.datasource.AnnotationSummaryDAO}s that read summaries from annotation history,
+     * an annotation that has been replaced is not summarized with its own semantic tags.  Instead, it maps its property
+     * to the semantic tags of the current annotations that replace it, directly or through other replaced annotations,
+     * if they annotate a different property; so a property that was curated to a new property still finds the semantic
+     * tags it now maps to.
+     *
+     * @param annotationSearcher the searcher over the annotation index, used to find replacements of annotations
+     * @param propertyURI        the property to summarize
+     * @param annotationDocs     the indexed annotations of this property
+     * @return an entry for each summary that should be indexed
+     * @throws IOException if the replacements of an annotation could not be read from the annotation index
+     */
+    private List<SummaryEntry> createSummaryEntries(IndexSearcher annotationSearcher,
+                                                    URI propertyURI,
+                                                    List<Document> annotationDocs) throws IOException {
+        Map<Set<URI>, List<Document>> annotationDocsBySemanticTags = new LinkedHashMap<>();
+        for (Document doc : annotationDocs) {
+            Set<URI> semanticTags = new HashSet<>();
+            if (doc.getValues("replacedby").length == 0) {
+                for (String target : doc.getValues("target")) {
+                    semanticTags.add(URI.create(target));
+                }
+            }
+            else {
+                semanticTags.addAll(findReplacementSemanticTags(annotationSearcher, doc));
+            }
+            if (!semanticTags.isEmpty()) {
+                if (!annotationDocsBySemanticTags.containsKey(semanticTags)) {
+                    annotationDocsBySemanticTags.put(semanticTags, new ArrayList<Document>());
+                }
+                annotationDocsBySemanticTags.get(semanticTags).add(doc);
+            }
+        }
+
+        List<SummaryEntry> entries = new ArrayList<>();
+        for (Map.Entry<Set<URI>, List<Document>> group : annotationDocsBySemanticTags.entrySet()) {
+            Document first = group.getValue().get(0);
+            String propertyType = first.get("propertytype") != null ? first.get("propertytype") : UNTYPED;
+            String propertyValue = first.get("property");
+
+            List<URI> annotationURIs = new ArrayList<>();
+            Set<URI> sources = new HashSet<>();
+            float topScore = Float.NEGATIVE_INFINITY;
+            for (Document doc : group.getValue()) {
+                annotationURIs.add(URI.create(doc.get("uri")));
+                if (doc.get("source") != null) {
+                    sources.add(URI.create(doc.get("source")));
+                }
+                topScore = Math.max(topScore, Float.parseFloat(doc.get("quality")));
+            }
+
+            AnnotationSummary summary = new SimpleAnnotationSummary(null,
+                                                                    propertyURI,
+                                                                    first.get("propertytype"),
+                                                                    propertyValue,
+                                                                    group.getKey(),
+                                                                    annotationURIs,
+                                                                    topScore,
+                                                                    sources);
+            String summaryId = generateSummaryID(propertyType, propertyValue, group.getKey());
+            entries.add(new SummaryEntry(summary, summaryId, propertyType, topScore, sources));
+        }
+        return entries;
+    }
+
+    /**
+     * Finds the semantic tags of the current annotations that replace a replaced annotation, directly or through other
+     * replaced annotations, and that annotate a different property to the replaced annotation.
+     *
+     * @param annotationSearcher the searcher over the annotation index
+     * @param replacedDoc        the indexed annotation that has been replaced
+     * @return the semantic tags of its current replacements
+     * @throws IOException if the annotation index could not be read
+     */
+    private Set<URI> findReplacementSemanticTags(IndexSearcher annotationSearcher, Document replacedDoc)
+            throws IOException {
+        Set<URI> semanticTags = new HashSet<>();
+        Set<String> visited = new HashSet<>();
+        Deque<String> pending = new ArrayDeque<>();
+        visited.add(replacedDoc.get("uri"));
+        pending.add(replacedDoc.get("uri"));
+        while (!pending.isEmpty()) {
+            for (Document doc : findDocuments(annotationSearcher, new Term("replaces", pending.remove()))) {
+                if (visited.add(doc.get("uri"))) {
+                    if (doc.getValues("replacedby").length == 0 &&
+                            !doc.get("propertyuri").equals(replacedDoc.get("propertyuri"))) {
+                        for (String target : doc.getValues("target")) {
+                            semanticTags.add(URI.create(target));
+                        }
+                    }
+                    pending.add(doc.get("uri"));
+                }
+            }
+        }
+        return semanticTags;
     }
 
-    public void clearAnnotationSummaryIndex() {
+    /**
+     * Finds the properties of every annotation replaced, directly or through other replaced annotations, by the given
+     * annotations.  Summaries of these properties depend on the semantic tags of the annotations that replace them.
+     *
+     * @param annotationSearcher the searcher over the annotation index
+     * @param annotationURIs     the annotations to find the replaced properties of
+     * @return the URIs of the properties of all replaced annotations
+     * @throws IOException if the annotation index could not be read
+     */
+    private Set<URI> findReplacedPropertyURIs(IndexSearcher annotationSearcher, Collection<URI> annotationURIs)
+            throws IOException {
+        Set<URI> propertyURIs = new LinkedHashSet<>();
+        Set<String> visited = new HashSet<>();
+        Deque<String> pending = new ArrayDeque<>();
+        for (URI annotationURI : annotationURIs) {
+            if (visited.add(annotationURI.toString())) {
+                pending.add(annotationURI.toString());
+            }
+        }
+        while (!pending.isEmpty()) {
+            for (Document doc : findDocuments(annotationSearcher, new Term("uri", pending.remove()))) {
+                for (String replaces : doc.getValues("replaces")) {
+                    if (visited.add(replaces)) {
+                        pending.add(replaces);
+                        for (Document replacedDoc : findDocuments(annotationSearcher, new Term("uri", replaces))) {
+                            propertyURIs.add(URI.create(replacedDoc.get("propertyuri")));
+                        }
+                    }
+                }
+            }
+        }
+        return propertyURIs;
+    }
 
+    private void updatePropertyIndices(IndexSearcher annotationSearcher,
+                                       Collection<URI> propertyURIs,
+                                       Collection<String> propertyTypes) throws IOException {
+        IndexWriter propertyIndexWriter = obtainUpdatingIndexWriter(getPropertyIndex());
+        IndexWriter propertyTypeIndexWriter = obtainUpdatingIndexWriter(getPropertyTypeIndex());
+        try {
+            for (URI propertyURI : propertyURIs) {
+                Term propertyTerm = new Term("uri", propertyURI.toString());
+                List<Document> annotationDocs =
+                        findDocuments(annotationSearcher, new Term("propertyuri", propertyURI.toString()));
+                if (annotationDocs.isEmpty()) {
+                    // no longer used by any annotation
+                    propertyUriToSourcesMap.remove(propertyURI);
+                    propertyIndexWriter.deleteDocuments(propertyTerm);
+                }
+                else {
+                    Document first = annotationDocs.get(0);
+                    Property property = first.get("propertytype") != null
+                            ? new SimpleTypedProperty(propertyURI, first.get("propertytype"), first.get("property"))
+                            : new SimpleUntypedProperty(propertyURI, first.get("property"));
+                    propertyUriToSourcesMap.put(propertyURI, collectSources(annotationDocs));
+                    propertyIndexWriter.updateDocument(propertyTerm, createPropertyDocument(property));
+                }
+            }
+
+            for (String propertyType : propertyTypes) {
+                Term propertyTypeTerm = new Term("id", propertyType);
+                List<Document> annotationDocs =
+                        findDocuments(annotationSearcher, new Term("propertytypeid", propertyType));
+                if (annotationDocs.isEmpty()) {
+                    // no longer used by any annotation
+                    propertyTypeToSourcesMap.remove(propertyType);
+                    propertyTypeIndexWriter.deleteDocuments(propertyTypeTerm);
+                }
+                else {
+                    propertyTypeToSourcesMap.put(propertyType, collectSources(annotationDocs));
+                    propertyTypeIndexWriter.updateDocument(propertyTypeTerm, createPropertyTypeDocument(propertyType));
+                }
+            }
+        }
+        finally {
+            propertyIndexWriter.close();
+            propertyTypeIndexWriter.close();
+        }
+    }
+
+    private Collection<URI> collectSources(List<Document> annotationDocs) {
+        Set<URI> sources = new HashSet<>();
+        for (Document doc : annotationDocs) {
+            if (doc.get("source") != null) {
+                sources.add(URI.create(doc.get("source")));
+            }
+        }
+        return sources;
+    }
+
+    private List<Document> findDocuments(IndexSearcher searcher, Term term) throws IOException {
+        List<Document> documents = new ArrayList<>();
+        // no more documents than contain the term can match, so collect only that many hits
+        int docFreq = searcher.getIndexReader().docFreq(term);
+        if (docFreq > 0) {
+            for (ScoreDoc scoreDoc : searcher.search(new TermQuery(term), docFreq).scoreDocs) {
+                documents.add(searcher.doc(scoreDoc.doc));
+            }
+        }
+        return documents;
+    }
+
+    /**
+     * Creates a document for each item using the supplied factory, and adds it to the index.  If this indexer is
+     * configured to use more than one thread, and there are enough items to make it worthwhile, items are partitioned
+     * and the documents for each partition are produced concurrently by the worker pool.  Documents are always added
+     * in the order of the items they were created from, so the index is the same however many threads build it.
+     *
+     * @param items       the items to index
+     * @param indexWriter the writer to add documents to
+     * @param factory     the factory that creates a document from each item; may return null to skip an item
+     * @param <T>         the type of item indexed
+     * @throws IOException if a document could not be added to the index
+     */
+    protected <T> void addDocuments(List<T> items,
+                                    final IndexWriter indexWriter,
+                                    final DocumentFactory<T> factory) throws IOException {
+        if (getIndexingThreads() <= 1 || items.size() < 2 * MIN_PARTITION_SIZE) {
+            for (T item : items) {
+                Document doc = factory.createDocument(item);
+                if (doc != null) {
+                    indexWriter.addDocument(doc);
+                }
+            }
+        }
+        else {
+            // only a few partitions are created ahead of the writer, so documents don't accumulate in memory
+            int maxPending = 2 * getIndexingThreads();
+            Deque<Future<List<Document>>> pending = new ArrayDeque<>();
+            try {
+                for (int start = 0; start < items.size(); start += MIN_PARTITION_SIZE) {
+                    if (pending.size() == maxPending) {
+                        indexWriter.addDocuments(await(pending.removeFirst()));
+                    }
+                    final List<T> partition = items.subList(start, Math.min(start + MIN_PARTITION_SIZE, items.size()));
+                    pending.add(getWorkerExecutor().submit(new Callable<List<Document>>() {
+                        @Override public List<Document> call() {
+                            List<Document> docs = new ArrayList<>(partition.size());
+                            for (T item : partition) {
+                                Document doc = factory.createDocument(item);
+                                if (doc != null) {
+                                    docs.add(doc);
+                                }
+                            }
+                            return docs;
+                        }
+                    }));
+                }
+                while (!pending.isEmpty()) {
+                    indexWriter.addDocuments(await(pending.removeFirst()));
+                }
+            }
+            finally {
+                // don't leave other partitions running if one failed
+                for (Future<List<Document>> future : pending) {
+                    future.cancel(true);
+                }
+            }
+        }
+    }
+
+    private void awaitAll(List<Future<Void>> futures) throws IOException {
+        try {
+            for (Future<Void> future : futures) {
+                await(future);
+            }
+        }
+        finally {
+            // don't leave other partitions running if one failed
+            for (Future<Void> future : futures) {
+                future.cancel(true);
+            }
+        }
+    }
+
+    private <T> T await(Future<T> future) throws IOException {
+        try {
+            return future.get();
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted whilst waiting for indexing to complete");
+        }
+        catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            }
+            else if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            else if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            else {
+                throw new IOException("Indexing failed", cause);
+            }
+        }
+    }
+
+    private synchronized ExecutorService getWorkerExecutor() {
+        if (workerExecutor == null) {
+            // idle workers time out, so an indexer that has finished building holds no threads
+            ThreadPoolExecutor executor = new ThreadPoolExecutor(getIndexingThreads(),
+                                                                 getIndexingThreads(),
+                                                                 60,
+                                                                 TimeUnit.SECONDS,
+                                                                 new LinkedBlockingQueue<Runnable>(),
+                                                                 new IndexerThreadFactory("worker"));
+            executor.allowCoreThreadTimeOut(true);
+            workerExecutor = executor;
+        }
+        return workerExecutor;
+    }
+
+    private synchronized void shutdownWorkerExecutor() {
+        if (workerExecutor != null) {
+            workerExecutor.shutdownNow();
+            workerExecutor = null;
+        }
     }
 
     @Override
@@ -508,35 +1671,37 @@ public class ZoomaLuceneIndexer extends Initializable {
         clearAnnotationIndex();
         clearAnnotationCountIndex();
         clearPropertyIndices();
-        getLog().info("Querying underlying datasources for annotations to index...");
-        Collection<Annotation> annotations = getAnnotationDAO().read();
-        getLog().info("Total annotations:" + annotations.size());
-
-        int count = getMaxEntityCount() == -1 ? annotations.size() : getMaxEntityCount();
-        getLog().info("Total annotation to index:" + count);
-        createAnnotationCountIndex(count);
-        Map<URI, AnnotationProvenance> provenanceMap = createAnnotationIndex(new ArrayList<>(annotations));
-        createAnnotationSummaryIndex(getAnnotationSummaryDAO(), provenanceMap);
-
         getLog().info("Querying underlying datasources for properties to index...");
         Collection<Property> properties = getMaxEntityCount() == -1
                 ? getPropertyDAO().read()
                 : getPropertyDAO().read(getMaxEntityCount(), 0);
-        getLog().info("Building lucene indices...");
-        createPropertyIndices(properties);
+
+        if (getAnnotationPageSize() > 0) {
+            getLog().info("Building lucene indices from annotations read in pages of " + getAnnotationPageSize() +
+                                  " using " + getIndexingThreads() + " threads...");
+            createIndices(getAnnotationDAO(), properties);
+        }
+        else {
+            getLog().info("Querying underlying datasources for annotations to index...");
+            Collection<Annotation> annotations = getAnnotationDAO().read();
+            getLog().info("Total annotations:" + annotations.size());
+
+            int count = getMaxEntityCount() == -1 ? annotations.size() : getMaxEntityCount();
+            getLog().info("Total annotation to index:" + count);
+
+            getLog().info("Building lucene indices using " + getIndexingThreads() + " threads...");
+            createIndices(new ArrayList<>(annotations), count, properties);
+        }
 
         getLog().info("Lucene indexing complete!");
     }
 
     @Override
     protected void doTermination() throws Exception {
-        // clear all indices
-        getLog().info("Cleaning lucene indices...");
-        clearAnnotationSummaryIndex();
-        clearAnnotationIndex();
-        clearAnnotationCountIndex();
-        clearPropertyIndices();
+        // stop any indexing workers
+        shutdownWorkerExecutor();
 
+        // indices are left in place, as search services read them after the indexer has finished
         // close all open resources
         getLog().info("Closing all open lucene indices...");
         propertyIndex.close();
@@ -544,16 +1709,49 @@ public class ZoomaLuceneIndexer extends Initializable {
         annotationCountIndex.close();
         annotationIndex.close();
         annotationSummaryIndex.close();
+        if (propertySuggestIndex != null) {
+            propertySuggestIndex.close();
+        }
         analyzer.close();
         getLog().info(getClass().getSimpleName() + " shutdown OK.");
     }
 
-    protected IndexWriter obtainIndexWriter(Directory directory) throws IOException {
+    protected void clearIndex(Directory directory) throws IOException {
+        IndexWriter indexWriter = obtainUpdatingIndexWriter(directory);
+        try {
+            indexWriter.deleteAll();
+            indexWriter.commit();
+        }
+        finally {
+            indexWriter.close();
+        }
+    }
+
+    /**
+     * Creates the configuration for a writer to one of the indices built by this indexer.  Only adjacent segments are
+     * merged, so documents keep the order they were added in, and hits with equal scores are returned in the same
+     * order whenever the indices are rebuilt.
+     *
+     * @return a new index writer configuration
+     */
+    protected IndexWriterConfig createIndexWriterConfig() {
         IndexWriterConfig config = new IndexWriterConfig(getAnalyzer());
+        config.setMergePolicy(new LogByteSizeMergePolicy());
+        return config;
+    }
+
+    protected IndexWriter obtainIndexWriter(Directory directory) throws IOException {
+        IndexWriterConfig config = createIndexWriterConfig();
         config.setOpenMode(IndexWriterConfig.OpenMode.CREATE);
         return new IndexWriter(directory, config);
     }
 
+    protected IndexWriter obtainUpdatingIndexWriter(Directory directory) throws IOException {
+        IndexWriterConfig config = createIndexWriterConfig();
+        config.setOpenMode(IndexWriterConfig.OpenMode.CREATE_OR_APPEND);
+        return new IndexWriter(directory, config);
+    }
+
     /**
      * Returns a float value that is the quality score for the given annotation.
      * <p/>
@@ -575,23 +1773,30 @@ public class ZoomaLuceneIndexer extends Initializable {
         return score;
     }
 
-    private Map<String, String[]> idKeyContentMap = Collections.synchronizedMap(new HashMap<String, String[]>());
-
-    private String generateEncodedID(String... contents) {
+    /**
+     * Generates a hex encoded SHA-1 ID from the concatenation of the given contents.  Each ID is recorded, according to
+     * the configured {@link IDCollisionCheck}, so that different contents that generate the same ID are detected.
+     *
+     * @param contents the contents to generate an ID from
+     * @return the generated ID
+     * @throws RuntimeException if the ID has already been generated from different contents
+     */
+    String generateEncodedID(String... contents) {
         StringBuilder idContent = new StringBuilder();
         for (String s : contents) {
             idContent.append(s);
         }
-        try {
-            // encode the content using SHA-1
-            MessageDigest messageDigest = MessageDigest.getInstance("SHA-1");
-            byte[] digest = messageDigest.digest(idContent.toString().getBytes("UTF-8"));
 
-            // now translate the resulting byte array to hex
-            String idKey = getHexRepresentation(digest);
-            if (idKeyContentMap.containsKey(idKey)) {
+        // encode the content using SHA-1
+        byte[] digest = messageDigest.get().digest(idContent.toString().getBytes(StandardCharsets.UTF_8));
+
+        IDCollisionCheck check = idCollisionCheck;
+        if (check != IDCollisionCheck.NONE) {
+            Object recorded = check == IDCollisionCheck.CONTENT ? contents : fingerprint(contents);
+            Object previous = idKeyContentMap.putIfAbsent(ByteBuffer.wrap(digest), recorded);
+            if (previous instanceof String[]) {
                 // key collision, check contents
-                String[] collisionContents = idKeyContentMap.get(idKey);
+                String[] collisionContents = (String[]) previous;
                 if (contents.length != collisionContents.length) {
                     // mismatched key content length, genuine key collision
                     throw new RuntimeException(
@@ -608,19 +1813,37 @@ public class ZoomaLuceneIndexer extends Initializable {
                     }
                 }
             }
-            else {
-                idKeyContentMap.put(idKey, contents);
+            else if (previous != null && !previous.equals(recorded)) {
+                // recorded fingerprint doesn't match, genuine key collision
+                throw new RuntimeException(
+                        "Key collision (content fingerprint mismatch) trying to generate unique key for " + idContent);
             }
-
-            getLog().trace("Generated new " + ENCODING + " based, hex encoded ID string: " + idKey);
-            return idKey;
         }
-        catch (UnsupportedEncodingException e) {
-            throw new IllegalStateException("UTF-8 not supported!");
-        }
-        catch (NoSuchAlgorithmException e) {
-            throw new RuntimeException(ENCODING + " algorithm not available, this is required to generate ID");
+
+        // now translate the resulting byte array to hex
+        String idKey = getHexRepresentation(digest);
+        getLog().trace("Generated new " + ENCODING + " based, hex encoded ID string: " + idKey);
+        return idKey;
+    }
+
+    /**
+     * Returns a 64-bit FNV-1a hash of the given contents.  The length of each element is hashed along with its
+     * characters, so contents that only differ in how their concatenation is split between elements have different
+     * fingerprints.
+     *
+     * @param contents the contents to fingerprint
+     * @return the fingerprint of the contents
+     */
+    private Long fingerprint(String... contents) {
+        long hash = 0xcbf29ce484222325L;
+        hash = (hash ^ contents.length) * 0x100000001b3L;
+        for (String s : contents) {
+            hash = (hash ^ s.length()) * 0x100000001b3L;
+            for (int i = 0; i < s.length(); i++) {
+                hash = (hash ^ s.charAt(i)) * 0x100000001b3L;
+            }
         }
+        return hash;
     }
 
     private String getHexRepresentation(byte[] raw) {
@@ -633,4 +1856,133 @@ public class ZoomaLuceneIndexer extends Initializable {
         }
         return hex.toString();
     }
+
+    /**
+     * Creates the document that indexes a single item.  Implementations must be safe to call from several threads at
+     * once.
+     *
+     * @param <T> the type of item indexed
+     */
+    protected interface DocumentFactory<T> {
+        /**
+         * Creates a document for the given item
+         *
+         * @param item the item to index
+         * @return the document to add to the index, or null if this item should not be indexed
+         */
+        Document createDocument(T item);
+    }
+
+    /**
+     * An annotation summary, along with the ID, property type, best score and sources evaluated for it before indexing
+     */
+    protected static class SummaryEntry {
+        private final AnnotationSummary summary;
+        private final String id;
+        private final String propertyType;
+        private final float topScore;
+        private final Set<URI> sources;
+
+        private SummaryEntry(AnnotationSummary summary,
+                             String id,
+                             String propertyType,
+                             float topScore,
+                             Set<URI> sources) {
+            this.summary = summary;
+            this.id = id;
+            this.propertyType = propertyType;
+            this.topScore = topScore;
+            this.sources = sources;
+        }
+    }
+
+    /**
+     * The number of annotations that use a property value, and the sources of those annotations
+     */
+    private static class PropertySuggestion {
+        private long annotationCount;
+        private final Set<BytesRef> sources = new HashSet<>();
+    }
+
+    /**
+     * Supplies property values to a suggester, weighted by the number of annotations that use them and with the sources
+     * of those annotations as contexts
+     */
+    private static class PropertySuggestionIterator implements InputIterator {
+        private final Iterator<Map.Entry<String, PropertySuggestion>> entries;
+        private PropertySuggestion current;
+
+        private PropertySuggestionIterator(Map<String, PropertySuggestion> suggestions) {
+            this.entries = suggestions.entrySet().iterator();
+        }
+
+        @Override public BytesRef next() {
+            if (entries.hasNext()) {
+                Map.Entry<String, PropertySuggestion> entry = entries.next();
+                current = entry.getValue();
+                return new BytesRef(entry.getKey());
+            }
+            else {
+                current = null;
+                return null;
+            }
+        }
+
+        @Override public long weight() {
+            return current.annotationCount;
+        }
+
+        @Override public BytesRef payload() {
+            return null;
+        }
+
+        @Override public boolean hasPayloads() {
+            return false;
+        }
+
+        @Override public Set<BytesRef> contexts() {
+            return current.sources;
+        }
+
+        @Override public boolean hasContexts() {
+            return true;
+        }
+    }
+
+    private static class IndexerThreadFactory implements ThreadFactory {
+        private final String role;
+        private final AtomicInteger count = new AtomicInteger();
+
+        private IndexerThreadFactory(String role) {
+            this.role = role;
+        }
+
+        @Override public Thread newThread(Runnable r) {
+            Thread t = new Thread(r, "zooma-indexer-" + role + "-" + count.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        }
+    }
+
+    /**
+     * The ways in which generated summary IDs can be checked for collisions, that is, for IDs generated from different
+     * contents.
+     */
+    public enum IDCollisionCheck {
+        /**
+         * Records the full contents of every generated ID, so any collision is detected.  Memory use grows with the
+         * contents of every summary indexed.
+         */
+        CONTENT,
+        /**
+         * Records a 64-bit fingerprint of the contents of every generated ID.  Collisions are detected unless the
+         * fingerprints of the colliding contents also collide, which is vanishingly unlikely, in a fraction of the
+         * memory.
+         */
+        HASH,
+        /**
+         * Records nothing, so collisions are not detected
+         */
+        NONE
+    }
 }
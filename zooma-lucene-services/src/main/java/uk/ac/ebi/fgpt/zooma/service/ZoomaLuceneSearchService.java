@@ -6,17 +6,26 @@ import org.apache.lucene.analysis.en.EnglishAnalyzer;
 import org.apache.lucene.analysis.tokenattributes.CharTermAttribute;
 import org.apache.lucene.analysis.util.CharArraySet;
 import org.apache.lucene.document.Document;
-import org.apache.lucene.index.DirectoryReader;
 import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.index.LeafReaderContext;
+import org.apache.lucene.index.ReaderUtil;
 import org.apache.lucene.index.Term;
 import org.apache.lucene.queryparser.classic.QueryParser;
 import org.apache.lucene.search.BooleanClause;
 import org.apache.lucene.search.BooleanQuery;
+import org.apache.lucene.search.CachingWrapperQuery;
+import org.apache.lucene.search.FieldDoc;
 import org.apache.lucene.search.IndexSearcher;
 import org.apache.lucene.search.PrefixQuery;
 import org.apache.lucene.search.Query;
+import org.apache.lucene.search.QueryCachingPolicy;
 import org.apache.lucene.search.ScoreDoc;
+import org.apache.lucene.search.SearcherFactory;
+import org.apache.lucene.search.SearcherManager;
+import org.apache.lucene.search.Sort;
+import org.apache.lucene.search.SortField;
 import org.apache.lucene.search.TermQuery;
+import org.apache.lucene.search.TopDocs;
 import org.apache.lucene.search.TopScoreDocCollector;
 import org.apache.lucene.search.similarities.Similarity;
 import org.apache.lucene.search.spans.SpanFirstQuery;
@@ -25,21 +34,36 @@ import org.apache.lucene.search.spans.SpanNearQuery;
 import org.apache.lucene.search.spans.SpanQuery;
 import org.apache.lucene.search.spans.SpanTermQuery;
 import org.apache.lucene.store.Directory;
+import org.apache.lucene.util.BytesRef;
 import uk.ac.ebi.fgpt.zooma.Initializable;
 import uk.ac.ebi.fgpt.zooma.datasource.ZoomaDAO;
+import uk.ac.ebi.fgpt.zooma.exception.InvalidCursorException;
 import uk.ac.ebi.fgpt.zooma.exception.QueryCreationException;
 import uk.ac.ebi.fgpt.zooma.model.Identifiable;
+import uk.ac.ebi.fgpt.zooma.util.CursorPage;
+import uk.ac.ebi.fgpt.zooma.util.ReloadListener;
+import uk.ac.ebi.fgpt.zooma.util.ReloadNotifier;
 import uk.ac.ebi.fgpt.zooma.util.SearchStringProcessor;
 
 import java.io.IOException;
 import java.io.StringReader;
 import java.net.URI;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.CopyOnWriteArraySet;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
 
 /**
  * An abstract implementation of a lucene search service for ZOOMA.  This class provides a convenience method for
@@ -48,25 +72,45 @@ import java.util.Set;
  * results and collecting the results into a list.
  * <p/>
  * Implementations are free to concentrate on the business of generating the queries without worrying about performing
- * them and collecting results.  The one stipulation is that you should always call {@link #init()} on this class once
+ * them and collecting results.  Searchers are obtained from a {@link SearcherManager}, so if the underlying index is
+ * rebuilt it can be reopened with {@link #maybeRefresh()} (or periodically, by setting a refresh interval) without
+ * restarting the service.  The one stipulation is that you should always call {@link #init()} on this class once
  * the index has been set in order to
  *
  * @author Tony Burdett
  * @date 03/04/12
  */
-public abstract class ZoomaLuceneSearchService extends Initializable {
+public abstract class ZoomaLuceneSearchService extends Initializable implements ReloadNotifier {
+    private static final int PAGE_SIZE = 100;
+    private static final int MAX_SOURCE_FILTERS = 256;
+
     private Directory index;
     private Analyzer analyzer;
     private Similarity similarity;
 
-    private IndexReader reader;
-    private IndexSearcher searcher;
+    // analyzer used to tokenize query strings; thread-safe, and reuses token streams per thread
+    private volatile Analyzer queryAnalyzer;
+    private volatile boolean terminated = false;
+
+    // interval, in milliseconds, at which the index is polled for changes; -1 to only refresh on request
+    private long refreshInterval = -1;
+
+    private SearcherManager searcherManager;
+    private ScheduledExecutorService refreshExecutor;
+
+    private final Collection<ReloadListener> reloadListeners = new CopyOnWriteArraySet<>();
+
+    // source filters for the current reader, keyed by field and then sorted source URIs, in least recently used order
+    private final Map<List<String>, Query> sourceFilters = new LinkedHashMap<List<String>, Query>(16, 0.75f, true) {
+        @Override protected boolean removeEldestEntry(Map.Entry<List<String>, Query> eldest) {
+            return size() > MAX_SOURCE_FILTERS;
+        }
+    };
 
     protected enum QUERY_TYPE {
         EXACT,
         FULL,
-        PREFIX,
-        SUFFIX
+        PREFIX
     }
 
     public Directory getIndex() {
@@ -85,28 +129,223 @@ public abstract class ZoomaLuceneSearchService extends Initializable {
         this.similarity = similarity;
     }
 
-    public IndexReader getReader() {
-        return reader;
+    public long getRefreshInterval() {
+        return refreshInterval;
+    }
+
+    /**
+     * Sets the interval at which the underlying index is checked for changes.  If the index has been rebuilt or
+     * updated, new searches will see the changes once the next check has completed.  By default, this is -1 and the
+     * index is only reopened on an explicit call to {@link #maybeRefresh()}.
+     *
+     * @param refreshInterval the poll interval in milliseconds, or -1 to disable polling
+     */
+    public void setRefreshInterval(long refreshInterval) {
+        this.refreshInterval = refreshInterval;
+    }
+
+    public Collection<ReloadListener> getReloadListeners() {
+        return reloadListeners;
+    }
+
+    /**
+     * Sets the listeners to notify whenever this service's index has changed and been reopened, so that any results
+     * derived from the old index can be discarded.
+     *
+     * @param reloadListeners the listeners to notify after a refresh
+     */
+    public void setReloadListeners(Collection<ReloadListener> reloadListeners) {
+        this.reloadListeners.clear();
+        this.reloadListeners.addAll(reloadListeners);
+    }
+
+    @Override public void addReloadListener(ReloadListener listener) {
+        reloadListeners.add(listener);
+    }
+
+    @Override public void removeReloadListener(ReloadListener listener) {
+        reloadListeners.remove(listener);
+    }
+
+    /**
+     * Acquires the current searcher over this service's index.  Every searcher acquired by this method must be released
+     * with {@link #releaseSearcher(IndexSearcher)} once finished with, as the underlying reader may otherwise never be
+     * closed after the index is refreshed.
+     *
+     * @return the current searcher
+     * @throws IOException if the searcher could not be acquired
+     */
+    protected IndexSearcher acquireSearcher() throws IOException {
+        return searcherManager.acquire();
+    }
+
+    /**
+     * Releases a searcher previously obtained from {@link #acquireSearcher()}.
+     *
+     * @param searcher the searcher to release
+     * @throws IOException if the underlying reader could not be closed
+     */
+    protected void releaseSearcher(IndexSearcher searcher) throws IOException {
+        searcherManager.release(searcher);
     }
 
-    public IndexSearcher getSearcher() {
+    /**
+     * Creates a new searcher over the supplied reader.  This is invoked whenever the index is (re)opened.
+     *
+     * @param reader the reader to search over
+     * @return a searcher configured with this service's similarity
+     */
+    protected IndexSearcher newSearcher(IndexReader reader) {
+        IndexSearcher searcher = new IndexSearcher(reader);
+        if (similarity != null) {
+            searcher.setSimilarity(similarity);
+        }
         return searcher;
     }
 
+    /**
+     * Checks the index for changes and, if there are any, reopens it so that subsequent searches see the changes.
+     * Searches already in progress complete against the searcher they started with.  Any registered {@link
+     * ReloadListener}s are notified once the new searcher is in place.
+     *
+     * @return true if the index had changed and was reopened, false otherwise
+     * @throws IOException if the index could not be reopened
+     */
+    public boolean maybeRefresh() throws IOException {
+        if (!isReady()) {
+            getLog().debug(getClass().getSimpleName() + " is not yet initialized, refresh ignored");
+            return false;
+        }
+
+        IndexSearcher before = acquireSearcher();
+        try {
+            searcherManager.maybeRefreshBlocking();
+            IndexSearcher after = acquireSearcher();
+            try {
+                boolean changed = after != before;
+                if (changed) {
+                    getLog().info("Index for " + getClass().getSimpleName() + " changed, searcher refreshed");
+                    doRefresh();
+                    for (ReloadListener listener : getReloadListeners()) {
+                        listener.reloaded(getClass().getSimpleName());
+                    }
+                }
+                return changed;
+            }
+            finally {
+                releaseSearcher(after);
+            }
+        }
+        finally {
+            releaseSearcher(before);
+        }
+    }
+
+    /**
+     * Invoked after the index has been reopened following a change.  Implementations that derive state from the index
+     * contents at initialization time should override this method to recalculate that state.  This implementation
+     * does nothing.
+     *
+     * @throws IOException if reading from the index failed
+     */
+    protected void doRefresh() throws IOException {
+    }
+
+    /**
+     * Returns the analyzer used to tokenize query strings.  A single analyzer is shared by all queries formulated by
+     * this service: analyzers are thread-safe, and reuse token stream components for each thread that uses them.  The
+     * analyzer is created when this service is initialized, and closed when it is terminated.
+     *
+     * @return the analyzer used to formulate queries
+     * @throws IllegalStateException if this service has not been initialized, or has been terminated
+     */
+    protected Analyzer getQueryAnalyzer() throws IllegalStateException {
+        Analyzer result = queryAnalyzer;
+        if (result == null) {
+            if (terminated) {
+                throw new IllegalStateException(getClass().getSimpleName() + " has been terminated, " +
+                                                        "queries can no longer be formulated");
+            }
+            else {
+                throw new IllegalStateException(getClass().getSimpleName() + " has not been initialized, " +
+                                                        "queries cannot be formulated yet");
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Creates the analyzer used to tokenize query strings.  This is an {@link EnglishAnalyzer} without stopwords, as
+     * stopwords are retained in ZOOMA indices.  Note that this is not necessarily the analyzer the index was built
+     * with.
+     *
+     * @return a new query analyzer
+     */
+    protected Analyzer createQueryAnalyzer() {
+        return new EnglishAnalyzer(CharArraySet.EMPTY_SET);
+    }
+
     @Override
     protected void doInitialization() throws IOException {
-        // initialize searcher and query parser from index
-        this.reader = DirectoryReader.open(getIndex());
-        this.searcher = new IndexSearcher(reader);
-        if (similarity != null) {
-            this.searcher.setSimilarity(similarity);
+        // create the analyzer shared by all queries
+        synchronized (this) {
+            if (terminated) {
+                throw new IllegalStateException(getClass().getSimpleName() + " has been terminated");
+            }
+            if (queryAnalyzer == null) {
+                queryAnalyzer = createQueryAnalyzer();
+            }
+        }
+
+        // initialize searcher manager from index
+        this.searcherManager = new SearcherManager(getIndex(), new SearcherFactory() {
+            @Override public IndexSearcher newSearcher(IndexReader reader, IndexReader previousReader) {
+                // filters cached against the previous reader are no use for the new one
+                clearSourceFilters();
+                return ZoomaLuceneSearchService.this.newSearcher(reader);
+            }
+        });
+
+        // if required, poll the index for changes
+        if (refreshInterval > 0) {
+            refreshExecutor = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+                @Override public Thread newThread(Runnable r) {
+                    Thread t = new Thread(r, ZoomaLuceneSearchService.this.getClass().getSimpleName() + "-refresh");
+                    t.setDaemon(true);
+                    return t;
+                }
+            });
+            refreshExecutor.scheduleWithFixedDelay(new Runnable() {
+                @Override public void run() {
+                    try {
+                        maybeRefresh();
+                    }
+                    catch (Exception e) {
+                        getLog().error("Failed to refresh index for " +
+                                               ZoomaLuceneSearchService.this.getClass().getSimpleName(), e);
+                    }
+                }
+            }, refreshInterval, refreshInterval, TimeUnit.MILLISECONDS);
         }
     }
 
     @Override
     protected void doTermination() throws Exception {
-        // close index reader
-        reader.close();
+        // stop polling and close index readers
+        if (refreshExecutor != null) {
+            refreshExecutor.shutdownNow();
+            refreshExecutor = null;
+        }
+        if (searcherManager != null) {
+            searcherManager.close();
+        }
+        synchronized (this) {
+            terminated = true;
+            if (queryAnalyzer != null) {
+                queryAnalyzer.close();
+                queryAnalyzer = null;
+            }
+        }
     }
 
     /**
@@ -149,18 +388,89 @@ public abstract class ZoomaLuceneSearchService extends Initializable {
     }
 
     /**
-     * Generate a lucene query from the supplied field and suffix.  Queries are constrained to hit only documents that
-     * contain the supplied pattern within the given field.
+     * Generate a lucene query that hits documents where the supplied reversed field contains a term ending with the
+     * supplied suffix, ignoring case.  The field must have been indexed with terms reversed by {@link
+     * ZoomaLuceneIndexer#reverseTerm(String)}, so that the suffix can be looked up as a prefix of the reversed terms
+     * rather than by enumerating every term in the field.
      *
-     * @param field  the field to query
-     * @param suffix the suffix to search for
-     * @return the parsed query
-     * @throws QueryCreationException if the query could not be created
+     * @param reversedField the field containing reversed terms
+     * @param suffix        the suffix to search for
+     * @return the prefix query over reversed terms
+     */
+    protected Query formulateReversedSuffixQuery(String reversedField, String suffix) {
+        return new PrefixQuery(new Term(reversedField, ZoomaLuceneIndexer.reverseTerm(suffix)));
+    }
+
+    /**
+     * Returns a non-scoring query that matches documents containing any of the supplied sources in the given field.
+     * Filters are cached for each distinct set of sources, and each filter caches the documents it matches in every
+     * segment of the index, so repeated searches restricted to the same sources do not need to read the postings for
+     * each source again.  The cache is cleared whenever the index is reopened.
+     *
+     * @param field   the field containing source URIs
+     * @param sources the sources to match, in any order
+     * @return the cached filter
+     */
+    protected Query formulateSourceFilter(String field, URI... sources) {
+        Set<String> sortedSources = new TreeSet<>();
+        for (URI source : sources) {
+            sortedSources.add(source.toString());
+        }
+        List<String> key = new ArrayList<>();
+        key.add(field);
+        key.addAll(sortedSources);
+
+        synchronized (sourceFilters) {
+            Query filter = sourceFilters.get(key);
+            if (filter == null) {
+                List<Query> sqs = new ArrayList<>();
+                for (String source : sortedSources) {
+                    sqs.add(formulateExactQuery(field, source));
+                }
+                Query sq = formulateCombinedQuery(false, false, sqs.toArray(new Query[sqs.size()]));
+                filter = new CachingWrapperQuery(sq, QueryCachingPolicy.ALWAYS_CACHE);
+                sourceFilters.put(key, filter);
+            }
+            return filter;
+        }
+    }
+
+    /**
+     * Discards all cached source filters.  Filters are cached per index reader, so this is invoked whenever the index
+     * is reopened.
+     */
+    protected void clearSourceFilters() {
+        synchronized (sourceFilters) {
+            sourceFilters.clear();
+        }
+    }
+
+    /**
+     * Returns the number of source filters currently cached
+     *
+     * @return the number of cached source filters
      */
-    protected Query formulateSuffixQuery(String field, String suffix) {
-        return formulateQuery(field, suffix, QUERY_TYPE.SUFFIX, false);
+    protected int getSourceFilterCount() {
+        synchronized (sourceFilters) {
+            return sourceFilters.size();
+        }
     }
 
+    /**
+     * Generates a lucene query that restricts the results of the supplied query to documents that also match the
+     * filter.  The filter does not contribute to scores, so documents are scored exactly as they would be by the
+     * unfiltered query.
+     *
+     * @param query  the query to filter
+     * @param filter the filter that results must match
+     * @return the filtered query
+     */
+    protected Query formulateFilteredQuery(Query query, Query filter) {
+        BooleanQuery.Builder builder = new BooleanQuery.Builder();
+        builder.add(query, BooleanClause.Occur.MUST);
+        builder.add(filter, BooleanClause.Occur.FILTER);
+        return builder.build();
+    }
 
     /**
      * Generates a lucene query that functions as a specialised form of boolean query.  The two queries are unified into
@@ -205,7 +515,7 @@ public abstract class ZoomaLuceneSearchService extends Initializable {
      *
      * @param field                    the field to query
      * @param pattern                  the pattern to search for
-     * @param queryType                the type of query (full, prefix, suffix) to be formulated
+     * @param queryType                the type of query (exact, full or prefix) to be formulated
      * @param conserveOrderIfMultiword whether word order should be preserved in the case of multiword queries
      * @return the parsed query
      * @throws QueryCreationException if the query could not be created
@@ -219,10 +529,9 @@ public abstract class ZoomaLuceneSearchService extends Initializable {
 
             List<String> terms;
             if (queryType != QUERY_TYPE.EXACT) {
-                // tokenize the pattern using the given analyzer
+                // tokenize the pattern using the shared query analyzer
                 terms = new ArrayList<>();
-                // todo - creating a new analyzer here means we run the risk of using different analyzers for indexing and query
-                Analyzer analyzer = new EnglishAnalyzer(CharArraySet.EMPTY_SET);
+                Analyzer analyzer = getQueryAnalyzer();
                 try (TokenStream stream = analyzer.tokenStream(field, new StringReader(QueryParser.escape(pattern)))) {
                     stream.reset();
                     CharTermAttribute termAtt = stream.addAttribute(CharTermAttribute.class);
@@ -253,9 +562,6 @@ public abstract class ZoomaLuceneSearchService extends Initializable {
                                     new SpanMultiTermQueryWrapper<>(
                                             new PrefixQuery(new Term(field, term))), 1);
                             break;
-                        case SUFFIX:
-                            q = new TermQuery(new Term(field, "*" + term));
-                            break;
                         default:
                             throw new QueryCreationException(
                                     "Cannot create query - unknown Query Type '" + queryType.toString() + "'");
@@ -370,9 +676,6 @@ public abstract class ZoomaLuceneSearchService extends Initializable {
                 PrefixQuery pq = new PrefixQuery(new Term(field, lastTerm.toLowerCase()));
                 stqs.add(new SpanMultiTermQueryWrapper<>(pq));
                 break;
-            case SUFFIX:
-                stqs.add(new SpanTermQuery(new Term(field, "*" + lastTerm)));
-                break;
             default:
                 throw new QueryCreationException(
                         "Cannot create query - unknown Query Type '" + queryType.toString() + "'");
@@ -439,62 +742,293 @@ public abstract class ZoomaLuceneSearchService extends Initializable {
 
     /**
      * Performs a lucene query, and uses the supplied mapper to convert the resulting lucene document into the relevant
-     * object type.  All results that match the given query are iterated over, in batches of 100, and put into a
-     * collection of objects (of type matching the type of the mapper) that is returned.
+     * object type.  If <code>limit</code> is -1, all results that match the given query are iterated over, in batches
+     * of 100, and put into a collection of objects (of type matching the type of the mapper) that is returned.
+     * Otherwise, only the top <code>limit</code> results are collected in a single pass over the index.
      *
-     * @param q the lucene query to perform
+     * @param q     the lucene query to perform
+     * @param limit the maximum number of results to return, or -1 to return all results
      * @return a collection of results
      * @throws IOException if reading from the index failed
      */
     protected <T> List<T> doQuery(Query q, LuceneDocumentMapper<T> mapper, int limit) throws IOException {
+        return doQuery(q, mapper, limit, 0f);
+    }
+
+    /**
+     * Performs a lucene query, and uses the supplied mapper to convert the resulting lucene document into the relevant
+     * object type.  If <code>limit</code> is -1, all results that match the given query are iterated over, in batches
+     * of 100; otherwise, only the top <code>limit</code> results are collected in a single pass over the index.
+     * <p/>
+     * Any hits that score less than <code>minimumRelativeScore</code> multiplied by the score of the top hit are
+     * discarded without loading the stored document, so low-scoring documents are never mapped.  Supply 0 to retain all
+     * hits.
+     *
+     * @param q                    the lucene query to perform
+     * @param limit                the maximum number of results to return, or -1 to return all results
+     * @param minimumRelativeScore the fraction (between 0 and 1) of the top hit score below which hits are discarded
+     * @return a collection of results
+     * @throws IOException if reading from the index failed
+     */
+    protected <T> List<T> doQuery(Query q,
+                                  LuceneDocumentMapper<T> mapper,
+                                  int limit,
+                                  float minimumRelativeScore) throws IOException {
         try {
             // init, to make sure searcher is available
             initOrWait();
 
-            // create the list to collect results in
-            List<T> results = new ArrayList<>();
-
-            // perform queries in blocks until there are no more hits
-            ScoreDoc lastScoreDoc = null;
-            boolean complete = false;
-            int rank = 1;
-            while (!complete) {
-                // create a collector to obtain query results
-                TopScoreDocCollector collector = lastScoreDoc == null
-                        ? TopScoreDocCollector.create(100)
-                        : TopScoreDocCollector.create(100, lastScoreDoc);
-
-                // perform query
-                getSearcher().search(q, collector);
-                ScoreDoc[] hits = collector.topDocs().scoreDocs;
-
-                if (hits.length == 0) {
-                    complete = true;
+            IndexSearcher searcher = acquireSearcher();
+            try {
+                List<T> results = limit == -1
+                        ? doPagedQuery(searcher, q, mapper, minimumRelativeScore)
+                        : doTopQuery(searcher, q, mapper, limit, minimumRelativeScore);
+                getLog().debug("Query '" + q.toString() + "' returned " + results.size() + " results");
+                return results;
+            }
+            finally {
+                releaseSearcher(searcher);
+            }
+        }
+        catch (InterruptedException e) {
+            throw new IOException("Failed to perform query - indexing process was interrupted", e);
+        }
+    }
+
+    /**
+     * Performs a lucene query, iterating over all matching results in batches of 100 and mapping each one.
+     *
+     * @param searcher             the searcher to query
+     * @param q                    the lucene query to perform
+     * @param mapper               the mapper used to convert each resulting document
+     * @param minimumRelativeScore the fraction of the top hit score below which hits are discarded
+     * @return a collection of results
+     * @throws IOException if reading from the index failed
+     */
+    private <T> List<T> doPagedQuery(IndexSearcher searcher,
+                                     Query q,
+                                     LuceneDocumentMapper<T> mapper,
+                                     float minimumRelativeScore) throws IOException {
+        // create the list to collect results in
+        List<T> results = new ArrayList<>();
+
+        // perform queries in blocks until there are no more hits
+        ScoreDoc lastScoreDoc = null;
+        float cutoff = Float.NEGATIVE_INFINITY;
+        boolean complete = false;
+        int rank = 1;
+        while (!complete) {
+            // create a collector to obtain query results
+            TopScoreDocCollector collector = lastScoreDoc == null
+                    ? TopScoreDocCollector.create(PAGE_SIZE)
+                    : TopScoreDocCollector.create(PAGE_SIZE, lastScoreDoc);
+
+            // perform query
+            searcher.search(q, collector);
+            ScoreDoc[] hits = collector.topDocs().scoreDocs;
+
+            if (hits.length == 0) {
+                complete = true;
+            }
+            else {
+                if (lastScoreDoc == null) {
+                    // first block, so the first hit is the top hit
+                    cutoff = hits[0].score * minimumRelativeScore;
                 }
-                else {
-                    // get URI and readByProperty property, add to results
-                    for (ScoreDoc hit : hits) {
-                        lastScoreDoc = hit;
-                        Document doc = getSearcher().doc(hit.doc);
-                        if (limit == -1 || results.size() < limit) {
-                            results.add(mapper.mapDocument(doc, rank));
-                        }
-                        else {
-                            complete = true;
-                            break;
-                        }
+                // get URI and readByProperty property, add to results
+                for (ScoreDoc hit : hits) {
+                    lastScoreDoc = hit;
+                    if (hit.score < cutoff) {
+                        // hits are in descending score order, so nothing further can pass the cutoff
+                        complete = true;
+                        break;
                     }
+                    results.add(mapHit(searcher, mapper, hit.doc, rank));
                 }
-                rank++;
             }
-            getLog().debug("Query '" + q.toString() + "' returned " + results.size() + " results");
+            rank++;
+        }
+        return results;
+    }
+
+    /**
+     * Performs a lucene query, collecting only the top <code>limit</code> hits in a single pass and mapping each one.
+     * Documents are ranked identically to {@link #doPagedQuery(IndexSearcher, Query, LuceneDocumentMapper, float)}, so for any query
+     * the results of this method are the leading results of the exhaustive form.
+     *
+     * @param searcher             the searcher to query
+     * @param q                    the lucene query to perform
+     * @param mapper               the mapper used to convert each resulting document
+     * @param limit                the maximum number of results to return
+     * @param minimumRelativeScore the fraction of the top hit score below which hits are discarded
+     * @return a collection of results
+     * @throws IOException if reading from the index failed
+     */
+    private <T> List<T> doTopQuery(IndexSearcher searcher,
+                                   Query q,
+                                   LuceneDocumentMapper<T> mapper,
+                                   int limit,
+                                   float minimumRelativeScore) throws IOException {
+        List<T> results = new ArrayList<>();
+        if (limit < 1) {
             return results;
         }
+
+        // create a collector that retains only the best hits
+        TopScoreDocCollector collector = TopScoreDocCollector.create(limit);
+        searcher.search(q, collector);
+        ScoreDoc[] hits = collector.topDocs().scoreDocs;
+
+        if (hits.length > 0) {
+            float cutoff = hits[0].score * minimumRelativeScore;
+            for (int i = 0; i < hits.length; i++) {
+                ScoreDoc hit = hits[i];
+                if (hit.score < cutoff) {
+                    break;
+                }
+                // rank follows the block numbering used when paging over all results
+                int rank = (i / PAGE_SIZE) + 1;
+                results.add(mapHit(searcher, mapper, hit.doc, rank));
+            }
+        }
+        return results;
+    }
+
+    /**
+     * Performs a lucene query, and uses the supplied mapper to convert a single page of results into the relevant
+     * object type.  The page starts after the result identified by <code>cursor</code>, or at the first result if the
+     * cursor is null or empty, and the returned page carries the cursor that identifies its last result.
+     * <p/>
+     * Results are ordered by score, and then by the value of <code>idField</code>, which must identify each document
+     * uniquely and be indexed with SortedDocValues.  This order does not depend on the positions of documents in the
+     * index, so cursors remain valid when the index is refreshed.  Each page is collected with {@link
+     * IndexSearcher#searchAfter(ScoreDoc, Query, int, Sort, boolean, boolean)}, so only the documents on the requested
+     * page are loaded, however deep into the results it is.  Indices built before the ID field was sortable are ordered
+     * by score and then by document position instead.
+     *
+     * @param q       the lucene query to perform
+     * @param mapper  the mapper used to convert each resulting document
+     * @param idField the name of the field that uniquely identifies each document
+     * @param limit   the maximum number of results on the page
+     * @param cursor  the cursor returned with the previous page, or null for the first page
+     * @param <T>     the type of result
+     * @return a page of results, with the cursor for the next page
+     * @throws IOException            if reading from the index failed
+     * @throws InvalidCursorException if the cursor is not valid
+     */
+    protected <T> CursorPage<T> doCursorQuery(Query q,
+                                              LuceneDocumentMapper<T> mapper,
+                                              String idField,
+                                              int limit,
+                                              String cursor) throws IOException {
+        if (limit < 1) {
+            throw new IllegalArgumentException("Page size must be at least 1");
+        }
+        try {
+            // init, to make sure searcher is available
+            initOrWait();
+
+            IndexSearcher searcher = acquireSearcher();
+            try {
+                boolean sortById = isSortable(searcher.getIndexReader(), idField);
+                Sort sort = sortById
+                        ? new Sort(SortField.FIELD_SCORE, new SortField(idField, SortField.Type.STRING))
+                        : new Sort(SortField.FIELD_SCORE, SortField.FIELD_DOC);
+                FieldDoc after = cursor == null || cursor.isEmpty() ? null : decodeCursor(cursor, sortById);
+
+                TopDocs topDocs = after == null
+                        ? searcher.search(q, limit, sort, true, false)
+                        : searcher.searchAfter(after, q, limit, sort, true, false);
+                ScoreDoc[] hits = topDocs.scoreDocs;
+                List<T> results = new ArrayList<>();
+                for (ScoreDoc hit : hits) {
+                    results.add(mapHit(searcher, mapper, hit.doc, 1));
+                }
+                String next = hits.length == limit ? encodeCursor((FieldDoc) hits[hits.length - 1], sortById) : null;
+                return new CursorPage<>(results, next);
+            }
+            finally {
+                releaseSearcher(searcher);
+            }
+        }
         catch (InterruptedException e) {
             throw new IOException("Failed to perform query - indexing process was interrupted", e);
         }
     }
 
+    private boolean isSortable(IndexReader reader, String field) throws IOException {
+        for (LeafReaderContext leaf : reader.leaves()) {
+            if (leaf.reader().getSortedDocValues(field) == null) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // a cursor is the score, document and ID of the last hit on a page, hex encoded so that it is opaque and URL safe
+    private String encodeCursor(FieldDoc last, boolean sortById) {
+        String id = sortById ? ((BytesRef) last.fields[1]).utf8ToString() : "";
+        String cursor = Integer.toHexString(Float.floatToIntBits((Float) last.fields[0])) + ":" + last.doc + ":" + id;
+        StringBuilder sb = new StringBuilder();
+        for (byte b : cursor.getBytes(StandardCharsets.UTF_8)) {
+            sb.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+        }
+        return sb.toString();
+    }
+
+    private FieldDoc decodeCursor(String cursor, boolean sortById) {
+        try {
+            if (cursor.length() % 2 != 0) {
+                throw new IllegalArgumentException("odd length");
+            }
+            byte[] bytes = new byte[cursor.length() / 2];
+            for (int i = 0; i < bytes.length; i++) {
+                int hi = Character.digit(cursor.charAt(2 * i), 16);
+                int lo = Character.digit(cursor.charAt(2 * i + 1), 16);
+                if (hi == -1 || lo == -1) {
+                    throw new IllegalArgumentException("not hexadecimal");
+                }
+                bytes[i] = (byte) ((hi << 4) | lo);
+            }
+            String[] parts = new String(bytes, StandardCharsets.UTF_8).split(":", 3);
+            if (parts.length != 3) {
+                throw new IllegalArgumentException("wrong number of parts");
+            }
+            float score = Float.intBitsToFloat((int) Long.parseLong(parts[0], 16));
+            int doc = Integer.parseInt(parts[1]);
+            Object[] fields = sortById
+                    ? new Object[]{score, new BytesRef(parts[2])}
+                    : new Object[]{score, doc};
+            return new FieldDoc(doc, score, fields);
+        }
+        catch (IllegalArgumentException e) {
+            throw new InvalidCursorException("Invalid cursor '" + cursor + "'", e);
+        }
+    }
+
+    /**
+     * Maps a single hit.  If the mapper can read from DocValues, it is given the segment containing the hit and loads
+     * whatever stored fields it needs itself; otherwise the stored fields of the hit are loaded and mapped.
+     *
+     * @param searcher the searcher the hit was obtained from
+     * @param mapper   the mapper used to convert the document
+     * @param doc      the top-level document ID of the hit
+     * @param rank     the rank of the hit
+     * @return the mapped result
+     * @throws IOException if reading from the index failed
+     */
+    private <T> T mapHit(IndexSearcher searcher, LuceneDocumentMapper<T> mapper, int doc, int rank)
+            throws IOException {
+        if (mapper instanceof LuceneDocValuesMapper) {
+            List<LeafReaderContext> leaves = searcher.getIndexReader().leaves();
+            LeafReaderContext leaf = leaves.get(ReaderUtil.subIndex(doc, leaves));
+            return ((LuceneDocValuesMapper<T>) mapper).mapDocument(leaf.reader(), doc - leaf.docBase, rank);
+        }
+        else {
+            return mapper.mapDocument(searcher.doc(doc), rank);
+        }
+    }
+
     /**
      * Performs a lucene query, and obtains a collection of objects by using the supplied DAO to perform a lookup once
      * the URI of the object has been retrieved from the index.  The name of the field that describes the URI must be
@@ -521,10 +1055,15 @@ public abstract class ZoomaLuceneSearchService extends Initializable {
      * specified by supplying the fieldname.  All results that match the given query are iterated over, in batches of
      * 100, and put into a collection of objects that is returned.  This collection is typed by the type of DAO that is
      * supplied.
+     * <p/>
+     * The URIs from each batch of hits are looked up together using {@link #readAll(ZoomaDAO, List)}, so DAOs that can
+     * read many objects at once are not queried once per hit.  If a limit is given, no more URIs are looked up than are
+     * needed to fill it.
      *
      * @param q      the lucene query to perform
      * @param mapper the document mapper to use to extract the URI from resulting lucene documents
      * @param dao    the zooma dao that can be used to do the lookup of matching objects
+     * @param limit  the maximum number of results to return, or -1 to return all results
      * @param <T>    the type of object to lookup - the ZoomaDAO supplied declares this type
      * @return a collection of results
      * @throws IOException if reading from the index failed
@@ -537,55 +1076,94 @@ public abstract class ZoomaLuceneSearchService extends Initializable {
             // init, to make sure searcher is available
             initOrWait();
 
-            // create the list to collect results in
-            List<T> results = new ArrayList<>();
-
-            // perform queries in blocks until there are no more hits
-            ScoreDoc lastScoreDoc = null;
-            boolean complete = false;
-            int rank = 1;
-            while (!complete) {
-                // create a collector to obtain query results
-                TopScoreDocCollector collector = lastScoreDoc == null
-                        ? TopScoreDocCollector.create(100)
-                        : TopScoreDocCollector.create(100, lastScoreDoc);
-
-                // perform query
-                getSearcher().search(q, collector);
-                ScoreDoc[] hits = collector.topDocs().scoreDocs;
-
-                if (hits.length == 0) {
-                    complete = true;
-                }
-                else {
-                    // get URI and readByProperty property, add to results
-                    for (ScoreDoc hit : hits) {
-                        lastScoreDoc = hit;
-                        Document doc = getSearcher().doc(hit.doc);
-                        URI uri = mapper.mapDocument(doc, rank);
-                        T t = dao.read(uri);
-                        if (t != null) {
-                            if (limit == -1 || results.size() < limit) {
-                                results.add(t);
+            IndexSearcher searcher = acquireSearcher();
+            try {
+                // create the list to collect results in
+                List<T> results = new ArrayList<>();
+
+                // perform queries in blocks until there are no more hits
+                ScoreDoc lastScoreDoc = null;
+                boolean complete = false;
+                int rank = 1;
+                while (!complete) {
+                    // create a collector to obtain query results
+                    TopScoreDocCollector collector = lastScoreDoc == null
+                            ? TopScoreDocCollector.create(PAGE_SIZE)
+                            : TopScoreDocCollector.create(PAGE_SIZE, lastScoreDoc);
+
+                    // perform query
+                    searcher.search(q, collector);
+                    ScoreDoc[] hits = collector.topDocs().scoreDocs;
+
+                    if (hits.length == 0) {
+                        complete = true;
+                    }
+                    else {
+                        // get URIs for this block of hits
+                        List<URI> uris = new ArrayList<>();
+                        for (ScoreDoc hit : hits) {
+                            lastScoreDoc = hit;
+                            Document doc = searcher.doc(hit.doc);
+                            uris.add(mapper.mapDocument(doc, rank));
+                        }
+
+                        // look up as many as are needed, add to results in rank order
+                        int from = 0;
+                        while (!complete && from < uris.size()) {
+                            int to = limit == -1
+                                    ? uris.size()
+                                    : Math.min(uris.size(), from + limit - results.size());
+                            List<URI> batch = uris.subList(from, to);
+                            Map<URI, T> found = new HashMap<>();
+                            for (T t : readAll(dao, batch)) {
+                                found.put(t.getURI(), t);
                             }
-                            else {
-                                complete = true;
-                                break;
+                            for (URI uri : batch) {
+                                T t = found.get(uri);
+                                if (t != null) {
+                                    results.add(t);
+                                }
+                                else {
+                                    getLog().warn("Failed to retrieve result for <" + uri + "> in DAO for " +
+                                                          dao.getDatasourceName());
+                                }
                             }
-                        }
-                        else {
-                            getLog().warn("Failed to retrieve result for <" + uri + "> in DAO for " +
-                                                  dao.getDatasourceName());
+                            from = to;
+                            complete = limit != -1 && results.size() >= limit;
                         }
                     }
+                    rank++;
                 }
-                rank++;
+                return results;
+            }
+            finally {
+                releaseSearcher(searcher);
             }
-            return results;
         }
         catch (InterruptedException e) {
             throw new IOException("Failed to perform query - indexing process was interrupted", e);
         }
     }
+
+    /**
+     * Looks up the objects with the given URIs using the supplied DAO.  This implementation reads each object
+     * individually; subclasses that work with a DAO that can read many objects at once should override this method to
+     * do so.
+     *
+     * @param dao  the zooma dao that can be used to do the lookup of matching objects
+     * @param uris the URIs of the objects to look up
+     * @param <T>  the type of object to lookup - the ZoomaDAO supplied declares this type
+     * @return the objects that were found, in any order
+     */
+    protected <T extends Identifiable> Collection<T> readAll(ZoomaDAO<T> dao, List<URI> uris) {
+        List<T> results = new ArrayList<>();
+        for (URI uri : uris) {
+            T t = dao.read(uri);
+            if (t != null) {
+                results.add(t);
+            }
+        }
+        return results;
+    }
 }
 
@@ -4,6 +4,7 @@ import org.springframework.core.io.Resource;
 
 import java.util.Collections;
 import java.util.List;
+import java.util.regex.Pattern;
 
 /**
  * This class handles the processing of properties of type "organism part".
@@ -12,6 +13,8 @@ import java.util.List;
  * @date 16/08/13
  */
 public class AnatomyProcessor extends AbstractDictionaryLoadingProcessor {
+    private static final Pattern SPACES = Pattern.compile(" +");
+
     // organism part qualifier dictionary contains all subclasses of "anatomical modifier" (EFO)
     // and all subclasses of "position" (PATO)
     public AnatomyProcessor(String dictionaryResourceName) {
@@ -44,12 +47,12 @@ public class AnatomyProcessor extends AbstractDictionaryLoadingProcessor {
             if (processedString.contains(" " + organismPartQualifier + " ") ||
                     processedString.startsWith(organismPartQualifier + " ") ||
                     processedString.endsWith(" " + organismPartQualifier)) {
-                processedString = processedString.replaceAll(organismPartQualifier, " ");
+                processedString = getDictionaryPattern(organismPartQualifier).matcher(processedString).replaceAll(" ");
             }
         }
 
         // remove extraneous whitespace
-        processedString = processedString.trim().replaceAll(" +", " ");
+        processedString = SPACES.matcher(processedString.trim()).replaceAll(" ");
         // return processed string, only if it is different from the original
         if (!processedString.contentEquals(searchString.toLowerCase())) {
             return Collections.singletonList(processedString);
@@ -12,6 +12,12 @@ import java.util.regex.Pattern;
  * @date 16/08/13
  */
 public class ParenthesesProcessor implements SearchStringProcessor {
+    // Brackets of compounds mustn't be removed (e.g: 4-(N-nitrosomethylamino)-1-(3-pyridyl)butan-1-one  )
+    // Two patterns to identify compounds, fused so that strings are only matched once
+    private static final Pattern COMPOUND = Pattern.compile(".{0,100}\\(.{1,100}\\)\\S{1,100}.{0,100}|" +
+                                                                    ".{0,100}\\S{1,100}\\(.{1,100}\\).{0,100}");
+    private static final Pattern BRACKETS = Pattern.compile(".*(\\([^\\)]*\\)).*");
+
     @Override
     public float getBoostFactor() {
         return 0.95f;
@@ -26,14 +32,8 @@ public class ParenthesesProcessor implements SearchStringProcessor {
     @Override
     public boolean canProcess(String searchString) {
         if (searchString.contains("(") && searchString.contains(")")) {
-            // Brackets of compounds mustn't be removed (e.g: 4-(N-nitrosomethylamino)-1-(3-pyridyl)butan-1-one  )
-            // Two patterns to identify compounds:
-            String pattern1_compound = ".{0,100}\\(.{1,100}\\)\\S{1,100}.{0,100}";
-            String pattern2_compound = ".{0,100}\\S{1,100}\\(.{1,100}\\).{0,100}";
-
             // Check if string would be a compound..
-            if (!(Pattern.matches(pattern1_compound, searchString) ||
-                    Pattern.matches(pattern2_compound, searchString))) {
+            if (!COMPOUND.matcher(searchString).matches()) {
                 return true;
             }
         }
@@ -46,8 +46,7 @@ public class ParenthesesProcessor implements SearchStringProcessor {
     @Override
     public List<String> processSearchString(String searchString) throws IllegalArgumentException {
         String processedString = searchString;
-        Pattern p = Pattern.compile(".*(\\([^\\)]*\\)).*");
-        Matcher m = p.matcher(processedString);
+        Matcher m = BRACKETS.matcher(processedString);
         while (m.matches()) {
             int pos_ini = m.start(1);
             int pos_fin = m.end(1);
@@ -58,7 +57,7 @@ public class ParenthesesProcessor implements SearchStringProcessor {
 
                 // and replace it with a single whitespace
                 processedString = processedString.replaceAll(content, "");
-                m = p.matcher(processedString);
+                m.reset(processedString);
             }
         }
 
@@ -0,0 +1,256 @@
+package uk.ac.ebi.fgpt.zooma.util;
+
+import org.simmetrics.tokenizers.Tokenizer;
+import org.simmetrics.tokenizers.Whitespace;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * An in-memory index over a dictionary of property values that shortlists the entries which could possibly reach a
+ * given Needleman-Wunsch or Jaccard similarity to a query string.  The shortlist is always a superset of the entries
+ * that reach the threshold, so running the exact simmetrics scorers over the shortlist gives the same results as running
+ * them over the whole dictionary.
+ * <p/>
+ * Needleman-Wunsch candidates are found with a length filter and a character trigram count filter.  The simmetrics
+ * Needleman-Wunsch similarity is <code>1 - cost / (2 * maxLength)</code>, where every gap or mismatch costs at least 1,
+ * so a similarity of at least <code>t</code> bounds the edit distance between the strings by <code>2 * maxLength * (1 -
+ * t)</code>.  Strings within edit distance <code>k</code> share at least <code>maxLength - 2 - 3k</code> trigrams, so any
+ * entry sharing fewer can be discarded without scoring.
+ * <p/>
+ * Jaccard candidates are found with a whitespace token inverted index: an entry must share at least one token with the
+ * query, and the ratio of the smaller to the larger token set must be no lower than the threshold.
+ */
+public class PropertyValueCandidateIndex {
+    private static final int Q = 3;
+
+    // the largest cost a single character of the longer string can add to a Needleman-Wunsch alignment, relative to
+    // the unit edit cost (gaps cost 2, mismatches cost 1)
+    private static final float NEEDLEMAN_WUNSCH_MAX_COST_PER_CHARACTER = 2f;
+
+    // slack applied to thresholds so that float rounding can only widen, never narrow, the shortlist
+    private static final float EPSILON = 0.0001f;
+
+    private final Tokenizer tokenizer;
+
+    private final String[] values;
+    private final int[][] idsByLength;
+    private final Map<String, Postings> trigramPostings;
+
+    private final int[] tokenCounts;
+    private final Map<String, int[]> tokenPostings;
+    private final int[] emptyTokenIds;
+
+    public PropertyValueCandidateIndex(Collection<String> dictionary) {
+        this.tokenizer = new Whitespace();
+        this.values = dictionary.toArray(new String[dictionary.size()]);
+
+        int maxLength = 0;
+        for (String value : values) {
+            maxLength = Math.max(maxLength, value.length());
+        }
+
+        List<List<Integer>> lengthLists = new ArrayList<>();
+        for (int i = 0; i <= maxLength; i++) {
+            lengthLists.add(new ArrayList<Integer>());
+        }
+        Map<String, List<int[]>> trigramLists = new HashMap<>();
+        Map<String, List<Integer>> tokenLists = new HashMap<>();
+        List<Integer> emptyTokenList = new ArrayList<>();
+        this.tokenCounts = new int[values.length];
+
+        for (int id = 0; id < values.length; id++) {
+            String value = values[id];
+            lengthLists.get(value.length()).add(id);
+
+            for (Map.Entry<String, Integer> trigram : countTrigrams(value).entrySet()) {
+                List<int[]> postings = trigramLists.get(trigram.getKey());
+                if (postings == null) {
+                    postings = new ArrayList<>();
+                    trigramLists.put(trigram.getKey(), postings);
+                }
+                postings.add(new int[]{id, trigram.getValue()});
+            }
+
+            Set<String> tokens = tokenizer.tokenizeToSet(value);
+            tokenCounts[id] = tokens.size();
+            if (tokens.isEmpty()) {
+                emptyTokenList.add(id);
+            }
+            for (String token : tokens) {
+                List<Integer> postings = tokenLists.get(token);
+                if (postings == null) {
+                    postings = new ArrayList<>();
+                    tokenLists.put(token, postings);
+                }
+                postings.add(id);
+            }
+        }
+
+        this.idsByLength = new int[lengthLists.size()][];
+        for (int i = 0; i < lengthLists.size(); i++) {
+            idsByLength[i] = toArray(lengthLists.get(i));
+        }
+        this.trigramPostings = new HashMap<>();
+        for (Map.Entry<String, List<int[]>> entry : trigramLists.entrySet()) {
+            trigramPostings.put(entry.getKey(), new Postings(entry.getValue()));
+        }
+        this.tokenPostings = new HashMap<>();
+        for (Map.Entry<String, List<Integer>> entry : tokenLists.entrySet()) {
+            tokenPostings.put(entry.getKey(), toArray(entry.getValue()));
+        }
+        this.emptyTokenIds = toArray(emptyTokenList);
+    }
+
+    /**
+     * Returns the number of property values in this index
+     *
+     * @return the size of the indexed dictionary
+     */
+    public int size() {
+        return values.length;
+    }
+
+    /**
+     * Returns every dictionary entry that could have a Needleman-Wunsch similarity of at least the given value to the
+     * query string.  Entries in the result are not guaranteed to reach the threshold and should still be scored.
+     *
+     * @param query         the string to find candidates for
+     * @param minSimilarity the minimum Needleman-Wunsch similarity of interest
+     * @return a shortlist of dictionary entries to score
+     */
+    public Collection<String> getNeedlemanWunschCandidates(String query, float minSimilarity) {
+        if (minSimilarity <= 0) {
+            return Arrays.asList(values);
+        }
+
+        // work out, for each candidate length, how many trigrams a candidate must share with the query
+        int queryLength = query.length();
+        int[] requiredTrigrams = new int[idsByLength.length];
+        Collection<String> results = new ArrayList<>();
+        for (int length = 0; length < idsByLength.length; length++) {
+            int maxLength = Math.max(queryLength, length);
+            int maxEdits = (int) Math.floor(
+                    NEEDLEMAN_WUNSCH_MAX_COST_PER_CHARACTER * maxLength * (1 - minSimilarity) + EPSILON);
+            if (Math.abs(queryLength - length) > maxEdits) {
+                // too different in length to ever reach the threshold
+                requiredTrigrams[length] = Integer.MAX_VALUE;
+            }
+            else {
+                requiredTrigrams[length] = maxLength - Q + 1 - (maxEdits * Q);
+                if (requiredTrigrams[length] <= 0) {
+                    // count filter can't prune at this length, so every entry is a candidate
+                    for (int id : idsByLength[length]) {
+                        results.add(values[id]);
+                    }
+                }
+            }
+        }
+
+        // count shared trigrams, respecting multiplicity, for every entry sharing at least one
+        Map<Integer, Integer> sharedTrigrams = new HashMap<>();
+        for (Map.Entry<String, Integer> trigram : countTrigrams(query).entrySet()) {
+            Postings postings = trigramPostings.get(trigram.getKey());
+            if (postings != null) {
+                for (int i = 0; i < postings.ids.length; i++) {
+                    int id = postings.ids[i];
+                    int required = requiredTrigrams[values[id].length()];
+                    if (required > 0 && required != Integer.MAX_VALUE) {
+                        int shared = Math.min(trigram.getValue(), postings.counts[i]);
+                        Integer previous = sharedTrigrams.get(id);
+                        sharedTrigrams.put(id, previous == null ? shared : previous + shared);
+                    }
+                }
+            }
+        }
+        for (Map.Entry<Integer, Integer> shared : sharedTrigrams.entrySet()) {
+            int id = shared.getKey();
+            if (shared.getValue() >= requiredTrigrams[values[id].length()]) {
+                results.add(values[id]);
+            }
+        }
+        return results;
+    }
+
+    /**
+     * Returns every dictionary entry that could have a whitespace-tokenized Jaccard similarity of at least the given
+     * value to the query string.  Entries in the result are not guaranteed to reach the threshold and should still be
+     * scored.
+     *
+     * @param query         the string to find candidates for
+     * @param minSimilarity the minimum Jaccard similarity of interest
+     * @return a shortlist of dictionary entries to score
+     */
+    public Collection<String> getJaccardCandidates(String query, float minSimilarity) {
+        if (minSimilarity <= 0) {
+            return Arrays.asList(values);
+        }
+
+        Collection<String> results = new ArrayList<>();
+        Set<String> queryTokens = tokenizer.tokenizeToSet(query);
+        if (queryTokens.isEmpty()) {
+            // only other empty token sets can be similar to an empty token set
+            for (int id : emptyTokenIds) {
+                results.add(values[id]);
+            }
+            return results;
+        }
+
+        // similarity can be no higher than the ratio of the smaller to the larger token set
+        int queryTokenCount = queryTokens.size();
+        Set<Integer> seen = new HashSet<>();
+        for (String token : queryTokens) {
+            int[] ids = tokenPostings.get(token);
+            if (ids != null) {
+                for (int id : ids) {
+                    if (seen.add(id)) {
+                        float ratio = (float) Math.min(queryTokenCount, tokenCounts[id]) /
+                                Math.max(queryTokenCount, tokenCounts[id]);
+                        if (ratio + EPSILON >= minSimilarity) {
+                            results.add(values[id]);
+                        }
+                    }
+                }
+            }
+        }
+        return results;
+    }
+
+    private Map<String, Integer> countTrigrams(String s) {
+        Map<String, Integer> trigrams = new HashMap<>();
+        for (int i = 0; i + Q <= s.length(); i++) {
+            String trigram = s.substring(i, i + Q);
+            Integer count = trigrams.get(trigram);
+            trigrams.put(trigram, count == null ? 1 : count + 1);
+        }
+        return trigrams;
+    }
+
+    private static int[] toArray(List<Integer> list) {
+        int[] array = new int[list.size()];
+        for (int i = 0; i < array.length; i++) {
+            array[i] = list.get(i);
+        }
+        return array;
+    }
+
+    private static class Postings {
+        private final int[] ids;
+        private final int[] counts;
+
+        private Postings(List<int[]> postings) {
+            this.ids = new int[postings.size()];
+            this.counts = new int[postings.size()];
+            for (int i = 0; i < postings.size(); i++) {
+                ids[i] = postings.get(i)[0];
+                counts[i] = postings.get(i)[1];
+            }
+        }
+    }
+}
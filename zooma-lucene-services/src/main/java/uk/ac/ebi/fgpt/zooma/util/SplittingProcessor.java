@@ -5,6 +5,7 @@ import org.apache.commons.lang3.StringUtils;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
+import java.util.regex.Pattern;
 
 /**
  * A string processor that can split strings into it's constituent elements if it consists of two distinct parts,
@@ -14,6 +15,8 @@ import java.util.List;
  * @date 12/8/13
  */
 public class SplittingProcessor implements SearchStringProcessor {
+    private static final Pattern AND = Pattern.compile(" and ");
+
     @Override
     public float getBoostFactor() {
         return 0.7f;
@@ -33,7 +36,7 @@ public class SplittingProcessor implements SearchStringProcessor {
     @Override
     public List<String> processSearchString(String searchString) throws IllegalArgumentException {
         ArrayList<String> processedStrings = new ArrayList<>();
-        String[] expressions = searchString.split(" and ");
+        String[] expressions = AND.split(searchString);
         if (expressions.length == 2) {
             Collections.addAll(processedStrings, expressions);
         }
@@ -12,6 +12,23 @@ import java.util.regex.Pattern;
  * @date 16/08/13
  */
 public class TimeProcessor implements SearchStringProcessor {
+    private static final Pattern DIGIT = Pattern.compile("\\d");
+
+    private static final String SPACE = "\\s{0,2}";
+
+    //pattern for number: int or float..
+    private static final String NUMBER_FLOAT = SPACE + "\\d{1,10}\\.\\d{1,10}" + SPACE;
+    private static final String NUMBER_INT = SPACE + "\\d{1,10}" + SPACE;
+
+    //pattern for interval (e.g: 3-4 days)..
+    private static final Pattern PATTERN_INTERVAL_FLOAT = Pattern.compile(
+            "((" + NUMBER_FLOAT + "-" + NUMBER_FLOAT + ")|(" + NUMBER_FLOAT + "to" + NUMBER_FLOAT + "))");
+    private static final Pattern PATTERN_INTERVAL_INT = Pattern.compile(
+            "((" + NUMBER_INT + "-" + NUMBER_INT + ")|(" + NUMBER_INT + "to" + NUMBER_INT + "))");
+    private static final Pattern PATTERN_NUMBER_FLOAT = Pattern.compile(NUMBER_FLOAT);
+    private static final Pattern PATTERN_NUMBER_INT = Pattern.compile(NUMBER_INT);
+    private static final Pattern WHITESPACE = Pattern.compile("\\s+");
+
     @Override
     public float getBoostFactor() {
         return 0.95f;
@@ -22,9 +39,7 @@ public class TimeProcessor implements SearchStringProcessor {
      */
     @Override
     public boolean canProcess(String searchString) {
-        Pattern p = Pattern.compile(".*\\d.*");
-        Matcher m = p.matcher(searchString);
-        return m.find();
+        return DIGIT.matcher(searchString).find();
     }
 
     /**
@@ -33,52 +48,36 @@ public class TimeProcessor implements SearchStringProcessor {
      */
     @Override
     public List<String> processSearchString(String searchString) throws IllegalArgumentException {
-        String space = "\\s{0,2}";
-
-        //pattern for number: int or float..
-        String number_float = space + "\\d{1,10}\\.\\d{1,10}" + space;
-        String number_int = space + "\\d{1,10}" + space;
-
-        //pattern for interval (e.g: 3-4 days)..
-        String interval_float =
-                "((" + number_float + "-" + number_float + ")|(" + number_float + "to" + number_float + "))";
-        String interval_int = "((" + number_int + "-" + number_int + ")|(" + number_int + "to" + number_int + "))";
-
-        Pattern pattern_interval_float = Pattern.compile(interval_float);
-        Pattern pattern_interval_int = Pattern.compile(interval_int);
-        Pattern pattern_number_float = Pattern.compile(number_float);
-        Pattern pattern_number_int = Pattern.compile(number_int);
-
         String matchedNumber;
         String processedString = searchString;
 
         // replace all matched numbers and intervals
-        Matcher matcher_interval_float = pattern_interval_float.matcher(processedString);
+        Matcher matcher_interval_float = PATTERN_INTERVAL_FLOAT.matcher(processedString);
         while (matcher_interval_float.find()) {
             matchedNumber = RegexUtils.escapeString(matcher_interval_float.group());
             processedString = processedString.replaceFirst(matchedNumber, "");
         }
 
-        Matcher matcher_interval_int = pattern_interval_int.matcher(processedString);
+        Matcher matcher_interval_int = PATTERN_INTERVAL_INT.matcher(processedString);
         while (matcher_interval_int.find()) {
             matchedNumber = matcher_interval_int.group();
             processedString = processedString.replaceFirst(matchedNumber, "");
         }
 
-        Matcher matcher_number_float = pattern_number_float.matcher(processedString);
+        Matcher matcher_number_float = PATTERN_NUMBER_FLOAT.matcher(processedString);
         while (matcher_number_float.find()) {
             matchedNumber = matcher_number_float.group();
             processedString = processedString.replaceFirst(matchedNumber, "");
         }
 
-        Matcher matcher_number_int = pattern_number_int.matcher(processedString);
+        Matcher matcher_number_int = PATTERN_NUMBER_INT.matcher(processedString);
         while (matcher_number_int.find()) {
             matchedNumber = matcher_number_int.group();
             processedString = processedString.replaceFirst(matchedNumber, "");
         }
 
         // finally, tidy up whitespace
-        processedString = processedString.trim().replaceAll("\\s+", " ");
+        processedString = WHITESPACE.matcher(processedString.trim()).replaceAll(" ");
 
         if (!processedString.isEmpty()) {
             return Collections.singletonList(processedString);
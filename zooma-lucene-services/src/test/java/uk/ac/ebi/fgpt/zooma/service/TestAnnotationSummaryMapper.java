@@ -0,0 +1,384 @@
+package uk.ac.ebi.fgpt.zooma.service;
+
+import org.apache.lucene.analysis.en.EnglishAnalyzer;
+import org.apache.lucene.analysis.util.CharArraySet;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.DocumentStoredFieldVisitor;
+import org.apache.lucene.document.StoredField;
+import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.index.FilterLeafReader;
+import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.index.IndexableField;
+import org.apache.lucene.index.LeafReader;
+import org.apache.lucene.index.LeafReaderContext;
+import org.apache.lucene.index.StoredFieldVisitor;
+import org.apache.lucene.store.Directory;
+import org.apache.lucene.store.RAMDirectory;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import uk.ac.ebi.fgpt.zooma.datasource.AnnotationSummaryDAO;
+import uk.ac.ebi.fgpt.zooma.model.Annotation;
+import uk.ac.ebi.fgpt.zooma.model.AnnotationProvenance;
+import uk.ac.ebi.fgpt.zooma.model.AnnotationSummary;
+import uk.ac.ebi.fgpt.zooma.model.BiologicalEntity;
+import uk.ac.ebi.fgpt.zooma.model.Property;
+import uk.ac.ebi.fgpt.zooma.model.SimpleAnnotation;
+import uk.ac.ebi.fgpt.zooma.model.SimpleAnnotationProvenance;
+import uk.ac.ebi.fgpt.zooma.model.SimpleAnnotationSummary;
+import uk.ac.ebi.fgpt.zooma.model.SimpleDatabaseAnnotationSource;
+import uk.ac.ebi.fgpt.zooma.model.SimpleTypedProperty;
+
+import java.io.IOException;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Tests that {@link AnnotationSummaryMapper} produces identical summaries whether quality values are read from
+ * DocValues or parsed from stored fields, and whether or not summaries are reused from an {@link
+ * AnnotationSummaryCache}.
+ */
+public class TestAnnotationSummaryMapper {
+    private static final URI SOURCE_1 = URI.create("http://www.test.com/source1");
+
+    private Directory summaryIndex;
+    private int annotationCount;
+
+    @Before
+    public void setUp() {
+        try {
+            // build a fixture annotation set: several properties, mapped to several tags, from several sources
+            List<Annotation> annotations = new ArrayList<>();
+            Map<String, Collection<URI>> summaryAnnotations = new HashMap<>();
+            Map<String, Property> summaryProperties = new HashMap<>();
+            Map<String, URI> summaryTags = new HashMap<>();
+            AnnotationProvenance.Evidence[] evidence = AnnotationProvenance.Evidence.values();
+            int id = 0;
+            for (int p = 0; p < 20; p++) {
+                Property property = new SimpleTypedProperty(URI.create("http://www.test.com/property" + p),
+                                                            "type" + (p % 3),
+                                                            "value " + p);
+                for (int t = 0; t <= p % 3; t++) {
+                    URI tag = URI.create("http://www.test.com/tag" + ((p + t) % 7));
+                    String key = p + ":" + t;
+                    summaryProperties.put(key, property);
+                    summaryTags.put(key, tag);
+                    summaryAnnotations.put(key, new ArrayList<URI>());
+                    for (int a = 0; a <= (p + t) % 4; a++) {
+                        AnnotationProvenance prov = new SimpleAnnotationProvenance(
+                                new SimpleDatabaseAnnotationSource(URI.create("http://www.test.com/source" + (a % 3)),
+                                                                   "source" + (a % 3)),
+                                evidence[(p + a) % evidence.length],
+                                "TEST",
+                                new Date(1000000000000L + (id * 86400000L)));
+                        Annotation anno = new SimpleAnnotation(URI.create("http://www.test.com/annotation" + id++),
+                                                               Collections.<BiologicalEntity>emptySet(),
+                                                               property,
+                                                               prov,
+                                                               tag);
+                        annotations.add(anno);
+                        summaryAnnotations.get(key).add(anno.getURI());
+                    }
+                }
+            }
+            annotationCount = annotations.size();
+
+            Collection<AnnotationSummary> summaries = new HashSet<>();
+            for (String key : summaryAnnotations.keySet()) {
+                SimpleTypedProperty property = (SimpleTypedProperty) summaryProperties.get(key);
+                summaries.add(new SimpleAnnotationSummary(null,
+                                                          property.getURI(),
+                                                          property.getPropertyType(),
+                                                          property.getPropertyValue(),
+                                                          Collections.singleton(summaryTags.get(key)),
+                                                          summaryAnnotations.get(key),
+                                                          0,
+                                                          new HashSet<URI>()));
+            }
+            AnnotationSummaryDAO summaryDAO = mock(AnnotationSummaryDAO.class);
+            when(summaryDAO.read()).thenReturn(summaries);
+
+            summaryIndex = new RAMDirectory();
+            ZoomaLuceneIndexer indexer = new ZoomaLuceneIndexer();
+            indexer.setAnalyzer(new EnglishAnalyzer(CharArraySet.EMPTY_SET));
+            indexer.setAnnotationIndex(new RAMDirectory());
+            indexer.setAnnotationSummaryIndex(summaryIndex);
+            Map<URI, AnnotationProvenance> provenanceMap = indexer.createAnnotationIndex(annotations);
+            indexer.createAnnotationSummaryIndex(summaryDAO, provenanceMap);
+        }
+        catch (IOException e) {
+            e.printStackTrace();
+            fail();
+        }
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        summaryIndex.close();
+    }
+
+    @Test
+    public void testDocValuesMappingMatchesStoredFields() {
+        try (IndexReader reader = DirectoryReader.open(summaryIndex)) {
+            AnnotationSummaryMapper rawMapper = new AnnotationSummaryMapper(annotationCount, reader.numDocs());
+            AnnotationSummaryMapper normalizedMapper =
+                    new AnnotationSummaryMapper(annotationCount, reader.numDocs(), 100f);
+            AnnotationSummaryMapper rankedMapper = normalizedMapper.withRankings(SOURCE_1);
+
+            int mapped = 0;
+            for (AnnotationSummaryMapper mapper : new AnnotationSummaryMapper[]{rawMapper,
+                                                                                normalizedMapper,
+                                                                                rankedMapper}) {
+                for (LeafReaderContext leaf : reader.leaves()) {
+                    LeafReader leafReader = leaf.reader();
+                    for (int i = 0; i < leafReader.maxDoc(); i++) {
+                        Document d = leafReader.document(i);
+                        for (int rank = 1; rank <= 3; rank++) {
+                            AnnotationSummary fromStored = mapper.mapDocument(d, rank);
+                            AnnotationSummary fromDocValues = mapper.mapDocument(d, leafReader, i, rank);
+                            assertEquals("Mapped summaries differ", fromStored, fromDocValues);
+                            assertEquals("Mapped summary IDs differ", fromStored.getID(), fromDocValues.getID());
+                            assertEquals("Mapped summary quality differs",
+                                         fromStored.getQuality(), fromDocValues.getQuality(), 0f);
+                            assertEquals("Document quality differs",
+                                         mapper.getDocumentQuality(d, rank),
+                                         mapper.getDocumentQuality(leafReader, i, rank),
+                                         0f);
+                            mapped++;
+                        }
+                    }
+                }
+            }
+            assertTrue("No summaries were mapped", mapped > 0);
+        }
+        catch (IOException e) {
+            e.printStackTrace();
+            fail();
+        }
+    }
+
+    @Test
+    public void testDocValuesFieldsAreNotLoadedFromStoredFields() {
+        try (IndexReader reader = DirectoryReader.open(summaryIndex)) {
+            AnnotationSummaryMapper mapper = new AnnotationSummaryMapper(annotationCount, reader.numDocs(), 100f);
+            final Set<String> loadedFields = new HashSet<>();
+            for (LeafReaderContext leaf : reader.leaves()) {
+                // records the stored fields loaded for each document
+                LeafReader leafReader = new FilterLeafReader(leaf.reader()) {
+                    @Override public void document(int docID, StoredFieldVisitor visitor) throws IOException {
+                        super.document(docID, visitor);
+                        if (visitor instanceof DocumentStoredFieldVisitor) {
+                            for (IndexableField field : ((DocumentStoredFieldVisitor) visitor).getDocument()) {
+                                loadedFields.add(field.name());
+                            }
+                        }
+                    }
+                };
+                for (int i = 0; i < leafReader.maxDoc(); i++) {
+                    AnnotationSummary fromStored = mapper.mapDocument(leaf.reader().document(i), 1);
+                    loadedFields.clear();
+                    AnnotationSummary fromDocValues = mapper.mapDocument(leafReader, i, 1);
+                    assertEquals("Mapped summaries differ", fromStored, fromDocValues);
+                    assertEquals("Mapped summary IDs differ", fromStored.getID(), fromDocValues.getID());
+                    assertEquals("Mapped summary sources differ",
+                                 new HashSet<>(fromStored.getAnnotationSourceURIs()),
+                                 new HashSet<>(fromDocValues.getAnnotationSourceURIs()));
+                    assertTrue("Property value should be loaded from stored fields",
+                               loadedFields.contains("property"));
+                    for (String field : new String[]{"id", "topScore", "timesVerified", "frequency", "source"}) {
+                        assertFalse("Field '" + field + "' has DocValues, but was loaded from stored fields",
+                                    loadedFields.contains(field));
+                    }
+                }
+            }
+        }
+        catch (IOException e) {
+            e.printStackTrace();
+            fail();
+        }
+    }
+
+    @Test
+    public void testLegacyIndexFallsBackToStoredFields() {
+        try (IndexReader reader = DirectoryReader.open(summaryIndex)) {
+            // copy stored fields only into an index without DocValues, as written by older indexers
+            Directory legacyIndex = new RAMDirectory();
+            IndexWriter w = new IndexWriter(legacyIndex, new IndexWriterConfig(new EnglishAnalyzer()));
+            for (int i = 0; i < reader.maxDoc(); i++) {
+                Document legacy = new Document();
+                for (IndexableField field : reader.document(i).getFields()) {
+                    legacy.add(new StoredField(field.name(), field.stringValue()));
+                }
+                w.addDocument(legacy);
+            }
+            w.close();
+
+            AnnotationSummaryMapper mapper = new AnnotationSummaryMapper(annotationCount, reader.numDocs(), 100f);
+            try (IndexReader legacyReader = DirectoryReader.open(legacyIndex)) {
+                for (LeafReaderContext leaf : legacyReader.leaves()) {
+                    LeafReader leafReader = leaf.reader();
+                    for (int i = 0; i < leafReader.maxDoc(); i++) {
+                        Document d = leafReader.document(i);
+                        AnnotationSummary fromStored = mapper.mapDocument(d, 1);
+                        AnnotationSummary fromFallback = mapper.mapDocument(d, leafReader, i, 1);
+                        assertEquals(fromStored, fromFallback);
+                        assertEquals(fromStored.getQuality(), fromFallback.getQuality(), 0f);
+                        AnnotationSummary fromCache = mapper.withCache(new AnnotationSummaryCache(10))
+                                .mapDocument(leafReader, i, 1);
+                        assertEquals(fromStored, fromCache);
+                        assertEquals(fromStored.getQuality(), fromCache.getQuality(), 0f);
+                    }
+                }
+            }
+            legacyIndex.close();
+        }
+        catch (IOException e) {
+            e.printStackTrace();
+            fail();
+        }
+    }
+
+    @Test
+    public void testCachedMappingMatchesUncachedMapping() {
+        try (IndexReader reader = DirectoryReader.open(summaryIndex)) {
+            AnnotationSummaryMapper rawMapper = new AnnotationSummaryMapper(annotationCount, reader.numDocs());
+            AnnotationSummaryMapper normalizedMapper =
+                    new AnnotationSummaryMapper(annotationCount, reader.numDocs(), 100f);
+            AnnotationSummaryMapper rankedMapper = normalizedMapper.withRankings(SOURCE_1);
+
+            // one cache shared by every mapper, as summaries are cached without their quality
+            AnnotationSummaryCache cache = new AnnotationSummaryCache(1000);
+            for (AnnotationSummaryMapper mapper : new AnnotationSummaryMapper[]{rawMapper,
+                                                                                normalizedMapper,
+                                                                                rankedMapper}) {
+                AnnotationSummaryMapper cachedMapper = mapper.withCache(cache);
+                assertSame("Cache should be kept with new rankings", cache, cachedMapper.withRankings().getCache());
+
+                // map everything twice, so the second pass comes from the cache
+                for (int pass = 0; pass < 2; pass++) {
+                    for (LeafReaderContext leaf : reader.leaves()) {
+                        LeafReader leafReader = leaf.reader();
+                        for (int i = 0; i < leafReader.maxDoc(); i++) {
+                            for (int rank = 1; rank <= 3; rank++) {
+                                AnnotationSummary uncached = mapper.mapDocument(leafReader.document(i), rank);
+                                AnnotationSummary cached = cachedMapper.mapDocument(leafReader, i, rank);
+                                assertEquals("Mapped summaries differ", uncached, cached);
+                                assertEquals("Mapped summary IDs differ", uncached.getID(), cached.getID());
+                                assertEquals("Mapped summary quality differs",
+                                             uncached.getQuality(), cached.getQuality(), 0f);
+                            }
+                        }
+                    }
+                }
+            }
+            assertEquals("Every summary should have been cached once", reader.numDocs(), cache.size());
+        }
+        catch (IOException e) {
+            e.printStackTrace();
+            fail();
+        }
+    }
+
+    @Test
+    public void testCachedSummariesAreDroppedWhenReaderCloses() {
+        try {
+            AnnotationSummaryCache cache = new AnnotationSummaryCache(1000);
+            IndexReader reader = DirectoryReader.open(summaryIndex);
+            AnnotationSummaryMapper mapper =
+                    new AnnotationSummaryMapper(annotationCount, reader.numDocs(), 100f).withCache(cache);
+            for (LeafReaderContext leaf : reader.leaves()) {
+                for (int i = 0; i < leaf.reader().maxDoc(); i++) {
+                    mapper.mapDocument(leaf.reader(), i, 1);
+                }
+            }
+            assertEquals("Every summary should have been cached", reader.numDocs(), cache.size());
+            reader.close();
+            assertEquals("Summaries should be dropped when their segment closes", 0, cache.size());
+        }
+        catch (IOException e) {
+            e.printStackTrace();
+            fail();
+        }
+    }
+
+    @Test
+    public void testCachedMappingIsThreadSafe() {
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try (final IndexReader reader = DirectoryReader.open(summaryIndex)) {
+            final AnnotationSummaryMapper mapper = new AnnotationSummaryMapper(annotationCount, reader.numDocs(), 100f);
+            final List<AnnotationSummary> expected = new ArrayList<>();
+            for (LeafReaderContext leaf : reader.leaves()) {
+                for (int i = 0; i < leaf.reader().maxDoc(); i++) {
+                    for (int rank = 1; rank <= 3; rank++) {
+                        expected.add(mapper.mapDocument(leaf.reader().document(i), rank));
+                    }
+                }
+            }
+
+            // a cache much smaller than the index, so summaries are evicted and remapped while others are read
+            final AnnotationSummaryMapper cachedMapper = mapper.withCache(new AnnotationSummaryCache(5));
+            List<Future<Integer>> results = new ArrayList<>();
+            for (int t = 0; t < 8; t++) {
+                final int offset = t;
+                results.add(executor.submit(new Callable<Integer>() {
+                    @Override public Integer call() throws IOException {
+                        int mapped = 0;
+                        for (int n = 0; n < 50; n++) {
+                            int next = 0;
+                            for (LeafReaderContext leaf : reader.leaves()) {
+                                for (int i = 0; i < leaf.reader().maxDoc(); i++) {
+                                    // each thread visits ranks in a different order
+                                    for (int r = 0; r < 3; r++) {
+                                        int rank = ((r + offset + n) % 3) + 1;
+                                        AnnotationSummary summary = cachedMapper.mapDocument(leaf.reader(), i, rank);
+                                        AnnotationSummary original = expected.get(next + rank - 1);
+                                        assertEquals("Mapped summaries differ", original, summary);
+                                        assertEquals("Mapped summary quality differs",
+                                                     original.getQuality(), summary.getQuality(), 0f);
+                                        mapped++;
+                                    }
+                                    next += 3;
+                                }
+                            }
+                        }
+                        return mapped;
+                    }
+                }));
+            }
+            for (Future<Integer> result : results) {
+                assertEquals("Wrong number of summaries mapped", 50 * expected.size(), (int) result.get());
+            }
+            assertTrue("Cache should not exceed its maximum size", cachedMapper.getCache().size() <= 5);
+        }
+        catch (IOException | InterruptedException | ExecutionException e) {
+            e.printStackTrace();
+            fail();
+        }
+        finally {
+            executor.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,209 @@
+package uk.ac.ebi.fgpt.zooma.service;
+
+import org.apache.lucene.analysis.en.EnglishAnalyzer;
+import org.apache.lucene.analysis.util.CharArraySet;
+import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.store.Directory;
+import org.apache.lucene.store.RAMDirectory;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import uk.ac.ebi.fgpt.zooma.datasource.AnnotationDAO;
+import uk.ac.ebi.fgpt.zooma.datasource.AnnotationSummaryDAO;
+import uk.ac.ebi.fgpt.zooma.model.Annotation;
+import uk.ac.ebi.fgpt.zooma.model.AnnotationProvenance;
+import uk.ac.ebi.fgpt.zooma.model.AnnotationSummary;
+import uk.ac.ebi.fgpt.zooma.model.BiologicalEntity;
+import uk.ac.ebi.fgpt.zooma.model.Property;
+import uk.ac.ebi.fgpt.zooma.model.SimpleAnnotation;
+import uk.ac.ebi.fgpt.zooma.model.SimpleAnnotationProvenance;
+import uk.ac.ebi.fgpt.zooma.model.SimpleAnnotationSummary;
+import uk.ac.ebi.fgpt.zooma.model.SimpleDatabaseAnnotationSource;
+import uk.ac.ebi.fgpt.zooma.model.SimpleTypedProperty;
+import uk.ac.ebi.fgpt.zooma.model.TypedProperty;
+
+import java.io.IOException;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Tests that a {@link LuceneAnnotationSummarySearchService} normalizes scores identically whether it reads the maximum
+ * summary quality score recorded by the {@link ZoomaLuceneIndexer}, or evaluates it from a legacy index without one.
+ */
+public class TestLuceneAnnotationSummarySearchServiceCalibration {
+    private static final String[] WORDS = {"liver", "heart", "kidney", "lung", "brain", "blood", "skin", "bone",
+            "tumor", "carcinoma", "leukemia", "cell"};
+
+    private int annotationCount;
+
+    private Directory recordedIndex;
+    private Directory legacyIndex;
+
+    private LuceneAnnotationSummarySearchService recordedService;
+    private LuceneAnnotationSummarySearchService legacyService;
+
+    @Before
+    public void setUp() {
+        try {
+            // a fixture corpus of annotations, summarized by property and semantic tag
+            Random random = new Random(42);
+            List<Annotation> annotations = new ArrayList<>();
+            Map<URI, Property> properties = new LinkedHashMap<>();
+            Map<String, List<Annotation>> annotationsBySummary = new LinkedHashMap<>();
+            for (int i = 0; i < 2000; i++) {
+                int p = random.nextInt(200);
+                Property property = new SimpleTypedProperty(URI.create("http://www.test.com/property/" + p),
+                                                            p % 2 == 0 ? "organism part" : "disease",
+                                                            WORDS[p % WORDS.length] + " " + p);
+                int source = random.nextInt(4);
+                AnnotationProvenance provenance = new SimpleAnnotationProvenance(
+                        new SimpleDatabaseAnnotationSource(URI.create("http://www.test.com/source" + source),
+                                                           "source" + source),
+                        AnnotationProvenance.Evidence.values()[random.nextInt(3)],
+                        "TEST",
+                        new Date(1400000000000L + random.nextInt(1000000) * 1000L));
+                URI semanticTag = URI.create("http://www.test.com/semantic-tag-" + (p + random.nextInt(3)));
+                Annotation annotation = new SimpleAnnotation(URI.create("http://www.test.com/annotation" + i),
+                                                             Collections.<BiologicalEntity>emptySet(),
+                                                             property,
+                                                             provenance,
+                                                             semanticTag);
+                annotations.add(annotation);
+                properties.put(property.getURI(), property);
+
+                String key = property.getURI() + " " + semanticTag;
+                if (!annotationsBySummary.containsKey(key)) {
+                    annotationsBySummary.put(key, new ArrayList<Annotation>());
+                }
+                annotationsBySummary.get(key).add(annotation);
+            }
+            annotationCount = annotations.size();
+
+            Collection<AnnotationSummary> summaries = new ArrayList<>();
+            for (List<Annotation> summarized : annotationsBySummary.values()) {
+                Property property = summarized.get(0).getAnnotatedProperty();
+                List<URI> annotationURIs = new ArrayList<>();
+                for (Annotation annotation : summarized) {
+                    annotationURIs.add(annotation.getURI());
+                }
+                summaries.add(new SimpleAnnotationSummary(null,
+                                                          property.getURI(),
+                                                          ((TypedProperty) property).getPropertyType(),
+                                                          property.getPropertyValue(),
+                                                          summarized.get(0).getSemanticTags(),
+                                                          annotationURIs,
+                                                          0,
+                                                          new HashSet<URI>()));
+            }
+            AnnotationSummaryDAO summaryDAO = mock(AnnotationSummaryDAO.class);
+            when(summaryDAO.read()).thenReturn(summaries);
+
+            ZoomaLuceneIndexer indexer = new ZoomaLuceneIndexer();
+            indexer.setAnalyzer(new EnglishAnalyzer(CharArraySet.EMPTY_SET));
+            indexer.setAnnotationSummaryDAO(summaryDAO);
+            indexer.setAnnotationIndex(new RAMDirectory());
+            indexer.setAnnotationCountIndex(new RAMDirectory());
+            indexer.setAnnotationSummaryIndex(new RAMDirectory());
+            indexer.setPropertyIndex(new RAMDirectory());
+            indexer.setPropertyTypeIndex(new RAMDirectory());
+            indexer.createIndices(annotations, annotationCount, properties.values());
+
+            recordedIndex = indexer.getAnnotationSummaryIndex();
+
+            // copy the summary index without the recorded statistics, as if it were built by an earlier version
+            legacyIndex = new RAMDirectory();
+            IndexWriter legacyWriter =
+                    new IndexWriter(legacyIndex, new IndexWriterConfig(new EnglishAnalyzer(CharArraySet.EMPTY_SET)));
+            legacyWriter.addIndexes(recordedIndex);
+            legacyWriter.close();
+
+            AnnotationDAO annotationDAO = mock(AnnotationDAO.class);
+            when(annotationDAO.count()).thenReturn(annotationCount);
+
+            recordedService = new LuceneAnnotationSummarySearchService();
+            recordedService.setIndex(recordedIndex);
+            recordedService.setAnnotationDAO(annotationDAO);
+            recordedService.init();
+            recordedService.waitUntilReady();
+
+            legacyService = new LuceneAnnotationSummarySearchService();
+            legacyService.setIndex(legacyIndex);
+            legacyService.setAnnotationDAO(annotationDAO);
+            legacyService.init();
+            legacyService.waitUntilReady();
+        }
+        catch (IOException | InterruptedException e) {
+            e.printStackTrace();
+            fail();
+        }
+    }
+
+    @After
+    public void tearDown() {
+        recordedService.destroy();
+        legacyService.destroy();
+    }
+
+    private Map<String, Float> scores(Collection<AnnotationSummary> summaries) {
+        Map<String, Float> scores = new TreeMap<>();
+        for (AnnotationSummary summary : summaries) {
+            scores.put(summary.getID(), summary.getQuality());
+        }
+        return scores;
+    }
+
+    @Test
+    public void testMaximumScoreIsRecorded() {
+        try (DirectoryReader recordedReader = DirectoryReader.open(recordedIndex);
+             DirectoryReader legacyReader = DirectoryReader.open(legacyIndex)) {
+            int summaryCount = recordedReader.numDocs();
+            Float recorded = recordedService.readMaximumQualityScore(recordedReader, annotationCount, summaryCount);
+            assertNotNull("Maximum score should be recorded at build time", recorded);
+            assertNull("Legacy index should have no recorded maximum score",
+                       legacyService.readMaximumQualityScore(legacyReader, annotationCount, summaryCount));
+            assertNull("Recorded maximum score should not be used for a different number of annotations",
+                       recordedService.readMaximumQualityScore(recordedReader, annotationCount + 1, summaryCount));
+
+            float evaluated = new AnnotationSummaryMapper(annotationCount, summaryCount)
+                    .getMaximumDocumentQuality(legacyReader);
+            assertEquals("Recorded maximum score differs from evaluated maximum score", evaluated, recorded, 0f);
+        }
+        catch (IOException e) {
+            e.printStackTrace();
+            fail();
+        }
+    }
+
+    @Test
+    public void testNormalizedScoresMatchLegacyIndex() {
+        for (String word : WORDS) {
+            Map<String, Float> recorded = scores(recordedService.search(word));
+            Map<String, Float> legacy = scores(legacyService.search(word));
+            assertTrue("Search for '" + word + "' should find summaries", !recorded.isEmpty());
+            assertEquals("Normalized scores differ for '" + word + "'", legacy, recorded);
+
+            Map<String, Float> recordedTyped = scores(recordedService.search("organism part", word));
+            Map<String, Float> legacyTyped = scores(legacyService.search("organism part", word));
+            assertEquals("Normalized scores differ for 'organism part' '" + word + "'", legacyTyped, recordedTyped);
+        }
+    }
+}
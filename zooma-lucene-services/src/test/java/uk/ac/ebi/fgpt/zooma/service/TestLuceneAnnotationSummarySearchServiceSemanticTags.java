@@ -0,0 +1,209 @@
+package uk.ac.ebi.fgpt.zooma.service;
+
+import org.apache.lucene.analysis.en.EnglishAnalyzer;
+import org.apache.lucene.analysis.util.CharArraySet;
+import org.apache.lucene.store.RAMDirectory;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import uk.ac.ebi.fgpt.zooma.datasource.AnnotationDAO;
+import uk.ac.ebi.fgpt.zooma.datasource.AnnotationSummaryDAO;
+import uk.ac.ebi.fgpt.zooma.model.Annotation;
+import uk.ac.ebi.fgpt.zooma.model.AnnotationProvenance;
+import uk.ac.ebi.fgpt.zooma.model.AnnotationSummary;
+import uk.ac.ebi.fgpt.zooma.model.BiologicalEntity;
+import uk.ac.ebi.fgpt.zooma.model.Property;
+import uk.ac.ebi.fgpt.zooma.model.SimpleAnnotation;
+import uk.ac.ebi.fgpt.zooma.model.SimpleAnnotationProvenance;
+import uk.ac.ebi.fgpt.zooma.model.SimpleAnnotationSummary;
+import uk.ac.ebi.fgpt.zooma.model.SimpleDatabaseAnnotationSource;
+import uk.ac.ebi.fgpt.zooma.model.SimpleTypedProperty;
+
+import java.io.IOException;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Tests that searching a {@link LuceneAnnotationSummarySearchService} by semantic tag finds exactly those summaries
+ * with a semantic tag ending in the supplied short form or URI, using the reversed semantic tags indexed by the {@link
+ * ZoomaLuceneIndexer}.
+ */
+public class TestLuceneAnnotationSummarySearchServiceSemanticTags {
+    private static final List<URI> SEMANTIC_TAGS = Arrays.asList(
+            URI.create("http://www.ebi.ac.uk/efo/EFO_0000001"),
+            URI.create("http://www.ebi.ac.uk/efo/EFO_0000270"),
+            URI.create("http://www.ebi.ac.uk/efo/EFO_0010001"),
+            URI.create("http://purl.obolibrary.org/obo/UBERON_0002107"),
+            URI.create("http://purl.obolibrary.org/obo/UBERON_0000948"),
+            URI.create("http://purl.obolibrary.org/obo/CL_0000001"),
+            URI.create("http://www.orpha.net/ORDO/Orphanet_0000001"),
+            URI.create("http://purl.obolibrary.org/obo/NCBITaxon_9606"));
+
+    private List<AnnotationSummary> summaries;
+    private ZoomaLuceneIndexer indexer;
+    private LuceneAnnotationSummarySearchService searchService;
+
+    @Before
+    public void setUp() {
+        try {
+            // one summary for each semantic tag, and for some pairs of tags
+            List<Annotation> annotations = new ArrayList<>();
+            List<Property> properties = new ArrayList<>();
+            summaries = new ArrayList<>();
+            List<Set<URI>> tagSets = new ArrayList<>();
+            for (int i = 0; i < SEMANTIC_TAGS.size(); i++) {
+                tagSets.add(Collections.singleton(SEMANTIC_TAGS.get(i)));
+                if (i % 2 == 1) {
+                    tagSets.add(new HashSet<>(Arrays.asList(SEMANTIC_TAGS.get(i - 1), SEMANTIC_TAGS.get(i))));
+                }
+            }
+            for (Set<URI> tags : tagSets) {
+                int n = properties.size();
+                Property property = new SimpleTypedProperty(URI.create("http://www.test.com/property/" + n),
+                                                            "organism part",
+                                                            "value " + n);
+                properties.add(property);
+                AnnotationProvenance provenance = new SimpleAnnotationProvenance(
+                        new SimpleDatabaseAnnotationSource(URI.create("http://www.test.com/source"), "source"),
+                        AnnotationProvenance.Evidence.MANUAL_CURATED,
+                        "TEST",
+                        new Date(1400000000000L));
+                Annotation annotation = new SimpleAnnotation(URI.create("http://www.test.com/annotation" + n),
+                                                             Collections.<BiologicalEntity>emptySet(),
+                                                             property,
+                                                             provenance,
+                                                             tags.toArray(new URI[tags.size()]));
+                annotations.add(annotation);
+                summaries.add(new SimpleAnnotationSummary(null,
+                                                          property.getURI(),
+                                                          "organism part",
+                                                          property.getPropertyValue(),
+                                                          tags,
+                                                          Collections.singleton(annotation.getURI()),
+                                                          0,
+                                                          new HashSet<URI>()));
+            }
+
+            AnnotationSummaryDAO summaryDAO = mock(AnnotationSummaryDAO.class);
+            when(summaryDAO.read()).thenReturn(summaries);
+            AnnotationDAO annotationDAO = mock(AnnotationDAO.class);
+            when(annotationDAO.count()).thenReturn(annotations.size());
+
+            indexer = new ZoomaLuceneIndexer();
+            indexer.setAnalyzer(new EnglishAnalyzer(CharArraySet.EMPTY_SET));
+            indexer.setAnnotationSummaryDAO(summaryDAO);
+            indexer.setAnnotationIndex(new RAMDirectory());
+            indexer.setAnnotationCountIndex(new RAMDirectory());
+            indexer.setAnnotationSummaryIndex(new RAMDirectory());
+            indexer.setPropertyIndex(new RAMDirectory());
+            indexer.setPropertyTypeIndex(new RAMDirectory());
+            indexer.createIndices(annotations, annotations.size(), properties);
+
+            searchService = new LuceneAnnotationSummarySearchService();
+            searchService.setIndex(indexer.getAnnotationSummaryIndex());
+            searchService.setAnnotationDAO(annotationDAO);
+            searchService.init();
+            searchService.waitUntilReady();
+        }
+        catch (IOException | InterruptedException e) {
+            e.printStackTrace();
+            fail();
+        }
+    }
+
+    @After
+    public void tearDown() {
+        searchService.destroy();
+        indexer.destroy();
+    }
+
+    private Set<String> keys(Collection<AnnotationSummary> results) {
+        Set<String> keys = new TreeSet<>();
+        for (AnnotationSummary summary : results) {
+            keys.add(summary.getAnnotatedPropertyUri() + " " + new TreeSet<>(summary.getSemanticTags()));
+        }
+        return keys;
+    }
+
+    // summaries with a semantic tag ending in every one of the given suffixes, ignoring case
+    private Set<String> expected(String... suffixes) {
+        List<AnnotationSummary> matches = new ArrayList<>();
+        for (AnnotationSummary summary : summaries) {
+            boolean matchesAll = true;
+            for (String suffix : suffixes) {
+                boolean matchesSuffix = false;
+                for (URI tag : summary.getSemanticTags()) {
+                    if (tag.toString().toLowerCase().endsWith(suffix.toLowerCase())) {
+                        matchesSuffix = true;
+                    }
+                }
+                matchesAll = matchesAll && matchesSuffix;
+            }
+            if (matchesAll) {
+                matches.add(summary);
+            }
+        }
+        return keys(matches);
+    }
+
+    @Test
+    public void testSearchByFullURI() {
+        for (URI tag : SEMANTIC_TAGS) {
+            Set<String> expected = expected(tag.toString());
+            assertTrue("Search for " + tag + " should find summaries", !expected.isEmpty());
+            assertEquals("Wrong summaries for " + tag, expected, keys(searchService.searchBySemanticTags(tag)));
+        }
+
+        URI first = SEMANTIC_TAGS.get(0);
+        URI second = SEMANTIC_TAGS.get(1);
+        assertEquals("Wrong summaries for " + first + " and " + second,
+                     expected(first.toString(), second.toString()),
+                     keys(searchService.searchBySemanticTags(first, second)));
+        assertEquals("Search for unknown URI should find nothing",
+                     Collections.<String>emptySet(),
+                     keys(searchService.searchBySemanticTags(URI.create("http://www.ebi.ac.uk/efo/EFO_9999999"))));
+    }
+
+    @Test
+    public void testSearchByShortForm() {
+        for (URI tag : SEMANTIC_TAGS) {
+            String path = tag.getPath();
+            String shortForm = path.substring(path.lastIndexOf('/') + 1);
+            assertEquals("Wrong summaries for " + shortForm,
+                         expected(shortForm),
+                         keys(searchService.searchBySemanticTags(shortForm)));
+        }
+
+        // fragments shared by several semantic tags, in any case
+        for (String fragment : Arrays.asList("0000001", "efo_0000001", "obo/UBERON_0002107", "_0000270", "9606")) {
+            Set<String> expected = expected(fragment);
+            assertTrue("Search for " + fragment + " should find summaries", !expected.isEmpty());
+            assertEquals("Wrong summaries for " + fragment,
+                         expected,
+                         keys(searchService.searchBySemanticTags(fragment)));
+        }
+        assertTrue("'0000001' should match semantic tags from several ontologies",
+                   expected("0000001").size() > expected("EFO_0000001").size());
+
+        assertEquals("Wrong summaries for EFO_0000001 and EFO_0000270",
+                     expected("EFO_0000001", "EFO_0000270"),
+                     keys(searchService.searchBySemanticTags("EFO_0000001", "EFO_0000270")));
+        assertEquals("Search for a prefix should not match",
+                     Collections.<String>emptySet(),
+                     keys(searchService.searchBySemanticTags("EFO_00")));
+    }
+}
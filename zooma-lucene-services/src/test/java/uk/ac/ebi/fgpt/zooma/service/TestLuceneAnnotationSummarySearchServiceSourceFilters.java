@@ -0,0 +1,227 @@
+package uk.ac.ebi.fgpt.zooma.service;
+
+import org.apache.lucene.analysis.en.EnglishAnalyzer;
+import org.apache.lucene.analysis.util.CharArraySet;
+import org.apache.lucene.store.RAMDirectory;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import uk.ac.ebi.fgpt.zooma.datasource.AnnotationDAO;
+import uk.ac.ebi.fgpt.zooma.datasource.AnnotationSummaryDAO;
+import uk.ac.ebi.fgpt.zooma.model.Annotation;
+import uk.ac.ebi.fgpt.zooma.model.AnnotationProvenance;
+import uk.ac.ebi.fgpt.zooma.model.AnnotationSummary;
+import uk.ac.ebi.fgpt.zooma.model.BiologicalEntity;
+import uk.ac.ebi.fgpt.zooma.model.Property;
+import uk.ac.ebi.fgpt.zooma.model.SimpleAnnotation;
+import uk.ac.ebi.fgpt.zooma.model.SimpleAnnotationProvenance;
+import uk.ac.ebi.fgpt.zooma.model.SimpleAnnotationSummary;
+import uk.ac.ebi.fgpt.zooma.model.SimpleDatabaseAnnotationSource;
+import uk.ac.ebi.fgpt.zooma.model.SimpleTypedProperty;
+
+import java.io.IOException;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Tests that searches of a {@link LuceneAnnotationSummarySearchService} restricted to a set of sources return exactly
+ * the unrestricted results from those sources, and that cached source filters are discarded when the index changes.
+ */
+public class TestLuceneAnnotationSummarySearchServiceSourceFilters {
+    private static final String[] WORDS = {"liver", "heart", "kidney", "lung", "brain"};
+    private static final List<URI> SOURCES = Arrays.asList(URI.create("http://www.test.com/source/a"),
+                                                           URI.create("http://www.test.com/source/b"),
+                                                           URI.create("http://www.test.com/source/c"),
+                                                           URI.create("http://www.test.com/source/d"));
+
+    private Random random;
+    private List<Annotation> annotations;
+    private List<Property> properties;
+    private List<AnnotationSummary> summaries;
+
+    private AnnotationDAO annotationDAO;
+    private ZoomaLuceneIndexer indexer;
+    private LuceneAnnotationSummarySearchService searchService;
+
+    @Before
+    public void setUp() {
+        try {
+            random = new Random(42);
+            annotations = new ArrayList<>();
+            properties = new ArrayList<>();
+            summaries = new ArrayList<>();
+            for (int i = 0; i < 60; i++) {
+                // most summaries are verified by several sources, but the last source is never used
+                addSummary(WORDS[i % WORDS.length] + " " + i, SOURCES.subList(0, 3));
+            }
+
+            AnnotationSummaryDAO summaryDAO = mock(AnnotationSummaryDAO.class);
+            when(summaryDAO.read()).thenReturn(summaries);
+            annotationDAO = mock(AnnotationDAO.class);
+            when(annotationDAO.count()).thenReturn(annotations.size());
+
+            indexer = new ZoomaLuceneIndexer();
+            indexer.setAnalyzer(new EnglishAnalyzer(CharArraySet.EMPTY_SET));
+            indexer.setAnnotationSummaryDAO(summaryDAO);
+            indexer.setAnnotationIndex(new RAMDirectory());
+            indexer.setAnnotationCountIndex(new RAMDirectory());
+            indexer.setAnnotationSummaryIndex(new RAMDirectory());
+            indexer.setPropertyIndex(new RAMDirectory());
+            indexer.setPropertyTypeIndex(new RAMDirectory());
+            indexer.createIndices(annotations, annotations.size(), properties);
+
+            searchService = new LuceneAnnotationSummarySearchService();
+            searchService.setIndex(indexer.getAnnotationSummaryIndex());
+            searchService.setAnnotationDAO(annotationDAO);
+            searchService.init();
+            searchService.waitUntilReady();
+        }
+        catch (IOException | InterruptedException e) {
+            e.printStackTrace();
+            fail();
+        }
+    }
+
+    @After
+    public void tearDown() {
+        searchService.destroy();
+        indexer.destroy();
+    }
+
+    // adds a summary with one annotation from each of a random, non-empty selection of the given sources
+    private void addSummary(String value, List<URI> sources) {
+        int n = properties.size();
+        Property property = new SimpleTypedProperty(URI.create("http://www.test.com/property/" + n),
+                                                    "organism part",
+                                                    value);
+        properties.add(property);
+        URI semanticTag = URI.create("http://www.test.com/semantic-tag-" + n);
+
+        List<URI> annotationURIs = new ArrayList<>();
+        for (URI source : sources) {
+            if (annotationURIs.isEmpty() || random.nextBoolean()) {
+                AnnotationProvenance provenance = new SimpleAnnotationProvenance(
+                        new SimpleDatabaseAnnotationSource(source, source.getPath()),
+                        AnnotationProvenance.Evidence.values()[random.nextInt(3)],
+                        "TEST",
+                        new Date(1400000000000L + random.nextInt(1000000) * 1000L));
+                Annotation annotation = new SimpleAnnotation(
+                        URI.create("http://www.test.com/annotation/" + annotations.size()),
+                        Collections.<BiologicalEntity>emptySet(),
+                        property,
+                        provenance,
+                        semanticTag);
+                annotations.add(annotation);
+                annotationURIs.add(annotation.getURI());
+            }
+        }
+        summaries.add(new SimpleAnnotationSummary(null,
+                                                  property.getURI(),
+                                                  "organism part",
+                                                  value,
+                                                  Collections.singleton(semanticTag),
+                                                  annotationURIs,
+                                                  0,
+                                                  new HashSet<URI>()));
+    }
+
+    // the summaries from an unrestricted search that were verified by any of the given sources, in the same order
+    private List<String> restrict(Collection<AnnotationSummary> results, URI... sources) {
+        List<String> restricted = new ArrayList<>();
+        for (AnnotationSummary summary : results) {
+            if (!Collections.disjoint(summary.getAnnotationSourceURIs(), Arrays.asList(sources))) {
+                restricted.add(summary.getID() + " " + summary.getQuality());
+            }
+        }
+        return restricted;
+    }
+
+    private List<String> keys(Collection<AnnotationSummary> results) {
+        List<String> keys = new ArrayList<>();
+        for (AnnotationSummary summary : results) {
+            keys.add(summary.getID() + " " + summary.getQuality());
+        }
+        return keys;
+    }
+
+    @Test
+    public void testFilteredResultsMatchUnfilteredResults() {
+        URI[][] sourceSets = {{SOURCES.get(0)},
+                {SOURCES.get(1), SOURCES.get(2)},
+                {SOURCES.get(2), SOURCES.get(1)},
+                {SOURCES.get(0), SOURCES.get(3)},
+                {SOURCES.get(3)}};
+        for (String word : WORDS) {
+            Collection<AnnotationSummary> unfiltered = searchService.search(word);
+            assertTrue("Search for " + word + " should find summaries", !unfiltered.isEmpty());
+            for (URI[] sources : sourceSets) {
+                List<String> expected = restrict(unfiltered, sources);
+                assertEquals("Wrong summaries for " + word + " from " + Arrays.asList(sources),
+                             expected,
+                             keys(searchService.search(word, sources)));
+                assertEquals("Wrong typed summaries for " + word + " from " + Arrays.asList(sources),
+                             restrict(searchService.search("organism part", word), sources),
+                             keys(searchService.search("organism part", word, sources)));
+
+                String prefix = word.substring(0, 3);
+                assertEquals("Wrong summaries for prefix " + prefix + " from " + Arrays.asList(sources),
+                             restrict(searchService.searchByPrefix(prefix), sources),
+                             keys(searchService.searchByPrefix(prefix, sources)));
+                assertEquals("Wrong typed summaries for prefix " + prefix + " from " + Arrays.asList(sources),
+                             restrict(searchService.searchByPrefix("organism part", prefix), sources),
+                             keys(searchService.searchByPrefix("organism part", prefix, sources)));
+            }
+        }
+        assertTrue("Search restricted to an unused source should find nothing",
+                   searchService.search(WORDS[0], SOURCES.get(3)).isEmpty());
+
+        // source order doesn't matter, so permuted source sets share a filter
+        assertEquals("Wrong number of cached source filters",
+                     sourceSets.length - 1,
+                     searchService.getSourceFilterCount());
+    }
+
+    @Test
+    public void testFiltersAreDiscardedWhenIndexChanges() {
+        try {
+            URI unused = SOURCES.get(3);
+            assertTrue("Search restricted to an unused source should find nothing",
+                       searchService.search(WORDS[0], unused).isEmpty());
+            assertEquals("Wrong number of cached source filters", 1, searchService.getSourceFilterCount());
+
+            // rebuild the index with summaries from the previously unused source
+            addSummary(WORDS[0] + " new", Collections.singletonList(unused));
+            when(annotationDAO.count()).thenReturn(annotations.size());
+            indexer.createIndices(annotations, annotations.size(), properties);
+
+            assertTrue("Index should have been reopened", searchService.maybeRefresh());
+            assertEquals("Source filters should have been discarded", 0, searchService.getSourceFilterCount());
+
+            Collection<AnnotationSummary> results = searchService.search(WORDS[0], unused);
+            assertEquals("New summary should be found", 1, results.size());
+            assertEquals("Wrong summary found",
+                         WORDS[0] + " new",
+                         results.iterator().next().getAnnotatedPropertyValue());
+            assertEquals("Wrong summaries for " + WORDS[0],
+                         restrict(searchService.search(WORDS[0]), unused),
+                         keys(results));
+        }
+        catch (IOException e) {
+            e.printStackTrace();
+            fail();
+        }
+    }
+}
@@ -0,0 +1,163 @@
+package uk.ac.ebi.fgpt.zooma.service;
+
+import org.apache.lucene.analysis.en.EnglishAnalyzer;
+import org.apache.lucene.analysis.util.CharArraySet;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.store.RAMDirectory;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import uk.ac.ebi.fgpt.zooma.datasource.AnnotationDAO;
+import uk.ac.ebi.fgpt.zooma.datasource.AnnotationSummaryDAO;
+import uk.ac.ebi.fgpt.zooma.model.Annotation;
+import uk.ac.ebi.fgpt.zooma.model.AnnotationProvenance;
+import uk.ac.ebi.fgpt.zooma.model.AnnotationSummary;
+import uk.ac.ebi.fgpt.zooma.model.BiologicalEntity;
+import uk.ac.ebi.fgpt.zooma.model.Property;
+import uk.ac.ebi.fgpt.zooma.model.SimpleAnnotation;
+import uk.ac.ebi.fgpt.zooma.model.SimpleAnnotationProvenance;
+import uk.ac.ebi.fgpt.zooma.model.SimpleAnnotationSummary;
+import uk.ac.ebi.fgpt.zooma.model.SimpleDatabaseAnnotationSource;
+import uk.ac.ebi.fgpt.zooma.model.SimpleTypedProperty;
+
+import java.io.IOException;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Tests that the searches of a {@link LuceneAnnotationSummarySearchService} run the bounded, top-K form of {@link
+ * ZoomaLuceneSearchService#doQuery} by default, so that only the best scoring summaries are mapped.
+ */
+public class TestLuceneAnnotationSummarySearchServiceTopK {
+    private static final int SUMMARY_COUNT = 200;
+    private static final URI SOURCE = URI.create("http://www.test.com/source");
+
+    private ZoomaLuceneIndexer indexer;
+    private LuceneAnnotationSummarySearchService searchService;
+
+    private List<Integer> limits;
+    private List<Float> cutoffs;
+
+    @Before
+    public void setUp() {
+        try {
+            List<Annotation> annotations = new ArrayList<>();
+            List<Property> properties = new ArrayList<>();
+            List<AnnotationSummary> summaries = new ArrayList<>();
+            for (int i = 0; i < SUMMARY_COUNT; i++) {
+                Property property = new SimpleTypedProperty(URI.create("http://www.test.com/property/" + i),
+                                                            "organism part",
+                                                            "liver " + i);
+                properties.add(property);
+                URI semanticTag = URI.create("http://www.test.com/semantic-tag-" + i);
+                Annotation annotation = new SimpleAnnotation(
+                        URI.create("http://www.test.com/annotation/" + i),
+                        Collections.<BiologicalEntity>emptySet(),
+                        property,
+                        new SimpleAnnotationProvenance(new SimpleDatabaseAnnotationSource(SOURCE, "source"),
+                                                       AnnotationProvenance.Evidence.MANUAL_CURATED,
+                                                       "TEST",
+                                                       new Date(1400000000000L + i * 1000L)),
+                        semanticTag);
+                annotations.add(annotation);
+                summaries.add(new SimpleAnnotationSummary(null,
+                                                          property.getURI(),
+                                                          "organism part",
+                                                          property.getPropertyValue(),
+                                                          Collections.singleton(semanticTag),
+                                                          Collections.singleton(annotation.getURI()),
+                                                          0,
+                                                          new HashSet<URI>()));
+            }
+
+            AnnotationSummaryDAO summaryDAO = mock(AnnotationSummaryDAO.class);
+            when(summaryDAO.read()).thenReturn(summaries);
+            AnnotationDAO annotationDAO = mock(AnnotationDAO.class);
+            when(annotationDAO.count()).thenReturn(annotations.size());
+
+            indexer = new ZoomaLuceneIndexer();
+            indexer.setAnalyzer(new EnglishAnalyzer(CharArraySet.EMPTY_SET));
+            indexer.setAnnotationSummaryDAO(summaryDAO);
+            indexer.setAnnotationIndex(new RAMDirectory());
+            indexer.setAnnotationCountIndex(new RAMDirectory());
+            indexer.setAnnotationSummaryIndex(new RAMDirectory());
+            indexer.setPropertyIndex(new RAMDirectory());
+            indexer.setPropertyTypeIndex(new RAMDirectory());
+            indexer.createIndices(annotations, annotations.size(), properties);
+
+            // records the bounds each query is run with
+            limits = Collections.synchronizedList(new ArrayList<Integer>());
+            cutoffs = Collections.synchronizedList(new ArrayList<Float>());
+            searchService = new LuceneAnnotationSummarySearchService() {
+                @Override protected <T> List<T> doQuery(Query q,
+                                                        LuceneDocumentMapper<T> mapper,
+                                                        int limit,
+                                                        float minimumRelativeScore) throws IOException {
+                    limits.add(limit);
+                    cutoffs.add(minimumRelativeScore);
+                    return super.doQuery(q, mapper, limit, minimumRelativeScore);
+                }
+            };
+            searchService.setIndex(indexer.getAnnotationSummaryIndex());
+            searchService.setAnnotationDAO(annotationDAO);
+            searchService.init();
+            searchService.waitUntilReady();
+        }
+        catch (IOException | InterruptedException e) {
+            e.printStackTrace();
+            fail();
+        }
+    }
+
+    @After
+    public void tearDown() {
+        searchService.destroy();
+        indexer.destroy();
+    }
+
+    @Test
+    public void testSearchesAreBoundedByDefault() {
+        int maxSummaries = searchService.getMaxSummaries();
+        float minimumRelativeScore = searchService.getMinimumRelativeScore();
+        assertTrue("Searches should be bounded by default", maxSummaries > 0 && maxSummaries < SUMMARY_COUNT);
+        assertTrue("Searches should have a relative score cutoff by default", minimumRelativeScore > 0);
+
+        List<Collection<AnnotationSummary>> results = new ArrayList<>();
+        results.add(searchService.search("liver"));
+        results.add(searchService.search("liver", SOURCE));
+        results.add(searchService.search("organism part", "liver"));
+        results.add(searchService.searchByPreferredSources("liver", Collections.singletonList(SOURCE)));
+
+        assertEquals("Every search should have run one query", results.size(), limits.size());
+        for (int i = 0; i < results.size(); i++) {
+            assertEquals("Search " + i + " should run the top-K query", maxSummaries, (int) limits.get(i));
+            assertEquals("Search " + i + " should apply the relative score cutoff",
+                         minimumRelativeScore,
+                         cutoffs.get(i),
+                         0f);
+            // every summary scores the same, so only the limit applies
+            assertEquals("Search " + i + " should map only the top summaries", maxSummaries, results.get(i).size());
+        }
+    }
+
+    @Test
+    public void testUnboundedSearchMapsEveryHit() {
+        searchService.setMaxSummaries(-1);
+        searchService.setMinimumRelativeScore(0f);
+        assertEquals("Unbounded search should map every summary",
+                     SUMMARY_COUNT,
+                     searchService.search("liver").size());
+        assertEquals("Unbounded search should run the exhaustive query", -1, (int) limits.get(0));
+    }
+}
@@ -0,0 +1,213 @@
+package uk.ac.ebi.fgpt.zooma.service;
+
+import org.apache.lucene.analysis.en.EnglishAnalyzer;
+import org.apache.lucene.analysis.util.CharArraySet;
+import org.apache.lucene.store.Directory;
+import org.apache.lucene.store.FSDirectory;
+import org.apache.lucene.store.MMapDirectory;
+import org.apache.lucene.store.NIOFSDirectory;
+import org.apache.lucene.store.RAMDirectory;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import uk.ac.ebi.fgpt.zooma.datasource.AnnotationDAO;
+import uk.ac.ebi.fgpt.zooma.datasource.AnnotationSummaryDAO;
+import uk.ac.ebi.fgpt.zooma.model.Annotation;
+import uk.ac.ebi.fgpt.zooma.model.AnnotationProvenance;
+import uk.ac.ebi.fgpt.zooma.model.AnnotationSummary;
+import uk.ac.ebi.fgpt.zooma.model.BiologicalEntity;
+import uk.ac.ebi.fgpt.zooma.model.Property;
+import uk.ac.ebi.fgpt.zooma.model.SimpleAnnotation;
+import uk.ac.ebi.fgpt.zooma.model.SimpleAnnotationProvenance;
+import uk.ac.ebi.fgpt.zooma.model.SimpleAnnotationSummary;
+import uk.ac.ebi.fgpt.zooma.model.SimpleDatabaseAnnotationSource;
+import uk.ac.ebi.fgpt.zooma.model.SimpleTypedProperty;
+
+import java.io.IOException;
+import java.net.URI;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Tests that an index opened through each {@link LuceneDirectoryFactory} strategy returns exactly the same search
+ * results.
+ */
+public class TestLuceneDirectoryFactory {
+    private static final String[] WORDS = {"liver", "heart", "kidney", "lung", "brain", "blood", "skin", "bone",
+            "tumor", "carcinoma", "leukemia", "cell"};
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private Path summaryIndexPath;
+    private AnnotationDAO annotationDAO;
+
+    @Before
+    public void setUp() {
+        try {
+            Random random = new Random(42);
+            List<Annotation> annotations = new ArrayList<>();
+            Map<URI, Property> properties = new LinkedHashMap<>();
+            Map<URI, List<URI>> annotationsByProperty = new LinkedHashMap<>();
+            for (int i = 0; i < 500; i++) {
+                int p = random.nextInt(100);
+                Property property = new SimpleTypedProperty(URI.create("http://www.test.com/property/" + p),
+                                                            "organism part",
+                                                            WORDS[p % WORDS.length] + " " + p);
+                AnnotationProvenance provenance = new SimpleAnnotationProvenance(
+                        new SimpleDatabaseAnnotationSource(URI.create("http://www.test.com/source" + (i % 3)),
+                                                           "source" + (i % 3)),
+                        AnnotationProvenance.Evidence.values()[random.nextInt(3)],
+                        "TEST",
+                        new Date(1400000000000L + random.nextInt(1000000) * 1000L));
+                Annotation annotation = new SimpleAnnotation(URI.create("http://www.test.com/annotation" + i),
+                                                             Collections.<BiologicalEntity>emptySet(),
+                                                             property,
+                                                             provenance,
+                                                             semanticTag(property));
+                annotations.add(annotation);
+                properties.put(property.getURI(), property);
+                if (!annotationsByProperty.containsKey(property.getURI())) {
+                    annotationsByProperty.put(property.getURI(), new ArrayList<URI>());
+                }
+                annotationsByProperty.get(property.getURI()).add(annotation.getURI());
+            }
+
+            // one summary per property, as every annotation of a property has the same semantic tag
+            Collection<AnnotationSummary> summaries = new ArrayList<>();
+            for (Property property : properties.values()) {
+                summaries.add(new SimpleAnnotationSummary(null,
+                                                          property.getURI(),
+                                                          "organism part",
+                                                          property.getPropertyValue(),
+                                                          Collections.singleton(semanticTag(property)),
+                                                          annotationsByProperty.get(property.getURI()),
+                                                          0,
+                                                          new HashSet<URI>()));
+            }
+            AnnotationSummaryDAO summaryDAO = mock(AnnotationSummaryDAO.class);
+            when(summaryDAO.read()).thenReturn(summaries);
+            annotationDAO = mock(AnnotationDAO.class);
+            when(annotationDAO.count()).thenReturn(annotations.size());
+
+            Path indexPath = folder.newFolder("index").toPath();
+            summaryIndexPath = indexPath.resolve("annotationSummary");
+            ZoomaLuceneIndexer indexer = new ZoomaLuceneIndexer();
+            indexer.setAnalyzer(new EnglishAnalyzer(CharArraySet.EMPTY_SET));
+            indexer.setAnnotationSummaryDAO(summaryDAO);
+            indexer.setAnnotationIndex(FSDirectory.open(indexPath.resolve("annotation")));
+            indexer.setAnnotationCountIndex(FSDirectory.open(indexPath.resolve("annotationCount")));
+            indexer.setAnnotationSummaryIndex(FSDirectory.open(summaryIndexPath));
+            indexer.setPropertyIndex(FSDirectory.open(indexPath.resolve("property")));
+            indexer.setPropertyTypeIndex(FSDirectory.open(indexPath.resolve("propertyType")));
+            indexer.createIndices(annotations, annotations.size(), properties.values());
+            indexer.destroy();
+        }
+        catch (IOException e) {
+            e.printStackTrace();
+            fail();
+        }
+    }
+
+    private URI semanticTag(Property property) {
+        return URI.create("http://www.test.com/semantic-tag-" + property.getPropertyValue().replace(' ', '-'));
+    }
+
+    private LuceneDirectoryFactory createFactory(LuceneDirectoryFactory.Strategy strategy, boolean preload) {
+        LuceneDirectoryFactory factory = new LuceneDirectoryFactory();
+        factory.setStrategy(strategy);
+        factory.setPreload(preload);
+        return factory;
+    }
+
+    private List<Map<String, Float>> search(Directory directory) throws IOException, InterruptedException {
+        LuceneAnnotationSummarySearchService searchService = new LuceneAnnotationSummarySearchService();
+        searchService.setIndex(directory);
+        searchService.setAnnotationDAO(annotationDAO);
+        searchService.init();
+        searchService.waitUntilReady();
+        try {
+            List<Map<String, Float>> results = new ArrayList<>();
+            for (String word : WORDS) {
+                Map<String, Float> scores = new TreeMap<>();
+                for (AnnotationSummary summary : searchService.search(word)) {
+                    scores.put(summary.getID(), summary.getQuality());
+                }
+                results.add(scores);
+            }
+            return results;
+        }
+        finally {
+            searchService.destroy();
+            directory.close();
+        }
+    }
+
+    @Test
+    public void testStrategiesOpenExpectedDirectories() {
+        try {
+            Directory mmap = createFactory(LuceneDirectoryFactory.Strategy.MMAP, true).openDirectory(summaryIndexPath);
+            assertTrue("MMAP strategy should open an MMapDirectory", mmap instanceof MMapDirectory);
+            assertTrue("Preload should be set", ((MMapDirectory) mmap).getPreload());
+            mmap.close();
+
+            Directory niofs = createFactory(LuceneDirectoryFactory.Strategy.NIOFS, false)
+                    .openDirectory(summaryIndexPath.toString());
+            assertTrue("NIOFS strategy should open an NIOFSDirectory", niofs instanceof NIOFSDirectory);
+            niofs.close();
+
+            Directory ram = createFactory(LuceneDirectoryFactory.Strategy.RAM, false).openDirectory(summaryIndexPath);
+            assertTrue("RAM strategy should open a RAMDirectory", ram instanceof RAMDirectory);
+            ram.close();
+        }
+        catch (IOException e) {
+            e.printStackTrace();
+            fail();
+        }
+    }
+
+    @Test
+    public void testStrategiesReturnIdenticalResults() {
+        try {
+            List<Map<String, Float>> expected = search(FSDirectory.open(summaryIndexPath));
+            assertTrue("Searches should find summaries", !expected.get(0).isEmpty());
+
+            assertEquals("MMAP results differ",
+                         expected,
+                         search(createFactory(LuceneDirectoryFactory.Strategy.MMAP, false)
+                                        .openDirectory(summaryIndexPath)));
+            assertEquals("Preloaded MMAP results differ",
+                         expected,
+                         search(createFactory(LuceneDirectoryFactory.Strategy.MMAP, true)
+                                        .openDirectory(summaryIndexPath)));
+            assertEquals("NIOFS results differ",
+                         expected,
+                         search(createFactory(LuceneDirectoryFactory.Strategy.NIOFS, false)
+                                        .openDirectory(summaryIndexPath)));
+            assertEquals("RAM results differ",
+                         expected,
+                         search(createFactory(LuceneDirectoryFactory.Strategy.RAM, false)
+                                        .openDirectory(summaryIndexPath)));
+        }
+        catch (IOException | InterruptedException e) {
+            e.printStackTrace();
+            fail();
+        }
+    }
+}
@@ -1,10 +1,220 @@
 package uk.ac.ebi.fgpt.zooma.service;
 
+import org.apache.lucene.analysis.en.EnglishAnalyzer;
+import org.apache.lucene.analysis.util.CharArraySet;
+import org.apache.lucene.store.RAMDirectory;
+import org.junit.After;
+import org.junit.Before;
 import org.junit.Test;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+import uk.ac.ebi.fgpt.zooma.datasource.AnnotationSummaryDAO;
+import uk.ac.ebi.fgpt.zooma.datasource.PropertyDAO;
+import uk.ac.ebi.fgpt.zooma.model.Annotation;
+import uk.ac.ebi.fgpt.zooma.model.AnnotationProvenance;
+import uk.ac.ebi.fgpt.zooma.model.AnnotationSummary;
+import uk.ac.ebi.fgpt.zooma.model.BiologicalEntity;
+import uk.ac.ebi.fgpt.zooma.model.Property;
+import uk.ac.ebi.fgpt.zooma.model.SimpleAnnotation;
+import uk.ac.ebi.fgpt.zooma.model.SimpleAnnotationProvenance;
+import uk.ac.ebi.fgpt.zooma.model.SimpleDatabaseAnnotationSource;
+import uk.ac.ebi.fgpt.zooma.model.SimpleTypedProperty;
+import uk.ac.ebi.fgpt.zooma.model.SimpleUntypedProperty;
+import uk.ac.ebi.fgpt.zooma.model.TypedProperty;
 
+import java.io.IOException;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.fail;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyCollectionOf;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyZeroInteractions;
+import static org.mockito.Mockito.when;
+
+/**
+ * Tests that a {@link LucenePropertySearchService} builds the properties it finds from the values stored in the
+ * property index, and that when configured to read them from a {@link PropertyDAO} it does so in bulk rather than once
+ * per hit.
+ */
 public class TestLucenePropertySearchService {
+    private static final URI SOURCE = URI.create("http://www.test.com/source");
+
+    private Map<URI, Property> properties;
+
+    private ZoomaLuceneIndexer indexer;
+    private PropertyDAO propertyDAO;
+    private LucenePropertySearchService indexService;
+    private LucenePropertySearchService daoService;
+
+    @Before
+    public void setUp() {
+        properties = new LinkedHashMap<>();
+        for (int i = 0; i < 150; i++) {
+            // plenty of livers, so that hits span more than one block of results
+            addProperty(new SimpleTypedProperty(createURI(), "organism part", "liver " + i));
+        }
+        addProperty(new SimpleTypedProperty(createURI(), "organism part", "heart"));
+        addProperty(new SimpleTypedProperty(createURI(), "disease", "heart disease"));
+        addProperty(new SimpleUntypedProperty(createURI(), "kidney"));
+
+        try {
+            List<Annotation> annotations = new ArrayList<>();
+            for (Property property : properties.values()) {
+                annotations.add(createAnnotation(property, annotations.size()));
+            }
+            AnnotationSummaryDAO summaryDAO = mock(AnnotationSummaryDAO.class);
+            when(summaryDAO.read()).thenReturn(Collections.<AnnotationSummary>emptyList());
+
+            indexer = new ZoomaLuceneIndexer();
+            indexer.setAnalyzer(new EnglishAnalyzer(CharArraySet.EMPTY_SET));
+            indexer.setAnnotationSummaryDAO(summaryDAO);
+            indexer.setAnnotationIndex(new RAMDirectory());
+            indexer.setAnnotationCountIndex(new RAMDirectory());
+            indexer.setAnnotationSummaryIndex(new RAMDirectory());
+            indexer.setPropertyIndex(new RAMDirectory());
+            indexer.setPropertyTypeIndex(new RAMDirectory());
+            indexer.createIndices(annotations, annotations.size(), properties.values());
+
+            // a stub DAO that reads properties from the fixture, so calls to it can be counted
+            propertyDAO = mock(PropertyDAO.class);
+            when(propertyDAO.getDatasourceName()).thenReturn("test");
+            when(propertyDAO.read(any(URI.class))).thenAnswer(new Answer<Property>() {
+                @Override public Property answer(InvocationOnMock invocation) {
+                    return properties.get((URI) invocation.getArguments()[0]);
+                }
+            });
+            when(propertyDAO.read(anyCollectionOf(URI.class))).thenAnswer(new Answer<List<Property>>() {
+                @Override public List<Property> answer(InvocationOnMock invocation) {
+                    List<Property> results = new ArrayList<>();
+                    for (Object uri : (Collection<?>) invocation.getArguments()[0]) {
+                        if (properties.containsKey((URI) uri)) {
+                            results.add(properties.get((URI) uri));
+                        }
+                    }
+                    return results;
+                }
+            });
+
+            indexService = new LucenePropertySearchService();
+            indexService.setIndex(indexer.getPropertyIndex());
+            indexService.setPropertyDAO(propertyDAO);
+            indexService.init();
+            indexService.waitUntilReady();
+
+            daoService = new LucenePropertySearchService();
+            daoService.setIndex(indexer.getPropertyIndex());
+            daoService.setPropertyDAO(propertyDAO);
+            daoService.setReadFromDAO(true);
+            daoService.init();
+            daoService.waitUntilReady();
+        }
+        catch (IOException | InterruptedException e) {
+            e.printStackTrace();
+            fail();
+        }
+    }
+
+    @After
+    public void tearDown() {
+        indexService.destroy();
+        daoService.destroy();
+        indexer.destroy();
+    }
+
+    private URI createURI() {
+        return URI.create("http://www.test.com/property/" + properties.size());
+    }
+
+    private void addProperty(Property property) {
+        properties.put(property.getURI(), property);
+    }
+
+    private Annotation createAnnotation(Property property, int id) {
+        AnnotationProvenance provenance = new SimpleAnnotationProvenance(
+                new SimpleDatabaseAnnotationSource(SOURCE, "source"),
+                AnnotationProvenance.Evidence.MANUAL_CURATED,
+                "TEST",
+                new Date(1400000000000L));
+        return new SimpleAnnotation(URI.create("http://www.test.com/annotation/" + id),
+                                    Collections.<BiologicalEntity>emptySet(),
+                                    property,
+                                    provenance,
+                                    URI.create("http://www.test.com/semantic-tag"));
+    }
+
+    // checks that each property matches the fixture property with the same URI
+    private void assertFixtureProperties(List<Property> results) {
+        for (Property result : results) {
+            Property expected = properties.get(result.getURI());
+            assertEquals("Wrong property for <" + result.getURI() + ">", expected, result);
+            assertEquals("Wrong property class for <" + result.getURI() + ">", expected.getClass(), result.getClass());
+            if (expected instanceof TypedProperty) {
+                assertEquals("Wrong property type for <" + result.getURI() + ">",
+                             ((TypedProperty) expected).getPropertyType(),
+                             ((TypedProperty) result).getPropertyType());
+            }
+        }
+    }
+
+    @Test
+    public void testPropertiesAreBuiltFromIndex() {
+        List<Property> livers = indexService.search("liver");
+        assertEquals("Wrong number of properties found", 150, livers.size());
+        assertFixtureProperties(livers);
+
+        List<Property> hearts = indexService.search("disease", "heart");
+        assertFalse("No typed properties found", hearts.isEmpty());
+        assertFixtureProperties(hearts);
+
+        List<Property> kidneys = indexService.searchByPrefix("kid");
+        assertEquals("Wrong number of untyped properties found", 1, kidneys.size());
+        assertFixtureProperties(kidneys);
+
+        verifyZeroInteractions(propertyDAO);
+    }
+
+    @Test
+    public void testPropertiesAreReadFromDAOInBulk() {
+        List<Property> fromDAO = daoService.search("liver");
+        // 150 hits are collected in two blocks of results, and each block is read with a single call
+        verify(propertyDAO, times(2)).read(anyCollectionOf(URI.class));
+        verify(propertyDAO, never()).read(any(URI.class));
+        assertFixtureProperties(fromDAO);
+
+        List<URI> expected = new ArrayList<>();
+        for (Property property : indexService.search("liver")) {
+            expected.add(property.getURI());
+        }
+        List<URI> actual = new ArrayList<>();
+        for (Property property : fromDAO) {
+            actual.add(property.getURI());
+        }
+        assertEquals("Properties from the DAO should be in the same order as properties from the index",
+                     expected,
+                     actual);
+    }
+
     @Test
-    public void test() {
-        // TODO - unimplemented test, test query creation logic
+    public void testPropertiesMissingFromDAOAreOmitted() {
+        Property missing = properties.remove(URI.create("http://www.test.com/property/150"));
+        assertFalse("Heart should be found in the index", indexService.search("organism part", "heart").isEmpty());
+        for (Property property : daoService.search("organism part", "heart")) {
+            assertFalse("Property missing from the DAO should not be returned",
+                        property.getURI().equals(missing.getURI()));
+        }
+        verify(propertyDAO, never()).read(any(URI.class));
     }
 }
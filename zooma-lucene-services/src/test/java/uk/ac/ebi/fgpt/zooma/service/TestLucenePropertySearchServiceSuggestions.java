@@ -0,0 +1,225 @@
+package uk.ac.ebi.fgpt.zooma.service;
+
+import org.apache.lucene.analysis.en.EnglishAnalyzer;
+import org.apache.lucene.analysis.util.CharArraySet;
+import org.apache.lucene.store.RAMDirectory;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import uk.ac.ebi.fgpt.zooma.datasource.AnnotationSummaryDAO;
+import uk.ac.ebi.fgpt.zooma.model.Annotation;
+import uk.ac.ebi.fgpt.zooma.model.AnnotationProvenance;
+import uk.ac.ebi.fgpt.zooma.model.AnnotationSummary;
+import uk.ac.ebi.fgpt.zooma.model.BiologicalEntity;
+import uk.ac.ebi.fgpt.zooma.model.Property;
+import uk.ac.ebi.fgpt.zooma.model.SimpleAnnotation;
+import uk.ac.ebi.fgpt.zooma.model.SimpleAnnotationProvenance;
+import uk.ac.ebi.fgpt.zooma.model.SimpleDatabaseAnnotationSource;
+import uk.ac.ebi.fgpt.zooma.model.SimpleTypedProperty;
+
+import java.io.IOException;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Tests that a {@link LucenePropertySearchService} serves property value suggestions from the property suggester built
+ * by the {@link ZoomaLuceneIndexer}, ordered by the number of annotations that use each value.
+ */
+public class TestLucenePropertySearchServiceSuggestions {
+    private static final URI SOURCE_1 = URI.create("http://www.test.com/source1");
+    private static final URI SOURCE_2 = URI.create("http://www.test.com/source2");
+
+    private Map<URI, Property> properties;
+    private List<Annotation> annotations;
+
+    private ZoomaLuceneIndexer indexer;
+    private LucenePropertySearchService suggestingService;
+    private LucenePropertySearchService queryingService;
+
+    @Before
+    public void setUp() {
+        properties = new LinkedHashMap<>();
+        annotations = new ArrayList<>();
+        annotate("liver", 5, SOURCE_1);
+        annotate("liver cancer", 3, SOURCE_2);
+        annotate("Liver fibrosis", 1, SOURCE_1);
+        annotate("left ventricle of heart", 2, SOURCE_1);
+        annotate("heart", 4, SOURCE_2);
+        annotate("kidney", 1, SOURCE_2);
+
+        try {
+            AnnotationSummaryDAO summaryDAO = mock(AnnotationSummaryDAO.class);
+            when(summaryDAO.read()).thenReturn(Collections.<AnnotationSummary>emptyList());
+
+            indexer = new ZoomaLuceneIndexer();
+            indexer.setAnalyzer(new EnglishAnalyzer(CharArraySet.EMPTY_SET));
+            indexer.setAnnotationSummaryDAO(summaryDAO);
+            indexer.setAnnotationIndex(new RAMDirectory());
+            indexer.setAnnotationCountIndex(new RAMDirectory());
+            indexer.setAnnotationSummaryIndex(new RAMDirectory());
+            indexer.setPropertyIndex(new RAMDirectory());
+            indexer.setPropertyTypeIndex(new RAMDirectory());
+            indexer.setPropertySuggestIndex(new RAMDirectory());
+            indexer.createIndices(annotations, annotations.size(), properties.values());
+
+            suggestingService = new LucenePropertySearchService();
+            suggestingService.setIndex(indexer.getPropertyIndex());
+            suggestingService.setSuggestIndex(indexer.getPropertySuggestIndex());
+            suggestingService.init();
+            suggestingService.waitUntilReady();
+
+            queryingService = new LucenePropertySearchService();
+            queryingService.setIndex(indexer.getPropertyIndex());
+            queryingService.init();
+            queryingService.waitUntilReady();
+        }
+        catch (IOException | InterruptedException e) {
+            e.printStackTrace();
+            fail();
+        }
+    }
+
+    @After
+    public void tearDown() {
+        suggestingService.destroy();
+        queryingService.destroy();
+        indexer.destroy();
+    }
+
+    private void annotate(String propertyValue, int times, URI source) {
+        Property property = new SimpleTypedProperty(URI.create("http://www.test.com/property/" + properties.size()),
+                                                    "organism part",
+                                                    propertyValue);
+        properties.put(property.getURI(), property);
+        for (int i = 0; i < times; i++) {
+            annotations.add(createAnnotation(property, source));
+        }
+    }
+
+    private Annotation createAnnotation(Property property, URI source) {
+        AnnotationProvenance provenance = new SimpleAnnotationProvenance(
+                new SimpleDatabaseAnnotationSource(source, source.getPath().substring(1)),
+                AnnotationProvenance.Evidence.MANUAL_CURATED,
+                "TEST",
+                new Date(1400000000000L));
+        URI semanticTag = URI.create("http://www.test.com/semantic-tag-" + property.getURI().getPath().length());
+        return new SimpleAnnotation(URI.create("http://www.test.com/annotation" + annotations.size()),
+                                    Collections.<BiologicalEntity>emptySet(),
+                                    property,
+                                    provenance,
+                                    semanticTag);
+    }
+
+    @Test
+    public void testPrefixSuggestions() {
+        assertEquals("Wrong suggestions for 'liv'",
+                     Arrays.asList("liver", "liver cancer", "Liver fibrosis"),
+                     suggestingService.suggest("liv"));
+        assertEquals("Wrong suggestions for 'kidn'",
+                     Collections.singletonList("kidney"),
+                     suggestingService.suggest("kidn"));
+        assertEquals("Wrong suggestions for 'lung'",
+                     Collections.<String>emptyList(),
+                     suggestingService.suggest("lung"));
+    }
+
+    @Test
+    public void testInfixSuggestions() {
+        assertEquals("Wrong suggestions for 'hea'",
+                     Arrays.asList("heart", "left ventricle of heart"),
+                     suggestingService.suggest("hea"));
+        assertEquals("Wrong suggestions for 'ventr'",
+                     Collections.singletonList("left ventricle of heart"),
+                     suggestingService.suggest("ventr"));
+        assertEquals("Wrong suggestions for 'liver fib'",
+                     Collections.singletonList("Liver fibrosis"),
+                     suggestingService.suggest("liver fib"));
+    }
+
+    @Test
+    public void testCaseInsensitiveSuggestions() {
+        List<String> expected = suggestingService.suggest("liv");
+        assertEquals("Wrong suggestions for 'LIV'", expected, suggestingService.suggest("LIV"));
+        assertEquals("Wrong suggestions for 'Liv'", expected, suggestingService.suggest("Liv"));
+        assertEquals("Wrong suggestions for 'FIBR'",
+                     Collections.singletonList("Liver fibrosis"),
+                     suggestingService.suggest("FIBR"));
+    }
+
+    @Test
+    public void testSuggestionsOrderedByFrequency() {
+        assertEquals("Suggestions should be ordered by annotation frequency",
+                     Arrays.asList("liver", "liver cancer", "left ventricle of heart", "Liver fibrosis"),
+                     suggestingService.suggest("l"));
+
+        suggestingService.setMaxSuggestions(2);
+        assertEquals("Suggestions should be limited to the most frequent",
+                     Arrays.asList("liver", "liver cancer"),
+                     suggestingService.suggest("l"));
+    }
+
+    @Test
+    public void testSuggestionsFromSources() {
+        assertEquals("Wrong suggestions for 'liv' from source1",
+                     Arrays.asList("liver", "Liver fibrosis"),
+                     suggestingService.suggest("liv", SOURCE_1));
+        assertEquals("Wrong suggestions for 'liv' from source2",
+                     Collections.singletonList("liver cancer"),
+                     suggestingService.suggest("liv", SOURCE_2));
+        assertEquals("Wrong suggestions for 'liv' from either source",
+                     suggestingService.suggest("liv"),
+                     suggestingService.suggest("liv", SOURCE_1, SOURCE_2));
+    }
+
+    @Test
+    public void testSuggestionsMatchPropertyQuery() {
+        for (String prefix : Arrays.asList("heart", "liver")) {
+            assertEquals("Suggestions for '" + prefix + "' differ from property index query",
+                         new HashSet<>(queryingService.suggest(prefix)),
+                         new HashSet<>(suggestingService.suggest(prefix)));
+        }
+    }
+
+    @Test
+    public void testSuggestionsFollowIndexUpdates() {
+        try {
+            Property fibrosis = null;
+            for (Property property : properties.values()) {
+                if (property.getPropertyValue().equals("Liver fibrosis")) {
+                    fibrosis = property;
+                }
+            }
+            List<Annotation> added = new ArrayList<>();
+            for (int i = 0; i < 5; i++) {
+                Annotation annotation = createAnnotation(fibrosis, SOURCE_2);
+                annotations.add(annotation);
+                added.add(annotation);
+            }
+            indexer.updateIndices(added, Collections.<URI>emptySet());
+            suggestingService.maybeRefresh();
+
+            assertEquals("Suggestions should be reordered after update",
+                         Arrays.asList("Liver fibrosis", "liver", "liver cancer"),
+                         suggestingService.suggest("liv"));
+            assertEquals("Wrong suggestions for 'liv' from source2 after update",
+                         Arrays.asList("Liver fibrosis", "liver cancer"),
+                         suggestingService.suggest("liv", SOURCE_2));
+        }
+        catch (IOException e) {
+            e.printStackTrace();
+            fail();
+        }
+    }
+}
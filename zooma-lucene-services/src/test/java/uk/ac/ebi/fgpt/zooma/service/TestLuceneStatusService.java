@@ -0,0 +1,260 @@
+package uk.ac.ebi.fgpt.zooma.service;
+
+import org.apache.lucene.analysis.en.EnglishAnalyzer;
+import org.apache.lucene.analysis.util.CharArraySet;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Field;
+import org.apache.lucene.document.StringField;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.store.Directory;
+import org.apache.lucene.store.FilterDirectory;
+import org.apache.lucene.store.IOContext;
+import org.apache.lucene.store.IndexInput;
+import org.apache.lucene.store.RAMDirectory;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import uk.ac.ebi.fgpt.zooma.datasource.AnnotationDAO;
+import uk.ac.ebi.fgpt.zooma.datasource.AnnotationSummaryDAO;
+import uk.ac.ebi.fgpt.zooma.model.Annotation;
+import uk.ac.ebi.fgpt.zooma.model.AnnotationProvenance;
+import uk.ac.ebi.fgpt.zooma.model.AnnotationSummary;
+import uk.ac.ebi.fgpt.zooma.model.BiologicalEntity;
+import uk.ac.ebi.fgpt.zooma.model.Property;
+import uk.ac.ebi.fgpt.zooma.model.SimpleAnnotation;
+import uk.ac.ebi.fgpt.zooma.model.SimpleAnnotationProvenance;
+import uk.ac.ebi.fgpt.zooma.model.SimpleAnnotationSummary;
+import uk.ac.ebi.fgpt.zooma.model.SimpleDatabaseAnnotationSource;
+import uk.ac.ebi.fgpt.zooma.model.SimpleTypedProperty;
+
+import java.io.IOException;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Tests that a {@link LuceneStatusService} only reads an index when its generation changes, and reuses the readers
+ * held by search services where it can.
+ */
+public class TestLuceneStatusService {
+    private static final int ANNOTATIONS = 50;
+
+    private CountingDirectory annotationCountIndex;
+    private CountingDirectory annotationIndex;
+    private CountingDirectory annotationSummaryIndex;
+    private CountingDirectory propertyIndex;
+    private CountingDirectory propertyTypeIndex;
+
+    private ZoomaLuceneIndexer indexer;
+    private LuceneAnnotationSummarySearchService summarySearchService;
+    private LuceneStatusService statusService;
+
+    @Before
+    public void setUp() {
+        try {
+            List<Annotation> annotations = new ArrayList<>();
+            List<Property> properties = new ArrayList<>();
+            List<AnnotationSummary> summaries = new ArrayList<>();
+            for (int i = 0; i < ANNOTATIONS; i++) {
+                Property property = new SimpleTypedProperty(URI.create("http://www.test.com/property/" + i),
+                                                            "organism part",
+                                                            "liver " + i);
+                AnnotationProvenance provenance = new SimpleAnnotationProvenance(
+                        new SimpleDatabaseAnnotationSource(URI.create("http://www.test.com/source"), "source"),
+                        AnnotationProvenance.Evidence.MANUAL_CURATED,
+                        "TEST",
+                        new Date(1400000000000L));
+                URI semanticTag = URI.create("http://www.test.com/semantic-tag-" + i);
+                Annotation annotation = new SimpleAnnotation(URI.create("http://www.test.com/annotation" + i),
+                                                             Collections.<BiologicalEntity>emptySet(),
+                                                             property,
+                                                             provenance,
+                                                             semanticTag);
+                annotations.add(annotation);
+                properties.add(property);
+                summaries.add(new SimpleAnnotationSummary(null,
+                                                          property.getURI(),
+                                                          "organism part",
+                                                          property.getPropertyValue(),
+                                                          Collections.singleton(semanticTag),
+                                                          Collections.singleton(annotation.getURI()),
+                                                          0,
+                                                          new HashSet<URI>()));
+            }
+            AnnotationSummaryDAO summaryDAO = mock(AnnotationSummaryDAO.class);
+            when(summaryDAO.read()).thenReturn(summaries);
+            AnnotationDAO annotationDAO = mock(AnnotationDAO.class);
+            when(annotationDAO.count()).thenReturn(ANNOTATIONS);
+
+            annotationCountIndex = new CountingDirectory(new RAMDirectory());
+            annotationIndex = new CountingDirectory(new RAMDirectory());
+            annotationSummaryIndex = new CountingDirectory(new RAMDirectory());
+            propertyIndex = new CountingDirectory(new RAMDirectory());
+            propertyTypeIndex = new CountingDirectory(new RAMDirectory());
+
+            indexer = new ZoomaLuceneIndexer();
+            indexer.setAnalyzer(new EnglishAnalyzer(CharArraySet.EMPTY_SET));
+            indexer.setAnnotationSummaryDAO(summaryDAO);
+            indexer.setAnnotationCountIndex(annotationCountIndex);
+            indexer.setAnnotationIndex(annotationIndex);
+            indexer.setAnnotationSummaryIndex(annotationSummaryIndex);
+            indexer.setPropertyIndex(propertyIndex);
+            indexer.setPropertyTypeIndex(propertyTypeIndex);
+            indexer.createIndices(annotations, annotations.size(), properties);
+
+            summarySearchService = new LuceneAnnotationSummarySearchService();
+            summarySearchService.setIndex(annotationSummaryIndex);
+            summarySearchService.setAnnotationDAO(annotationDAO);
+            summarySearchService.init();
+            summarySearchService.waitUntilReady();
+
+            statusService = new LuceneStatusService();
+            statusService.setZoomaLuceneIndexer(indexer);
+            statusService.setSearchServices(Collections.<ZoomaLuceneSearchService>singleton(summarySearchService));
+        }
+        catch (IOException | InterruptedException e) {
+            e.printStackTrace();
+            fail();
+        }
+    }
+
+    @After
+    public void tearDown() {
+        summarySearchService.destroy();
+        indexer.destroy();
+    }
+
+    private int resetCounts() {
+        return annotationCountIndex.opened.getAndSet(0) +
+                annotationIndex.opened.getAndSet(0) +
+                annotationSummaryIndex.opened.getAndSet(0) +
+                propertyIndex.opened.getAndSet(0) +
+                propertyTypeIndex.opened.getAndSet(0);
+    }
+
+    @SuppressWarnings("unchecked")
+    private Map<String, Object> indexDetails(String index) {
+        Map<String, Object> indices = (Map<String, Object>) statusService.getStatusDetails().get("indices");
+        return (Map<String, Object>) indices.get(index);
+    }
+
+    @Test
+    public void testRepeatedProbesOpenNoReaders() {
+        resetCounts();
+        assertTrue("Status should be ready", statusService.checkStatus());
+        assertEquals("Summary index should be counted using the search service's reader",
+                     0,
+                     annotationSummaryIndex.opened.get());
+        assertTrue("Indices without a search service should have been read", resetCounts() > 0);
+
+        for (int i = 0; i < 10; i++) {
+            assertTrue("Status should be ready", statusService.checkStatus());
+        }
+        assertEquals("Repeated probes should not read any index", 0, resetCounts());
+
+        Map<String, Object> details = statusService.getStatusDetails();
+        assertEquals("Status details should be ready", true, details.get("ready"));
+        assertNotNull("Status details should record when status was checked", details.get("lastChecked"));
+        assertEquals("Wrong number of annotations", ANNOTATIONS, indexDetails("annotation").get("documents"));
+        assertEquals("Wrong number of summaries", ANNOTATIONS, indexDetails("annotationSummary").get("documents"));
+        assertEquals("Wrong number of properties", ANNOTATIONS, indexDetails("property").get("documents"));
+        assertEquals("Wrong number of property types", 1, indexDetails("propertyType").get("documents"));
+        assertEquals("Wrong number of annotation counts", 1, indexDetails("annotationCount").get("documents"));
+    }
+
+    @Test
+    public void testChangedIndexIsDetected() {
+        try {
+            assertTrue("Status should be ready", statusService.checkStatus());
+            long generation = (Long) indexDetails("annotation").get("generation");
+
+            IndexWriterConfig config = new IndexWriterConfig(new EnglishAnalyzer(CharArraySet.EMPTY_SET));
+            config.setOpenMode(IndexWriterConfig.OpenMode.APPEND);
+            try (IndexWriter writer = new IndexWriter(annotationIndex, config)) {
+                Document doc = new Document();
+                doc.add(new StringField("uri", "http://www.test.com/annotation-new", Field.Store.YES));
+                writer.addDocument(doc);
+            }
+            resetCounts();
+
+            assertTrue("Status should be ready", statusService.checkStatus());
+            assertTrue("Changed annotation index should be read", annotationIndex.opened.get() > 0);
+            assertEquals("Unchanged indices should not be read", annotationIndex.opened.get(), resetCounts());
+            assertTrue("Generation should have changed",
+                       (Long) indexDetails("annotation").get("generation") > generation);
+            assertEquals("Wrong number of annotations", ANNOTATIONS + 1, indexDetails("annotation").get("documents"));
+        }
+        catch (IOException e) {
+            e.printStackTrace();
+            fail();
+        }
+    }
+
+    @Test
+    public void testMissingIndexIsDetected() {
+        indexer.setPropertyTypeIndex(new RAMDirectory());
+        assertFalse("Status should not be ready without a property type index", statusService.checkStatus());
+        assertEquals("Status details should not be ready", false, statusService.getStatusDetails().get("ready"));
+        indexer.setPropertyTypeIndex(propertyTypeIndex);
+        assertTrue("Status should be ready once property type index is restored", statusService.checkStatus());
+    }
+
+    @Test
+    public void testRefreshTriesEveryService() {
+        try {
+            ZoomaLuceneSearchService failing = mock(ZoomaLuceneSearchService.class);
+            when(failing.maybeRefresh()).thenThrow(new IOException("first failure"));
+            ZoomaLuceneSearchService changed = mock(ZoomaLuceneSearchService.class);
+            when(changed.maybeRefresh()).thenReturn(true);
+            ZoomaLuceneSearchService alsoFailing = mock(ZoomaLuceneSearchService.class);
+            when(alsoFailing.maybeRefresh()).thenThrow(new IOException("second failure"));
+
+            LuceneStatusService refreshingService = new LuceneStatusService();
+            refreshingService.setSearchServices(Arrays.asList(failing, changed, alsoFailing));
+            String result = refreshingService.refresh();
+
+            verify(failing).maybeRefresh();
+            verify(changed).maybeRefresh();
+            verify(alsoFailing).maybeRefresh();
+            assertTrue("Refresh should report the first failure", result.contains("first failure"));
+            assertTrue("Refresh should report the second failure", result.contains("second failure"));
+            assertTrue("Refresh should report the changed service", result.contains("1 of 3 changed"));
+        }
+        catch (IOException e) {
+            e.printStackTrace();
+            fail();
+        }
+    }
+
+    /**
+     * A directory that counts the index files opened for reading
+     */
+    private static class CountingDirectory extends FilterDirectory {
+        private final AtomicInteger opened = new AtomicInteger();
+
+        private CountingDirectory(Directory in) {
+            super(in);
+        }
+
+        @Override public IndexInput openInput(String name, IOContext context) throws IOException {
+            opened.incrementAndGet();
+            return super.openInput(name, context);
+        }
+    }
+}
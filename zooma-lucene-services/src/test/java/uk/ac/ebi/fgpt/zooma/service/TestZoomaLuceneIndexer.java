@@ -3,6 +3,7 @@ package uk.ac.ebi.fgpt.zooma.service;
 import org.apache.lucene.analysis.Analyzer;
 import org.apache.lucene.analysis.en.EnglishAnalyzer;
 import org.apache.lucene.analysis.util.CharArraySet;
+import org.apache.lucene.index.DirectoryReader;
 import org.apache.lucene.store.Directory;
 import org.apache.lucene.store.NIOFSDirectory;
 import org.apache.lucene.store.RAMDirectory;
@@ -360,4 +361,48 @@ public class TestZoomaLuceneIndexer {
         assertTrue("Verified summary should score higher than unverified summary",
                 verifiedSummary.getQuality() > unverifiedSummary.getQuality());
     }
+
+    @Test
+    public void testClearIndices() {
+        ZoomaLuceneIndexer indexer = new ZoomaLuceneIndexer();
+        indexer.setAnalyzer(analyzer);
+        indexer.setAnnotationDAO(verifiedAnnotationDAO);
+        indexer.setPropertyDAO(propertyDAO);
+        indexer.setPropertyIndex(new RAMDirectory());
+        indexer.setPropertyTypeIndex(new RAMDirectory());
+        indexer.setAnnotationCountIndex(new RAMDirectory());
+        indexer.setAnnotationIndex(new RAMDirectory());
+        indexer.setAnnotationSummaryIndex(new RAMDirectory());
+
+        try {
+            indexer.createAnnotationIndex(new ArrayList<>(verifiedAnnotationDAO.read()));
+            indexer.createAnnotationSummaryIndex(verifiedSummaryAnnotationDAO, verifiedProvenanceMap);
+            assertTrue("Annotation index should not be empty", countDocuments(indexer.getAnnotationIndex()) > 0);
+            assertTrue("Summary index should not be empty", countDocuments(indexer.getAnnotationSummaryIndex()) > 0);
+
+            indexer.clearAnnotationSummaryIndex();
+            indexer.clearAnnotationIndex();
+            indexer.clearAnnotationCountIndex();
+            indexer.clearPropertyIndices();
+
+            assertEquals("Annotation index should be empty", 0, countDocuments(indexer.getAnnotationIndex()));
+            assertEquals("Summary index should be empty", 0, countDocuments(indexer.getAnnotationSummaryIndex()));
+            assertEquals("Count index should be empty", 0, countDocuments(indexer.getAnnotationCountIndex()));
+            assertEquals("Property index should be empty", 0, countDocuments(indexer.getPropertyIndex()));
+            assertEquals("Property type index should be empty", 0, countDocuments(indexer.getPropertyTypeIndex()));
+        }
+        catch (IOException e) {
+            e.printStackTrace();
+            fail("Couldn't create or clear indices");
+        }
+        finally {
+            indexer.destroy();
+        }
+    }
+
+    private int countDocuments(Directory directory) throws IOException {
+        try (DirectoryReader reader = DirectoryReader.open(directory)) {
+            return reader.numDocs();
+        }
+    }
 }
@@ -0,0 +1,255 @@
+package uk.ac.ebi.fgpt.zooma.service;
+
+import org.apache.lucene.analysis.en.EnglishAnalyzer;
+import org.apache.lucene.analysis.util.CharArraySet;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.index.IndexableField;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.search.ScoreDoc;
+import org.apache.lucene.search.TermQuery;
+import org.apache.lucene.store.Directory;
+import org.apache.lucene.store.RAMDirectory;
+import org.junit.Before;
+import org.junit.Test;
+import uk.ac.ebi.fgpt.zooma.datasource.AnnotationSummaryDAO;
+import uk.ac.ebi.fgpt.zooma.model.Annotation;
+import uk.ac.ebi.fgpt.zooma.model.AnnotationProvenance;
+import uk.ac.ebi.fgpt.zooma.model.AnnotationSummary;
+import uk.ac.ebi.fgpt.zooma.model.BiologicalEntity;
+import uk.ac.ebi.fgpt.zooma.model.Property;
+import uk.ac.ebi.fgpt.zooma.model.SimpleAnnotation;
+import uk.ac.ebi.fgpt.zooma.model.SimpleAnnotationProvenance;
+import uk.ac.ebi.fgpt.zooma.model.SimpleAnnotationSummary;
+import uk.ac.ebi.fgpt.zooma.model.SimpleDatabaseAnnotationSource;
+import uk.ac.ebi.fgpt.zooma.model.SimpleTypedProperty;
+import uk.ac.ebi.fgpt.zooma.model.TypedProperty;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Tests that indices built by a {@link ZoomaLuceneIndexer} using several threads contain exactly the same documents,
+ * in the same order, and return exactly the same search results in the same order, as indices built using a single
+ * thread.
+ */
+public class TestZoomaLuceneIndexerConcurrency {
+    private static final int ANNOTATIONS = 5000;
+    private static final int THREADS = 8;
+
+    private static final String[] TYPES = {"organism part", "disease", "cell type", "compound", "organism", "strain"};
+    private static final String[] WORDS = {"liver", "heart", "kidney", "lung", "brain", "blood", "skin", "bone",
+            "tumor", "carcinoma", "leukemia", "cell", "mouse", "human", "acute", "chronic", "left", "right"};
+
+    private List<Annotation> annotations;
+    private List<Property> properties;
+    private AnnotationSummaryDAO summaryDAO;
+
+    private List<Query> annotationQueries;
+    private List<Query> summaryQueries;
+
+    @Before
+    public void setUp() {
+        try {
+            Random random = new Random(42);
+
+            List<AnnotationProvenance> provenances = new ArrayList<>();
+            for (int i = 0; i < 5; i++) {
+                for (AnnotationProvenance.Evidence evidence : AnnotationProvenance.Evidence.values()) {
+                    provenances.add(new SimpleAnnotationProvenance(
+                            new SimpleDatabaseAnnotationSource(new URI("http://www.test.com/source" + i),
+                                                               "source" + i),
+                            evidence,
+                            "TEST",
+                            new Date(1400000000000L + random.nextInt(1000000) * 1000L)));
+                }
+            }
+
+            properties = new ArrayList<>();
+            for (int i = 0; i < 400; i++) {
+                String value = WORDS[random.nextInt(WORDS.length)] + " " +
+                        WORDS[random.nextInt(WORDS.length)] + " " + i;
+                properties.add(new SimpleTypedProperty(new URI("http://www.test.com/property/" + i),
+                                                       TYPES[random.nextInt(TYPES.length)],
+                                                       value));
+            }
+
+            annotations = new ArrayList<>();
+            Map<String, List<Annotation>> annotationsByPattern = new LinkedHashMap<>();
+            for (int i = 0; i < ANNOTATIONS; i++) {
+                Property property = properties.get(random.nextInt(properties.size()));
+                URI semanticTag = new URI("http://www.test.com/semantic-tag-" + random.nextInt(50));
+                Annotation annotation = new SimpleAnnotation(new URI("http://www.test.com/annotation" + i),
+                                                             Collections.<BiologicalEntity>emptySet(),
+                                                             property,
+                                                             provenances.get(random.nextInt(provenances.size())),
+                                                             semanticTag);
+                annotations.add(annotation);
+
+                String pattern = property.getURI() + " " + semanticTag;
+                if (!annotationsByPattern.containsKey(pattern)) {
+                    annotationsByPattern.put(pattern, new ArrayList<Annotation>());
+                }
+                annotationsByPattern.get(pattern).add(annotation);
+            }
+
+            Collection<AnnotationSummary> summaries = new ArrayList<>();
+            for (List<Annotation> pattern : annotationsByPattern.values()) {
+                Annotation first = pattern.get(0);
+                List<URI> annotationURIs = new ArrayList<>();
+                for (Annotation annotation : pattern) {
+                    annotationURIs.add(annotation.getURI());
+                }
+                summaries.add(new SimpleAnnotationSummary(
+                        null,
+                        first.getAnnotatedProperty().getURI(),
+                        ((TypedProperty) first.getAnnotatedProperty()).getPropertyType(),
+                        first.getAnnotatedProperty().getPropertyValue(),
+                        first.getSemanticTags(),
+                        annotationURIs,
+                        0,
+                        new HashSet<URI>()));
+            }
+            summaryDAO = mock(AnnotationSummaryDAO.class);
+            when(summaryDAO.read()).thenReturn(summaries);
+
+            annotationQueries = new ArrayList<>();
+            summaryQueries = new ArrayList<>();
+            for (int i = 0; i < 5; i++) {
+                annotationQueries.add(new TermQuery(new Term("source", "http://www.test.com/source" + i)));
+                summaryQueries.add(new TermQuery(new Term("source", "http://www.test.com/source" + i)));
+            }
+            for (int i = 0; i < 50; i += 7) {
+                annotationQueries.add(new TermQuery(new Term("target", "http://www.test.com/semantic-tag-" + i)));
+            }
+            for (String word : WORDS) {
+                annotationQueries.add(new TermQuery(new Term("property", word)));
+                summaryQueries.add(new TermQuery(new Term("property", word)));
+            }
+        }
+        catch (URISyntaxException e) {
+            e.printStackTrace();
+            fail();
+        }
+    }
+
+    private ZoomaLuceneIndexer createIndexer(int threads) {
+        ZoomaLuceneIndexer indexer = new ZoomaLuceneIndexer();
+        indexer.setAnalyzer(new EnglishAnalyzer(CharArraySet.EMPTY_SET));
+        indexer.setAnnotationSummaryDAO(summaryDAO);
+        indexer.setIndexingThreads(threads);
+        indexer.setAnnotationIndex(new RAMDirectory());
+        indexer.setAnnotationCountIndex(new RAMDirectory());
+        indexer.setAnnotationSummaryIndex(new RAMDirectory());
+        indexer.setPropertyIndex(new RAMDirectory());
+        indexer.setPropertyTypeIndex(new RAMDirectory());
+        return indexer;
+    }
+
+    private List<String> readDocuments(Directory directory) throws IOException {
+        List<String> documents = new ArrayList<>();
+        try (IndexReader reader = DirectoryReader.open(directory)) {
+            for (int i = 0; i < reader.maxDoc(); i++) {
+                Document doc = reader.document(i);
+                List<String> fields = new ArrayList<>();
+                for (IndexableField field : doc.getFields()) {
+                    fields.add(field.name() + "=" + field.stringValue());
+                }
+                Collections.sort(fields);
+                documents.add(fields.toString());
+            }
+        }
+        return documents;
+    }
+
+    private List<List<String>> search(Directory directory, String keyField, List<Query> queries)
+            throws IOException {
+        List<List<String>> results = new ArrayList<>();
+        try (IndexReader reader = DirectoryReader.open(directory)) {
+            IndexSearcher searcher = new IndexSearcher(reader);
+            for (Query query : queries) {
+                // hits in ranked order, so results with equal scores must also be returned in the same order
+                List<String> hits = new ArrayList<>();
+                for (ScoreDoc scoreDoc : searcher.search(query, reader.maxDoc() + 1).scoreDocs) {
+                    hits.add(searcher.doc(scoreDoc.doc).get(keyField) + "=" + scoreDoc.score);
+                }
+                results.add(hits);
+            }
+        }
+        return results;
+    }
+
+    @Test
+    public void testConcurrentIndexingMatchesSingleThreaded() {
+        ZoomaLuceneIndexer single = createIndexer(1);
+        ZoomaLuceneIndexer concurrent = createIndexer(THREADS);
+        try {
+            single.createIndices(annotations, annotations.size(), properties);
+            concurrent.createIndices(annotations, annotations.size(), properties);
+
+            assertEquals("Wrong number of annotations indexed",
+                         ANNOTATIONS,
+                         readDocuments(concurrent.getAnnotationIndex()).size());
+            try (IndexReader reader = DirectoryReader.open(concurrent.getAnnotationIndex())) {
+                for (int i = 0; i < ANNOTATIONS; i++) {
+                    assertEquals("Annotations should be indexed in the order they were read",
+                                 annotations.get(i).getURI().toString(),
+                                 reader.document(i).get("uri"));
+                }
+            }
+
+            assertEquals("Annotation count index differs",
+                         readDocuments(single.getAnnotationCountIndex()),
+                         readDocuments(concurrent.getAnnotationCountIndex()));
+            assertEquals("Annotation index differs",
+                         readDocuments(single.getAnnotationIndex()),
+                         readDocuments(concurrent.getAnnotationIndex()));
+            assertEquals("Annotation summary index differs",
+                         readDocuments(single.getAnnotationSummaryIndex()),
+                         readDocuments(concurrent.getAnnotationSummaryIndex()));
+            assertEquals("Property index differs",
+                         readDocuments(single.getPropertyIndex()),
+                         readDocuments(concurrent.getPropertyIndex()));
+            assertEquals("Property type index differs",
+                         readDocuments(single.getPropertyTypeIndex()),
+                         readDocuments(concurrent.getPropertyTypeIndex()));
+
+            List<List<String>> annotationResults =
+                    search(concurrent.getAnnotationIndex(), "uri", annotationQueries);
+            assertEquals("Annotation search results differ",
+                         search(single.getAnnotationIndex(), "uri", annotationQueries),
+                         annotationResults);
+            assertTrue("Annotation searches should find results", !annotationResults.get(0).isEmpty());
+            assertEquals("Annotation summary search results differ",
+                         search(single.getAnnotationSummaryIndex(), "id", summaryQueries),
+                         search(concurrent.getAnnotationSummaryIndex(), "id", summaryQueries));
+        }
+        catch (IOException e) {
+            e.printStackTrace();
+            fail();
+        }
+        finally {
+            single.destroy();
+            concurrent.destroy();
+        }
+    }
+}
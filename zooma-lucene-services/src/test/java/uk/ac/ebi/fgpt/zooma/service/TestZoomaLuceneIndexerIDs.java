@@ -0,0 +1,143 @@
+package uk.ac.ebi.fgpt.zooma.service;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.UnsupportedEncodingException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+/**
+ * Tests that the IDs generated by a {@link ZoomaLuceneIndexer} are the hex encoded SHA-1 digest of their contents,
+ * whichever collision check is used and however many threads generate them, and that collisions are detected.
+ */
+public class TestZoomaLuceneIndexerIDs {
+    private static final String[][] CONTENTS = {
+            {"abc"},
+            {"organism part", "liver", "http://purl.obolibrary.org/obo/UBERON_0002107"},
+            {"##zooma.untyped.property.key##", "heart", "http://www.ebi.ac.uk/efo/EFO_0000815"},
+            {"disease", "Sjögren's syndrome", "http://www.ebi.ac.uk/efo/EFO_0000699"},
+            {"compound", "", "http://www.ebi.ac.uk/efo/EFO_0000001", "http://www.ebi.ac.uk/efo/EFO_0000002"}};
+
+    private ZoomaLuceneIndexer indexer;
+
+    @Before
+    public void setUp() {
+        indexer = new ZoomaLuceneIndexer();
+    }
+
+    // the SHA-1 digest of the concatenated contents, hex encoded, as IDs have always been generated
+    private String referenceID(String... contents) {
+        try {
+            StringBuilder idContent = new StringBuilder();
+            for (String s : contents) {
+                idContent.append(s);
+            }
+            byte[] digest = MessageDigest.getInstance("SHA-1").digest(idContent.toString().getBytes("UTF-8"));
+            StringBuilder hex = new StringBuilder();
+            for (byte b : digest) {
+                hex.append(String.format("%02X", b));
+            }
+            return hex.toString();
+        }
+        catch (NoSuchAlgorithmException | UnsupportedEncodingException e) {
+            e.printStackTrace();
+            fail();
+            return null;
+        }
+    }
+
+    private void assertCollisionDetected(String... contents) {
+        try {
+            indexer.generateEncodedID(contents);
+            fail("Collision should have been detected for " + Arrays.asList(contents));
+        }
+        catch (RuntimeException e) {
+            // expected
+        }
+    }
+
+    @Test
+    public void testIDsMatchReferenceEncoding() {
+        assertEquals("Wrong ID for known SHA-1 digest",
+                     "A9993E364706816ABA3E25717850C26C9CD0D89D",
+                     indexer.generateEncodedID("abc"));
+        for (ZoomaLuceneIndexer.IDCollisionCheck check : ZoomaLuceneIndexer.IDCollisionCheck.values()) {
+            indexer.setIDCollisionCheck(check);
+            for (String[] contents : CONTENTS) {
+                assertEquals("Wrong ID with " + check + " collision check",
+                             referenceID(contents),
+                             indexer.generateEncodedID(contents));
+                // generating the same ID again is not a collision
+                assertEquals("Wrong ID with " + check + " collision check",
+                             referenceID(contents),
+                             indexer.generateEncodedID(contents.clone()));
+            }
+        }
+    }
+
+    @Test
+    public void testCollisionsAreDetected() {
+        for (ZoomaLuceneIndexer.IDCollisionCheck check : new ZoomaLuceneIndexer.IDCollisionCheck[]{
+                ZoomaLuceneIndexer.IDCollisionCheck.CONTENT, ZoomaLuceneIndexer.IDCollisionCheck.HASH}) {
+            indexer.setIDCollisionCheck(check);
+            // contents are concatenated before they are digested, so these all generate the same ID
+            indexer.generateEncodedID("organism part", "liver", "http://www.test.com/tag");
+            assertCollisionDetected("organism partliver", "http://www.test.com/tag");
+            assertCollisionDetected("organism part", "live", "rhttp://www.test.com/tag");
+            assertCollisionDetected("organism partliverhttp://www.test.com/tag");
+        }
+
+        indexer.setIDCollisionCheck(ZoomaLuceneIndexer.IDCollisionCheck.NONE);
+        indexer.generateEncodedID("organism part", "liver", "http://www.test.com/tag");
+        assertEquals("Collisions should be ignored",
+                     referenceID("organism partliver", "http://www.test.com/tag"),
+                     indexer.generateEncodedID("organism partliver", "http://www.test.com/tag"));
+    }
+
+    @Test
+    public void testConcurrentIDGeneration() {
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<List<String>>> futures = new ArrayList<>();
+            for (int t = 0; t < 8; t++) {
+                futures.add(executor.submit(new Callable<List<String>>() {
+                    @Override public List<String> call() {
+                        List<String> ids = new ArrayList<>();
+                        for (int i = 0; i < 10000; i++) {
+                            String value = "liver " + i;
+                            ids.add(indexer.generateEncodedID("organism part", value, "http://www.test.com/tag"));
+                        }
+                        return ids;
+                    }
+                }));
+            }
+            for (Future<List<String>> future : futures) {
+                List<String> ids = future.get();
+                for (int i = 0; i < ids.size(); i++) {
+                    assertEquals("Wrong ID generated concurrently",
+                                 referenceID("organism part", "liver " + i, "http://www.test.com/tag"),
+                                 ids.get(i));
+                }
+            }
+        }
+        catch (InterruptedException | ExecutionException e) {
+            e.printStackTrace();
+            fail();
+        }
+        finally {
+            executor.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,548 @@
+package uk.ac.ebi.fgpt.zooma.service;
+
+import org.apache.lucene.analysis.en.EnglishAnalyzer;
+import org.apache.lucene.analysis.util.CharArraySet;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.index.MultiFields;
+import org.apache.lucene.store.Directory;
+import org.apache.lucene.store.FSDirectory;
+import org.apache.lucene.store.RAMDirectory;
+import org.apache.lucene.util.Bits;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+import uk.ac.ebi.fgpt.zooma.datasource.AnnotationDAO;
+import uk.ac.ebi.fgpt.zooma.datasource.AnnotationSummaryDAO;
+import uk.ac.ebi.fgpt.zooma.model.Annotation;
+import uk.ac.ebi.fgpt.zooma.model.AnnotationProvenance;
+import uk.ac.ebi.fgpt.zooma.model.AnnotationSummary;
+import uk.ac.ebi.fgpt.zooma.model.BiologicalEntity;
+import uk.ac.ebi.fgpt.zooma.model.Property;
+import uk.ac.ebi.fgpt.zooma.model.SimpleAnnotation;
+import uk.ac.ebi.fgpt.zooma.model.SimpleAnnotationProvenance;
+import uk.ac.ebi.fgpt.zooma.model.SimpleAnnotationSummary;
+import uk.ac.ebi.fgpt.zooma.model.SimpleDatabaseAnnotationSource;
+import uk.ac.ebi.fgpt.zooma.model.SimpleTypedProperty;
+import uk.ac.ebi.fgpt.zooma.model.TypedProperty;
+import uk.ac.ebi.fgpt.zooma.test.SlowTests;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URI;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Date;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.mockito.Matchers.anyInt;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Tests that indices built by a {@link ZoomaLuceneIndexer} from annotations streamed a page at a time are the same as
+ * those built from every annotation at once, with summaries read from annotation history, and that a large corpus can
+ * be indexed in a small heap.  The large corpus is indexed by a separate JVM, started with a maximum heap far smaller
+ * than the corpus would occupy in memory; this is one of the {@link SlowTests}, only run with the slow-tests profile.
+ */
+public class TestZoomaLuceneIndexerStreaming {
+    private static final String[] TYPES = {"organism part", "disease", "cell type", "compound"};
+    private static final String[] WORDS = {"liver", "heart", "kidney", "lung", "brain", "blood", "skin", "bone"};
+    private static final int SOURCES = 4;
+
+    // the number of annotations in the large corpus, and the heap it must be indexed in
+    private static final int LARGE_CORPUS_SIZE = 1000000;
+    private static final int LARGE_CORPUS_PROPERTIES = 20000;
+    private static final String LARGE_CORPUS_HEAP = "-Xmx128m";
+
+    private Corpus corpus;
+
+    @Before
+    public void setUp() {
+        corpus = new Corpus(20000, 2000, true);
+    }
+
+    /**
+     * A deterministic synthetic corpus of annotations, generated on demand so that it never has to be held in memory.
+     * Annotations of each property map it to one of three sets of semantic tags, one of which is empty.  With history,
+     * some annotations are replaced by the next annotation, which annotates a different property, and some by the
+     * next annotation of the same property, so that some annotations are replaced through a chain of replacements.
+     */
+    private static class Corpus {
+        private final int size;
+        private final int propertyCount;
+        private final boolean history;
+
+        private Corpus(int size, int propertyCount, boolean history) {
+            this.size = size;
+            this.propertyCount = propertyCount;
+            this.history = history;
+        }
+
+        private Property getProperty(int p) {
+            return new SimpleTypedProperty(URI.create("http://www.test.com/property/" + p),
+                                           TYPES[p % TYPES.length],
+                                           WORDS[p % WORDS.length] + " " + p);
+        }
+
+        private int getVariant(int i) {
+            return (i / propertyCount) % 3;
+        }
+
+        private URI[] getSemanticTags(int i) {
+            int p = i % propertyCount;
+            switch (getVariant(i)) {
+                case 0:
+                    return new URI[]{URI.create("http://www.test.com/tag/" + p)};
+                case 1:
+                    return new URI[]{URI.create("http://www.test.com/tag/" + p),
+                            URI.create("http://www.test.com/tag/" + (p + 1))};
+                default:
+                    return new URI[0];
+            }
+        }
+
+        private URI getAnnotationURI(int i) {
+            return URI.create("http://www.test.com/annotation/" + i);
+        }
+
+        // replaced by the next annotation, of a different property
+        private boolean isReplacedByNext(int i) {
+            return history && i % 11 == 3 && i + 1 < size;
+        }
+
+        // replaced by the next annotation of the same property
+        private boolean isReplacedByNextOfProperty(int i) {
+            return history && i % 13 == 5 && i + propertyCount < size;
+        }
+
+        private URI[] getReplacedBy(int i) {
+            List<URI> replacedBy = new ArrayList<>();
+            if (isReplacedByNext(i)) {
+                replacedBy.add(getAnnotationURI(i + 1));
+            }
+            if (isReplacedByNextOfProperty(i)) {
+                replacedBy.add(getAnnotationURI(i + propertyCount));
+            }
+            return replacedBy.toArray(new URI[replacedBy.size()]);
+        }
+
+        private URI[] getReplaces(int i) {
+            List<URI> replaces = new ArrayList<>();
+            if (i - 1 >= 0 && isReplacedByNext(i - 1)) {
+                replaces.add(getAnnotationURI(i - 1));
+            }
+            if (i - propertyCount >= 0 && isReplacedByNextOfProperty(i - propertyCount)) {
+                replaces.add(getAnnotationURI(i - propertyCount));
+            }
+            return replaces.toArray(new URI[replaces.size()]);
+        }
+
+        private Annotation getAnnotation(int i) {
+            int source = (i / 7) % SOURCES;
+            AnnotationProvenance provenance = new SimpleAnnotationProvenance(
+                    new SimpleDatabaseAnnotationSource(URI.create("http://www.test.com/source/" + source),
+                                                       "source" + source),
+                    AnnotationProvenance.Evidence.values()[i % AnnotationProvenance.Evidence.values().length],
+                    "TEST",
+                    new Date(1400000000000L + (i * 7919L % 1000000L) * 1000L));
+            return new SimpleAnnotation(getAnnotationURI(i),
+                                        Collections.<BiologicalEntity>emptySet(),
+                                        getProperty(i % propertyCount),
+                                        provenance,
+                                        getSemanticTags(i),
+                                        getReplacedBy(i),
+                                        getReplaces(i));
+        }
+
+        private List<Annotation> getAnnotations(int size, int start) {
+            List<Annotation> annotations = new ArrayList<>();
+            for (int i = start; i < Math.min(this.size, start + size); i++) {
+                annotations.add(getAnnotation(i));
+            }
+            return annotations;
+        }
+
+        private List<Property> getProperties() {
+            List<Property> properties = new ArrayList<>();
+            for (int p = 0; p < propertyCount; p++) {
+                properties.add(getProperty(p));
+            }
+            return properties;
+        }
+
+        // a DAO that generates each page of annotations as it is read
+        private AnnotationDAO createAnnotationDAO() {
+            AnnotationDAO annotationDAO = mock(AnnotationDAO.class);
+            when(annotationDAO.count()).thenReturn(size);
+            when(annotationDAO.read(anyInt(), anyInt())).thenAnswer(new Answer<List<Annotation>>() {
+                @Override public List<Annotation> answer(InvocationOnMock invocation) {
+                    Object[] args = invocation.getArguments();
+                    return getAnnotations((Integer) args[0], (Integer) args[1]);
+                }
+            });
+            return annotationDAO;
+        }
+
+        /**
+         * Summarizes annotations by the same rules as the SPARQL summary DAO that the index is usually built from.
+         * Only current annotations with semantic tags are summarized with their own tags.  Every annotation replaced by
+         * a current annotation, directly or through a chain of replacements, is summarized with the tags of that
+         * current annotation if it annotates a different property, and otherwise is not summarized.  Annotations are
+         * then grouped by their property URI and semantic tag URIs.
+         */
+        private List<AnnotationSummary> getSummaries(List<Annotation> annotations) {
+            Map<URI, Annotation> annotationMap = new LinkedHashMap<>();
+            for (Annotation annotation : annotations) {
+                annotationMap.put(annotation.getURI(), annotation);
+            }
+
+            Map<URI, Set<URI>> annotationToSemanticTags = new LinkedHashMap<>();
+            for (Annotation annotation : annotations) {
+                if (annotation.getReplacedBy().isEmpty() && !annotation.getSemanticTags().isEmpty()) {
+                    addSemanticTags(annotationToSemanticTags, annotation.getURI(), annotation.getSemanticTags());
+
+                    Set<URI> visited = new HashSet<>();
+                    Deque<URI> pending = new ArrayDeque<>(annotation.getReplaces());
+                    while (!pending.isEmpty()) {
+                        Annotation replaced = annotationMap.get(pending.remove());
+                        if (visited.add(replaced.getURI())) {
+                            if (!replaced.getAnnotatedProperty().getURI()
+                                    .equals(annotation.getAnnotatedProperty().getURI())) {
+                                addSemanticTags(annotationToSemanticTags,
+                                                replaced.getURI(),
+                                                annotation.getSemanticTags());
+                            }
+                            pending.addAll(replaced.getReplaces());
+                        }
+                    }
+                }
+            }
+
+            // group by the sorted property and semantic tag URIs
+            Map<List<String>, List<Annotation>> groups = new LinkedHashMap<>();
+            for (Map.Entry<URI, Set<URI>> entry : annotationToSemanticTags.entrySet()) {
+                Annotation annotation = annotationMap.get(entry.getKey());
+                List<String> key = new ArrayList<>();
+                key.add(annotation.getAnnotatedProperty().getURI().toString());
+                for (URI semanticTag : entry.getValue()) {
+                    key.add(semanticTag.toString());
+                }
+                Collections.sort(key);
+                if (!groups.containsKey(key)) {
+                    groups.put(key, new ArrayList<Annotation>());
+                }
+                groups.get(key).add(annotation);
+            }
+
+            List<AnnotationSummary> summaries = new ArrayList<>();
+            for (List<Annotation> group : groups.values()) {
+                TypedProperty property = (TypedProperty) group.get(0).getAnnotatedProperty();
+                List<URI> annotationURIs = new ArrayList<>();
+                Set<URI> sources = new HashSet<>();
+                for (Annotation annotation : group) {
+                    annotationURIs.add(annotation.getURI());
+                    sources.add(annotation.getProvenance().getSource().getURI());
+                }
+                summaries.add(new SimpleAnnotationSummary(null,
+                                                          property.getURI(),
+                                                          property.getPropertyType(),
+                                                          property.getPropertyValue(),
+                                                          annotationToSemanticTags.get(group.get(0).getURI()),
+                                                          annotationURIs,
+                                                          0,
+                                                          sources));
+            }
+            return summaries;
+        }
+
+        private void addSemanticTags(Map<URI, Set<URI>> annotationToSemanticTags,
+                                     URI annotationURI,
+                                     Collection<URI> semanticTags) {
+            if (!annotationToSemanticTags.containsKey(annotationURI)) {
+                annotationToSemanticTags.put(annotationURI, new HashSet<URI>());
+            }
+            annotationToSemanticTags.get(annotationURI).addAll(semanticTags);
+        }
+    }
+
+    private static ZoomaLuceneIndexer createIndexer(Directory annotationIndex,
+                                                    Directory summaryIndex,
+                                                    Directory propertyIndex,
+                                                    Directory propertyTypeIndex,
+                                                    Directory propertySuggestIndex) {
+        ZoomaLuceneIndexer indexer = new ZoomaLuceneIndexer();
+        indexer.setAnalyzer(new EnglishAnalyzer(CharArraySet.EMPTY_SET));
+        indexer.setAnnotationIndex(annotationIndex);
+        indexer.setAnnotationCountIndex(new RAMDirectory());
+        indexer.setAnnotationSummaryIndex(summaryIndex);
+        indexer.setPropertyIndex(propertyIndex);
+        indexer.setPropertyTypeIndex(propertyTypeIndex);
+        indexer.setPropertySuggestIndex(propertySuggestIndex);
+        return indexer;
+    }
+
+    // the stored values of every live document in an index, with multiple values of a field in order, sorted
+    private static List<String> readDocuments(Directory index, String... fields) throws IOException {
+        List<String> documents = new ArrayList<>();
+        try (IndexReader reader = DirectoryReader.open(index)) {
+            Bits liveDocs = MultiFields.getLiveDocs(reader);
+            for (int i = 0; i < reader.maxDoc(); i++) {
+                if (liveDocs == null || liveDocs.get(i)) {
+                    Document doc = reader.document(i);
+                    StringBuilder sb = new StringBuilder();
+                    for (String field : fields) {
+                        String[] values = doc.getValues(field);
+                        Arrays.sort(values);
+                        sb.append(field).append("=").append(Arrays.toString(values)).append(";");
+                    }
+                    documents.add(sb.toString());
+                }
+            }
+        }
+        Collections.sort(documents);
+        return documents;
+    }
+
+    // the sorted semantic tags of every live summary in a summary index, by summary ID
+    private static Map<String, List<String>> readSummaryTags(Directory index) throws IOException {
+        Map<String, List<String>> summaryTags = new HashMap<>();
+        try (IndexReader reader = DirectoryReader.open(index)) {
+            Bits liveDocs = MultiFields.getLiveDocs(reader);
+            for (int i = 0; i < reader.maxDoc(); i++) {
+                if (liveDocs == null || liveDocs.get(i)) {
+                    Document doc = reader.document(i);
+                    List<String> semanticTags = new ArrayList<>(Arrays.asList(doc.getValues("semanticTag")));
+                    Collections.sort(semanticTags);
+                    summaryTags.put(doc.get("id"), semanticTags);
+                }
+            }
+        }
+        return summaryTags;
+    }
+
+    private static Map<String, String> readCommitData(Directory index) throws IOException {
+        try (DirectoryReader reader = DirectoryReader.open(index)) {
+            return reader.getIndexCommit().getUserData();
+        }
+    }
+
+    @Test
+    public void testStreamedIndicesMatchInMemoryIndices() {
+        try {
+            List<Annotation> annotations = corpus.getAnnotations(corpus.size, 0);
+            List<AnnotationSummary> summaries = corpus.getSummaries(annotations);
+            AnnotationSummaryDAO summaryDAO = mock(AnnotationSummaryDAO.class);
+            when(summaryDAO.read()).thenReturn(summaries);
+
+            Set<URI> replacedAnnotationURIs = new HashSet<>();
+            for (Annotation annotation : annotations) {
+                if (!annotation.getReplacedBy().isEmpty()) {
+                    replacedAnnotationURIs.add(annotation.getURI());
+                }
+            }
+
+            // the ID and semantic tags of each summary read from annotation history
+            ZoomaLuceneIndexer idGenerator = new ZoomaLuceneIndexer();
+            Map<String, List<String>> expectedSummaryTags = new HashMap<>();
+            int replacedSummaries = 0;
+            for (AnnotationSummary summary : summaries) {
+                List<String> idContent = new ArrayList<>();
+                idContent.add(summary.getAnnotatedPropertyType());
+                idContent.add(summary.getAnnotatedPropertyValue());
+                List<String> semanticTags = new ArrayList<>();
+                for (URI semanticTag : summary.getSemanticTags()) {
+                    idContent.add(semanticTag.toString());
+                    semanticTags.add(semanticTag.toString());
+                }
+                Collections.sort(semanticTags);
+                expectedSummaryTags.put(idGenerator.generateEncodedID(idContent.toArray(new String[idContent.size()])),
+                                        semanticTags);
+                if (!Collections.disjoint(summary.getAnnotationURIs(), replacedAnnotationURIs)) {
+                    replacedSummaries++;
+                }
+            }
+            assertTrue("Corpus should have summaries of replaced annotations", replacedSummaries > 0);
+
+            ZoomaLuceneIndexer inMemory = createIndexer(new RAMDirectory(),
+                                                        new RAMDirectory(),
+                                                        new RAMDirectory(),
+                                                        new RAMDirectory(),
+                                                        new RAMDirectory());
+            inMemory.setAnnotationSummaryDAO(summaryDAO);
+            inMemory.createIndices(annotations, annotations.size(), corpus.getProperties());
+
+            ZoomaLuceneIndexer streaming = createIndexer(new RAMDirectory(),
+                                                         new RAMDirectory(),
+                                                         new RAMDirectory(),
+                                                         new RAMDirectory(),
+                                                         new RAMDirectory());
+            streaming.setAnnotationPageSize(1500);
+            assertEquals("Wrong number of annotations indexed",
+                         corpus.size,
+                         streaming.createIndices(corpus.createAnnotationDAO(), corpus.getProperties()));
+
+            assertEquals("Streamed summary IDs and semantic tags differ from those read from annotation history",
+                         expectedSummaryTags,
+                         readSummaryTags(streaming.getAnnotationSummaryIndex()));
+
+            String[] summaryFields = {"id", "propertyuri", "property", "propertytype", "semanticTag", "annotation",
+                    "frequency", "topScore", "source", "timesVerified"};
+            List<String> expectedSummaries = readDocuments(inMemory.getAnnotationSummaryIndex(), summaryFields);
+            assertTrue("Corpus should have many summaries", expectedSummaries.size() > corpus.propertyCount);
+            assertEquals("Streamed summaries differ from in-memory summaries",
+                         expectedSummaries,
+                         readDocuments(streaming.getAnnotationSummaryIndex(), summaryFields));
+            assertEquals("Streamed summary statistics differ from in-memory summary statistics",
+                         readCommitData(inMemory.getAnnotationSummaryIndex()),
+                         readCommitData(streaming.getAnnotationSummaryIndex()));
+
+            assertEquals("Streamed annotations differ from in-memory annotations",
+                         readDocuments(inMemory.getAnnotationIndex(), "uri", "propertyuri", "target", "quality"),
+                         readDocuments(streaming.getAnnotationIndex(), "uri", "propertyuri", "target", "quality"));
+            assertEquals("Streamed annotation count differs from in-memory annotation count",
+                         readDocuments(inMemory.getAnnotationCountIndex(), "count"),
+                         readDocuments(streaming.getAnnotationCountIndex(), "count"));
+            assertEquals("Streamed properties differ from in-memory properties",
+                         readDocuments(inMemory.getPropertyIndex(), "uri", "name", "type", "source"),
+                         readDocuments(streaming.getPropertyIndex(), "uri", "name", "type", "source"));
+            assertEquals("Streamed property types differ from in-memory property types",
+                         readDocuments(inMemory.getPropertyTypeIndex(), "name", "source"),
+                         readDocuments(streaming.getPropertyTypeIndex(), "name", "source"));
+
+            inMemory.destroy();
+            streaming.destroy();
+        }
+        catch (IOException e) {
+            e.printStackTrace();
+            fail();
+        }
+    }
+
+    @Test
+    @Category(SlowTests.class)
+    public void testLargeCorpusIsIndexedInSmallHeap() {
+        Path indexPath = null;
+        try {
+            indexPath = Files.createTempDirectory("test-streaming-index");
+            String java = System.getProperty("java.home") + File.separator + "bin" + File.separator + "java";
+            Process process = new ProcessBuilder(java,
+                                                 LARGE_CORPUS_HEAP,
+                                                 "-cp",
+                                                 System.getProperty("java.class.path"),
+                                                 getClass().getName(),
+                                                 indexPath.toString())
+                    .inheritIO()
+                    .start();
+            assertEquals("Indexing the large corpus failed, see output above", 0, process.waitFor());
+        }
+        catch (IOException | InterruptedException e) {
+            e.printStackTrace();
+            fail();
+        }
+        finally {
+            if (indexPath != null) {
+                delete(indexPath);
+            }
+        }
+    }
+
+    private static void delete(Path path) {
+        try {
+            Files.walkFileTree(path, new SimpleFileVisitor<Path>() {
+                @Override public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException {
+                    Files.delete(file);
+                    return FileVisitResult.CONTINUE;
+                }
+
+                @Override public FileVisitResult postVisitDirectory(Path dir, IOException e) throws IOException {
+                    if (e != null) {
+                        throw e;
+                    }
+                    Files.delete(dir);
+                    return FileVisitResult.CONTINUE;
+                }
+            });
+        }
+        catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Indexes the large corpus into the directory given as the only argument, and checks the summaries produced.  This
+     * is run in its own JVM by {@link #testLargeCorpusIsIndexedInSmallHeap()}, and exits with a non-zero status if
+     * indexing fails or the summaries are wrong.
+     *
+     * @param args the directory to create indices in
+     */
+    public static void main(String[] args) {
+        try {
+            Path indexPath = new File(args[0]).toPath();
+            Corpus corpus = new Corpus(LARGE_CORPUS_SIZE, LARGE_CORPUS_PROPERTIES, false);
+            ZoomaLuceneIndexer indexer = createIndexer(FSDirectory.open(indexPath.resolve("annotation")),
+                                                       FSDirectory.open(indexPath.resolve("summary")),
+                                                       FSDirectory.open(indexPath.resolve("property")),
+                                                       FSDirectory.open(indexPath.resolve("propertytype")),
+                                                       FSDirectory.open(indexPath.resolve("suggest")));
+            // record only a fingerprint of each summary ID, as a production build would
+            indexer.setIDCollisionCheck(ZoomaLuceneIndexer.IDCollisionCheck.HASH);
+            int indexed = indexer.createIndices(corpus.createAnnotationDAO(), corpus.getProperties());
+            if (indexed != LARGE_CORPUS_SIZE) {
+                throw new AssertionError("Indexed " + indexed + " annotations, expected " + LARGE_CORPUS_SIZE);
+            }
+
+            // work out the expected size of every summary from the corpus itself
+            Map<String, Integer> expected = new LinkedHashMap<>();
+            for (int i = 0; i < LARGE_CORPUS_SIZE; i++) {
+                if (corpus.getVariant(i) != 2) {
+                    String key = "http://www.test.com/property/" + (i % LARGE_CORPUS_PROPERTIES) + " " +
+                            corpus.getVariant(i);
+                    expected.put(key, expected.containsKey(key) ? expected.get(key) + 1 : 1);
+                }
+            }
+
+            Map<String, Integer> actual = new LinkedHashMap<>();
+            try (IndexReader reader = DirectoryReader.open(indexer.getAnnotationSummaryIndex())) {
+                for (int i = 0; i < reader.maxDoc(); i++) {
+                    Document doc = reader.document(i);
+                    String key = doc.get("propertyuri") + " " + (doc.getValues("semanticTag").length - 1);
+                    if (actual.containsKey(key)) {
+                        throw new AssertionError("Duplicate summary " + key);
+                    }
+                    actual.put(key, Integer.parseInt(doc.get("frequency")));
+                }
+            }
+            if (!expected.equals(actual)) {
+                throw new AssertionError("Wrong summaries: expected " + expected.size() + ", " +
+                                                 "found " + actual.size());
+            }
+            indexer.destroy();
+            System.exit(0);
+        }
+        catch (Throwable t) {
+            t.printStackTrace();
+            System.exit(1);
+        }
+    }
+}
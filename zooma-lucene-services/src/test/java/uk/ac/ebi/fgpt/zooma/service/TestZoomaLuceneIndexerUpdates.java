@@ -0,0 +1,409 @@
+package uk.ac.ebi.fgpt.zooma.service;
+
+import org.apache.lucene.analysis.en.EnglishAnalyzer;
+import org.apache.lucene.analysis.util.CharArraySet;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.index.IndexableField;
+import org.apache.lucene.index.MultiFields;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.ScoreDoc;
+import org.apache.lucene.search.TermQuery;
+import org.apache.lucene.store.Directory;
+import org.apache.lucene.store.RAMDirectory;
+import org.apache.lucene.util.Bits;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import uk.ac.ebi.fgpt.zooma.datasource.AnnotationSummaryDAO;
+import uk.ac.ebi.fgpt.zooma.model.Annotation;
+import uk.ac.ebi.fgpt.zooma.model.AnnotationProvenance;
+import uk.ac.ebi.fgpt.zooma.model.AnnotationSummary;
+import uk.ac.ebi.fgpt.zooma.model.BiologicalEntity;
+import uk.ac.ebi.fgpt.zooma.model.Property;
+import uk.ac.ebi.fgpt.zooma.model.SimpleAnnotation;
+import uk.ac.ebi.fgpt.zooma.model.SimpleAnnotationProvenance;
+import uk.ac.ebi.fgpt.zooma.model.SimpleAnnotationSummary;
+import uk.ac.ebi.fgpt.zooma.model.SimpleDatabaseAnnotationSource;
+import uk.ac.ebi.fgpt.zooma.model.SimpleTypedProperty;
+import uk.ac.ebi.fgpt.zooma.model.SimpleUntypedProperty;
+import uk.ac.ebi.fgpt.zooma.model.TypedProperty;
+
+import java.io.IOException;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Tests that applying batches of added, modified and deleted annotations to the indices built by a {@link
+ * ZoomaLuceneIndexer} leaves indices that answer queries exactly as indices rebuilt from scratch would.
+ */
+public class TestZoomaLuceneIndexerUpdates {
+    private static final String[] INDICES = {"annotation", "annotationCount", "annotationSummary", "property",
+            "propertyType"};
+
+    private static final List<String> QUERY_TEXTS = Arrays.asList(
+            "liver", "heart", "kidney", "leukemia", "acut", "mous", "mouse", "organ", "part", "diseas", "brain",
+            "http://www.test.com/source1", "http://www.test.com/source2", "http://www.test.com/source3",
+            "http://www.test.com/source4",
+            "http://www.test.com/property/liver", "http://www.test.com/property/leukemia",
+            "http://www.test.com/property/mouse", "http://www.test.com/property/brain",
+            "http://purl.obolibrary.org/obo/UBERON_0002107", "http://www.ebi.ac.uk/efo/EFO_0000565",
+            "http://purl.obolibrary.org/obo/NCBITaxon_10090");
+
+    private Property liver;
+    private Property heart;
+    private Property leukemia;
+    private Property mouse;
+    private Property untypedKidney;
+
+    private URI uberonLiver;
+    private URI uberonHeart;
+    private URI efoLeukemia;
+    private URI efoAcuteLeukemia;
+    private URI ncbiMouse;
+    private URI uberonKidney;
+
+    private Map<URI, Annotation> corpus;
+
+    private ZoomaLuceneIndexer indexer;
+
+    @Before
+    public void setUp() {
+        try {
+            liver = new SimpleTypedProperty(new URI("http://www.test.com/property/liver"), "organism part", "liver");
+            heart = new SimpleTypedProperty(new URI("http://www.test.com/property/heart"), "organism part", "heart");
+            leukemia = new SimpleTypedProperty(new URI("http://www.test.com/property/leukemia"),
+                                               "disease",
+                                               "acute leukemia");
+            mouse = new SimpleTypedProperty(new URI("http://www.test.com/property/mouse"), "organism", "mouse");
+            untypedKidney = new SimpleUntypedProperty(new URI("http://www.test.com/property/kidney"), "kidney");
+
+            uberonLiver = new URI("http://purl.obolibrary.org/obo/UBERON_0002107");
+            uberonHeart = new URI("http://purl.obolibrary.org/obo/UBERON_0000948");
+            efoLeukemia = new URI("http://www.ebi.ac.uk/efo/EFO_0000565");
+            efoAcuteLeukemia = new URI("http://www.ebi.ac.uk/efo/EFO_0000222");
+            ncbiMouse = new URI("http://purl.obolibrary.org/obo/NCBITaxon_10090");
+            uberonKidney = new URI("http://purl.obolibrary.org/obo/UBERON_0002113");
+
+            corpus = new LinkedHashMap<>();
+            add(annotation(1, liver, "source1", AnnotationProvenance.Evidence.MANUAL_CURATED, uberonLiver));
+            add(annotation(2, liver, "source2", AnnotationProvenance.Evidence.ZOOMA_INFERRED_FROM_CURATED,
+                           uberonLiver));
+            add(annotation(3, heart, "source1", AnnotationProvenance.Evidence.MANUAL_CURATED, uberonHeart));
+            add(annotation(4, leukemia, "source2", AnnotationProvenance.Evidence.MANUAL_CURATED, efoLeukemia));
+            add(annotation(5, leukemia, "source3", AnnotationProvenance.Evidence.SUBMITTER_PROVIDED,
+                           efoLeukemia, efoAcuteLeukemia));
+            add(annotation(6, untypedKidney, "source3", AnnotationProvenance.Evidence.MANUAL_CURATED, uberonKidney));
+
+            indexer = createIndexer();
+            build(indexer, corpus.values());
+        }
+        catch (Exception e) {
+            e.printStackTrace();
+            fail();
+        }
+    }
+
+    @After
+    public void tearDown() {
+        indexer.destroy();
+    }
+
+    private Annotation annotation(int id,
+                                  Property property,
+                                  String source,
+                                  AnnotationProvenance.Evidence evidence,
+                                  URI... semanticTags) {
+        AnnotationProvenance provenance = new SimpleAnnotationProvenance(
+                new SimpleDatabaseAnnotationSource(URI.create("http://www.test.com/" + source), source),
+                evidence,
+                "TEST",
+                new Date(1400000000000L + id * 86400000L));
+        return new SimpleAnnotation(URI.create("http://www.test.com/annotation" + id),
+                                    Collections.<BiologicalEntity>emptySet(),
+                                    property,
+                                    provenance,
+                                    semanticTags);
+    }
+
+    private void add(Annotation annotation) {
+        corpus.put(annotation.getURI(), annotation);
+    }
+
+    private ZoomaLuceneIndexer createIndexer() {
+        ZoomaLuceneIndexer newIndexer = new ZoomaLuceneIndexer();
+        newIndexer.setAnalyzer(new EnglishAnalyzer(CharArraySet.EMPTY_SET));
+        newIndexer.setIndexingThreads(1);
+        newIndexer.setAnnotationIndex(new RAMDirectory());
+        newIndexer.setAnnotationCountIndex(new RAMDirectory());
+        newIndexer.setAnnotationSummaryIndex(new RAMDirectory());
+        newIndexer.setPropertyIndex(new RAMDirectory());
+        newIndexer.setPropertyTypeIndex(new RAMDirectory());
+        return newIndexer;
+    }
+
+    /**
+     * Builds every index from scratch, summarizing annotations by property and semantic tags as the ZOOMA datasource
+     * does.
+     */
+    private void build(ZoomaLuceneIndexer target, Collection<Annotation> annotations) throws IOException {
+        Map<URI, Property> properties = new LinkedHashMap<>();
+        Map<String, List<Annotation>> annotationsBySummary = new LinkedHashMap<>();
+        for (Annotation annotation : annotations) {
+            properties.put(annotation.getAnnotatedProperty().getURI(), annotation.getAnnotatedProperty());
+            String key = annotation.getAnnotatedProperty().getURI() + " " + new TreeSet<>(annotation.getSemanticTags());
+            if (!annotationsBySummary.containsKey(key)) {
+                annotationsBySummary.put(key, new ArrayList<Annotation>());
+            }
+            annotationsBySummary.get(key).add(annotation);
+        }
+
+        Collection<AnnotationSummary> summaries = new ArrayList<>();
+        for (List<Annotation> summarized : annotationsBySummary.values()) {
+            Property property = summarized.get(0).getAnnotatedProperty();
+            List<URI> annotationURIs = new ArrayList<>();
+            for (Annotation annotation : summarized) {
+                annotationURIs.add(annotation.getURI());
+            }
+            summaries.add(new SimpleAnnotationSummary(
+                    null,
+                    property.getURI(),
+                    property instanceof TypedProperty ? ((TypedProperty) property).getPropertyType() : null,
+                    property.getPropertyValue(),
+                    new HashSet<>(summarized.get(0).getSemanticTags()),
+                    annotationURIs,
+                    0,
+                    new HashSet<URI>()));
+        }
+        AnnotationSummaryDAO summaryDAO = mock(AnnotationSummaryDAO.class);
+        when(summaryDAO.read()).thenReturn(summaries);
+        target.setAnnotationSummaryDAO(summaryDAO);
+
+        target.createIndices(new ArrayList<>(annotations), annotations.size(), properties.values());
+    }
+
+    private Directory getIndex(ZoomaLuceneIndexer source, String index) {
+        switch (index) {
+            case "annotation":
+                return source.getAnnotationIndex();
+            case "annotationCount":
+                return source.getAnnotationCountIndex();
+            case "annotationSummary":
+                return source.getAnnotationSummaryIndex();
+            case "property":
+                return source.getPropertyIndex();
+            case "propertyType":
+                return source.getPropertyTypeIndex();
+            default:
+                throw new IllegalArgumentException("Unknown index '" + index + "'");
+        }
+    }
+
+    private List<String> readDocuments(Directory directory) throws IOException {
+        List<String> documents = new ArrayList<>();
+        try (IndexReader reader = DirectoryReader.open(directory)) {
+            Bits liveDocs = MultiFields.getLiveDocs(reader);
+            for (int i = 0; i < reader.maxDoc(); i++) {
+                // skip deleted documents
+                if (liveDocs != null && !liveDocs.get(i)) {
+                    continue;
+                }
+                Document doc = reader.document(i);
+                List<String> fields = new ArrayList<>();
+                for (IndexableField field : doc.getFields()) {
+                    fields.add(field.name() + "=" + field.stringValue());
+                }
+                Collections.sort(fields);
+                documents.add(fields.toString());
+            }
+        }
+        Collections.sort(documents);
+        return documents;
+    }
+
+    /**
+     * Runs term queries over every indexed term of the given fields, and returns the values of the key field of
+     * the matching documents
+     */
+    private Map<String, Set<String>> search(Directory directory, String keyField, String... fields)
+            throws IOException {
+        Map<String, Set<String>> results = new TreeMap<>();
+        try (IndexReader reader = DirectoryReader.open(directory)) {
+            IndexSearcher searcher = new IndexSearcher(reader);
+            for (String field : fields) {
+                for (String text : QUERY_TEXTS) {
+                    Set<String> hits = new TreeSet<>();
+                    int n = Math.max(1, reader.maxDoc());
+                    for (ScoreDoc scoreDoc : searcher.search(new TermQuery(new Term(field, text)), n).scoreDocs) {
+                        hits.add(String.valueOf(searcher.doc(scoreDoc.doc).get(keyField)));
+                    }
+                    results.put(field + ":" + text, hits);
+                }
+            }
+        }
+        return results;
+    }
+
+    private void assertMatchesRebuild() {
+        ZoomaLuceneIndexer rebuilt = createIndexer();
+        try {
+            build(rebuilt, corpus.values());
+            for (String index : INDICES) {
+                assertEquals("Documents in " + index + " index differ from a full rebuild",
+                             readDocuments(getIndex(rebuilt, index)),
+                             readDocuments(getIndex(indexer, index)));
+            }
+
+            assertEquals("Annotation index answers queries differently from a full rebuild",
+                         search(rebuilt.getAnnotationIndex(), "uri", "property", "propertytype", "source", "target"),
+                         search(indexer.getAnnotationIndex(), "uri", "property", "propertytype", "source", "target"));
+            assertEquals("Annotation summary index answers queries differently from a full rebuild",
+                         search(rebuilt.getAnnotationSummaryIndex(), "id", "property", "propertyuri", "source"),
+                         search(indexer.getAnnotationSummaryIndex(), "id", "property", "propertyuri", "source"));
+            assertEquals("Property index answers queries differently from a full rebuild",
+                         search(rebuilt.getPropertyIndex(), "uri", "name", "type", "source"),
+                         search(indexer.getPropertyIndex(), "uri", "name", "type", "source"));
+            assertEquals("Property type index answers queries differently from a full rebuild",
+                         search(rebuilt.getPropertyTypeIndex(), "name", "name", "source"),
+                         search(indexer.getPropertyTypeIndex(), "name", "name", "source"));
+        }
+        catch (IOException e) {
+            e.printStackTrace();
+            fail();
+        }
+        finally {
+            rebuilt.destroy();
+        }
+    }
+
+    @Test
+    public void testAddAnnotations() {
+        List<Annotation> added = Arrays.asList(
+                // verifies an existing summary from a new source
+                annotation(7, liver, "source4", AnnotationProvenance.Evidence.MANUAL_CURATED, uberonLiver),
+                // new property of an existing type
+                annotation(8,
+                           new SimpleTypedProperty(URI.create("http://www.test.com/property/brain"),
+                                                   "organism part",
+                                                   "brain"),
+                           "source1",
+                           AnnotationProvenance.Evidence.MANUAL_CURATED,
+                           URI.create("http://purl.obolibrary.org/obo/UBERON_0000955")),
+                // new property of a new type
+                annotation(9, mouse, "source2", AnnotationProvenance.Evidence.MANUAL_CURATED, ncbiMouse));
+        try {
+            for (Annotation annotation : added) {
+                add(annotation);
+            }
+            indexer.updateIndices(added, Collections.<URI>emptySet());
+            assertMatchesRebuild();
+        }
+        catch (IOException e) {
+            e.printStackTrace();
+            fail();
+        }
+    }
+
+    @Test
+    public void testModifyAnnotations() {
+        List<Annotation> modified = Arrays.asList(
+                // remapped, so moves from one summary to another
+                annotation(2, liver, "source2", AnnotationProvenance.Evidence.MANUAL_CURATED, uberonHeart),
+                // moved to a different property, leaving the old property unused
+                annotation(3, mouse, "source1", AnnotationProvenance.Evidence.MANUAL_CURATED, ncbiMouse),
+                // gains a semantic tag, and comes from a different source
+                annotation(4, leukemia, "source3", AnnotationProvenance.Evidence.MANUAL_CURATED,
+                           efoLeukemia, efoAcuteLeukemia));
+        try {
+            for (Annotation annotation : modified) {
+                add(annotation);
+            }
+            indexer.updateIndices(modified, Collections.<URI>emptySet());
+            assertMatchesRebuild();
+        }
+        catch (IOException e) {
+            e.printStackTrace();
+            fail();
+        }
+    }
+
+    @Test
+    public void testDeleteAnnotations() {
+        // removes one verification of a summary, a whole summary, and the only untyped annotation
+        List<URI> deleted = Arrays.asList(URI.create("http://www.test.com/annotation2"),
+                                          URI.create("http://www.test.com/annotation5"),
+                                          URI.create("http://www.test.com/annotation6"));
+        try {
+            for (URI uri : deleted) {
+                corpus.remove(uri);
+            }
+            indexer.updateIndices(Collections.<Annotation>emptySet(), deleted);
+            assertMatchesRebuild();
+        }
+        catch (IOException e) {
+            e.printStackTrace();
+            fail();
+        }
+    }
+
+    @Test
+    public void testDeletePropertyType() {
+        // removes the only annotations of the "disease" type
+        List<URI> deleted = Arrays.asList(URI.create("http://www.test.com/annotation4"),
+                                          URI.create("http://www.test.com/annotation5"));
+        try {
+            for (URI uri : deleted) {
+                corpus.remove(uri);
+            }
+            indexer.updateIndices(Collections.<Annotation>emptySet(), deleted);
+            assertMatchesRebuild();
+        }
+        catch (IOException e) {
+            e.printStackTrace();
+            fail();
+        }
+    }
+
+    @Test
+    public void testSuccessiveBatches() {
+        try {
+            Annotation added = annotation(7, mouse, "source4", AnnotationProvenance.Evidence.MANUAL_CURATED, ncbiMouse);
+            add(added);
+            indexer.updateIndices(Collections.singleton(added), Collections.<URI>emptySet());
+            assertMatchesRebuild();
+
+            Annotation modified =
+                    annotation(1, liver, "source4", AnnotationProvenance.Evidence.SUBMITTER_PROVIDED, uberonLiver);
+            add(modified);
+            indexer.updateIndices(Collections.singleton(modified), Collections.<URI>emptySet());
+            assertMatchesRebuild();
+
+            URI deleted = URI.create("http://www.test.com/annotation7");
+            corpus.remove(deleted);
+            indexer.updateIndices(Collections.<Annotation>emptySet(), Collections.singleton(deleted));
+            assertMatchesRebuild();
+        }
+        catch (IOException e) {
+            e.printStackTrace();
+            fail();
+        }
+    }
+}
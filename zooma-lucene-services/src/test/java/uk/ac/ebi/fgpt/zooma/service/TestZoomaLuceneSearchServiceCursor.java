@@ -0,0 +1,214 @@
+package uk.ac.ebi.fgpt.zooma.service;
+
+import org.apache.lucene.analysis.Analyzer;
+import org.apache.lucene.analysis.en.EnglishAnalyzer;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Field;
+import org.apache.lucene.document.SortedDocValuesField;
+import org.apache.lucene.document.StringField;
+import org.apache.lucene.document.TextField;
+import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.MatchAllDocsQuery;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.search.TermQuery;
+import org.apache.lucene.store.Directory;
+import org.apache.lucene.store.RAMDirectory;
+import org.apache.lucene.util.BytesRef;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import uk.ac.ebi.fgpt.zooma.exception.InvalidCursorException;
+import uk.ac.ebi.fgpt.zooma.util.CursorPage;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Tests paging through a large synthetic index with the cursors returned by {@link
+ * ZoomaLuceneSearchService#doCursorQuery}, checking that every result is returned exactly once and that each page costs
+ * the same to retrieve however deep into the results it is.
+ */
+public class TestZoomaLuceneSearchServiceCursor {
+    private static final int DOCUMENT_COUNT = 50000;
+    private static final int PAGE_SIZE = 1000;
+
+    private Directory index;
+    private ZoomaLuceneSearchService searchService;
+
+    private AtomicInteger docCalls;
+
+    @Before
+    public void setUp() {
+        index = createIndex(true);
+        searchService = createSearchService(index);
+    }
+
+    @After
+    public void tearDown() {
+        searchService.destroy();
+    }
+
+    private Directory createIndex(boolean sortable) {
+        try {
+            Analyzer analyzer = new EnglishAnalyzer();
+            Directory directory = new RAMDirectory();
+            IndexWriter w = new IndexWriter(directory, new IndexWriterConfig(analyzer));
+
+            // deterministic synthetic documents, with varying term frequencies and lengths so many scores are tied
+            Random random = new Random(42);
+            for (int i = 0; i < DOCUMENT_COUNT; i++) {
+                StringBuilder name = new StringBuilder();
+                int fooCount = random.nextInt(5);
+                for (int j = 0; j < fooCount; j++) {
+                    name.append("foo ");
+                }
+                int fillerCount = 1 + random.nextInt(5);
+                for (int j = 0; j < fillerCount; j++) {
+                    name.append("bar").append(random.nextInt(50)).append(" ");
+                }
+                String id = Integer.toString(i);
+                Document doc = new Document();
+                doc.add(new StringField("id", id, Field.Store.YES));
+                if (sortable) {
+                    doc.add(new SortedDocValuesField("id", new BytesRef(id)));
+                }
+                doc.add(new TextField("name", name.toString(), Field.Store.YES));
+                w.addDocument(doc);
+                if (i % 10000 == 9999) {
+                    // several segments, so that ordering across segments is exercised
+                    w.commit();
+                }
+            }
+            w.close();
+            return directory;
+        }
+        catch (IOException e) {
+            e.printStackTrace();
+            fail();
+            return null;
+        }
+    }
+
+    private ZoomaLuceneSearchService createSearchService(Directory directory) {
+        docCalls = new AtomicInteger();
+        ZoomaLuceneSearchService service = new ZoomaLuceneSearchService() {
+            @Override protected IndexSearcher newSearcher(IndexReader reader) {
+                return new IndexSearcher(reader) {
+                    @Override public Document doc(int docID) throws IOException {
+                        docCalls.incrementAndGet();
+                        return super.doc(docID);
+                    }
+                };
+            }
+        };
+        service.setIndex(directory);
+        service.init();
+        return service;
+    }
+
+    // pages through all results of the query, checking that each page loads only the documents on it
+    private List<String> pageThrough(ZoomaLuceneSearchService service, Query q) throws IOException {
+        SingleFieldStringMapper mapper = new SingleFieldStringMapper("id");
+        List<String> results = new ArrayList<>();
+        String cursor = null;
+        do {
+            docCalls.set(0);
+            CursorPage<String> page = service.doCursorQuery(q, mapper, "id", PAGE_SIZE, cursor);
+            assertEquals("Each page should load only the documents on it", page.getResults().size(), docCalls.get());
+            assertTrue("Page is larger than the limit", page.getResults().size() <= PAGE_SIZE);
+            results.addAll(page.getResults());
+            cursor = page.getNext();
+        }
+        while (cursor != null);
+        return results;
+    }
+
+    private void assertNoDuplicatesOrGaps(List<String> results, int expectedCount) {
+        Set<String> unique = new HashSet<>(results);
+        assertEquals("Duplicate results returned", results.size(), unique.size());
+        assertEquals("Results missing", expectedCount, unique.size());
+    }
+
+    @Test
+    public void testPagingReturnsEveryDocumentOnce() {
+        try {
+            List<String> results = pageThrough(searchService, new MatchAllDocsQuery());
+            assertNoDuplicatesOrGaps(results, DOCUMENT_COUNT);
+        }
+        catch (IOException e) {
+            e.printStackTrace();
+            fail();
+        }
+    }
+
+    @Test
+    public void testPagingMatchesSingleSortedSearch() {
+        try {
+            Query q = new TermQuery(new Term("name", "foo"));
+            List<String> paged = pageThrough(searchService, q);
+
+            CursorPage<String> all = searchService.doCursorQuery(q, new SingleFieldStringMapper("id"), "id",
+                                                                 DOCUMENT_COUNT, null);
+            assertNull("Everything fits on one page, so there should be no next page", all.getNext());
+            assertTrue("Query should match many pages of documents", all.getResults().size() > 10 * PAGE_SIZE);
+            assertNoDuplicatesOrGaps(paged, all.getResults().size());
+            assertEquals("Paged ordering differs from a single sorted search", all.getResults(), paged);
+        }
+        catch (IOException e) {
+            e.printStackTrace();
+            fail();
+        }
+    }
+
+    @Test
+    public void testIndexWithoutSortableIDsCanBePaged() {
+        ZoomaLuceneSearchService legacyService = createSearchService(createIndex(false));
+        try {
+            List<String> results = pageThrough(legacyService, new TermQuery(new Term("name", "foo")));
+            CursorPage<String> all = legacyService.doCursorQuery(new TermQuery(new Term("name", "foo")),
+                                                                 new SingleFieldStringMapper("id"), "id",
+                                                                 DOCUMENT_COUNT, null);
+            assertNoDuplicatesOrGaps(results, all.getResults().size());
+            assertEquals("Paged ordering differs from a single sorted search", all.getResults(), results);
+        }
+        catch (IOException e) {
+            e.printStackTrace();
+            fail();
+        }
+        finally {
+            legacyService.destroy();
+        }
+    }
+
+    @Test
+    public void testInvalidCursorIsRejected() {
+        SingleFieldStringMapper mapper = new SingleFieldStringMapper("id");
+        for (String cursor : new String[]{"not a cursor", "abc", "6162"}) {
+            try {
+                searchService.doCursorQuery(new MatchAllDocsQuery(), mapper, "id", PAGE_SIZE, cursor);
+                fail("Cursor '" + cursor + "' should have been rejected");
+            }
+            catch (InvalidCursorException e) {
+                // expected
+            }
+            catch (IOException e) {
+                e.printStackTrace();
+                fail();
+            }
+        }
+    }
+}
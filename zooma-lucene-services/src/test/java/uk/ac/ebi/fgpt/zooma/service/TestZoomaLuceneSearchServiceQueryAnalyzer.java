@@ -0,0 +1,194 @@
+package uk.ac.ebi.fgpt.zooma.service;
+
+import org.apache.lucene.analysis.Analyzer;
+import org.apache.lucene.analysis.en.EnglishAnalyzer;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Field;
+import org.apache.lucene.document.TextField;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.store.AlreadyClosedException;
+import org.apache.lucene.store.Directory;
+import org.apache.lucene.store.RAMDirectory;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.fail;
+
+/**
+ * Tests that queries formulated concurrently with the analyzer shared by a {@link ZoomaLuceneSearchService} are
+ * identical to queries formulated with a new analyzer for every call.
+ */
+public class TestZoomaLuceneSearchServiceQueryAnalyzer {
+    private static final int THREADS = 16;
+    private static final int ITERATIONS = 200;
+
+    private static final List<String> PATTERNS = Arrays.asList(
+            "liver",
+            "livers",
+            "Homo sapiens",
+            "acute myeloid leukemia",
+            "left ventricle of heart",
+            "10 mg/kg cisplatin",
+            "T-cell (CD4+) lymphocytes",
+            "the head and the thorax",
+            "running mice",
+            "mus musculus C57BL/6 strain, 8 weeks old");
+
+    private Directory index;
+    private ZoomaLuceneSearchService sharedService;
+    private ZoomaLuceneSearchService perCallService;
+
+    @Before
+    public void setUp() {
+        try {
+            index = new RAMDirectory();
+            IndexWriter w = new IndexWriter(index, new IndexWriterConfig(new EnglishAnalyzer()));
+            Document doc = new Document();
+            doc.add(new TextField("name", "liver", Field.Store.YES));
+            w.addDocument(doc);
+            w.close();
+
+            sharedService = new ZoomaLuceneSearchService() {
+            };
+            sharedService.setIndex(index);
+            sharedService.init();
+            sharedService.waitUntilReady();
+
+            // formulates queries the way this service used to, with a new analyzer for every query
+            perCallService = new ZoomaLuceneSearchService() {
+                @Override protected Analyzer getQueryAnalyzer() {
+                    return createQueryAnalyzer();
+                }
+            };
+        }
+        catch (IOException | InterruptedException e) {
+            e.printStackTrace();
+            fail();
+        }
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        sharedService.destroy();
+        index.close();
+    }
+
+    private List<Query> formulateAll(ZoomaLuceneSearchService service, String pattern) {
+        List<Query> queries = new ArrayList<>();
+        queries.add(service.formulateQuery("property", pattern));
+        queries.add(service.formulateExactQuery("property", pattern));
+        queries.add(service.formulatePrefixQuery("property", pattern));
+        queries.add(service.formulateQueryConserveOrderIfMultiword("property", pattern));
+        queries.add(service.formulateTypedQuery(service.formulateQuery("propertytype", "organism part"),
+                                                service.formulateQuery("property", pattern)));
+        queries.add(service.formulateCombinedQuery(true,
+                                                   false,
+                                                   service.formulateQuery("property", pattern),
+                                                   service.formulatePrefixQuery("property", pattern)));
+        return queries;
+    }
+
+    @Test
+    public void testAnalyzerIsShared() {
+        Analyzer analyzer = sharedService.getQueryAnalyzer();
+        sharedService.formulateQuery("property", "liver");
+        assertSame("Query analyzer should be reused", analyzer, sharedService.getQueryAnalyzer());
+    }
+
+    @Test
+    public void testConcurrentQueriesMatchPerCallAnalyzer() {
+        // expected queries, from a new analyzer each time
+        final List<List<Query>> expected = new ArrayList<>();
+        for (String pattern : PATTERNS) {
+            expected.add(formulateAll(perCallService, pattern));
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        final CountDownLatch start = new CountDownLatch(1);
+        try {
+            List<Future<List<String>>> futures = new ArrayList<>();
+            for (int t = 0; t < THREADS; t++) {
+                final int offset = t;
+                futures.add(executor.submit(new Callable<List<String>>() {
+                    @Override public List<String> call() throws Exception {
+                        start.await();
+                        List<String> mismatches = new ArrayList<>();
+                        for (int i = 0; i < ITERATIONS; i++) {
+                            // threads work through the patterns in different orders
+                            int p = (i + offset) % PATTERNS.size();
+                            List<Query> actual = formulateAll(sharedService, PATTERNS.get(p));
+                            if (!actual.equals(expected.get(p))) {
+                                mismatches.add(PATTERNS.get(p) + ": expected " + expected.get(p) + " but got " + actual);
+                            }
+                        }
+                        return mismatches;
+                    }
+                }));
+            }
+            start.countDown();
+
+            List<String> mismatches = new ArrayList<>();
+            for (Future<List<String>> future : futures) {
+                mismatches.addAll(future.get());
+            }
+            assertEquals("Queries differ from per-call analyzer: " + mismatches,
+                         Collections.<String>emptyList(),
+                         mismatches);
+        }
+        catch (Exception e) {
+            e.printStackTrace();
+            fail();
+        }
+        finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testAnalyzerClosedOnTermination() {
+        Analyzer analyzer = sharedService.getQueryAnalyzer();
+        sharedService.destroy();
+        try {
+            analyzer.tokenStream("property", "liver");
+            fail("Analyzer should have been closed");
+        }
+        catch (AlreadyClosedException e) {
+            // expected
+        }
+    }
+
+    @Test
+    public void testNoAnalyzerAfterTermination() {
+        sharedService.destroy();
+        try {
+            sharedService.getQueryAnalyzer();
+            fail("Analyzer should not be recreated after termination");
+        }
+        catch (IllegalStateException e) {
+            // expected
+        }
+        try {
+            sharedService.formulateQuery("property", "liver");
+            fail("Queries should not be formulated after termination");
+        }
+        catch (IllegalStateException e) {
+            // expected
+        }
+    }
+}
@@ -0,0 +1,188 @@
+package uk.ac.ebi.fgpt.zooma.service;
+
+import org.apache.lucene.analysis.Analyzer;
+import org.apache.lucene.analysis.en.EnglishAnalyzer;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Field;
+import org.apache.lucene.document.StringField;
+import org.apache.lucene.document.TextField;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.search.TermQuery;
+import org.apache.lucene.store.Directory;
+import org.apache.lucene.store.RAMDirectory;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Tests that a {@link ZoomaLuceneSearchService} picks up changes to its index on refresh, without disturbing searches
+ * that are in progress.
+ */
+public class TestZoomaLuceneSearchServiceRefresh {
+    private Analyzer analyzer;
+    private Directory index;
+    private ZoomaLuceneSearchService searchService;
+
+    @Before
+    public void setUp() {
+        try {
+            analyzer = new EnglishAnalyzer();
+            index = new RAMDirectory();
+            IndexWriter w = new IndexWriter(index, new IndexWriterConfig(analyzer));
+            for (int i = 0; i < 1000; i++) {
+                addDoc(w, "doc" + i, "foo");
+            }
+            w.close();
+
+            searchService = new ZoomaLuceneSearchService() {
+            };
+            searchService.setIndex(index);
+            searchService.init();
+        }
+        catch (IOException e) {
+            e.printStackTrace();
+            fail();
+        }
+    }
+
+    @After
+    public void tearDown() {
+        searchService.destroy();
+    }
+
+    private void addDoc(IndexWriter w, String id, String name) throws IOException {
+        Document doc = new Document();
+        doc.add(new StringField("id", id, Field.Store.YES));
+        doc.add(new TextField("name", name, Field.Store.YES));
+        w.addDocument(doc);
+    }
+
+    @Test
+    public void testRefreshDuringSearches() {
+        final Query fooQuery = new TermQuery(new Term("name", "foo"));
+        final SingleFieldStringMapper mapper = new SingleFieldStringMapper("id");
+        final AtomicBoolean running = new AtomicBoolean(true);
+        final AtomicInteger searches = new AtomicInteger();
+        final List<Throwable> failures = Collections.synchronizedList(new ArrayList<Throwable>());
+
+        // start searching continuously in the background
+        List<Thread> searchThreads = new ArrayList<>();
+        for (int i = 0; i < 8; i++) {
+            Thread t = new Thread(new Runnable() {
+                @Override public void run() {
+                    while (running.get()) {
+                        try {
+                            List<String> results = searchService.doQuery(fooQuery, mapper);
+                            if (results.size() < 1000) {
+                                failures.add(new AssertionError("Search returned too few results: " + results.size()));
+                            }
+                            searches.incrementAndGet();
+                        }
+                        catch (Throwable e) {
+                            failures.add(e);
+                        }
+                    }
+                }
+            });
+            searchThreads.add(t);
+            t.start();
+        }
+
+        try {
+            Query barQuery = new TermQuery(new Term("name", "bar"));
+            assertEquals("No 'bar' documents should be visible yet", 0, searchService.doQuery(barQuery, mapper).size());
+
+            // commit new documents from a separate writer
+            IndexWriterConfig config = new IndexWriterConfig(analyzer);
+            config.setOpenMode(IndexWriterConfig.OpenMode.APPEND);
+            IndexWriter w = new IndexWriter(index, config);
+            for (int i = 0; i < 100; i++) {
+                addDoc(w, "new" + i, "bar");
+                addDoc(w, "newfoo" + i, "foo");
+            }
+            w.close();
+
+            // not visible until refreshed
+            assertEquals("New documents visible before refresh", 0, searchService.doQuery(barQuery, mapper).size());
+
+            assertTrue("Index change was not detected", searchService.maybeRefresh());
+            assertEquals("New documents not visible after refresh", 100, searchService.doQuery(barQuery, mapper).size());
+            assertEquals("New documents not visible after refresh", 1100, searchService.doQuery(fooQuery, mapper).size());
+
+            // refreshing again with no changes should be a no-op
+            assertFalse("Unchanged index should not be reopened", searchService.maybeRefresh());
+        }
+        catch (IOException e) {
+            e.printStackTrace();
+            fail();
+        }
+        finally {
+            running.set(false);
+            for (Thread t : searchThreads) {
+                try {
+                    t.join();
+                }
+                catch (InterruptedException e) {
+                    fail("Interrupted waiting for search threads");
+                }
+            }
+        }
+
+        assertTrue("No searches completed", searches.get() > 0);
+        if (!failures.isEmpty()) {
+            failures.get(0).printStackTrace();
+            fail(failures.size() + " in-flight searches failed during refresh");
+        }
+    }
+
+    @Test
+    public void testPolledRefresh() {
+        ZoomaLuceneSearchService polledService = new ZoomaLuceneSearchService() {
+        };
+        polledService.setIndex(index);
+        polledService.setRefreshInterval(50);
+        polledService.init();
+        try {
+            Query barQuery = new TermQuery(new Term("name", "bar"));
+            SingleFieldStringMapper mapper = new SingleFieldStringMapper("id");
+            assertEquals(0, polledService.doQuery(barQuery, mapper).size());
+
+            IndexWriterConfig config = new IndexWriterConfig(analyzer);
+            config.setOpenMode(IndexWriterConfig.OpenMode.APPEND);
+            IndexWriter w = new IndexWriter(index, config);
+            addDoc(w, "new", "bar");
+            w.close();
+
+            // wait for the poller to pick up the change
+            long deadline = System.currentTimeMillis() + 10000;
+            int found = 0;
+            while (found == 0 && System.currentTimeMillis() < deadline) {
+                Thread.sleep(50);
+                found = polledService.doQuery(barQuery, mapper).size();
+            }
+            assertEquals("Polled refresh did not pick up new document", 1, found);
+        }
+        catch (IOException | InterruptedException e) {
+            e.printStackTrace();
+            fail();
+        }
+        finally {
+            polledService.destroy();
+        }
+    }
+}
@@ -0,0 +1,162 @@
+package uk.ac.ebi.fgpt.zooma.service;
+
+import org.apache.lucene.analysis.Analyzer;
+import org.apache.lucene.analysis.en.EnglishAnalyzer;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Field;
+import org.apache.lucene.document.StringField;
+import org.apache.lucene.document.TextField;
+import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.search.ScoreDoc;
+import org.apache.lucene.search.TermQuery;
+import org.apache.lucene.store.Directory;
+import org.apache.lucene.store.RAMDirectory;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Tests the bounded, top-K form of {@link ZoomaLuceneSearchService#doQuery} against the exhaustive, paged form over a
+ * large synthetic index.
+ */
+public class TestZoomaLuceneSearchServiceTopK {
+    private static final int DOCUMENT_COUNT = 100000;
+
+    private Directory index;
+    private ZoomaLuceneSearchService searchService;
+
+    private AtomicInteger docCalls;
+
+    @Before
+    public void setUp() {
+        try {
+            Analyzer analyzer = new EnglishAnalyzer();
+            index = new RAMDirectory();
+            IndexWriter w = new IndexWriter(index, new IndexWriterConfig(analyzer));
+
+            // deterministic synthetic documents, with varying term frequencies and lengths so scores are spread
+            Random random = new Random(42);
+            for (int i = 0; i < DOCUMENT_COUNT; i++) {
+                StringBuilder name = new StringBuilder();
+                int fooCount = random.nextInt(5);
+                for (int j = 0; j < fooCount; j++) {
+                    name.append("foo ");
+                }
+                int fillerCount = 1 + random.nextInt(20);
+                for (int j = 0; j < fillerCount; j++) {
+                    name.append("bar").append(random.nextInt(50)).append(" ");
+                }
+                Document doc = new Document();
+                doc.add(new StringField("id", Integer.toString(i), Field.Store.YES));
+                doc.add(new TextField("name", name.toString(), Field.Store.YES));
+                w.addDocument(doc);
+            }
+            w.close();
+
+            docCalls = new AtomicInteger();
+            searchService = new ZoomaLuceneSearchService() {
+                @Override protected IndexSearcher newSearcher(IndexReader reader) {
+                    return new IndexSearcher(reader) {
+                        @Override public Document doc(int docID) throws IOException {
+                            docCalls.incrementAndGet();
+                            return super.doc(docID);
+                        }
+                    };
+                }
+            };
+            searchService.setIndex(index);
+            searchService.init();
+        }
+        catch (IOException e) {
+            e.printStackTrace();
+            fail();
+        }
+    }
+
+    @After
+    public void tearDown() {
+        searchService.destroy();
+    }
+
+    @Test
+    public void testTopKMatchesExhaustiveOrdering() {
+        try {
+            Query q = new TermQuery(new Term("name", "foo"));
+            SingleFieldStringMapper mapper = new SingleFieldStringMapper("id");
+
+            docCalls.set(0);
+            List<String> exhaustive = searchService.doQuery(q, mapper);
+            int exhaustiveDocCalls = docCalls.get();
+
+            docCalls.set(0);
+            List<String> topK = searchService.doQuery(q, mapper, 10);
+            int topKDocCalls = docCalls.get();
+
+            assertEquals("Wrong number of top-K results", 10, topK.size());
+            assertEquals("Top-K ordering differs from exhaustive ordering", exhaustive.subList(0, 10), topK);
+            assertEquals("Exhaustive query should load every hit", exhaustive.size(), exhaustiveDocCalls);
+            assertEquals("Top-K query should load only K documents", 10, topKDocCalls);
+            assertTrue("Top-K query should load far fewer documents", topKDocCalls * 1000 < exhaustiveDocCalls);
+
+            // larger K spanning several blocks of the exhaustive path
+            List<String> topLarge = searchService.doQuery(q, mapper, 250);
+            assertEquals("Top-K ordering differs from exhaustive ordering", exhaustive.subList(0, 250), topLarge);
+        }
+        catch (IOException e) {
+            e.printStackTrace();
+            fail();
+        }
+    }
+
+    @Test
+    public void testMinimumRelativeScoreCutoff() {
+        try {
+            Query q = new TermQuery(new Term("name", "foo"));
+            SingleFieldStringMapper mapper = new SingleFieldStringMapper("id");
+
+            // work out the expected number of hits independently
+            IndexReader reader = DirectoryReader.open(index);
+            IndexSearcher searcher = new IndexSearcher(reader);
+            ScoreDoc[] allHits = searcher.search(q, DOCUMENT_COUNT).scoreDocs;
+            float cutoff = allHits[0].score * 0.9f;
+            int expected = 0;
+            for (ScoreDoc hit : allHits) {
+                if (hit.score >= cutoff) {
+                    expected++;
+                }
+            }
+            reader.close();
+
+            docCalls.set(0);
+            List<String> topCut = searchService.doQuery(q, mapper, 1000, 0.9f);
+            assertEquals("Wrong number of results above cutoff", Math.min(expected, 1000), topCut.size());
+            assertEquals("Documents below the cutoff should not be loaded", topCut.size(), docCalls.get());
+
+            docCalls.set(0);
+            List<String> allCut = searchService.doQuery(q, mapper, -1, 0.9f);
+            assertEquals("Wrong number of results above cutoff", expected, allCut.size());
+            assertEquals("Documents below the cutoff should not be loaded", expected, docCalls.get());
+            assertEquals("Cutoff results differ between paged and top-K queries",
+                         allCut.subList(0, topCut.size()), topCut);
+        }
+        catch (IOException e) {
+            e.printStackTrace();
+            fail();
+        }
+    }
+}
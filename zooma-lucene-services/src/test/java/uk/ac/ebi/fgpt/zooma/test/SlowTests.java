@@ -0,0 +1,8 @@
+package uk.ac.ebi.fgpt.zooma.test;
+
+/**
+ * JUnit category for tests that take too long, or need too many resources, to run on every build.  These are excluded
+ * by default, and run with <code>mvn test -Pslow-tests</code>.
+ */
+public interface SlowTests {
+}
@@ -2,6 +2,8 @@ package uk.ac.ebi.fgpt.zooma.test;
 
 import org.apache.lucene.analysis.Analyzer;
 import org.apache.lucene.analysis.en.EnglishAnalyzer;
+import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.search.IndexSearcher;
 import org.apache.lucene.search.similarities.Similarity;
 import org.apache.lucene.store.Directory;
 import org.apache.lucene.store.NIOFSDirectory;
@@ -29,9 +31,16 @@ public class ZoomaScoreCollector extends LuceneAnnotationSummarySearchService {
         initOrWait();
 
         List<Float> allScores = new ArrayList<>();
-        for (int i = 0; i < getReader().numDocs(); i++) {
-            float nextScore = getMapper().mapDocument(getReader().document(i)).getQuality();
-            allScores.add(nextScore);
+        IndexSearcher searcher = acquireSearcher();
+        try {
+            IndexReader reader = searcher.getIndexReader();
+            for (int i = 0; i < reader.numDocs(); i++) {
+                float nextScore = getMapper().mapDocument(reader.document(i)).getQuality();
+                allScores.add(nextScore);
+            }
+        }
+        finally {
+            releaseSearcher(searcher);
         }
         Collections.sort(allScores);
         getLog().debug("Maximum score = " + Collections.max(allScores));
@@ -0,0 +1,182 @@
+package uk.ac.ebi.fgpt.zooma.util;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.simmetrics.StringMetric;
+import org.simmetrics.StringMetricBuilder;
+import org.simmetrics.metrics.JaccardSimilarity;
+import org.simmetrics.metrics.NeedlemanWunch;
+import org.simmetrics.tokenizers.Whitespace;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests that scoring only the candidates shortlisted by a {@link PropertyValueCandidateIndex} finds exactly the same
+ * similar strings as scoring the whole of a synthetic dictionary.  The speed comparison lives in
+ * <code>PropertyValueCandidateIndexBenchmark</code> in the benchmarks module.
+ */
+public class TestPropertyValueCandidateIndex {
+    private static final int DICTIONARY_SIZE = 3000;
+    private static final int QUERY_COUNT = 25;
+
+    // the thresholds used by NeedlemanJaccardAnnotationSummarySearchService
+    private static final float NEEDLEMAN_WUNSCH_MIN_SCORE = 0.90f;
+    private static final float JACCARD_MIN_SCORE = 0.525f;
+
+    private Random random;
+    private List<String> dictionary;
+    private PropertyValueCandidateIndex index;
+
+    @Before
+    public void setUp() {
+        random = new Random(42);
+        List<String> vocabulary = new ArrayList<>();
+        for (int i = 0; i < 500; i++) {
+            StringBuilder word = new StringBuilder();
+            int letters = 3 + random.nextInt(8);
+            for (int j = 0; j < letters; j++) {
+                word.append((char) ('a' + random.nextInt(26)));
+            }
+            vocabulary.add(word.toString());
+        }
+
+        Set<String> values = new LinkedHashSet<>();
+        while (values.size() < DICTIONARY_SIZE) {
+            StringBuilder value = new StringBuilder();
+            int words = 1 + random.nextInt(4);
+            for (int j = 0; j < words; j++) {
+                if (j > 0) {
+                    value.append(" ");
+                }
+                value.append(vocabulary.get(random.nextInt(vocabulary.size())));
+            }
+            values.add(value.toString());
+        }
+        // a few edge cases: very short values, and values with no whitespace tokens
+        values.add("");
+        values.add(" ");
+        values.add("a");
+        values.add("ab");
+        values.add("ab c");
+        dictionary = new ArrayList<>(values);
+
+        index = new PropertyValueCandidateIndex(dictionary);
+        assertEquals(dictionary.size(), index.size());
+    }
+
+    @Test
+    public void testNeedlemanWunschCandidatesMatchBruteForce() {
+        NeedlemanWunch nwSimilarity = new NeedlemanWunch();
+        List<String> queries = createQueries();
+
+        int matches = 0;
+        for (String query : queries) {
+            Map<String, Float> expected = score(nwSimilarity, query, dictionary, NEEDLEMAN_WUNSCH_MIN_SCORE);
+            Collection<String> candidates = index.getNeedlemanWunschCandidates(query, NEEDLEMAN_WUNSCH_MIN_SCORE);
+            assertTrue("Needleman-Wunsch candidates for '" + query + "' miss similar strings",
+                       candidates.containsAll(expected.keySet()));
+            assertEquals("Needleman-Wunsch results differ for '" + query + "'",
+                         expected,
+                         score(nwSimilarity, query, candidates, NEEDLEMAN_WUNSCH_MIN_SCORE));
+            matches += expected.size();
+        }
+        assertTrue("Queries should have found some similar strings", matches > 0);
+    }
+
+    @Test
+    public void testJaccardCandidatesMatchBruteForce() {
+        StringMetric jaccardSimilarity =
+                StringMetricBuilder.with(new JaccardSimilarity<String>()).tokenize(new Whitespace()).build();
+        List<String> queries = createQueries();
+
+        int matches = 0;
+        for (String query : queries) {
+            Map<String, Float> expected = score(jaccardSimilarity, query, dictionary, JACCARD_MIN_SCORE);
+            Collection<String> candidates = index.getJaccardCandidates(query, JACCARD_MIN_SCORE);
+            assertTrue("Jaccard candidates for '" + query + "' miss similar strings",
+                       candidates.containsAll(expected.keySet()));
+            assertEquals("Jaccard results differ for '" + query + "'",
+                         expected,
+                         score(jaccardSimilarity, query, candidates, JACCARD_MIN_SCORE));
+            matches += expected.size();
+        }
+        assertTrue("Queries should have found some similar strings", matches > 0);
+    }
+
+    @Test
+    public void testEdgeCases() {
+        NeedlemanWunch nwSimilarity = new NeedlemanWunch();
+        StringMetric jaccardSimilarity =
+                StringMetricBuilder.with(new JaccardSimilarity<String>()).tokenize(new Whitespace()).build();
+        for (String query : new String[]{"", " ", "a", "ab", "abc", "ab c", "c ab"}) {
+            assertEquals(score(nwSimilarity, query, dictionary, NEEDLEMAN_WUNSCH_MIN_SCORE),
+                         score(nwSimilarity,
+                               query,
+                               index.getNeedlemanWunschCandidates(query, NEEDLEMAN_WUNSCH_MIN_SCORE),
+                               NEEDLEMAN_WUNSCH_MIN_SCORE));
+            assertEquals(score(jaccardSimilarity, query, dictionary, JACCARD_MIN_SCORE),
+                         score(jaccardSimilarity,
+                               query,
+                               index.getJaccardCandidates(query, JACCARD_MIN_SCORE),
+                               JACCARD_MIN_SCORE));
+        }
+        assertFalse(index.getNeedlemanWunschCandidates("ab c", NEEDLEMAN_WUNSCH_MIN_SCORE).isEmpty());
+    }
+
+    /**
+     * Creates queries by taking dictionary values and making a few random edits, dropping or adding words, or
+     * misspelling characters, so that there are near (but usually not exact) matches in the dictionary
+     */
+    private List<String> createQueries() {
+        List<String> queries = new ArrayList<>();
+        for (int i = 0; i < QUERY_COUNT; i++) {
+            String value = dictionary.get(random.nextInt(dictionary.size()));
+            StringBuilder query = new StringBuilder(value);
+            switch (i % 4) {
+                case 0:
+                    // substitute a character
+                    query.setCharAt(random.nextInt(query.length()), 'y');
+                    break;
+                case 1:
+                    // insert a character
+                    query.insert(random.nextInt(query.length() + 1), 'y');
+                    break;
+                case 2:
+                    // delete a character
+                    query.deleteCharAt(random.nextInt(query.length()));
+                    break;
+                default:
+                    // add a word
+                    query.append(" ").append(dictionary.get(random.nextInt(dictionary.size())).split(" ")[0]);
+                    break;
+            }
+            queries.add(query.toString());
+        }
+        return queries;
+    }
+
+    private Map<String, Float> score(StringMetric metric,
+                                     String query,
+                                     Collection<String> values,
+                                     float minScore) {
+        Map<String, Float> results = new HashMap<>();
+        for (String value : values) {
+            float score = metric.compare(query, value);
+            if (score >= minScore) {
+                results.put(value, score);
+            }
+        }
+        return results;
+    }
+}
@@ -0,0 +1,90 @@
+package uk.ac.ebi.fgpt.zooma.util;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.fail;
+
+/**
+ * Runs every {@link SearchStringProcessor} over a corpus of typical property values and checks that each returns
+ * exactly the results recorded from the original implementations, before their regular expressions were precompiled.
+ */
+public class TestSearchStringProcessors {
+    private static final String CORPUS = "search_string_processor_corpus.txt";
+
+    private Map<String, SearchStringProcessor> processors;
+
+    @Before
+    public void setUp() {
+        try {
+            AnatomyProcessor anatomyProcessor =
+                    new AnatomyProcessor("EFO_Dictionary/efo_dictionary_qualifier_OrgPart.txt");
+            anatomyProcessor.init();
+            AnatomyProcessor patoAnatomyProcessor =
+                    new AnatomyProcessor("EFO_Dictionary/pato_dictionary_qualifier_OrgPart.txt");
+            patoAnatomyProcessor.init();
+            ChemicalCompoundProcessor compoundProcessor =
+                    new ChemicalCompoundProcessor("EFO_Dictionary/efo_dictionary_concentrationUnit.txt");
+            compoundProcessor.init();
+            StopwordProcessor stopwordProcessor = new StopwordProcessor("stopwords.txt");
+            stopwordProcessor.init();
+
+            processors = new HashMap<>();
+            processors.put("anatomy", anatomyProcessor);
+            processors.put("anatomy-pato", patoAnatomyProcessor);
+            processors.put("compound", compoundProcessor);
+            processors.put("parentheses", new ParenthesesProcessor());
+            processors.put("stopword", stopwordProcessor);
+            processors.put("time", new TimeProcessor());
+            processors.put("splitting", new SplittingProcessor());
+        }
+        catch (IOException e) {
+            e.printStackTrace();
+            fail();
+        }
+    }
+
+    @Test
+    public void testProcessorOutputIsUnchanged() {
+        int checked = 0;
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(
+                getClass().getClassLoader().getResourceAsStream(CORPUS), StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.startsWith("#")) {
+                    continue;
+                }
+                String[] fields = line.split("\t", -1);
+                SearchStringProcessor processor = processors.get(fields[0]);
+                assertNotNull("Unknown processor '" + fields[0] + "'", processor);
+
+                String value = fields[1];
+                List<String> expected = Arrays.asList(fields).subList(3, fields.length);
+                assertEquals("Wrong canProcess result from " + fields[0] + " for '" + value + "'",
+                             Boolean.parseBoolean(fields[2]),
+                             processor.canProcess(value));
+                assertEquals("Wrong processed strings from " + fields[0] + " for '" + value + "'",
+                             expected,
+                             new ArrayList<>(processor.processSearchString(value)));
+                checked++;
+            }
+        }
+        catch (IOException e) {
+            e.printStackTrace();
+            fail();
+        }
+        assertEquals("Every processor should have processed the whole corpus", 427, checked);
+    }
+}